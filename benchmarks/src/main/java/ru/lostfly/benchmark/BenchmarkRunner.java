@@ -0,0 +1,68 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Точка входа benchmarks.jar: обычная командная строка JMH, но результаты
+ * по умолчанию пишутся в JSON ({@code jmh-results/<дата-время>.json}),
+ * чтобы запуски можно было сравнивать между собой (например, в JMH Visualizer
+ * или скриптом в CI).
+ * <p>
+ * Без явного фильтра запускаются все бенчмарки, кроме {@link DatabaseRepositoryBenchmark}:
+ * ему нужна MySQL. Включить его: {@code -Dbenchmarks.database=true}
+ * или передать имя класса фильтром.
+ * <pre>
+ *   java -jar benchmarks/target/benchmarks.jar                      # все in-memory
+ *   java -jar benchmarks/target/benchmarks.jar TgApiHandler         # один класс
+ *   java -jar benchmarks/target/benchmarks.jar -rff baseline.json   # свой файл
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private static final String RESULTS_DIR = "jmh-results";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList()) {
+            // Справку и список бенчмарков отдает сам JMH
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*");
+            if (!Boolean.getBoolean("benchmarks.database")) {
+                options.exclude(DatabaseRepositoryBenchmark.class.getSimpleName());
+            }
+        }
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            Path dir = Path.of(RESULTS_DIR);
+            Files.createDirectories(dir);
+            String name = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json";
+            options.result(dir.resolve(name).toString());
+        }
+
+        new Runner(options.build()).run();
+    }
+}
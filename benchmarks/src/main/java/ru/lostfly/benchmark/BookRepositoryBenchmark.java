@@ -0,0 +1,94 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.impl.BookRepositoryImpl;
+import ru.lostfly.business.repository.impl.BookRepositoryIndexedImpl;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение in-memory хранилищ книг: линейный перебор списка
+ * ({@link BookRepositoryImpl}) против индексированного ({@link BookRepositoryIndexedImpl}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BookRepositoryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int catalogSize;
+
+    @Param({"LIST", "INDEXED"})
+    private String implementation;
+
+    private BookRepository repository;
+    private SplittableRandom random;
+    // Ключи готовятся заранее, чтобы не мерить String.format
+    private String[] isbns;
+    private String[] authors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = "LIST".equals(implementation)
+                ? new BookRepositoryImpl()
+                : new BookRepositoryIndexedImpl();
+        List<Book> catalog = Catalogs.generate(catalogSize);
+        isbns = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            Book book = catalog.get(i);
+            repository.save(book);
+            isbns[i] = book.getIsbn();
+        }
+        authors = new String[Catalogs.authorCount(catalogSize)];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = Catalogs.author(i);
+        }
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public Book findByIsbn() {
+        return repository.findByIsbn(isbns[random.nextInt(catalogSize)]);
+    }
+
+    @Benchmark
+    public List<Book> findByAuthor() {
+        return repository.findByAuthor(authors[random.nextInt(authors.length)]);
+    }
+
+    @Benchmark
+    public int findAvailableBooks() {
+        return repository.findAvailableBooks().size();
+    }
+
+    /**
+     * Выдача и возврат одной книги: поиск по ISBN плюс два изменения доступности.
+     */
+    @Benchmark
+    public Book borrowAndReturn() {
+        Book book = repository.findByIsbn(isbns[random.nextInt(catalogSize)]);
+        if (book.isAvailable()) {
+            book.borrow();
+            book.setAvailable(true);
+        }
+        return book;
+    }
+}
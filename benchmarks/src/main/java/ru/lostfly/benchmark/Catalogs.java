@@ -0,0 +1,49 @@
+package ru.lostfly.benchmark;
+
+import ru.lostfly.business.domain.book.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Генератор синтетического каталога для бенчмарков.
+ * Данные детерминированы, чтобы результаты разных запусков были сравнимы.
+ */
+final class Catalogs {
+
+    // В среднем 10 книг на автора
+    private static final int BOOKS_PER_AUTHOR = 10;
+
+    private Catalogs() {
+    }
+
+    static List<Book> generate(int size) {
+        List<Book> books = new ArrayList<>(size);
+        int authors = authorCount(size);
+        for (int i = 0; i < size; i++) {
+            Book book = new Book(isbn(i), title(i), author(i % authors), "Genre " + (i % 20));
+            // Половина каталога выдана
+            if (i % 2 == 1) {
+                book.setAvailable(false);
+            }
+            books.add(book);
+        }
+        return books;
+    }
+
+    static String isbn(int i) {
+        return String.format("978-%010d", i);
+    }
+
+    static String title(int i) {
+        return "Book title " + i;
+    }
+
+    static String author(int i) {
+        return "Author " + i;
+    }
+
+    static int authorCount(int size) {
+        return Math.max(1, size / BOOKS_PER_AUTHOR);
+    }
+}
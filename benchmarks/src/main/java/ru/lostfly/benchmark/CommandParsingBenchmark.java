@@ -0,0 +1,121 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lostfly.business.handlers.UserSession;
+import ru.lostfly.business.handlers.command.ArgSpec;
+import ru.lostfly.business.handlers.command.Command;
+import ru.lostfly.business.handlers.command.CommandRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор команды без работы с хранилищем: прежний разбор (trim, split по пробелам,
+ * switch по имени, split по '|' и trim каждого поля) против {@link CommandRegistry}
+ * (поиск по таблице без подстрок, границы полей вместо копий, проверка по {@link ArgSpec}).
+ * <p>
+ * Обработчики возвращают первое поле - одну строку на сообщение в обоих вариантах.
+ * Выделение памяти на операцию: {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandParsingBenchmark {
+
+    private static final String[] MESSAGES = {
+            "/borrow_book 978-5-17-123456-7|R001",
+            "/return_book 978-5-17-123456-7 | R001",
+            "/add_book 978-5-17-123456-7|Война и мир|Толстой Л.Н.",
+            "/add_copies 978-5-17-123456-7|2",
+            "/search война мир",
+            "/top_books 5",
+            "/list_available_books"
+    };
+
+    private CommandRegistry registry;
+    private UserSession session;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ArgSpec loan = ArgSpec.of("/borrow_book").text("ISBN").text("ID_читателя").build();
+        registry = CommandRegistry.builder()
+                .register("/start", ArgSpec.NONE, (chatId, session, args) -> "")
+                .register("/help", ArgSpec.NONE, (chatId, session, args) -> "")
+                .register("/add_book", ArgSpec.of("/add_book")
+                                .minLength("ISBN", 2, "short").nonEmpty("Название", "empty").nonEmpty("Автор", "empty")
+                                .build(),
+                        (chatId, session, args) -> args.get(0))
+                .register("/add_copies", ArgSpec.of("/add_copies")
+                                .text("ISBN").integer("Количество", 1, Integer.MAX_VALUE, "nan", "range").build(),
+                        (chatId, session, args) -> args.get(0))
+                .register("/borrow_book", loan, (chatId, session, args) -> args.get(0))
+                .register("/return_book", loan, (chatId, session, args) -> args.get(0))
+                .register("/search", ArgSpec.of("/search").text("Слова_запроса").build(),
+                        (chatId, session, args) -> args.get(0))
+                .register("/list_available_books", ArgSpec.of("/list_available_books").optional().build(),
+                        (chatId, session, args) -> "")
+                .register("/top_books", ArgSpec.of("/top_books").integer("Количество", 1, 50, "nan", "range")
+                                .optional().build(),
+                        (chatId, session, args) -> "")
+                .build();
+        session = new UserSession();
+    }
+
+    @Benchmark
+    public String legacySwitch() {
+        String trimmed = nextMessage().trim();
+        String[] parts = trimmed.split("\\s+", 2);
+        String params = parts.length > 1 ? parts[1] : "";
+        return switch (parts[0]) {
+            case "/start", "/help", "/list_available_books" -> "";
+            case "/add_book" -> {
+                String[] fields = params.split("\\|", 3);
+                String isbn = fields[0].trim();
+                String title = fields[1].trim();
+                String author = fields[2].trim();
+                yield isbn.length() < 2 || title.isEmpty() || author.isEmpty() ? "invalid" : isbn;
+            }
+            case "/add_copies" -> {
+                String[] fields = params.split("\\|", 2);
+                Integer.parseInt(fields[1].trim());
+                yield fields[0].trim();
+            }
+            case "/borrow_book", "/return_book" -> {
+                String[] fields = params.split("\\|", 2);
+                String readerId = fields[1].trim();
+                yield readerId.isEmpty() ? "invalid" : fields[0].trim();
+            }
+            case "/search" -> params.trim();
+            case "/top_books" -> {
+                Integer.parseInt(params.trim());
+                yield "";
+            }
+            default -> "unknown";
+        };
+    }
+
+    @Benchmark
+    public String registry() {
+        String message = nextMessage();
+        Command command = registry.find(message);
+        return command != null ? command.execute(0, session, message) : "unknown";
+    }
+
+    private String nextMessage() {
+        String message = MESSAGES[next];
+        next = next + 1 == MESSAGES.length ? 0 : next + 1;
+        return message;
+    }
+}
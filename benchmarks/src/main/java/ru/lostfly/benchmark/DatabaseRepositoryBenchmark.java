@@ -0,0 +1,118 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.loan.Loan;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.LoanRepository;
+import ru.lostfly.business.repository.LoanResult;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+import ru.lostfly.components.repository.RepositoryComponent;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Круговые поездки к MySQL через репозитории режимов DATABASE и DATABASE_CACHED.
+ * <p>
+ * Нужна запущенная база из docker-compose.yml (library_db на localhost:3306).
+ * Каталог загружается в setUp через saveAll (UPSERT), поэтому повторные
+ * запуски не плодят записи. Без базы setUp падает, и JMH помечает
+ * замеры этого класса как ошибочные - остальные бенчмарки это не затрагивает.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseRepositoryBenchmark {
+
+    private static final String READER_ID = "BENCH-R001";
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    @Param({"DATABASE", "DATABASE_CACHED"})
+    private RepositoryComponent.RepositoryMode mode;
+
+    private BookRepository bookRepository;
+    private LoanRepository loanRepository;
+    private SplittableRandom random;
+    private String[] isbns;
+    private String[] availableIsbns;
+    private String[] authors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RepositoryComponent repositories = new RepositoryComponent(mode);
+        bookRepository = repositories.getBookRepository();
+        loanRepository = repositories.getLoanRepository();
+
+        List<Book> catalog = Catalogs.generate(catalogSize);
+        bookRepository.saveAll(catalog);
+        // Читатель без выданных книг: save() заменяет его активные выдачи пустым списком
+        repositories.getReaderRepository().save(new Reader(READER_ID, "Benchmark reader"));
+
+        isbns = new String[catalogSize];
+        availableIsbns = new String[(catalogSize + 1) / 2];
+        for (int i = 0; i < catalogSize; i++) {
+            isbns[i] = catalog.get(i).getIsbn();
+            if (i % 2 == 0) {
+                availableIsbns[i / 2] = isbns[i];
+            }
+        }
+        authors = new String[Catalogs.authorCount(catalogSize)];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = Catalogs.author(i);
+        }
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public Book findByIsbn() {
+        return bookRepository.findByIsbn(isbns[random.nextInt(catalogSize)]);
+    }
+
+    @Benchmark
+    public Page<Book> findAvailableBooksPage() {
+        return bookRepository.findAvailableBooks(PageRequest.after(isbns[random.nextInt(catalogSize)], 10));
+    }
+
+    @Benchmark
+    public List<Book> findByAuthor() {
+        return bookRepository.findByAuthor(authors[random.nextInt(authors.length)]);
+    }
+
+    @Benchmark
+    public List<Book> search() {
+        return bookRepository.search("title " + random.nextInt(catalogSize), 10);
+    }
+
+    /**
+     * Выдача и возврат: две транзакции, 10 запросов
+     */
+    @Benchmark
+    public LoanResult borrowAndReturn() {
+        String isbn = availableIsbns[random.nextInt(availableIsbns.length)];
+        Instant dueAt = Instant.now().plus(14, ChronoUnit.DAYS);
+        loanRepository.borrow(new Loan(isbn, READER_ID, Loan.NO_CHAT, dueAt), Reader.MAX_BOOKS);
+        return loanRepository.returnBook(isbn, READER_ID);
+    }
+}
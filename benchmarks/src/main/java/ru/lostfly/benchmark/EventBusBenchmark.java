@@ -0,0 +1,80 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.events.DomainEventBus;
+import ru.lostfly.business.stats.LibraryStatistics;
+import ru.lostfly.components.repository.RepositoryComponent;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена учета выдачи в потоке выдачи: обновление статистики на месте
+ * ({@link LibraryStatistics#recordBorrow}) против публикации события в
+ * {@link DomainEventBus}, после которой статистику обновляет поток шины.
+ * Пока в буфере есть место, публикация не ждет потребителя; если он отстал
+ * на всю емкость, публикатор ждет свободную ячейку (domain_events_full_waits_total).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    private LibraryStatistics statistics;
+    private DomainEventBus bus;
+    private Book[] books;
+    private int[] timesRead;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RepositoryComponent repositories = new RepositoryComponent(RepositoryComponent.RepositoryMode.IN_MEMORY_INDEXED);
+        List<Book> catalog = Catalogs.generate(CATALOG_SIZE);
+        books = catalog.toArray(new Book[0]);
+        timesRead = new int[CATALOG_SIZE];
+        repositories.getBookRepository().saveAll(catalog);
+        random = new SplittableRandom(42);
+
+        statistics = new LibraryStatistics(repositories.getBookRepository(), repositories.getReaderRepository());
+        statistics.getTopBooks(10); // заполнение рейтинга - один раз, не в замере
+        bus = new DomainEventBus(new MetricsRegistry());
+        bus.subscribe("statistics", statistics);
+        bus.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bus.close();
+    }
+
+    @Benchmark
+    public void recordInline() {
+        int i = random.nextInt(CATALOG_SIZE);
+        statistics.recordBorrow(books[i].getIsbn(), books[i].getTitle(), ++timesRead[i]);
+    }
+
+    @Benchmark
+    public void publishEvent() {
+        int i = random.nextInt(CATALOG_SIZE);
+        bus.publishBookBorrowed(books[i].getIsbn(), books[i].getTitle(), "reader", ++timesRead[i]);
+    }
+}
@@ -0,0 +1,123 @@
+package ru.lostfly.benchmark;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.compact.CompactBookRepository;
+import ru.lostfly.business.repository.compact.CompactCatalog;
+import ru.lostfly.business.repository.impl.BookRepositoryImpl;
+import ru.lostfly.business.repository.impl.BookRepositoryIndexedImpl;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Сколько байт кучи занимает одна книга в разных хранилищах каталога:
+ * список объектов ({@link BookRepositoryImpl}), объекты с индексами
+ * ({@link BookRepositoryIndexedImpl}) и примитивные массивы ({@link CompactCatalog}).
+ * <p>
+ * Это не JMH-замер времени: хранилище заполняется синтетическим каталогом
+ * ({@link Catalogs}), и сравнивается занятая куча после полной сборки мусора
+ * до и после. Точнее всего с последовательным сборщиком:
+ * <pre>
+ *   java -Xmx4g -XX:+UseSerialGC -cp benchmarks/target/benchmarks.jar \
+ *        ru.lostfly.benchmark.HeapFootprintBenchmark 100000 1000000
+ * </pre>
+ * Результаты печатаются таблицей и пишутся в {@code jmh-results/footprint-<дата-время>.json}.
+ */
+public final class HeapFootprintBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {100_000, 1_000_000};
+    // Сколько раз подряд звать сборщик, пока занятая память не перестанет меняться
+    private static final int MAX_GC_ROUNDS = 10;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private HeapFootprintBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        StringBuilder json = new StringBuilder("[\n");
+        System.out.printf("%-10s %12s %16s %14s%n", "model", "books", "heap, bytes", "bytes/book");
+        for (int size : sizes) {
+            // Прогон вхолостую: загрузка классов не должна попасть в первый замер
+            measure(size, () -> new CompactBookRepository(new CompactCatalog()));
+
+            long list = measure(size, BookRepositoryImpl::new);
+            long indexed = measure(size, BookRepositoryIndexedImpl::new);
+            long compact = measure(size, () -> new CompactBookRepository(new CompactCatalog()));
+
+            report(json, "LIST", size, list);
+            report(json, "INDEXED", size, indexed);
+            report(json, "COMPACT", size, compact);
+        }
+        json.setLength(json.length() - 2);
+        json.append("\n]\n");
+
+        Path dir = Path.of("jmh-results");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("footprint-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        Files.writeString(file, json);
+        System.out.println("Results: " + file);
+    }
+
+    /**
+     * @return прирост занятой кучи после заполнения хранилища каталогом
+     */
+    private static long measure(int size, Supplier<BookRepository> factory) {
+        long before = usedHeapAfterGc();
+        BookRepository repository = factory.get();
+        fill(repository, size);
+        long after = usedHeapAfterGc();
+        // Хранилище должно дожить до замера
+        Reference.reachabilityFence(repository);
+        return after - before;
+    }
+
+    /**
+     * Книги генерируются в отдельном методе, чтобы список не остался достижим
+     * со стека: в куче остается только то, что удерживает хранилище
+     */
+    private static void fill(BookRepository repository, int size) {
+        List<Book> catalog = Catalogs.generate(size);
+        repository.saveAll(catalog);
+    }
+
+    private static long usedHeapAfterGc() {
+        long used = Long.MAX_VALUE;
+        for (int round = 0; round < MAX_GC_ROUNDS; round++) {
+            System.gc();
+            long current = MEMORY.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+        return used;
+    }
+
+    private static void report(StringBuilder json, String model, int size, long bytes) {
+        double perBook = (double) bytes / size;
+        System.out.printf(Locale.ROOT, "%-10s %12d %16d %14.1f%n", model, size, bytes, perBook);
+        json.append(String.format(Locale.ROOT,
+                "  {\"model\": \"%s\", \"books\": %d, \"heapBytes\": %d, \"bytesPerBook\": %.1f},\n",
+                model, size, bytes, perBook));
+    }
+}
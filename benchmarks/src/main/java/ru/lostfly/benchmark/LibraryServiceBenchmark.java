@@ -0,0 +1,86 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.service.LibraryService;
+import ru.lostfly.components.repository.RepositoryComponent;
+import ru.lostfly.components.service.ServiceComponent;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность выдачи и возврата через {@link LibraryService}
+ * в in-memory режимах: поиск книги, проверка лимита читателя, смена доступности.
+ * <p>
+ * Замер однопоточный; выдача из многих потоков - {@link LoanContentionBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LibraryServiceBenchmark {
+
+    @Param({"10000", "100000"})
+    private int catalogSize;
+
+    @Param({"IN_MEMORY", "IN_MEMORY_INDEXED", "IN_MEMORY_COMPACT"})
+    private RepositoryComponent.RepositoryMode mode;
+
+    private LibraryService service;
+    private Reader reader;
+    private Book[] books;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RepositoryComponent repositories = new RepositoryComponent(mode);
+        BookRepository bookRepository = repositories.getBookRepository();
+        // Все книги доступны, чтобы каждая итерация проходила полный путь выдачи
+        books = new Book[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            books[i] = new Book(Catalogs.isbn(i), Catalogs.title(i), Catalogs.author(i % 100));
+        }
+        bookRepository.saveAll(Arrays.asList(books));
+
+        reader = new Reader("R001", "Benchmark reader");
+        repositories.getReaderRepository().save(reader);
+        service = new ServiceComponent(repositories).getLibraryService();
+        random = new SplittableRandom(42);
+    }
+
+    /**
+     * Выдача и сразу возврат случайной книги
+     */
+    @Benchmark
+    public void borrowAndReturn(Blackhole blackhole) {
+        Book book = books[random.nextInt(catalogSize)];
+        blackhole.consume(service.borrowBook(book.getIsbn(), reader));
+        blackhole.consume(service.returnBook(book, reader));
+    }
+
+    /**
+     * Отказ в выдаче: книга не найдена (путь ошибки без изменения состояния)
+     */
+    @Benchmark
+    public String borrowUnknownBook() {
+        return service.borrowBook("unknown-isbn", reader);
+    }
+}
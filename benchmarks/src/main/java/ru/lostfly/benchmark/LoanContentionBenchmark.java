@@ -0,0 +1,109 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.service.LibraryService;
+import ru.lostfly.components.repository.RepositoryComponent;
+import ru.lostfly.components.service.ServiceComponent;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Масштабирование выдачи и возврата по ядрам: потоки одновременно берут
+ * и возвращают книги через {@link LibraryService}, у каждого потока свой читатель.
+ * <p>
+ * {@code hotBooks} задает, за сколько книг идет борьба: 16 - сильная конкуренция
+ * (часть выдач получает "недоступна"), весь каталог - почти без пересечений.
+ * IN_MEMORY_INDEXED выдает книги CAS-ом без блокировок,
+ * IN_MEMORY_COMPACT - под общим монитором хранилища.
+ * Одинаковая работа замеряется на 1, 4 и всех доступных потоках.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LoanContentionBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"16", "10000"})
+    private int hotBooks;
+
+    @Param({"IN_MEMORY_INDEXED", "IN_MEMORY_COMPACT"})
+    private RepositoryComponent.RepositoryMode mode;
+
+    private RepositoryComponent repositories;
+    private LibraryService service;
+    private Book[] books;
+    private final AtomicInteger clients = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repositories = new RepositoryComponent(mode);
+        books = new Book[CATALOG_SIZE];
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            books[i] = new Book(Catalogs.isbn(i), Catalogs.title(i), Catalogs.author(i % 100));
+            repositories.getBookRepository().save(books[i]);
+        }
+        service = new ServiceComponent(repositories).getLibraryService();
+    }
+
+    /**
+     * Читатель и генератор случайных чисел потока
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private Reader reader;
+        private SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(LoanContentionBenchmark benchmark) {
+            int id = benchmark.clients.incrementAndGet();
+            reader = new Reader("BENCH-" + id, "Benchmark reader " + id);
+            benchmark.repositories.getReaderRepository().save(reader);
+            random = new SplittableRandom(id);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void threads1(Client client, Blackhole blackhole) {
+        borrowAndReturn(client, blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void threads4(Client client, Blackhole blackhole) {
+        borrowAndReturn(client, blackhole);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void threadsMax(Client client, Blackhole blackhole) {
+        borrowAndReturn(client, blackhole);
+    }
+
+    private void borrowAndReturn(Client client, Blackhole blackhole) {
+        Book book = books[client.random.nextInt(hotBooks)];
+        blackhole.consume(service.borrowBook(book.getIsbn(), client.reader));
+        blackhole.consume(service.returnBook(book, client.reader));
+    }
+}
@@ -0,0 +1,175 @@
+package ru.lostfly.benchmark;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.service.LibraryService;
+import ru.lostfly.components.repository.RepositoryComponent;
+import ru.lostfly.components.service.ServiceComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочная проверка корректности выдачи из многих потоков
+ * (не замер скорости - для него {@link LoanContentionBenchmark}).
+ * <p>
+ * Потоки одновременно берут и возвращают несколько "горячих" книг,
+ * причем у одного читателя несколько потоков. Проверяется, что:
+ * <ul>
+ *     <li>книга ни в какой момент не выдана двум потокам сразу;</li>
+ *     <li>у читателя никогда не больше {@link Reader#MAX_BOOKS} книг;</li>
+ *     <li>счетчик прочтений каждой книги равен числу успешных выдач;</li>
+ *     <li>после возврата всех книг каталог снова доступен целиком.</li>
+ * </ul>
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar ru.lostfly.benchmark.LoanStressCheck [операций на поток]
+ * </pre>
+ * Код выхода 1 - найдено нарушение.
+ */
+public final class LoanStressCheck {
+
+    private static final String BORROWED = "Книга успешно взята";
+    private static final String RETURNED = "Книга успешно возвращена";
+
+    private static final int BOOKS = 8;
+    private static final int THREADS_PER_READER = 3;
+    private static final int DEFAULT_OPERATIONS = 200_000;
+
+    private static final RepositoryComponent.RepositoryMode[] MODES = {
+            RepositoryComponent.RepositoryMode.IN_MEMORY,
+            RepositoryComponent.RepositoryMode.IN_MEMORY_INDEXED,
+            RepositoryComponent.RepositoryMode.IN_MEMORY_COMPACT
+    };
+
+    private LoanStressCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_OPERATIONS;
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+        boolean ok = true;
+        for (RepositoryComponent.RepositoryMode mode : MODES) {
+            ok &= run(mode, threads, operations);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(RepositoryComponent.RepositoryMode mode, int threads, int operations) throws Exception {
+        RepositoryComponent repositories = new RepositoryComponent(mode);
+        BookRepository bookRepository = repositories.getBookRepository();
+        LibraryService service = new ServiceComponent(repositories).getLibraryService();
+
+        String[] isbns = new String[BOOKS];
+        for (int i = 0; i < BOOKS; i++) {
+            isbns[i] = Catalogs.isbn(i);
+            bookRepository.save(new Book(isbns[i], Catalogs.title(i), Catalogs.author(i)));
+        }
+        int readerCount = Math.max(1, threads / THREADS_PER_READER);
+        Reader[] readers = new Reader[readerCount];
+        for (int i = 0; i < readerCount; i++) {
+            readers[i] = new Reader("STRESS-" + i, "Stress reader " + i);
+            repositories.getReaderRepository().save(readers[i]);
+        }
+
+        // Сколько потоков сейчас держат книгу / сколько книг у читателя - по мнению проверки.
+        // Счетчик уменьшается до возврата, поэтому значение больше лимита - гарантированное нарушение
+        AtomicIntegerArray holders = new AtomicIntegerArray(BOOKS);
+        AtomicIntegerArray readerLoans = new AtomicIntegerArray(readerCount);
+        AtomicIntegerArray borrowCounts = new AtomicIntegerArray(BOOKS);
+        AtomicInteger violations = new AtomicInteger();
+        LongAdder rejected = new LongAdder();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>(threads);
+        long begin = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int readerIndex = t % readerCount;
+            SplittableRandom random = new SplittableRandom(t);
+            tasks.add(executor.submit(() -> {
+                Reader reader = readers[readerIndex];
+                List<Integer> held = new ArrayList<>();
+                start.await();
+                for (int op = 0; op < operations; op++) {
+                    if (!held.isEmpty() && random.nextBoolean()) {
+                        int book = held.remove(random.nextInt(held.size()));
+                        holders.decrementAndGet(book);
+                        readerLoans.decrementAndGet(readerIndex);
+                        String result = service.returnBook(bookRepository.findByIsbn(isbns[book]), reader);
+                        if (!RETURNED.equals(result)) {
+                            violations.incrementAndGet();
+                            System.err.println("Return of a held book failed: " + result);
+                        }
+                        continue;
+                    }
+                    int book = random.nextInt(BOOKS);
+                    String result = service.borrowBook(isbns[book], reader);
+                    if (!BORROWED.equals(result)) {
+                        rejected.increment();
+                        continue;
+                    }
+                    borrowCounts.incrementAndGet(book);
+                    held.add(book);
+                    if (holders.incrementAndGet(book) > 1) {
+                        violations.incrementAndGet();
+                        System.err.println("Book borrowed twice: " + isbns[book]);
+                    }
+                    if (readerLoans.incrementAndGet(readerIndex) > Reader.MAX_BOOKS) {
+                        violations.incrementAndGet();
+                        System.err.println("Reader limit exceeded: " + reader.getId());
+                    }
+                }
+                for (int book : held) {
+                    holders.decrementAndGet(book);
+                    readerLoans.decrementAndGet(readerIndex);
+                    service.returnBook(bookRepository.findByIsbn(isbns[book]), reader);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+        long elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = bookRepository.findByIsbn(isbns[i]);
+            if (book.getTimesRead() != borrowCounts.get(i)) {
+                violations.incrementAndGet();
+                System.err.printf("timesRead of %s is %d, expected %d%n",
+                        isbns[i], book.getTimesRead(), borrowCounts.get(i));
+            }
+        }
+        if (bookRepository.findAvailableBooks().size() != BOOKS) {
+            violations.incrementAndGet();
+            System.err.println("Not all books are available after returning everything");
+        }
+
+        System.out.printf("%-18s threads=%d ops=%d borrows=%d rejected=%d time=%d ms violations=%d%n",
+                mode, threads, (long) threads * operations, sum(borrowCounts), rejected.sum(),
+                elapsedMillis, violations.get());
+        return violations.get() == 0;
+    }
+
+    private static long sum(AtomicIntegerArray values) {
+        long total = 0;
+        for (int i = 0; i < values.length(); i++) {
+            total += values.get(i);
+        }
+        return total;
+    }
+}
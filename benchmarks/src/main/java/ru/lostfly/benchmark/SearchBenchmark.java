@@ -0,0 +1,76 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.impl.BookRepositoryImpl;
+import ru.lostfly.business.repository.impl.BookRepositoryIndexedImpl;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка поиска по автору и полнотекстового поиска в зависимости от размера каталога:
+ * перебор списка против инвертированного индекса.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    private int catalogSize;
+
+    @Param({"LIST", "INDEXED"})
+    private String implementation;
+
+    private BookRepository repository;
+    private SplittableRandom random;
+    private String[] authorQueries;
+    private String[] titleQueries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = "LIST".equals(implementation)
+                ? new BookRepositoryImpl()
+                : new BookRepositoryIndexedImpl();
+        repository.saveAll(Catalogs.generate(catalogSize));
+
+        random = new SplittableRandom(7);
+        int authors = Catalogs.authorCount(catalogSize);
+        authorQueries = new String[QUERIES];
+        titleQueries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            authorQueries[i] = Catalogs.author(random.nextInt(authors)).toLowerCase();
+            // "title 1234" - префикс числа совпадает с несколькими книгами
+            titleQueries[i] = "title " + random.nextInt(catalogSize);
+        }
+    }
+
+    @Benchmark
+    public List<Book> findByAuthor() {
+        return repository.findByAuthor(authorQueries[random.nextInt(QUERIES)]);
+    }
+
+    @Benchmark
+    public List<Book> searchTitle() {
+        return repository.search(titleQueries[random.nextInt(QUERIES)], 10);
+    }
+}
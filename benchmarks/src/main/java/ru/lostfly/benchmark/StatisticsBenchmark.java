@@ -0,0 +1,86 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.stats.LibraryStatistics;
+import ru.lostfly.components.repository.RepositoryComponent;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рейтинг самых читаемых книг: проход по каталогу
+ * ({@link BookRepository#findMostRead(int)}) против чтения готового рейтинга
+ * ({@link LibraryStatistics}), и цена поддержки рейтинга на каждой выдаче.
+ * Проход растет с каталогом, чтение рейтинга от него не зависит.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class StatisticsBenchmark {
+
+    private static final int TOP = 10;
+
+    @Param({"10000", "100000"})
+    private int catalogSize;
+
+    private BookRepository bookRepository;
+    private LibraryStatistics statistics;
+    private Book[] books;
+    private int[] timesRead;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RepositoryComponent repositories = new RepositoryComponent(RepositoryComponent.RepositoryMode.IN_MEMORY_INDEXED);
+        bookRepository = repositories.getBookRepository();
+        random = new SplittableRandom(42);
+        List<Book> catalog = Catalogs.generate(catalogSize);
+        books = catalog.toArray(new Book[0]);
+        timesRead = new int[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            timesRead[i] = random.nextInt(1000);
+            books[i].setTimesRead(timesRead[i]);
+        }
+        bookRepository.saveAll(catalog);
+        statistics = new LibraryStatistics(bookRepository, repositories.getReaderRepository());
+        statistics.getTopBooks(TOP); // заполнение рейтинга - один раз, не в замере
+    }
+
+    @Benchmark
+    public List<Book> scanCatalog() {
+        return bookRepository.findMostRead(TOP);
+    }
+
+    @Benchmark
+    public void readRanking(Blackhole blackhole) {
+        blackhole.consume(statistics.getTopBooks(TOP));
+    }
+
+    /**
+     * Учет одной выдачи: счетчики по часам и рейтинг
+     * (большинство книг отсекается порогом без блокировки)
+     */
+    @Benchmark
+    public void recordBorrow() {
+        int i = random.nextInt(catalogSize);
+        statistics.recordBorrow(books[i].getIsbn(), books[i].getTitle(), ++timesRead[i]);
+    }
+}
@@ -0,0 +1,157 @@
+package ru.lostfly.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lostfly.business.handlers.TgApiHandler;
+import ru.lostfly.components.repository.RepositoryComponent;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Полный путь команды через {@link TgApiHandler#handleUpdateReceived}:
+ * сессия, разбор команды, запрос к хранилищу и сборка текста ответа.
+ * <p>
+ * Однопоточные замеры покрывают все команды, включая изменяющие состояние.
+ * Многопоточные ({@code *Concurrent}) - только команды чтения: in-memory
+ * хранилища допускают параллельное чтение без записи.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TgApiHandlerBenchmark {
+
+    private static final int THREADS = 4;
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    @Param({"IN_MEMORY", "IN_MEMORY_INDEXED"})
+    private RepositoryComponent.RepositoryMode mode;
+
+    private TgApiHandler handler;
+    private String[] isbns;
+    private String[] findCommands;
+    private String[] searchCommands;
+    private String[] borrowCommands;
+    private String[] returnCommands;
+
+    /**
+     * Состояние потока: свой chatId и свой генератор случайных чисел
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private static final AtomicLong CHAT_IDS = new AtomicLong(1_000);
+
+        private long chatId;
+        private SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            chatId = CHAT_IDS.incrementAndGet();
+            random = new SplittableRandom(chatId);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        handler = new TgApiHandler(mode);
+        // Каталог загружается теми же командами, что шлют пользователи
+        for (int i = 0; i < catalogSize; i++) {
+            handler.handleUpdateReceived(1L, "/add_book " + Catalogs.isbn(i) + "|"
+                    + Catalogs.title(i) + "|" + Catalogs.author(i % Catalogs.authorCount(catalogSize)));
+        }
+        handler.handleUpdateReceived(1L, "/add_user R001|Benchmark reader");
+
+        int authors = Catalogs.authorCount(catalogSize);
+        findCommands = new String[authors];
+        for (int i = 0; i < authors; i++) {
+            findCommands[i] = "/find_book_by_author " + Catalogs.author(i);
+        }
+        isbns = new String[catalogSize];
+        searchCommands = new String[catalogSize];
+        borrowCommands = new String[catalogSize];
+        returnCommands = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            isbns[i] = Catalogs.isbn(i);
+            searchCommands[i] = "/search title " + i;
+            borrowCommands[i] = "/borrow_book " + Catalogs.isbn(i) + "|R001";
+            returnCommands[i] = "/return_book " + Catalogs.isbn(i) + "|R001";
+        }
+    }
+
+    @Benchmark
+    public String help(Client client) {
+        return handler.handleUpdateReceived(client.chatId, "/help");
+    }
+
+    @Benchmark
+    public String listAvailableBooks(Client client) {
+        return handler.handleUpdateReceived(client.chatId, "/list_available_books");
+    }
+
+    @Benchmark
+    public String findBookByAuthor(Client client) {
+        return handler.handleUpdateReceived(client.chatId, findCommands[client.random.nextInt(findCommands.length)]);
+    }
+
+    @Benchmark
+    public String search(Client client) {
+        return handler.handleUpdateReceived(client.chatId, searchCommands[client.random.nextInt(catalogSize)]);
+    }
+
+    /**
+     * Выдача и возврат: две команды, изменяющие состояние
+     */
+    @Benchmark
+    public String borrowAndReturn(Client client) {
+        int i = client.random.nextInt(catalogSize);
+        handler.handleUpdateReceived(client.chatId, borrowCommands[i]);
+        return handler.handleUpdateReceived(client.chatId, returnCommands[i]);
+    }
+
+    /**
+     * Пошаговый диалог: три сообщения через хранилище сессий
+     */
+    @Benchmark
+    public String borrowDialog(Client client) {
+        int i = client.random.nextInt(catalogSize);
+        handler.handleUpdateReceived(client.chatId, "/borrow_book");
+        handler.handleUpdateReceived(client.chatId, isbns[i]);
+        handler.handleUpdateReceived(client.chatId, "R001");
+        return handler.handleUpdateReceived(client.chatId, returnCommands[i]);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public String findBookByAuthorConcurrent(Client client) {
+        return findBookByAuthor(client);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public String searchConcurrent(Client client) {
+        return search(client);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public String listAvailableBooksConcurrent(Client client) {
+        return listAvailableBooks(client);
+    }
+}
@@ -1,3 +1,5 @@
+-- Схема для новой базы. Существующую базу обновляет migrate.sql
+
 -- Создание базы данных (если не создалась автоматически)
 CREATE DATABASE IF NOT EXISTS library_db;
 USE library_db;
@@ -8,10 +10,21 @@ CREATE TABLE IF NOT EXISTS books (
     title VARCHAR(255) NOT NULL,
     author VARCHAR(255) NOT NULL,
     genre VARCHAR(100),
+    -- Есть ли свободный экземпляр (available_copies > 0): держится для индекса списка доступных
     is_available BOOLEAN DEFAULT TRUE,
     times_read INT DEFAULT 0,
+    -- Экземпляров издания всего и сколько из них на полке
+    copies INT NOT NULL DEFAULT 1,
+    available_copies INT NOT NULL DEFAULT 1,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    -- Постраничный список доступных книг (WHERE is_available AND isbn > ? ORDER BY isbn)
+    INDEX idx_books_available_isbn (is_available, isbn),
+    -- Самые читаемые книги (ORDER BY times_read DESC LIMIT ?) - заполнение рейтинга при старте
+    INDEX idx_books_times_read (times_read),
+    -- Полнотекстовый поиск: по автору (/find_book_by_author) и по названию + автору (/search)
+    FULLTEXT INDEX ft_books_author (author),
+    FULLTEXT INDEX ft_books_title_author (title, author)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Таблица для читателей
@@ -22,18 +35,56 @@ CREATE TABLE IF NOT EXISTS readers (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Физические экземпляры изданий: какой именно экземпляр выдан
+CREATE TABLE IF NOT EXISTS book_copies (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_isbn VARCHAR(20) NOT NULL,
+    copy_no INT NOT NULL,
+    is_available BOOLEAN DEFAULT TRUE,
+    FOREIGN KEY (book_isbn) REFERENCES books(isbn) ON DELETE CASCADE,
+    UNIQUE KEY uk_book_copies_no (book_isbn, copy_no),
+    -- Свободный экземпляр при выдаче: WHERE book_isbn = ? AND is_available = TRUE LIMIT 1
+    INDEX idx_book_copies_free (book_isbn, is_available)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- Таблица для связи читателей и книг (взятые книги)
 CREATE TABLE IF NOT EXISTS borrowed_books (
     id INT AUTO_INCREMENT PRIMARY KEY,
     reader_id VARCHAR(50) NOT NULL,
     book_isbn VARCHAR(20) NOT NULL,
+    -- Выданный экземпляр; NULL - выдача записана до учета экземпляров
+    copy_id BIGINT NULL,
+    -- Чат, куда прислать напоминание о просрочке; NULL - выдача не из бота
+    chat_id BIGINT NULL,
     borrowed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    due_at TIMESTAMP NULL,
+    -- Когда отправлено напоминание о просрочке; такие выдачи при старте не читаются
+    reminded_at TIMESTAMP NULL,
     returned_at TIMESTAMP NULL,
     FOREIGN KEY (reader_id) REFERENCES readers(id) ON DELETE CASCADE,
     FOREIGN KEY (book_isbn) REFERENCES books(isbn) ON DELETE CASCADE,
+    FOREIGN KEY (copy_id) REFERENCES book_copies(id) ON DELETE SET NULL,
     INDEX idx_reader_id (reader_id),
+    INDEX idx_reader_active (reader_id, returned_at),
     INDEX idx_book_isbn (book_isbn),
-    INDEX idx_borrowed_at (borrowed_at)
+    INDEX idx_borrowed_at (borrowed_at),
+    -- Невозвращенные выдачи со сроками: восстановление индекса сроков при старте
+    INDEX idx_active_due (returned_at, due_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Очереди ожидания книг: первый в очереди по книге - строка с наименьшим id
+CREATE TABLE IF NOT EXISTS holds (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_isbn VARCHAR(20) NOT NULL,
+    reader_id VARCHAR(50) NOT NULL,
+    chat_id BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (reader_id) REFERENCES readers(id) ON DELETE CASCADE,
+    FOREIGN KEY (book_isbn) REFERENCES books(isbn) ON DELETE CASCADE,
+    -- Читатель стоит в очереди на книгу не больше одного раза
+    UNIQUE KEY uk_holds_book_reader (book_isbn, reader_id),
+    -- Голова очереди и позиция: WHERE book_isbn = ? ORDER BY id
+    INDEX idx_holds_book_id (book_isbn, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Добавление тестовых данных
@@ -42,6 +93,8 @@ INSERT INTO books (isbn, title, author, genre, is_available, times_read) VALUES
 ('978-0-201-61622-4', 'The Pragmatic Programmer', 'Andrew Hunt', 'Programming', TRUE, 0),
 ('978-0-596-00715-8', 'Head First Design Patterns', 'Eric Freeman', 'Programming', TRUE, 0);
 
+INSERT INTO book_copies (book_isbn, copy_no) SELECT isbn, 1 FROM books;
+
 INSERT INTO readers (id, name) VALUES
 ('R001', 'Иван Иванов'),
 ('R002', 'Мария Петрова'),
@@ -0,0 +1,16 @@
+#!/bin/bash
+
+# Скрипт для обновления схемы существующей базы (database/migrate.sql)
+
+echo "Обновление схемы library_db..."
+echo ""
+
+# Проверяем, запущен ли контейнер
+if ! docker ps | grep -q library_mysql; then
+    echo "Ошибка: Контейнер library_mysql не запущен!"
+    echo "Запустите базу данных командой: docker-compose up -d"
+    exit 1
+fi
+
+# Изменения и процедура требуют прав root
+docker exec -i library_mysql mysql -u root -prootpassword library_db < "$(dirname "$0")/migrate.sql"
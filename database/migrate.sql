@@ -0,0 +1,144 @@
+-- Обновление существующей базы до схемы init.sql.
+-- init.sql создает таблицы только если их нет, поэтому базе, созданной
+-- раньше, новые колонки, индексы и таблицы нужно добавить этим скриптом.
+-- Скрипт можно запускать повторно: каждое изменение выполняется, только если
+-- его еще нет, данные заполняются только при добавлении колонки.
+--
+-- Запуск: ./database/migrate.sh
+-- или:    mysql -u root -p library_db < database/migrate.sql
+
+USE library_db;
+
+-- Очереди ожидания книг
+CREATE TABLE IF NOT EXISTS holds (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_isbn VARCHAR(20) NOT NULL,
+    reader_id VARCHAR(50) NOT NULL,
+    chat_id BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (reader_id) REFERENCES readers(id) ON DELETE CASCADE,
+    FOREIGN KEY (book_isbn) REFERENCES books(isbn) ON DELETE CASCADE,
+    UNIQUE KEY uk_holds_book_reader (book_isbn, reader_id),
+    INDEX idx_holds_book_id (book_isbn, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Физические экземпляры изданий
+CREATE TABLE IF NOT EXISTS book_copies (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_isbn VARCHAR(20) NOT NULL,
+    copy_no INT NOT NULL,
+    is_available BOOLEAN DEFAULT TRUE,
+    FOREIGN KEY (book_isbn) REFERENCES books(isbn) ON DELETE CASCADE,
+    UNIQUE KEY uk_book_copies_no (book_isbn, copy_no),
+    INDEX idx_book_copies_free (book_isbn, is_available)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+DROP PROCEDURE IF EXISTS library_migrate;
+
+DELIMITER //
+
+CREATE PROCEDURE library_migrate()
+BEGIN
+    DECLARE max_copies INT;
+
+    -- Индексы книг: постраничный список доступных, рейтинг, полнотекстовый поиск
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'books'
+                     AND INDEX_NAME = 'idx_books_available_isbn') THEN
+        ALTER TABLE books ADD INDEX idx_books_available_isbn (is_available, isbn);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'books'
+                     AND INDEX_NAME = 'idx_books_times_read') THEN
+        ALTER TABLE books ADD INDEX idx_books_times_read (times_read);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'books'
+                     AND INDEX_NAME = 'ft_books_author') THEN
+        ALTER TABLE books ADD FULLTEXT INDEX ft_books_author (author);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'books'
+                     AND INDEX_NAME = 'ft_books_title_author') THEN
+        ALTER TABLE books ADD FULLTEXT INDEX ft_books_title_author (title, author);
+    END IF;
+
+    -- Невозвращенные книги читателя (лимит при выдаче)
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'borrowed_books'
+                     AND INDEX_NAME = 'idx_reader_active') THEN
+        ALTER TABLE borrowed_books ADD INDEX idx_reader_active (reader_id, returned_at);
+    END IF;
+
+    -- Счетчики экземпляров: каждое издание - столько экземпляров, сколько его
+    -- сейчас выдано (не меньше одного), свободны невыданные
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'books'
+                     AND COLUMN_NAME = 'copies') THEN
+        ALTER TABLE books
+            ADD COLUMN copies INT NOT NULL DEFAULT 1 AFTER times_read,
+            ADD COLUMN available_copies INT NOT NULL DEFAULT 1 AFTER copies;
+        UPDATE books b
+            LEFT JOIN (SELECT book_isbn, COUNT(*) AS active FROM borrowed_books
+                       WHERE returned_at IS NULL GROUP BY book_isbn) l ON l.book_isbn = b.isbn
+        SET b.copies = GREATEST(1, COALESCE(l.active, 0)),
+            b.available_copies = GREATEST(1, COALESCE(l.active, 0)) - COALESCE(l.active, 0),
+            b.is_available = COALESCE(l.active, 0) = 0;
+    END IF;
+
+    -- Строки экземпляров 1..copies для каждого издания (уже заведенные не трогаются)
+    SELECT COALESCE(MAX(copies), 1) INTO max_copies FROM books;
+    SET SESSION cte_max_recursion_depth = GREATEST(max_copies, 1000);
+    INSERT IGNORE INTO book_copies (book_isbn, copy_no, is_available)
+        WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < max_copies)
+        SELECT b.isbn, seq.n, TRUE FROM books b JOIN seq ON seq.n <= b.copies;
+
+    -- Выданный экземпляр: невозвращенным выдачам назначаются экземпляры по порядку,
+    -- назначенные помечаются выданными
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'borrowed_books'
+                     AND COLUMN_NAME = 'copy_id') THEN
+        ALTER TABLE borrowed_books
+            ADD COLUMN copy_id BIGINT NULL AFTER book_isbn,
+            ADD CONSTRAINT fk_borrowed_books_copy FOREIGN KEY (copy_id) REFERENCES book_copies(id) ON DELETE SET NULL;
+        UPDATE borrowed_books bb
+            JOIN (SELECT id, book_isbn,
+                         ROW_NUMBER() OVER (PARTITION BY book_isbn ORDER BY id) AS copy_no
+                  FROM borrowed_books WHERE returned_at IS NULL) l ON l.id = bb.id
+            JOIN book_copies c ON c.book_isbn = l.book_isbn AND c.copy_no = l.copy_no
+        SET bb.copy_id = c.id, c.is_available = FALSE;
+    END IF;
+
+    -- Чат для напоминаний и срок возврата. У невозвращенных выдач срок считается
+    -- от даты выдачи по LOAN_PERIOD_DAYS по умолчанию (14 дней); чат неизвестен -
+    -- такие просрочки попадут в индекс сроков, но напоминание отправить некуда
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'borrowed_books'
+                     AND COLUMN_NAME = 'chat_id') THEN
+        ALTER TABLE borrowed_books ADD COLUMN chat_id BIGINT NULL AFTER copy_id;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'borrowed_books'
+                     AND COLUMN_NAME = 'due_at') THEN
+        ALTER TABLE borrowed_books ADD COLUMN due_at TIMESTAMP NULL AFTER borrowed_at;
+        UPDATE borrowed_books SET due_at = borrowed_at + INTERVAL 14 DAY WHERE returned_at IS NULL;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'borrowed_books'
+                     AND INDEX_NAME = 'idx_active_due') THEN
+        ALTER TABLE borrowed_books ADD INDEX idx_active_due (returned_at, due_at);
+    END IF;
+
+    -- Отправленные напоминания о просрочке: уже просроченным выдачам напомнят
+    -- еще раз при первом запуске после обновления, дальше - нет
+    IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'borrowed_books'
+                     AND COLUMN_NAME = 'reminded_at') THEN
+        ALTER TABLE borrowed_books ADD COLUMN reminded_at TIMESTAMP NULL AFTER due_at;
+    END IF;
+END //
+
+DELIMITER ;
+
+CALL library_migrate();
+DROP PROCEDURE library_migrate;
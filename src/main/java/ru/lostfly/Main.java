@@ -4,30 +4,58 @@ import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 import ru.lostfly.components.api.LibraryBot;
+import ru.lostfly.components.api.WebhookServer;
+import ru.lostfly.config.BotConfig;
+import ru.lostfly.metrics.MetricsHttpServer;
+import ru.lostfly.metrics.MetricsRegistry;
 
+import java.io.IOException;
 
-public class Main {
-
-    public static void main(String[] args) throws TelegramApiException {
-
-        // Выбор режима работы:
-        // 1. IN_MEMORY - данные хранятся в памяти (ArrayList)
-        // 2. DATABASE - данные хранятся в MySQL базе данных
 
-        // Для использования базы данных:
-        // - Запустите Docker: docker-compose up -d
-        // - Раскомментируйте строку ниже
+public class Main {
 
-        // App app = new App(RepositoryComponent.RepositoryMode.DATABASE);
+    public static void main(String[] args) throws TelegramApiException, IOException {
 
-        // По умолчанию используется in-memory режим
-        // App app = new App(RepositoryComponent.RepositoryMode.IN_MEMORY);
+        // Метрики в формате Prometheus: http://127.0.0.1:9404/metrics
+        int metricsPort = BotConfig.getMetricsPort();
+        if (metricsPort > 0) {
+            new MetricsHttpServer(MetricsRegistry.getDefault(), metricsPort);
+        }
 
-        // app.start();
+        // Режим хранилища задается REPOSITORY_MODE (по умолчанию DATABASE):
+        // IN_MEMORY, IN_MEMORY_INDEXED, IN_MEMORY_DURABLE, IN_MEMORY_COMPACT,
+        // DATABASE или DATABASE_CACHED. Для режимов с базой данных
+        // запустите Docker: docker-compose up -d
 
         LibraryBot bot = new LibraryBot();
 
-        TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-        botsApi.registerBot(bot);
+        // Получение обновлений: BOT_MODE=LONG_POLLING (по умолчанию) или WEBHOOK
+        if ("WEBHOOK".equalsIgnoreCase(BotConfig.getBotMode())) {
+            startWebhook(bot);
+        } else {
+            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+            botsApi.registerBot(bot);
+            // Закрытие хранилища: снимок и сброс журнала в режиме IN_MEMORY_DURABLE
+            Runtime.getRuntime().addShutdownHook(new Thread(bot::onClosing, "bot-shutdown"));
+        }
+    }
+
+    /**
+     * Обновления приходят POST-запросами на встроенный сервер; long polling не запускается
+     */
+    private static void startWebhook(LibraryBot bot) throws TelegramApiException, IOException {
+        String secret = BotConfig.getWebhookSecret();
+        WebhookServer server = new WebhookServer(bot::onUpdateReceived,
+                BotConfig.getWebhookHost(), BotConfig.getWebhookPort(), BotConfig.getWebhookPath(),
+                secret, BotConfig.getWebhookThreads(), MetricsRegistry.getDefault());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            bot.onClosing();
+        }, "webhook-shutdown"));
+
+        String url = BotConfig.getWebhookUrl();
+        if (!url.isEmpty()) {
+            bot.setWebhook(url, secret);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package ru.lostfly.business.domain.book;
+
+/**
+ * Слушатель изменения доступности экземпляра.
+ * Позволяет хранилищу поддерживать индексы доступных книг инкрементально,
+ * не перебирая весь каталог.
+ */
+public interface AvailabilityListener {
+    void onAvailabilityChanged(LibItem item, boolean available);
+}
@@ -16,18 +16,33 @@ public class Book extends LibItem implements Borrowable {
         this.genre = genre;
     }
 
+    public String getGenre() {
+        return genre;
+    }
+
     // Реализация интерфейса Borrowable
     @Override
     public String borrow() {
-        if (isAvailable()) {  // Используем метод родителя
-            setAvailable(false);  // Используем метод родителя
-            setTimesRead(getTimesRead() + 1);  // Увеличиваем счетчик прочтений
+        if (tryBorrow()) {
             return "Книга '" + getTitle() + "' успешно взята";
         } else {
             return "Книга '" + getTitle() + "' недоступна";
         }
     }
 
+    /**
+     * Атомарная выдача: захват доступности через CAS и увеличение счетчика прочтений.
+     * Безопасна при одновременной выдаче одной книги из нескольких потоков.
+     * @return false, если все экземпляры уже выданы
+     */
+    public boolean tryBorrow() {
+        if (!tryClaim()) {  // Используем метод родителя
+            return false;
+        }
+        incrementTimesRead();  // Увеличиваем счетчик прочтений
+        return true;
+    }
+
     // Реализация абстрактного метода из LibItem
     @Override
     public String getType() {
@@ -42,7 +57,7 @@ public class Book extends LibItem implements Borrowable {
                 ", title='" + getTitle() + '\'' +
                 ", author='" + getAuthor() + '\'' +
                 ", genre='" + genre + '\'' +
-                ", isAvailable=" + isAvailable() +
+                ", availableCopies=" + getAvailableCopies() + "/" + getCopies() +
                 ", timesRead=" + getTimesRead() +
                 '}';
     }
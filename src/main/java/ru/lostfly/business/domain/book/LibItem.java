@@ -1,20 +1,42 @@
 package ru.lostfly.business.domain.book;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.UUID;
 
 public abstract class LibItem {
+    // Атомарные операции над полями без AtomicBoolean/AtomicInteger на каждую книгу
+    private static final VarHandle AVAILABLE_COPIES;
+    private static final VarHandle COPIES;
+    private static final VarHandle TIMES_READ;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            AVAILABLE_COPIES = lookup.findVarHandle(LibItem.class, "availableCopies", int.class);
+            COPIES = lookup.findVarHandle(LibItem.class, "copies", int.class);
+            TIMES_READ = lookup.findVarHandle(LibItem.class, "timesRead", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private String isbn;      // ссылочный тип (String)
     private String title;     // ссылочный
     private String author;    // ссылочный
-    private boolean isAvailable;    // примитив! true/false
-    private int timesRead;          // примитив! целое число
+    // Одно издание (ISBN) - несколько экземпляров: выдача и возврат меняют только счетчик
+    private volatile int copies;             // примитив! всего экземпляров
+    private volatile int availableCopies;    // примитив! на полке (меняется через CAS)
+    private volatile int timesRead;          // примитив! целое число (атомарный инкремент)
+    private volatile AvailabilityListener availabilityListener; // кого уведомить о смене доступности
 
     // Конструктор
     public LibItem(String isbn, String title, String author) {
         this.isbn = isbn;
         this.title = title;
         this.author = author;
-        this.isAvailable = true;  // По умолчанию доступна
+        this.copies = 1;          // По умолчанию один экземпляр
+        this.availableCopies = 1; // и он доступен
         this.timesRead = 0;       // Еще не читали
     }
 
@@ -31,8 +53,19 @@ public abstract class LibItem {
         return author;
     }
 
+    /**
+     * Есть ли хотя бы один экземпляр на полке
+     */
     public boolean isAvailable() {
-        return isAvailable;
+        return availableCopies > 0;
+    }
+
+    public int getCopies() {
+        return copies;
+    }
+
+    public int getAvailableCopies() {
+        return availableCopies;
     }
 
     public int getTimesRead() {
@@ -52,14 +85,107 @@ public abstract class LibItem {
         this.author = author;
     }
 
+    /**
+     * Все экземпляры на полке (true) или все выданы (false)
+     */
     public void setAvailable(boolean available) {
-        isAvailable = available;
+        setAvailableCopies(available ? copies : 0);
+    }
+
+    /**
+     * Задать число экземпляров (загрузка из хранилища)
+     * @param copies всего экземпляров, не меньше 1
+     * @param available сколько из них на полке
+     */
+    public void setCopies(int copies, int available) {
+        if (copies < 1 || available < 0 || available > copies) {
+            throw new IllegalArgumentException("Invalid copies: " + available + " of " + copies);
+        }
+        this.copies = copies;
+        setAvailableCopies(available);
+    }
+
+    /**
+     * Поступили новые экземпляры - сразу на полку
+     */
+    public void addCopies(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        // Сначала общее число: release() не должен упереться в старую границу
+        COPIES.getAndAdd(this, count);
+        if ((int) AVAILABLE_COPIES.getAndAdd(this, count) == 0) {
+            notifyAvailability(true);
+        }
+    }
+
+    /**
+     * Атомарно занять доступный экземпляр (CAS n -> n - 1, пока n > 0).
+     * Из нескольких потоков, одновременно берущих последний экземпляр, успех получит ровно один.
+     * @return false, если все экземпляры выданы
+     */
+    public boolean tryClaim() {
+        int available;
+        do {
+            available = availableCopies;
+            if (available == 0) {
+                return false;
+            }
+        } while (!AVAILABLE_COPIES.compareAndSet(this, available, available - 1));
+        if (available == 1) {
+            notifyAvailability(false);
+        }
+        return true;
+    }
+
+    /**
+     * Атомарно вернуть выданный экземпляр (CAS n -> n + 1, пока n < copies)
+     * @return false, если все экземпляры и так на полке
+     */
+    public boolean release() {
+        int available;
+        do {
+            available = availableCopies;
+            if (available >= copies) {
+                return false;
+            }
+        } while (!AVAILABLE_COPIES.compareAndSet(this, available, available + 1));
+        if (available == 0) {
+            notifyAvailability(true);
+        }
+        return true;
+    }
+
+    /**
+     * Атомарно увеличить счетчик прочтений
+     * @return новое значение
+     */
+    public int incrementTimesRead() {
+        return (int) TIMES_READ.getAndAdd(this, 1) + 1;
+    }
+
+    public void setAvailabilityListener(AvailabilityListener availabilityListener) {
+        this.availabilityListener = availabilityListener;
     }
 
     public void setTimesRead(int timesRead) {
         this.timesRead = timesRead;
     }
 
+    private void setAvailableCopies(int available) {
+        int previous = (int) AVAILABLE_COPIES.getAndSet(this, available);
+        if ((previous > 0) != (available > 0)) {
+            notifyAvailability(available > 0);
+        }
+    }
+
+    private void notifyAvailability(boolean available) {
+        AvailabilityListener listener = availabilityListener;
+        if (listener != null) {
+            listener.onAvailabilityChanged(this, available);
+        }
+    }
+
     // Абстрактный метод для специфичной логики каждого типа
     public abstract String getType();
 }
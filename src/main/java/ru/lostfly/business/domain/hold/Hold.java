@@ -0,0 +1,38 @@
+package ru.lostfly.business.domain.hold;
+
+/**
+ * Место читателя в очереди на книгу.
+ * Хранит чат, в который нужно сообщить, когда книга будет выдана читателю.
+ */
+public class Hold {
+    private final String isbn;       // ссылочный
+    private final String readerId;   // ссылочный
+    private final long chatId;       // примитив! куда прислать уведомление
+
+    public Hold(String isbn, String readerId, long chatId) {
+        this.isbn = isbn;
+        this.readerId = readerId;
+        this.chatId = chatId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    @Override
+    public String toString() {
+        return "Hold{" +
+                "isbn='" + isbn + '\'' +
+                ", readerId='" + readerId + '\'' +
+                ", chatId=" + chatId +
+                '}';
+    }
+}
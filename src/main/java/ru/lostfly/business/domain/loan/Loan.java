@@ -0,0 +1,50 @@
+package ru.lostfly.business.domain.loan;
+
+import java.time.Instant;
+
+/**
+ * Выдача книги читателю со сроком возврата.
+ * Хранит чат, в который прислать напоминание, если срок пройдет.
+ */
+public class Loan {
+    // Чат не известен (выдача не из бота) - напоминание некуда отправить
+    public static final long NO_CHAT = 0;
+
+    private final String isbn;       // ссылочный
+    private final String readerId;   // ссылочный
+    private final long chatId;       // примитив! куда прислать напоминание
+    private final Instant dueAt;     // ссылочный, неизменяемый
+
+    public Loan(String isbn, String readerId, long chatId, Instant dueAt) {
+        this.isbn = isbn;
+        this.readerId = readerId;
+        this.chatId = chatId;
+        this.dueAt = dueAt;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    public Instant getDueAt() {
+        return dueAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Loan{" +
+                "isbn='" + isbn + '\'' +
+                ", readerId='" + readerId + '\'' +
+                ", chatId=" + chatId +
+                ", dueAt=" + dueAt +
+                '}';
+    }
+}
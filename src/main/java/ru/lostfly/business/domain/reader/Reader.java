@@ -4,22 +4,28 @@ import ru.lostfly.business.domain.book.Book;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Reader {
     private final String id;        // ссылочный
     private final String name;      // ссылочный
-    private final List<Book> borrowedBooks; // ссылочный (коллекция объектов)
-    private static final int MAX_BOOKS = 3; // примитив-константа
+    // ссылочный (коллекция объектов); книг у читателя не больше MAX_BOOKS,
+    // поэтому копирование при записи дешевле блокировок при чтении
+    private final List<Book> borrowedBooks;
+    // Занятые места: выданные книги + резервы выдач, которые еще идут
+    private final AtomicInteger loanSlots = new AtomicInteger();
+    public static final int MAX_BOOKS = 3; // примитив-константа
 
     public Reader(String id, String name) {
         this.id = id;
         this.name = name;
-        this.borrowedBooks = new ArrayList<>(); // создаем пустой список
+        this.borrowedBooks = new CopyOnWriteArrayList<>(); // создаем пустой список
     }
 
     // Метод возвращает примитив
     public boolean canBorrowMore() {
-        return borrowedBooks.size() < MAX_BOOKS;
+        return loanSlots.get() < MAX_BOOKS;
     }
 
     // Метод возвращает примитив
@@ -27,12 +33,60 @@ public class Reader {
         return borrowedBooks.size();
     }
 
+    /**
+     * Атомарно занять место под книгу (CAS, без блокировок).
+     * Два одновременных запроса одного читателя не превысят MAX_BOOKS.
+     * @return false, если лимит уже исчерпан
+     */
+    public boolean reserveSlot() {
+        int used;
+        do {
+            used = loanSlots.get();
+            if (used >= MAX_BOOKS) {
+                return false;
+            }
+        } while (!loanSlots.compareAndSet(used, used + 1));
+        return true;
+    }
+
+    /**
+     * Освободить место, занятое {@link #reserveSlot()}, если выдача не состоялась
+     */
+    public void releaseSlot() {
+        loanSlots.decrementAndGet();
+    }
+
+    /**
+     * Добавить книгу на место, занятое {@link #reserveSlot()}
+     */
+    public void addReservedBook(Book book) {
+        borrowedBooks.add(book);
+    }
+
+    /**
+     * Добавить книгу без проверки лимита (загрузка из хранилища)
+     */
     public void addBook(Book book) {
+        loanSlots.incrementAndGet();
         borrowedBooks.add(book);
     }
 
-    public void removeBook(Book book) {
-        borrowedBooks.remove(book);
+    /**
+     * @return false, если этой книги у читателя нет (например, ее уже вернули в другом потоке)
+     */
+    public boolean removeBook(Book book) {
+        if (borrowedBooks.remove(book)) {
+            loanSlots.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Есть ли книга у читателя (без копирования списка)
+     */
+    public boolean hasBook(Book book) {
+        return borrowedBooks.contains(book);
     }
 
     public String getName() {
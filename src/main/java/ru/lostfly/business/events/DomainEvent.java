@@ -0,0 +1,100 @@
+package ru.lostfly.business.events;
+
+import ru.lostfly.business.repository.LoanResult;
+
+/**
+ * Ячейка кольцевого буфера {@link DomainEventBus}. Ячейки создаются один раз
+ * вместе с буфером и заполняются заново при каждой публикации, поэтому
+ * публикация не выделяет памяти. Незаполненные для вида события поля - null/0.
+ */
+public final class DomainEvent {
+
+    private EventType type;
+    private String isbn;
+    private String title;
+    private String author;
+    private String readerId;
+    private String readerName;
+    private int copies;
+    private int availableCopies;
+    private int timesRead;
+
+    DomainEvent() {
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public String getReaderName() {
+        return readerName;
+    }
+
+    public int getCopies() {
+        return copies;
+    }
+
+    public int getAvailableCopies() {
+        return availableCopies;
+    }
+
+    /**
+     * Счетчик прочтений после события; {@link LoanResult#UNKNOWN_TIMES_READ}, если хранилище его не вернуло
+     */
+    public int getTimesRead() {
+        return timesRead;
+    }
+
+    void bookSaved(String isbn, String title, String author, int copies, int availableCopies, int timesRead) {
+        set(EventType.BOOK_SAVED, isbn, title, author, null, null);
+        this.copies = copies;
+        this.availableCopies = availableCopies;
+        this.timesRead = timesRead;
+    }
+
+    void bookBorrowed(String isbn, String title, String readerId, int timesRead) {
+        set(EventType.BOOK_BORROWED, isbn, title, null, readerId, null);
+        this.timesRead = timesRead;
+    }
+
+    void bookReturned(String isbn, String readerId) {
+        set(EventType.BOOK_RETURNED, isbn, null, null, readerId, null);
+    }
+
+    void readerSaved(String readerId, String readerName) {
+        set(EventType.READER_SAVED, null, null, null, readerId, readerName);
+    }
+
+    private void set(EventType type, String isbn, String title, String author, String readerId, String readerName) {
+        this.type = type;
+        this.isbn = isbn;
+        this.title = title;
+        this.author = author;
+        this.readerId = readerId;
+        this.readerName = readerName;
+        this.copies = 0;
+        this.availableCopies = 0;
+        this.timesRead = 0;
+    }
+
+    @Override
+    public String toString() {
+        return type + "{isbn=" + isbn + ", readerId=" + readerId + "}";
+    }
+}
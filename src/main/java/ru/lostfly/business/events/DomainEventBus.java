@@ -0,0 +1,349 @@
+package ru.lostfly.business.events;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.metrics.Counter;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Шина доменных событий внутри процесса: выдачи, возвраты, сохранение книг
+ * и читателей для производных структур (статистика, индексы, уведомления),
+ * которым иначе пришлось бы опрашивать или перечитывать хранилище.
+ * <p>
+ * События идут через кольцевой буфер с заранее созданными ячейками
+ * ({@link DomainEvent}). Публикация - без блокировок и выделения памяти:
+ * номер события захватывается CAS-ом, ячейка заполняется, номер записывается
+ * в массив опубликованных. События не теряются: если буфер полон (потребитель
+ * отстал на всю емкость), публикатор ждет, пока освободится ячейка, - такие
+ * ожидания видны в {@code domain_events_full_waits_total}.
+ * <p>
+ * Каждый потребитель ({@link #subscribe}) получает все события в порядке номеров
+ * в своем потоке. Он забирает все опубликованные к моменту чтения события пачкой
+ * и сдвигает свою позицию один раз за пачку. Без событий поток сначала крутится,
+ * потом уступает процессор, потом засыпает до следующей публикации: публикатор
+ * будит уснувших потребителей, поэтому простаивающая шина не расходует процессор.
+ * <p>
+ * Потребители подписываются до {@link #start()}. До запуска и без потребителей
+ * публикация ничего не делает: производные структуры заполняются из хранилища
+ * при создании и дальше живут на событиях.
+ */
+@Slf4j
+public class DomainEventBus implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    // Пауза публикатора между попытками захватить ячейку в полном буфере
+    private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long CLOSE_TIMEOUT_MS = 5_000;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final DomainEvent[] entries;
+    private final int mask;
+    // Номер события, записанного в ячейку; -1 - ячейка еще не заполнялась
+    private final AtomicLongArray published;
+    // Последний захваченный публикатором номер
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // Последняя известная позиция самого медленного потребителя (может отставать от реальной)
+    private volatile long gatingSequence = -1;
+
+    private final List<Consumer> subscribers = new ArrayList<>();
+    private volatile Consumer[] consumers = new Consumer[0];
+    private volatile boolean running;
+    private boolean started;
+
+    private final MetricsRegistry registry;
+    private final Map<EventType, Counter> publishedByType = new EnumMap<>(EventType.class);
+    private final Counter fullWaits;
+
+    public DomainEventBus(MetricsRegistry registry) {
+        this(DEFAULT_CAPACITY, registry);
+    }
+
+    /**
+     * @param capacity емкость буфера, округляется вверх до степени двойки
+     */
+    public DomainEventBus(int capacity, MetricsRegistry registry) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Event buffer capacity must be in 1.." + MAX_CAPACITY + ": " + capacity);
+        }
+        int size = capacity == 1 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.entries = new DomainEvent[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            entries[i] = new DomainEvent();
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+
+        this.registry = registry;
+        for (EventType type : EventType.values()) {
+            publishedByType.put(type, registry.counter("domain_events_published_total", "Domain events published",
+                    "type", type.name().toLowerCase(Locale.ROOT)));
+        }
+        this.fullWaits = registry.counter("domain_events_full_waits_total",
+                "Publishes that waited for a free slot because a consumer fell behind by the whole buffer");
+    }
+
+    /**
+     * Подписать потребителя (до {@link #start()}). Обработчик не должен сам
+     * публиковать в шину: в полном буфере он ждал бы сам себя.
+     * @param name имя для потока и метрик
+     */
+    public synchronized void subscribe(String name, DomainEventHandler handler) {
+        if (started) {
+            throw new IllegalStateException("Event bus is already started, cannot subscribe " + name);
+        }
+        subscribers.add(new Consumer(name, handler));
+    }
+
+    /**
+     * Запустить потоки потребителей; с этого момента события публикуются
+     */
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("Event bus is already started");
+        }
+        started = true;
+        Consumer[] all = subscribers.toArray(new Consumer[0]);
+        consumers = all;
+        // До запуска потоков: потребитель без событий выходит, если шина не работает
+        running = all.length > 0;
+        for (Consumer consumer : all) {
+            consumer.thread.start();
+        }
+        log.info("Domain event bus started: capacity {}, consumers {}", entries.length, all.length);
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    public void publishBookSaved(Book book) {
+        if (!running) {
+            return;
+        }
+        long sequence = claimOrWait();
+        if (sequence < 0) {
+            return;
+        }
+        entries[(int) sequence & mask].bookSaved(book.getIsbn(), book.getTitle(), book.getAuthor(),
+                book.getCopies(), book.getAvailableCopies(), book.getTimesRead());
+        publish(sequence, EventType.BOOK_SAVED);
+    }
+
+    /**
+     * @param timesRead счетчик прочтений после выдачи или {@link ru.lostfly.business.repository.LoanResult#UNKNOWN_TIMES_READ}
+     */
+    public void publishBookBorrowed(String isbn, String title, String readerId, int timesRead) {
+        if (!running) {
+            return;
+        }
+        long sequence = claimOrWait();
+        if (sequence < 0) {
+            return;
+        }
+        entries[(int) sequence & mask].bookBorrowed(isbn, title, readerId, timesRead);
+        publish(sequence, EventType.BOOK_BORROWED);
+    }
+
+    public void publishBookReturned(String isbn, String readerId) {
+        if (!running) {
+            return;
+        }
+        long sequence = claimOrWait();
+        if (sequence < 0) {
+            return;
+        }
+        entries[(int) sequence & mask].bookReturned(isbn, readerId);
+        publish(sequence, EventType.BOOK_RETURNED);
+    }
+
+    public void publishReaderSaved(Reader reader) {
+        if (!running) {
+            return;
+        }
+        long sequence = claimOrWait();
+        if (sequence < 0) {
+            return;
+        }
+        entries[(int) sequence & mask].readerSaved(reader.getId(), reader.getName());
+        publish(sequence, EventType.READER_SAVED);
+    }
+
+    /**
+     * Остановить публикацию и дождаться, пока потребители обработают опубликованное.
+     * Событие, захваченное публикатором в момент закрытия, может не дойти.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MS;
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (consumer.thread.isAlive()) {
+                log.warn("Event consumer {} did not finish in {} ms", consumer.name, CLOSE_TIMEOUT_MS);
+            }
+        }
+    }
+
+    /**
+     * Захватить номер для следующего события; в полном буфере - ждать,
+     * пока самый медленный потребитель освободит ячейку
+     * @return номер или -1, если шину закрыли во время ожидания
+     */
+    private long claimOrWait() {
+        long sequence = claim();
+        if (sequence >= 0) {
+            return sequence;
+        }
+        fullWaits.increment();
+        while ((sequence = claim()) < 0) {
+            if (!running) {
+                return -1;
+            }
+            LockSupport.parkNanos(FULL_WAIT_NANOS);
+        }
+        return sequence;
+    }
+
+    /**
+     * Захватить номер для следующего события
+     * @return номер или -1, если ячейку еще не обработал самый медленный потребитель
+     */
+    private long claim() {
+        long current;
+        long next;
+        do {
+            current = claimed.get();
+            next = current + 1;
+            long wrapPoint = next - entries.length;
+            if (wrapPoint > gatingSequence) {
+                long slowest = slowestSequence(current);
+                gatingSequence = slowest;
+                if (wrapPoint > slowest) {
+                    return -1;
+                }
+            }
+        } while (!claimed.compareAndSet(current, next));
+        return next;
+    }
+
+    private void publish(long sequence, EventType type) {
+        // Volatile-запись: потребитель, увидевший номер, видит и поля ячейки, а флаг
+        // sleeping читается после нее - уснувший потребитель не пропустит событие
+        published.set((int) sequence & mask, sequence);
+        for (Consumer consumer : consumers) {
+            if (consumer.sleeping) {
+                LockSupport.unpark(consumer.thread);
+            }
+        }
+        publishedByType.get(type).increment();
+    }
+
+    private long slowestSequence(long upTo) {
+        long slowest = upTo;
+        for (Consumer consumer : consumers) {
+            slowest = Math.min(slowest, consumer.sequence);
+        }
+        return slowest;
+    }
+
+    /**
+     * Последний номер непрерывной цепочки опубликованных событий, начиная с from;
+     * from - 1, если событие from еще не опубликовано
+     */
+    private long highestPublished(long from) {
+        long sequence = from;
+        while (published.get((int) sequence & mask) == sequence) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    private final class Consumer implements Runnable {
+        private final String name;
+        private final DomainEventHandler handler;
+        private final Thread thread;
+        private final Counter errors;
+        // Последнее обработанное событие; ячейки до него включительно можно переиспользовать
+        private volatile long sequence = -1;
+        // Поток уснул до следующей публикации
+        private volatile boolean sleeping;
+
+        private Consumer(String name, DomainEventHandler handler) {
+            this.name = name;
+            this.handler = handler;
+            this.thread = new Thread(this, "events-" + name);
+            thread.setDaemon(true);
+            this.errors = registry.counter("domain_event_handler_errors_total",
+                    "Exceptions thrown by domain event consumers", "consumer", name);
+            registry.gauge("domain_events_lag", "Events published but not yet processed by a consumer",
+                    () -> claimed.get() - sequence, "consumer", name);
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int idle = 0;
+            while (true) {
+                long available = highestPublished(next);
+                if (available < next) {
+                    if (!running) {
+                        return;
+                    }
+                    idle = backOff(idle, next);
+                    continue;
+                }
+                idle = 0;
+                for (long current = next; current <= available; current++) {
+                    DomainEvent event = entries[(int) current & mask];
+                    try {
+                        handler.onEvent(event, current == available);
+                    } catch (RuntimeException e) {
+                        errors.increment();
+                        log.error("Event consumer {} failed on {}", name, event, e);
+                    }
+                }
+                sequence = available;
+                next = available + 1;
+            }
+        }
+
+        private int backOff(int idle, long next) {
+            if (idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                sleeping = true;
+                // Событие могли опубликовать до установки флага - тогда публикатор не разбудит
+                if (highestPublished(next) < next && running) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+            return idle + 1;
+        }
+    }
+}
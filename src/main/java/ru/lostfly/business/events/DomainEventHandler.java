@@ -0,0 +1,14 @@
+package ru.lostfly.business.events;
+
+/**
+ * Потребитель доменных событий. Вызывается из своего потока шины, события
+ * приходят по одному в порядке публикации.
+ */
+public interface DomainEventHandler {
+
+    /**
+     * @param event      событие; объект переиспользуется шиной, сохранять ссылку на него нельзя
+     * @param endOfBatch последнее событие из доступных сейчас - момент сбросить накопленное
+     */
+    void onEvent(DomainEvent event, boolean endOfBatch);
+}
@@ -0,0 +1,15 @@
+package ru.lostfly.business.events;
+
+/**
+ * Виды доменных событий. Какие поля {@link DomainEvent} заполнены - указано у каждого вида.
+ */
+public enum EventType {
+    // Книга сохранена в каталог: isbn, title, author, copies, availableCopies, timesRead
+    BOOK_SAVED,
+    // Книга выдана читателю: isbn, title, readerId, timesRead (или UNKNOWN_TIMES_READ)
+    BOOK_BORROWED,
+    // Читатель вернул книгу: isbn, readerId
+    BOOK_RETURNED,
+    // Читатель сохранен: readerId, readerName
+    READER_SAVED
+}
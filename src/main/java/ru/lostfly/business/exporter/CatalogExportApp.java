@@ -0,0 +1,35 @@
+package ru.lostfly.business.exporter;
+
+import ru.lostfly.config.DatabaseConnection;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Выгрузка таблиц из командной строки. Формат и сжатие - по расширению файла
+ * (*.csv, *.jsonl, с .gz - сжатый). Можно перечислить несколько пар таблица-файл.
+ * <pre>
+ * java -cp OOP-BP.jar ru.lostfly.business.exporter.CatalogExportApp books books.csv.gz
+ * java -cp OOP-BP.jar ru.lostfly.business.exporter.CatalogExportApp readers readers.jsonl loans loans.jsonl.gz
+ * </pre>
+ */
+public class CatalogExportApp {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length % 2 != 0) {
+            System.err.println("Использование: CatalogExportApp <books|readers|loans> <файл.csv|файл.jsonl>[.gz] ...");
+            System.exit(1);
+        }
+
+        TableExporter exporter = new TableExporter();
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                ExportTable table = ExportTable.valueOf(args[i].toUpperCase(Locale.ROOT));
+                ExportReport report = exporter.export(table, Path.of(args[i + 1]));
+                System.out.println("Готово: " + table + " -> " + args[i + 1] + ": " + report);
+            }
+        } finally {
+            DatabaseConnection.close();
+        }
+    }
+}
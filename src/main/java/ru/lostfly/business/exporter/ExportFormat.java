@@ -0,0 +1,157 @@
+package ru.lostfly.business.exporter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Формат файла выгрузки.
+ * <p>
+ * CSV - первая строка с именами колонок, поля с запятой, кавычкой или переводом
+ * строки берутся в двойные кавычки (RFC 4180), NULL - пустое поле.
+ * JSONL - по одному JSON-объекту на строку, NULL - {@code null}.
+ */
+public enum ExportFormat {
+
+    CSV(".csv") {
+        @Override
+        void writeHeader(Writer out, ExportTable.Column[] columns) throws IOException {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(columns[i].getName());
+            }
+            out.write('\n');
+        }
+
+        @Override
+        void writeRow(Writer out, ExportTable.Column[] columns, String[] values) throws IOException {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                String value = values[i];
+                if (value != null) {
+                    writeCsvField(out, value);
+                }
+            }
+            out.write('\n');
+        }
+    },
+
+    JSONL(".jsonl") {
+        @Override
+        void writeHeader(Writer out, ExportTable.Column[] columns) {
+            // Имена полей есть в каждой строке
+        }
+
+        @Override
+        void writeRow(Writer out, ExportTable.Column[] columns, String[] values) throws IOException {
+            out.write('{');
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write('"');
+                out.write(columns[i].getName());
+                out.write("\":");
+                String value = values[i];
+                if (value == null) {
+                    out.write("null");
+                } else if (columns[i].getType() == ExportTable.Column.Type.NUMBER) {
+                    out.write(value);
+                } else {
+                    writeJsonString(out, value);
+                }
+            }
+            out.write("}\n");
+        }
+    };
+
+    // Суффикс сжатых файлов
+    static final String GZIP_EXTENSION = ".gz";
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Формат по имени файла: *.csv, *.jsonl, то же с .gz
+     * @throws IllegalArgumentException если расширение не подходит
+     */
+    public static ExportFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(GZIP_EXTENSION)) {
+            name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+        }
+        for (ExportFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export file extension: " + fileName);
+    }
+
+    /**
+     * Сжимать ли файл: имя оканчивается на .gz
+     */
+    public static boolean isGzip(String fileName) {
+        return fileName.toLowerCase().endsWith(GZIP_EXTENSION);
+    }
+
+    abstract void writeHeader(Writer out, ExportTable.Column[] columns) throws IOException;
+
+    /**
+     * @param values значения колонок строки; null - NULL в базе
+     */
+    abstract void writeRow(Writer out, ExportTable.Column[] columns, String[] values) throws IOException;
+
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,49 @@
+package ru.lostfly.business.exporter;
+
+import java.time.Duration;
+
+/**
+ * Итог выгрузки таблицы
+ */
+public class ExportReport {
+
+    private final long rows;
+    private final long bytes;
+    private final Duration elapsed;
+
+    public ExportReport(long rows, long bytes, Duration elapsed) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsed = elapsed;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Размер файла (после сжатия, если оно включено)
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double getRowsPerSecond() {
+        long millis = elapsed.toMillis();
+        return millis == 0 ? rows : rows * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportReport{" +
+                "rows=" + rows +
+                ", bytes=" + bytes +
+                ", elapsed=" + elapsed.toMillis() + "ms" +
+                ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+}
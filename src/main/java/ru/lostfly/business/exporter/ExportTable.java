@@ -0,0 +1,84 @@
+package ru.lostfly.business.exporter;
+
+/**
+ * Выгружаемые таблицы: запрос и колонки в порядке выгрузки.
+ * <p>
+ * Строки идут в порядке первичного ключа - MySQL читает кластерный индекс
+ * подряд, без сортировки результата. Колонки books начинаются с
+ * {@code isbn,title,author,genre}, поэтому CSV каталога можно снова загрузить
+ * через {@link ru.lostfly.business.importer.BookCsvImporter} (кроме значений
+ * с переводом строки: импорт читает файл построчно).
+ */
+public enum ExportTable {
+
+    BOOKS("SELECT isbn, title, author, genre, copies, available_copies, times_read FROM books ORDER BY isbn",
+            Column.text("isbn"), Column.text("title"), Column.text("author"), Column.text("genre"),
+            Column.number("copies"), Column.number("available_copies"), Column.number("times_read")),
+
+    READERS("SELECT id, name, created_at FROM readers ORDER BY id",
+            Column.text("id"), Column.text("name"), Column.timestamp("created_at")),
+
+    LOANS("SELECT id, reader_id, book_isbn, copy_id, chat_id, borrowed_at, due_at, returned_at " +
+          "FROM borrowed_books ORDER BY id",
+            Column.number("id"), Column.text("reader_id"), Column.text("book_isbn"),
+            Column.number("copy_id"), Column.number("chat_id"), Column.timestamp("borrowed_at"),
+            Column.timestamp("due_at"), Column.timestamp("returned_at"));
+
+    private final String sql;
+    private final Column[] columns;
+
+    ExportTable(String sql, Column... columns) {
+        this.sql = sql;
+        this.columns = columns;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    Column[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Колонка результата; i-я колонка - (i + 1)-я в ResultSet
+     */
+    static final class Column {
+
+        enum Type {
+            TEXT,
+            // Выгружается без кавычек в JSON
+            NUMBER,
+            // ISO-8601 в UTC
+            TIMESTAMP
+        }
+
+        private final String name;
+        private final Type type;
+
+        private Column(String name, Type type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        static Column text(String name) {
+            return new Column(name, Type.TEXT);
+        }
+
+        static Column number(String name) {
+            return new Column(name, Type.NUMBER);
+        }
+
+        static Column timestamp(String name) {
+            return new Column(name, Type.TIMESTAMP);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Type getType() {
+            return type;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.lostfly.business.exporter;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.config.DatabaseConnection;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковая выгрузка таблиц MySQL в CSV/JSONL, при необходимости со сжатием gzip.
+ * <p>
+ * Строки читаются из MySQL по мере записи (streaming result set, как в
+ * {@link ru.lostfly.business.repository.impl.ReaderRepositoryDBImpl#forEachReader}),
+ * сразу форматируются в буфер и уходят в FileChannel - в памяти держится одна
+ * строка и буферы записи, размер таблицы на расход памяти не влияет.
+ * <p>
+ * Запись идет во временный файл {@code <имя>.part}, который переименовывается
+ * только после успешного завершения: оборванная выгрузка не выглядит полной.
+ * Пока идет выгрузка, соединение пула занято.
+ */
+@Slf4j
+public class TableExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Как часто писать в лог о ходе выгрузки
+    private static final long PROGRESS_INTERVAL = 100_000;
+
+    public ExportReport export(ExportTable table, Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        return export(table, ExportFormat.fromFileName(fileName), ExportFormat.isGzip(fileName), file);
+    }
+
+    public ExportReport export(ExportTable table, ExportFormat format, boolean gzip, Path file) throws IOException {
+        long started = System.nanoTime();
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        long rows;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+            // Закрытие writer закрывает и канал, поэтому данные сбрасываются на диск до него
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    compressed != null ? compressed : out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                rows = writeRows(table, format, writer);
+                writer.flush();
+                if (compressed != null) {
+                    compressed.finish();
+                }
+                channel.force(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        ExportReport report = new ExportReport(rows, Files.size(file), Duration.ofNanos(System.nanoTime() - started));
+        log.info("Export of {} to {} finished: {}", table, file, report);
+        return report;
+    }
+
+    private long writeRows(ExportTable table, ExportFormat format, Writer writer) throws IOException {
+        ExportTable.Column[] columns = table.getColumns();
+        format.writeHeader(writer, columns);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Integer.MIN_VALUE - сигнал драйверу MySQL отдавать строки по одной
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery(table.getSql())) {
+                String[] values = new String[columns.length];
+                long rows = 0;
+                while (rs.next()) {
+                    for (int i = 0; i < columns.length; i++) {
+                        values[i] = read(rs, i + 1, columns[i]);
+                    }
+                    format.writeRow(writer, columns, values);
+                    if (++rows % PROGRESS_INTERVAL == 0) {
+                        log.info("Exported {} rows of {}", rows, table);
+                    }
+                }
+                return rows;
+            }
+
+        } catch (SQLException e) {
+            log.error("Error exporting table {}", table, e);
+            throw new RuntimeException("Failed to export " + table, e);
+        }
+    }
+
+    private static String read(ResultSet rs, int index, ExportTable.Column column) throws SQLException {
+        if (column.getType() == ExportTable.Column.Type.TIMESTAMP) {
+            Timestamp timestamp = rs.getTimestamp(index);
+            return timestamp != null ? timestamp.toInstant().toString() : null;
+        }
+        return rs.getString(index);
+    }
+}
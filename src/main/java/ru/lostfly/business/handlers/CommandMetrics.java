@@ -0,0 +1,65 @@
+package ru.lostfly.business.handlers;
+
+import ru.lostfly.business.handlers.command.Command;
+import ru.lostfly.business.handlers.command.CommandRegistry;
+import ru.lostfly.metrics.Counter;
+import ru.lostfly.metrics.LatencyHistogram;
+import ru.lostfly.metrics.MetricsRegistry;
+
+/**
+ * Метрики команд бота: гистограмма {@code command_seconds{command="..."}}
+ * и счетчик необработанных исключений на каждую команду.
+ * <p>
+ * Набор команд фиксирован, поэтому метрики создаются заранее по реестру
+ * команд, и метрика команды выбирается по ее номеру в реестре.
+ * Неизвестные команды и свободный текст попадают в "other"
+ * (число меток не растет от пользовательского ввода), шаги пошаговых
+ * диалогов - в "dialog".
+ */
+final class CommandMetrics {
+
+    static final String DIALOG = "dialog";
+    static final String OTHER = "other";
+
+    private final String[] commands;
+    private final LatencyHistogram[] latency;
+    private final Counter[] failures;
+
+    CommandMetrics(MetricsRegistry registry, CommandRegistry registered) {
+        this.commands = new String[registered.size() + 2];
+        for (Command command : registered.commands()) {
+            this.commands[command.getIndex()] = command.getName();
+        }
+        this.commands[registered.size()] = DIALOG;
+        this.commands[registered.size() + 1] = OTHER;
+
+        this.latency = new LatencyHistogram[this.commands.length];
+        this.failures = new Counter[this.commands.length];
+        for (int i = 0; i < this.commands.length; i++) {
+            latency[i] = registry.histogram("command_seconds",
+                    "Bot command handling latency", "command", this.commands[i]);
+            failures[i] = registry.counter("command_failures_total",
+                    "Commands that ended with an exception", "command", this.commands[i]);
+        }
+    }
+
+    /**
+     * Индекс метрик для сообщения
+     * @param command команда сообщения; null - неизвестная команда или свободный текст
+     * @param inDialog пользователь в пошаговом диалоге - сообщение не команда
+     */
+    int indexOf(Command command, boolean inDialog) {
+        if (inDialog) {
+            return commands.length - 2;
+        }
+        return command != null ? command.getIndex() : commands.length - 1;
+    }
+
+    void record(int index, long startNanos) {
+        latency[index].recordSince(startNanos);
+    }
+
+    void recordFailure(int index) {
+        failures[index].increment();
+    }
+}
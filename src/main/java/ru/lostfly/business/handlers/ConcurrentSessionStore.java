@@ -0,0 +1,117 @@
+package ru.lostfly.business.handlers;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потокобезопасное хранилище сессий с вытеснением брошенных диалогов.
+ * <ul>
+ *     <li>сессия, к которой не обращались дольше idleTimeout, считается брошенной
+ *     и удаляется;</li>
+ *     <li>количество сессий ограничено maxEntries: при переполнении сначала
+ *     удаляются истекшие, а если их не хватило - произвольные сессии
+ *     до 90% лимита.</li>
+ * </ul>
+ * Очистка выполняется попутно при записи, не чаще раза в sweepInterval,
+ * поэтому отдельный поток не нужен.
+ */
+@Slf4j
+public class ConcurrentSessionStore implements SessionStore {
+
+    private final Map<Long, UserSession> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutMillis;
+    private final int maxEntries;
+    private final long sweepIntervalMillis;
+    private final AtomicLong lastSweep = new AtomicLong(System.currentTimeMillis());
+
+    public ConcurrentSessionStore(Duration idleTimeout, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.maxEntries = maxEntries;
+        this.sweepIntervalMillis = Math.max(1_000, idleTimeoutMillis / 4);
+    }
+
+    @Override
+    public UserSession get(long chatId) {
+        UserSession session = sessions.get(chatId);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (isExpired(session, now)) {
+            sessions.remove(chatId, session);
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    @Override
+    public void put(long chatId, UserSession session) {
+        long now = System.currentTimeMillis();
+        session.touch(now);
+        if (sessions.put(chatId, session) == null) {
+            // Новая сессия - проверяем лимит
+            if (sessions.size() > maxEntries) {
+                shrink(now, chatId);
+            }
+        }
+        long last = lastSweep.get();
+        if (now - last >= sweepIntervalMillis && lastSweep.compareAndSet(last, now)) {
+            removeExpired(now);
+        }
+    }
+
+    @Override
+    public void remove(long chatId) {
+        sessions.remove(chatId);
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    private boolean isExpired(UserSession session, long now) {
+        return now - session.getLastAccessMillis() > idleTimeoutMillis;
+    }
+
+    private int removeExpired(long now) {
+        int removed = 0;
+        Iterator<UserSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next(), now)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.debug("Removed {} abandoned sessions", removed);
+        }
+        return removed;
+    }
+
+    private void shrink(long now, long keepChatId) {
+        removeExpired(now);
+        if (sessions.size() <= maxEntries) {
+            return;
+        }
+        int target = maxEntries - maxEntries / 10;
+        Iterator<Long> iterator = sessions.keySet().iterator();
+        int dropped = 0;
+        while (sessions.size() > target && iterator.hasNext()) {
+            if (iterator.next() != keepChatId) {
+                iterator.remove();
+                dropped++;
+            }
+        }
+        log.warn("Session store is full ({} entries), dropped {} active dialogs", maxEntries, dropped);
+    }
+}
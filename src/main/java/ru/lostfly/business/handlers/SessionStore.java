@@ -0,0 +1,31 @@
+package ru.lostfly.business.handlers;
+
+/**
+ * Хранилище сессий пользователей: chatId -> UserSession.
+ * <p>
+ * Хранятся только сессии с активным диалогом: пользователь без диалога
+ * (состояние IDLE) места в хранилище не занимает.
+ */
+public interface SessionStore {
+
+    /**
+     * Получить активную сессию чата
+     * @return сессия или null, если диалога нет (или он истек)
+     */
+    UserSession get(long chatId);
+
+    /**
+     * Сохранить сессию с активным диалогом
+     */
+    void put(long chatId, UserSession session);
+
+    /**
+     * Удалить сессию (диалог завершен или отменен)
+     */
+    void remove(long chatId);
+
+    /**
+     * Количество хранимых сессий
+     */
+    int size();
+}
@@ -4,19 +4,82 @@ import ru.lostfly.components.repository.RepositoryComponent;
 import ru.lostfly.components.service.ServiceComponent;
 import ru.lostfly.business.domain.book.Book;
 import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.handlers.command.ArgSpec;
+import ru.lostfly.business.handlers.command.Command;
+import ru.lostfly.business.handlers.command.CommandRegistry;
 import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
 import ru.lostfly.business.service.LibraryService;
+import ru.lostfly.business.service.ReaderNotifier;
+import ru.lostfly.business.stats.BookRank;
+import ru.lostfly.business.stats.LibraryStatistics;
+import ru.lostfly.config.DatabaseConnection;
+import ru.lostfly.metrics.MetricsRegistry;
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
 
 public class TgApiHandler {
 
+    // Брошенный диалог удаляется через 30 минут бездействия
+    private static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final int MAX_SESSIONS = 100_000;
+    // Сколько результатов показывать в /search
+    private static final int SEARCH_LIMIT = 10;
+    // Сколько книг на одной странице списка
+    private static final int PAGE_SIZE = 10;
+    // Сколько мест рейтинга показывать в /top_books без параметра и в /stats
+    private static final int TOP_BOOKS_DEFAULT = 10;
+    private static final int STATS_TOP_BOOKS = 3;
+
+    // Описания параметров команд: проверяются до вызова обработчика
+    private static final ArgSpec ADD_BOOK_ARGS = ArgSpec.of("/add_book")
+            .minLength("ISBN", 2, "Ошибка: ISBN слишком короткий")
+            .nonEmpty("Название", "Ошибка: название и автор не могут быть пустыми")
+            .nonEmpty("Автор", "Ошибка: название и автор не могут быть пустыми")
+            .example("978-5-17-123456-7|Война и мир|Толстой Л.Н.")
+            .build();
+    private static final ArgSpec ADD_COPIES_ARGS = ArgSpec.of("/add_copies")
+            .text("ISBN")
+            .integer("Количество", 1, Integer.MAX_VALUE,
+                    "Ошибка: количество должно быть числом", "Ошибка: количество должно быть больше 0")
+            .example("978-5-17-123456-7|2")
+            .build();
+    private static final ArgSpec ADD_USER_ARGS = ArgSpec.of("/add_user")
+            .nonEmpty("ID", "Ошибка: ID и имя не могут быть пустыми")
+            .nonEmpty("Имя", "Ошибка: ID и имя не могут быть пустыми")
+            .example("R001|Иван Иванов")
+            .build();
+    private static final ArgSpec BORROW_BOOK_ARGS = loanArgs("/borrow_book");
+    private static final ArgSpec RETURN_BOOK_ARGS = loanArgs("/return_book");
+    private static final ArgSpec HOLD_ARGS = loanArgs("/hold");
+    private static final ArgSpec FIND_BY_AUTHOR_ARGS = ArgSpec.of("/find_book_by_author")
+            .text("Имя_автора")
+            .example("Толстой")
+            .build();
+    private static final ArgSpec SEARCH_ARGS = ArgSpec.of("/search")
+            .text("Слова_запроса")
+            .example("война мир")
+            .build();
+    // Курсор страницы: [> ISBN | < ISBN]
+    private static final ArgSpec LIST_AVAILABLE_ARGS = ArgSpec.of("/list_available_books")
+            .optional()
+            .build();
+    private static final String TOP_BOOKS_USAGE =
+            "Использование: /top_books [Количество от 1 до " + LibraryStatistics.TOP_CAPACITY + "]\n" +
+            "Пример: /top_books 5";
+    private static final ArgSpec TOP_BOOKS_ARGS = ArgSpec.of("/top_books")
+            .integer("Количество", 1, LibraryStatistics.TOP_CAPACITY, TOP_BOOKS_USAGE, TOP_BOOKS_USAGE)
+            .optional()
+            .build();
+
     private final RepositoryComponent repositoryComponent;
     private final ServiceComponent serviceComponent;
-    // Хранилище сессий пользователей: chatId -> UserSession
-    private final Map<Long, UserSession> userSessions;
+    // Хранилище сессий пользователей: chatId -> UserSession (только активные диалоги)
+    private final SessionStore sessionStore;
+    private final CommandRegistry commands;
+    private final CommandMetrics commandMetrics;
 
 
     /**
@@ -31,12 +94,101 @@ public class TgApiHandler {
      * @param mode IN_MEMORY (в памяти) или DATABASE (MySQL)
      */
     public TgApiHandler(RepositoryComponent.RepositoryMode mode) {
+        this(mode, ReaderNotifier.NONE);
+    }
+
+    /**
+     * @param mode режим работы репозитория
+     * @param notifier отправка уведомлений читателям (книга из очереди выдана)
+     */
+    public TgApiHandler(RepositoryComponent.RepositoryMode mode, ReaderNotifier notifier) {
         System.out.println("Инициализация приложения в режиме: " + mode);
         this.repositoryComponent = new RepositoryComponent(mode);
-        this.serviceComponent = new ServiceComponent(repositoryComponent);
-        this.userSessions = new HashMap<>();
+        this.serviceComponent = new ServiceComponent(repositoryComponent, notifier);
+        this.sessionStore = new ConcurrentSessionStore(SESSION_IDLE_TIMEOUT, MAX_SESSIONS);
+        this.commands = buildCommands();
+        this.commandMetrics = new CommandMetrics(MetricsRegistry.getDefault(), commands);
+    }
+
+    /**
+     * Реестр команд: имя, параметры, обработчик и пошаговый диалог для вызова без параметров
+     */
+    private CommandRegistry buildCommands() {
+        return CommandRegistry.builder()
+                .register("/start", ArgSpec.NONE, (chatId, session, args) -> getWelcomeMessage())
+                .register("/help", ArgSpec.NONE, (chatId, session, args) -> getHelpMessage())
+                // Как и в диалоге, /cancel принимается в любом регистре
+                .registerIgnoreCase("/cancel", ArgSpec.NONE, (chatId, session, args) -> {
+                    session.reset();
+                    return "Текущий диалог отменён.";
+                })
+                .register("/add_book", ADD_BOOK_ARGS,
+                        (chatId, session, args) -> addBook(args.get(0), args.get(1), args.get(2)),
+                        (chatId, session, args) -> startDialog(session, UserSession.SessionState.ADD_BOOK_WAITING_ISBN,
+                                "Добавление книги\n\nШаг 1/3: Введите ISBN книги:"))
+                .register("/add_copies", ADD_COPIES_ARGS,
+                        (chatId, session, args) -> addCopies(args.get(0), args.getInt(1)))
+                .register("/add_user", ADD_USER_ARGS,
+                        (chatId, session, args) -> addUser(args.get(0), args.get(1)),
+                        (chatId, session, args) -> startDialog(session, UserSession.SessionState.ADD_USER_WAITING_ID,
+                                "Добавление читателя\n\nШаг 1/2: Введите ID читателя (например, R001):"))
+                .register("/borrow_book", BORROW_BOOK_ARGS,
+                        (chatId, session, args) -> borrowBook(chatId, args.get(0), args.get(1)),
+                        (chatId, session, args) -> startDialog(session, UserSession.SessionState.BORROW_BOOK_WAITING_ISBN,
+                                "Выдача книги\n\nШаг 1/2: Введите ISBN книги:"))
+                .register("/return_book", RETURN_BOOK_ARGS,
+                        (chatId, session, args) -> returnBook(args.get(0), args.get(1)),
+                        (chatId, session, args) -> startDialog(session, UserSession.SessionState.RETURN_BOOK_WAITING_ISBN,
+                                "Возврат книги\n\nШаг 1/2: Введите ISBN книги:"))
+                .register("/hold", HOLD_ARGS,
+                        (chatId, session, args) -> placeHold(chatId, args.get(0), args.get(1)))
+                .register("/find_book_by_author", FIND_BY_AUTHOR_ARGS,
+                        (chatId, session, args) -> findBookByAuthor(args.text()))
+                .register("/search", SEARCH_ARGS,
+                        (chatId, session, args) -> searchBooks(args.text()))
+                .register("/list_available_books", LIST_AVAILABLE_ARGS,
+                        (chatId, session, args) -> listAvailableBooks(args.text()))
+                .register("/stats", ArgSpec.NONE, (chatId, session, args) -> getStats())
+                .register("/top_books", TOP_BOOKS_ARGS,
+                        (chatId, session, args) -> getTopBooks(args.isBlank() ? TOP_BOOKS_DEFAULT : args.getInt(0)))
+                .build();
     }
 
+    private static ArgSpec loanArgs(String command) {
+        return ArgSpec.of(command)
+                .text("ISBN")
+                .text("ID_читателя")
+                .example("978-5-17-123456-7|R001")
+                .build();
+    }
+
+    private static String startDialog(UserSession session, UserSession.SessionState state, String prompt) {
+        session.setState(state);
+        return prompt;
+    }
+
+
+    /**
+     * Прогреть хранилище (соединения с БД, подготовленные запросы) до приема сообщений
+     */
+    public void warmUp() {
+        repositoryComponent.warmUp();
+    }
+
+    /**
+     * Запустить фоновый поиск просроченных выдач с напоминаниями в чаты
+     */
+    public void startOverdueScanner(Duration interval) {
+        serviceComponent.getOverdueScanner().start(interval);
+    }
+
+    /**
+     * Остановить фоновые задачи и закрыть хранилище (сохранить снимок в режиме IN_MEMORY_DURABLE)
+     */
+    public void close() {
+        serviceComponent.close();
+        repositoryComponent.close();
+    }
 
     /**
      * Обрабатывает входящие сообщения от пользователя
@@ -49,77 +201,53 @@ public class TgApiHandler {
             return "Пустое сообщение";
         }
 
-        // Получаем или создаем сессию пользователя
-        UserSession session = userSessions.computeIfAbsent(chatId, k -> new UserSession());
+        // Получаем сессию пользователя; без активного диалога она не хранится
+        UserSession session = sessionStore.get(chatId);
+        if (session == null) {
+            session = new UserSession();
+        }
 
+        long start = System.nanoTime();
+        boolean inDialog = session.getState() != UserSession.SessionState.IDLE;
+        Command command = inDialog ? null : commands.find(messageText);
+        int metric = commandMetrics.indexOf(command, inDialog);
+        // После своих записей чат читает с основного сервера, а не с отстающей реплики
+        DatabaseConnection.bindChat(chatId);
+        try {
+            return handleMessage(chatId, session, command, messageText);
+        } catch (RuntimeException e) {
+            commandMetrics.recordFailure(metric);
+            throw e;
+        } finally {
+            DatabaseConnection.unbindChat();
+            if (session.getState() == UserSession.SessionState.IDLE) {
+                sessionStore.remove(chatId);
+            } else {
+                sessionStore.put(chatId, session);
+            }
+            commandMetrics.record(metric, start);
+        }
+    }
+
+    /**
+     * Обрабатывает сообщение в контексте сессии пользователя
+     * @param command команда из реестра (null - диалог или неизвестная команда)
+     */
+    private String handleMessage(long chatId, UserSession session, Command command, String messageText) {
         // Если пользователь в активном диалоге, обрабатываем его состояние
         if (session.getState() != UserSession.SessionState.IDLE) {
-            return handleSessionState(session, messageText);
+            return handleSessionState(chatId, session, messageText);
         }
-
-        // Обработка команд
-        String trimmedMessage = messageText.trim();
-
-        // Команды для отмены текущего диалога
-        if (trimmedMessage.equalsIgnoreCase("/cancel")) {
-            session.reset();
-            return "Текущий диалог отменён.";
+        if (command == null) {
+            return "Неизвестная команда: " + CommandRegistry.token(messageText) + "\nВведите /help для списка команд";
         }
-
-        // Разбираем команду и параметры
-        String[] parts = trimmedMessage.split("\\s+", 2);
-        String command = parts[0];
-        String params = parts.length > 1 ? parts[1] : "";
-
-        return switch (command) {
-            case "/start" -> getWelcomeMessage();
-            case "/help" -> getHelpMessage();
-            case "/add_book" -> {
-                if (params.isBlank()) {
-                    // Запускаем пошаговый диалог
-                    session.setState(UserSession.SessionState.ADD_BOOK_WAITING_ISBN);
-                    yield "Добавление книги\n\nШаг 1/3: Введите ISBN книги:";
-                } else {
-                    yield addBook(params);
-                }
-            }
-            case "/add_user" -> {
-                if (params.isBlank()) {
-                    // Запускаем пошаговый диалог
-                    session.setState(UserSession.SessionState.ADD_USER_WAITING_ID);
-                    yield "Добавление читателя\n\nШаг 1/2: Введите ID читателя (например, R001):";
-                } else {
-                    yield addUser(params);
-                }
-            }
-            case "/borrow_book" -> {
-                if (params.isBlank()) {
-                    // Запускаем пошаговый диалог
-                    session.setState(UserSession.SessionState.BORROW_BOOK_WAITING_ISBN);
-                    yield "Выдача книги\n\nШаг 1/2: Введите ISBN книги:";
-                } else {
-                    yield borrowBook(params);
-                }
-            }
-            case "/return_book" -> {
-                if (params.isBlank()) {
-                    // Запускаем пошаговый диалог
-                    session.setState(UserSession.SessionState.RETURN_BOOK_WAITING_ISBN);
-                    yield "Возврат книги\n\nШаг 1/2: Введите ISBN книги:";
-                } else {
-                    yield returnBook(params);
-                }
-            }
-            case "/find_book_by_author" -> findBookByAuthor(params);
-            case "/list_available_books" -> listAvailableBooks();
-            default -> "Неизвестная команда: " + command + "\nВведите /help для списка команд";
-        };
+        return command.execute(chatId, session, messageText);
     }
 
     /**
      * Обрабатывает состояние сессии в многошаговом диалоге
      */
-    private String handleSessionState(UserSession session, String input) {
+    private String handleSessionState(long chatId, UserSession session, String input) {
         input = input.trim();
 
         // Отмена текущего диалога
@@ -152,7 +280,7 @@ public class TgApiHandler {
                 }
                 String isbn = session.getData("isbn");
                 String title = session.getData("title");
-                String result = addBookFromSession(isbn, title, input);
+                String result = addBook(isbn, title, input);
                 session.reset();
                 yield result;
             }
@@ -171,7 +299,7 @@ public class TgApiHandler {
                     yield "Ошибка: имя не может быть пустым. Попробуйте еще раз или введите /cancel:";
                 }
                 String id = session.getData("id");
-                String result = addUserFromSession(id, input);
+                String result = addUser(id, input);
                 session.reset();
                 yield result;
             }
@@ -184,7 +312,7 @@ public class TgApiHandler {
             }
             case BORROW_BOOK_WAITING_READER_ID -> {
                 String isbn = session.getData("isbn");
-                String result = borrowBook(isbn + "|" + input);
+                String result = borrowBook(chatId, isbn, input);
                 session.reset();
                 yield result;
             }
@@ -197,7 +325,7 @@ public class TgApiHandler {
             }
             case RETURN_BOOK_WAITING_READER_ID -> {
                 String isbn = session.getData("isbn");
-                String result = returnBook(isbn + "|" + input);
+                String result = returnBook(isbn, input);
                 session.reset();
                 yield result;
             }
@@ -210,9 +338,11 @@ public class TgApiHandler {
     }
 
     /**
-     * Добавление книги из данных сессии
+     * Добавление книги
+     * Формат: /add_book ISBN|Название|Автор
+     * Пример: /add_book 978-5-17-123456-7|Война и мир|Толстой Л.Н.
      */
-    private String addBookFromSession(String isbn, String title, String author) {
+    private String addBook(String isbn, String title, String author) {
         try {
             Book book = new Book(isbn, title, author);
             repositoryComponent.getBookRepository().save(book);
@@ -226,58 +356,22 @@ public class TgApiHandler {
     }
 
     /**
-     * Добавление читателя из данных сессии
+     * Поступление новых экземпляров издания
+     * Формат: /add_copies ISBN|Количество
+     * Пример: /add_copies 978-5-17-123456-7|2
      */
-    private String addUserFromSession(String id, String name) {
+    private String addCopies(String isbn, int count) {
         try {
-            Reader reader = new Reader(id, name);
-            repositoryComponent.getReaderRepository().save(reader);
-            return "✓ Читатель успешно добавлен:\n" +
-                   "  ID: " + id + "\n" +
-                   "  Имя: " + name;
-        } catch (Exception e) {
-            return "✗ Ошибка при добавлении читателя: " + e.getMessage();
-        }
-    }
-
-    /**
-     * Добавление книги
-     * Формат: /add_book ISBN|Название|Автор
-     * Пример: /add_book 978-5-17-123456-7|Война и мир|Толстой Л.Н.
-     */
-    private String addBook(String params) {
-        if (params.isBlank()) {
-            return "Использование: /add_book ISBN|Название|Автор\n" +
-                   "Пример: /add_book 978-5-17-123456-7|Война и мир|Толстой Л.Н.";
-        }
-
-        String[] parts = params.split("\\|", 3);
-        if (parts.length < 3) {
-            return "Ошибка: неверный формат. Используйте символ | для разделения\n" +
-                   "Формат: /add_book ISBN|Название|Автор";
-        }
-
-        String isbn = parts[0].trim();
-        String title = parts[1].trim();
-        String author = parts[2].trim();
-
-        if (isbn.length() < 2) {
-            return "Ошибка: ISBN слишком короткий";
-        }
-
-        if (title.isEmpty() || author.isEmpty()) {
-            return "Ошибка: название и автор не могут быть пустыми";
-        }
-
-        try {
-            Book book = new Book(isbn, title, author);
-            repositoryComponent.getBookRepository().save(book);
-            return "✓ Книга успешно добавлена:\n" +
-                   "  ISBN: " + isbn + "\n" +
-                   "  Название: " + title + "\n" +
-                   "  Автор: " + author;
+            BookRepository bookRepository = repositoryComponent.getBookRepository();
+            if (!bookRepository.addCopies(isbn, count)) {
+                return "✗ Книга с ISBN '" + isbn + "' не найдена";
+            }
+            Book book = bookRepository.findByIsbn(isbn);
+            return "✓ Экземпляры добавлены:\n" +
+                   "  Название: " + book.getTitle() + "\n" +
+                   "  Экземпляров: доступно " + book.getAvailableCopies() + " из " + book.getCopies();
         } catch (Exception e) {
-            return "✗ Ошибка при добавлении книги: " + e.getMessage();
+            return "✗ Ошибка при добавлении экземпляров: " + e.getMessage();
         }
     }
 
@@ -286,25 +380,7 @@ public class TgApiHandler {
      * Формат: /add_user ID|Имя
      * Пример: /add_user R001|Иван Иванов
      */
-    private String addUser(String params) {
-        if (params.isBlank()) {
-            return "Использование: /add_user ID|Имя\n" +
-                   "Пример: /add_user R001|Иван Иванов";
-        }
-
-        String[] parts = params.split("\\|", 2);
-        if (parts.length < 2) {
-            return "Ошибка: неверный формат. Используйте символ | для разделения\n" +
-                   "Формат: /add_user ID|Имя";
-        }
-
-        String id = parts[0].trim();
-        String name = parts[1].trim();
-
-        if (id.isEmpty() || name.isEmpty()) {
-            return "Ошибка: ID и имя не могут быть пустыми";
-        }
-
+    private String addUser(String id, String name) {
         try {
             Reader reader = new Reader(id, name);
             repositoryComponent.getReaderRepository().save(reader);
@@ -320,22 +396,9 @@ public class TgApiHandler {
      * Выдача книги
      * Формат: /borrow_book ISBN|ID_читателя
      * Пример: /borrow_book 978-5-17-123456-7|R001
+     * Напоминание о просрочке придет в чат, из которого книгу выдали.
      */
-    private String borrowBook(String params) {
-        if (params.isBlank()) {
-            return "Использование: /borrow_book ISBN|ID_читателя\n" +
-                   "Пример: /borrow_book 978-5-17-123456-7|R001";
-        }
-
-        String[] parts = params.split("\\|", 2);
-        if (parts.length < 2) {
-            return "Ошибка: неверный формат. Используйте символ | для разделения\n" +
-                   "Формат: /borrow_book ISBN|ID_читателя";
-        }
-
-        String isbn = parts[0].trim();
-        String readerId = parts[1].trim();
-
+    private String borrowBook(long chatId, String isbn, String readerId) {
         try {
             // Проверяем читателя
             Reader reader = repositoryComponent.getReaderRepository().findById(readerId);
@@ -345,7 +408,7 @@ public class TgApiHandler {
 
             // Делегируем бизнес-логику сервису
             LibraryService service = serviceComponent.getLibraryService();
-            String result = service.borrowBook(isbn, reader);
+            String result = service.borrowBook(isbn, reader, chatId);
             return result;
         } catch (Exception e) {
             return "✗ Ошибка при выдаче книги: " + e.getMessage();
@@ -357,21 +420,7 @@ public class TgApiHandler {
      * Формат: /return_book ISBN|ID_читателя
      * Пример: /return_book 978-5-17-123456-7|R001
      */
-    private String returnBook(String params) {
-        if (params.isBlank()) {
-            return "Использование: /return_book ISBN|ID_читателя\n" +
-                   "Пример: /return_book 978-5-17-123456-7|R001";
-        }
-
-        String[] parts = params.split("\\|", 2);
-        if (parts.length < 2) {
-            return "Ошибка: неверный формат. Используйте символ | для разделения\n" +
-                   "Формат: /return_book ISBN|ID_читателя";
-        }
-
-        String isbn = parts[0].trim();
-        String readerId = parts[1].trim();
-
+    private String returnBook(String isbn, String readerId) {
         try {
             // Проверяем читателя
             Reader reader = repositoryComponent.getReaderRepository().findById(readerId);
@@ -395,30 +444,133 @@ public class TgApiHandler {
     }
 
     /**
-     * Поиск книг по автору
-     * Формат: /find_book_by_author Имя_автора
+     * Статистика библиотеки: все числа берутся из готовых агрегатов,
+     * каталог и история выдач не перебираются
+     */
+    private String getStats() {
+        try {
+            LibraryStatistics stats = serviceComponent.getLibraryStatistics();
+            StringBuilder response = new StringBuilder("📊 Статистика библиотеки\n\n");
+            response.append("Книг в каталоге: ").append(stats.getTotalBooks()).append("\n")
+                    .append("Читателей: ").append(stats.getTotalReaders()).append("\n\n")
+                    .append("Выдач с момента запуска: ").append(stats.getTotalBorrows()).append("\n")
+                    .append("  за час: ").append(stats.getBorrowsLastHours(1)).append("\n")
+                    .append("  за сутки: ").append(stats.getBorrowsLastHours(24)).append("\n")
+                    .append("  за неделю: ").append(stats.getBorrowsLastHours(7 * 24)).append("\n");
+
+            List<BookRank> top = stats.getTopBooks(STATS_TOP_BOOKS);
+            if (!top.isEmpty()) {
+                response.append("\nСамые читаемые:\n");
+                appendRanking(response, top);
+            }
+            return response.toString();
+        } catch (Exception e) {
+            return "✗ Ошибка при получении статистики: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Рейтинг самых читаемых книг
+     * Формат: /top_books [Количество]
+     * Пример: /top_books 5
+     */
+    private String getTopBooks(int limit) {
+        try {
+            List<BookRank> top = serviceComponent.getLibraryStatistics().getTopBooks(limit);
+            if (top.isEmpty()) {
+                return "Книги еще не брали";
+            }
+            StringBuilder response = new StringBuilder("🏆 Самые читаемые книги:\n\n");
+            appendRanking(response, top);
+            return response.toString();
+        } catch (Exception e) {
+            return "✗ Ошибка при получении рейтинга: " + e.getMessage();
+        }
+    }
+
+    private static void appendRanking(StringBuilder response, List<BookRank> ranking) {
+        int place = 1;
+        for (BookRank rank : ranking) {
+            response.append(place++).append(". ").append(rank.getTitle())
+                    .append(" (ISBN: ").append(rank.getIsbn()).append(")")
+                    .append(" - прочтений: ").append(rank.getTimesRead()).append("\n");
+        }
+    }
+
+    /**
+     * Постановка в очередь на выданную книгу
+     * Формат: /hold ISBN|ID_читателя
+     * Пример: /hold 978-5-17-123456-7|R001
+     */
+    private String placeHold(long chatId, String isbn, String readerId) {
+        try {
+            Reader reader = repositoryComponent.getReaderRepository().findById(readerId);
+            if (reader == null) {
+                return "✗ Читатель с ID '" + readerId + "' не найден";
+            }
+            // Уведомление о выдаче придет в этот чат
+            return serviceComponent.getLibraryService().placeHold(isbn, reader, chatId);
+        } catch (Exception e) {
+            return "✗ Ошибка при постановке в очередь: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Поиск книг по автору (постранично)
+     * Формат: /find_book_by_author Имя_автора [> ISBN | < ISBN]
      * Пример: /find_book_by_author Толстой
      */
-    private String findBookByAuthor(String author) {
+    private String findBookByAuthor(String params) {
+        String[] query = splitCursor(params);
+        String author = query[0];
         if (author.isBlank()) {
-            return "Использование: /find_book_by_author Имя_автора\n" +
-                   "Пример: /find_book_by_author Толстой";
+            return FIND_BY_AUTHOR_ARGS.usage();
         }
 
+        try {
+            Page<Book> page = repositoryComponent.getBookRepository()
+                    .findByAuthor(author, toPageRequest(query));
+
+            if (page.isEmpty()) {
+                return "Книги автора '" + author + "' не найдены";
+            }
+
+            StringBuilder response = new StringBuilder();
+            response.append("Книги автора '").append(author).append("':\n\n");
+            for (Book book : page.getItems()) {
+                String status = availability(book);
+                response.append("• ").append(book.getTitle())
+                        .append(" (ISBN: ").append(book.getIsbn()).append(")")
+                        .append("\n  ").append(status).append("\n");
+            }
+            appendNavigation(response, page, "/find_book_by_author " + author);
+            return response.toString();
+        } catch (Exception e) {
+            return "✗ Ошибка при поиске: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Поиск книг по названию и автору
+     * Формат: /search Слова_запроса
+     * Пример: /search война мир
+     */
+    private String searchBooks(String query) {
         try {
             List<Book> books = repositoryComponent.getBookRepository()
-                    .findByAuthor(author.trim());
+                    .search(query, SEARCH_LIMIT);
 
             if (books.isEmpty()) {
-                return "Книги автора '" + author + "' не найдены";
+                return "По запросу '" + query + "' ничего не найдено";
             }
 
             StringBuilder response = new StringBuilder();
-            response.append("Найдено книг: ").append(books.size()).append("\n\n");
+            response.append("Найдено (лучшие ").append(books.size()).append("):\n\n");
             for (Book book : books) {
-                String status = book.isAvailable() ? "✓ Доступна" : "✗ Выдана";
+                String status = availability(book);
                 response.append("• ").append(book.getTitle())
-                        .append(" (ISBN: ").append(book.getIsbn()).append(")")
+                        .append("\n  Автор: ").append(book.getAuthor())
+                        .append("\n  ISBN: ").append(book.getIsbn())
                         .append("\n  ").append(status).append("\n");
             }
             return response.toString();
@@ -428,31 +580,91 @@ public class TgApiHandler {
     }
 
     /**
-     * Список доступных книг
+     * Список доступных книг (постранично)
+     * Формат: /list_available_books [> ISBN | < ISBN]
      */
-    private String listAvailableBooks() {
+    private String listAvailableBooks(String params) {
         try {
-            List<Book> available = repositoryComponent.getBookRepository()
-                    .findAvailableBooks();
+            Page<Book> page = repositoryComponent.getBookRepository()
+                    .findAvailableBooks(toPageRequest(splitCursor(params)));
 
-            if (available.isEmpty()) {
-                return "В данный момент нет доступных книг";
+            if (page.isEmpty()) {
+                return params.isBlank()
+                        ? "В данный момент нет доступных книг"
+                        : "Больше доступных книг нет";
             }
 
             StringBuilder response = new StringBuilder();
-            response.append("Доступные книги (").append(available.size()).append("):\n\n");
-            for (Book book : available) {
+            response.append("Доступные книги:\n\n");
+            for (Book book : page.getItems()) {
                 response.append("• ").append(book.getTitle())
                         .append("\n  Автор: ").append(book.getAuthor())
                         .append("\n  ISBN: ").append(book.getIsbn())
                         .append("\n");
+                if (book.getCopies() > 1) {
+                    response.append("  Экземпляров: доступно ").append(book.getAvailableCopies())
+                            .append(" из ").append(book.getCopies()).append("\n");
+                }
             }
+            appendNavigation(response, page, "/list_available_books");
             return response.toString();
         } catch (Exception e) {
             return "✗ Ошибка при получении списка книг: " + e.getMessage();
         }
     }
 
+    /**
+     * Доступность издания; для нескольких экземпляров - сколько свободно
+     */
+    private static String availability(Book book) {
+        if (book.getCopies() == 1) {
+            return book.isAvailable() ? "✓ Доступна" : "✗ Выдана";
+        }
+        return book.isAvailable()
+                ? "✓ Доступно " + book.getAvailableCopies() + " из " + book.getCopies()
+                : "✗ Выданы все " + book.getCopies() + " экз.";
+    }
+
+    /**
+     * Отделить курсор страницы от параметров команды
+     * @return {текст, направление ("&gt;", "&lt;" или null), ISBN-курсор}
+     */
+    private static String[] splitCursor(String params) {
+        String trimmed = params.trim();
+        int index = Math.max(trimmed.lastIndexOf("> "), trimmed.lastIndexOf("< "));
+        if (index >= 0 && (index == 0 || trimmed.charAt(index - 1) == ' ')) {
+            String isbn = trimmed.substring(index + 2).trim();
+            if (!isbn.isEmpty() && isbn.indexOf(' ') < 0) {
+                return new String[]{trimmed.substring(0, index).trim(), trimmed.substring(index, index + 1), isbn};
+            }
+        }
+        return new String[]{trimmed, null, null};
+    }
+
+    private static PageRequest toPageRequest(String[] query) {
+        if (query[1] == null) {
+            return PageRequest.first(PAGE_SIZE);
+        }
+        return query[1].equals(">")
+                ? PageRequest.after(query[2], PAGE_SIZE)
+                : PageRequest.before(query[2], PAGE_SIZE);
+    }
+
+    /**
+     * Подсказки для перехода на соседние страницы
+     */
+    private static void appendNavigation(StringBuilder response, Page<Book> page, String command) {
+        List<Book> items = page.getItems();
+        if (page.hasPrevious()) {
+            response.append("\n◀ Назад: ").append(command)
+                    .append(" < ").append(items.get(0).getIsbn());
+        }
+        if (page.hasNext()) {
+            response.append("\n▶ Далее: ").append(command)
+                    .append(" > ").append(items.get(items.size() - 1).getIsbn());
+        }
+    }
+
     /**
      * Приветственное сообщение
      */
@@ -479,11 +691,21 @@ public class TgApiHandler {
                 • /add_book ISBN|Название|Автор - Добавить книгу (быстрый режим)
                   Пример: /add_book 978-5|Война и мир|Толстой
 
+                • /add_copies ISBN|Количество - Добавить экземпляры издания
+                  Пример: /add_copies 978-5|2
+
                 • /list_available_books - Показать доступные книги
+                  (по 10 на странице, ссылки "Далее"/"Назад" внизу)
 
                 • /find_book_by_author Автор
                   Пример: /find_book_by_author Толстой
 
+                • /search Слова - Поиск по названию и автору
+                  Пример: /search война мир
+
+                • /top_books [N] - Самые читаемые книги (по умолчанию 10)
+                • /stats - Статистика библиотеки
+
                 Управление читателями:
                 • /add_user - Добавить читателя (пошаговый режим)
                 • /add_user ID|Имя - Добавить читателя (быстрый режим)
@@ -498,6 +720,10 @@ public class TgApiHandler {
                 • /return_book ISBN|ID_читателя - Вернуть книгу (быстрый режим)
                   Пример: /return_book 978-5|R001
 
+                • /hold ISBN|ID_читателя - Встать в очередь на выданную книгу
+                  (при возврате книга сразу выдается первому в очереди)
+                  Пример: /hold 978-5|R001
+
                 💡 Подсказка: Вы можете использовать команды с параметрами
                 (быстрый режим) или без них (пошаговый диалог).
                 """;
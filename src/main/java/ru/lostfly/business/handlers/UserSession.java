@@ -1,44 +1,73 @@
 package ru.lostfly.business.handlers;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
- * Класс для хранения состояния сессии пользователя в многошаговых диалогах
+ * Класс для хранения состояния сессии пользователя в многошаговых диалогах.
+ * <p>
+ * Компактное представление: состояние хранится как номер в enum,
+ * а данные диалога - в маленьком массиве с фиксированными ячейками
+ * вместо отдельного HashMap на каждую сессию.
  */
 public class UserSession {
 
-    private SessionState state;
-    private final Map<String, String> data;
+    private static final SessionState[] STATES = SessionState.values();
+
+    // Ячейки для данных диалога (ключ -> номер ячейки, см. slotOf)
+    private static final int SLOT_ISBN = 0;
+    private static final int SLOT_TITLE = 1;
+    private static final int SLOT_ID = 2;
+    private static final int SLOT_COUNT = 3;
+
+    private byte state;
+    private String[] data;          // создается при первой записи
+    private long lastAccessMillis;
 
     public UserSession() {
-        this.state = SessionState.IDLE;
-        this.data = new HashMap<>();
+        this.state = (byte) SessionState.IDLE.ordinal();
     }
 
     public SessionState getState() {
-        return state;
+        return STATES[state];
     }
 
     public void setState(SessionState state) {
-        this.state = state;
+        this.state = (byte) state.ordinal();
     }
 
     public void putData(String key, String value) {
-        data.put(key, value);
+        if (data == null) {
+            data = new String[SLOT_COUNT];
+        }
+        data[slotOf(key)] = value;
     }
 
     public String getData(String key) {
-        return data.get(key);
+        return data == null ? null : data[slotOf(key)];
     }
 
     public void clearData() {
-        data.clear();
+        data = null;
     }
 
     public void reset() {
-        this.state = SessionState.IDLE;
-        this.data.clear();
+        this.state = (byte) SessionState.IDLE.ordinal();
+        this.data = null;
+    }
+
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    void touch(long nowMillis) {
+        this.lastAccessMillis = nowMillis;
+    }
+
+    private static int slotOf(String key) {
+        return switch (key) {
+            case "isbn" -> SLOT_ISBN;
+            case "title" -> SLOT_TITLE;
+            case "id" -> SLOT_ID;
+            default -> throw new IllegalArgumentException("Unknown session key: " + key);
+        };
     }
 
     /**
@@ -64,4 +93,4 @@ public class UserSession {
         RETURN_BOOK_WAITING_ISBN,
         RETURN_BOOK_WAITING_READER_ID
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,175 @@
+package ru.lostfly.business.handlers.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Описание параметров команды: поля через '|', их проверки и пример.
+ * <p>
+ * Строится один раз при регистрации команды. По описанию {@link Command}
+ * разбирает параметры и до вызова обработчика отвечает подсказкой
+ * ("Использование", "неверный формат") или ошибкой поля - обработчик
+ * получает уже проверенные поля.
+ */
+public final class ArgSpec {
+
+    /**
+     * Команда без параметров: все после имени команды игнорируется
+     */
+    public static final ArgSpec NONE = new ArgSpec("", new Field[0], "", true);
+
+    private final Field[] fields;
+    // Команду можно вызвать без параметров
+    private final boolean optional;
+    // Подсказки собираются один раз
+    private final String usage;
+    private final String formatError;
+
+    private ArgSpec(String command, Field[] fields, String example, boolean optional) {
+        this.fields = fields;
+        this.optional = optional;
+        String format = format(fields);
+        this.usage = "Использование: " + command + " " + format + "\n" +
+                     "Пример: " + command + " " + example;
+        this.formatError = "Ошибка: неверный формат. Используйте символ | для разделения\n" +
+                           "Формат: " + command + " " + format;
+    }
+
+    public static Builder of(String command) {
+        return new Builder(command);
+    }
+
+    int fieldCount() {
+        return fields.length;
+    }
+
+    /**
+     * Подсказка по формату: "Использование: /команда Поле|Поле" и пример
+     */
+    public String usage() {
+        return usage;
+    }
+
+    /**
+     * @return null, если параметры подходят, иначе текст ответа пользователю
+     */
+    String validate(CommandArgs args) {
+        if (args.isBlank()) {
+            return optional ? null : usage;
+        }
+        if (args.size() < fields.length) {
+            return formatError;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            String error = fields[i].check(args, i);
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    private static String format(Field[] fields) {
+        StringBuilder format = new StringBuilder();
+        for (Field field : fields) {
+            if (format.length() > 0) {
+                format.append(CommandArgs.SEPARATOR);
+            }
+            format.append(field.name);
+        }
+        return format.toString();
+    }
+
+    /**
+     * Поле и его проверка
+     */
+    private static final class Field {
+        private final String name;
+        private final int minLength;
+        private final boolean integer;
+        private final int min;
+        private final int max;
+        // Ответ на значение короче minLength или не число
+        private final String invalidError;
+        // Ответ на число вне [min, max]
+        private final String rangeError;
+
+        private Field(String name, int minLength, boolean integer, int min, int max,
+                      String invalidError, String rangeError) {
+            this.name = name;
+            this.minLength = minLength;
+            this.integer = integer;
+            this.min = min;
+            this.max = max;
+            this.invalidError = invalidError;
+            this.rangeError = rangeError;
+        }
+
+        private String check(CommandArgs args, int index) {
+            if (!integer) {
+                return args.length(index) < minLength ? invalidError : null;
+            }
+            int value;
+            try {
+                value = args.getInt(index);
+            } catch (NumberFormatException e) {
+                return invalidError;
+            }
+            return value < min || value > max ? rangeError : null;
+        }
+    }
+
+    public static final class Builder {
+        private final String command;
+        private final List<Field> fields = new ArrayList<>();
+        private String example = "";
+        private boolean optional;
+
+        private Builder(String command) {
+            this.command = command;
+        }
+
+        /**
+         * Поле с любым значением, в том числе пустым
+         */
+        public Builder text(String name) {
+            return minLength(name, 0, null);
+        }
+
+        public Builder nonEmpty(String name, String error) {
+            return minLength(name, 1, error);
+        }
+
+        public Builder minLength(String name, int minLength, String error) {
+            fields.add(new Field(name, minLength, false, 0, 0, error, null));
+            return this;
+        }
+
+        /**
+         * Целое число в диапазоне [min, max]
+         * @param notNumberError ответ, если поле не число
+         * @param rangeError ответ, если число вне диапазона
+         */
+        public Builder integer(String name, int min, int max, String notNumberError, String rangeError) {
+            fields.add(new Field(name, 0, true, min, max, notNumberError, rangeError));
+            return this;
+        }
+
+        public Builder example(String example) {
+            this.example = example;
+            return this;
+        }
+
+        /**
+         * Параметры можно не указывать
+         */
+        public Builder optional() {
+            this.optional = true;
+            return this;
+        }
+
+        public ArgSpec build() {
+            return new ArgSpec(command, fields.toArray(new Field[0]), example, optional);
+        }
+    }
+}
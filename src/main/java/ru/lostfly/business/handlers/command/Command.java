@@ -0,0 +1,58 @@
+package ru.lostfly.business.handlers.command;
+
+import ru.lostfly.business.handlers.UserSession;
+
+/**
+ * Зарегистрированная команда: имя, описание параметров и обработчики
+ */
+public final class Command {
+
+    private final String name;
+    // Номер в реестре: по нему, например, выбираются метрики команды
+    private final int index;
+    private final ArgSpec spec;
+    private final CommandHandler handler;
+    // Вызывается вместо handler, если параметров нет (пошаговый диалог); null - подсказка по формату
+    private final CommandHandler dialog;
+    // Имя сверяется без учета регистра (например, /cancel, /CANCEL)
+    private final boolean ignoreCase;
+
+    Command(String name, int index, ArgSpec spec, CommandHandler handler, CommandHandler dialog,
+            boolean ignoreCase) {
+        this.name = name;
+        this.index = index;
+        this.spec = spec;
+        this.handler = handler;
+        this.dialog = dialog;
+        this.ignoreCase = ignoreCase;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * Разобрать параметры из сообщения, проверить их и вызвать обработчик
+     * @param message сообщение, которое {@link CommandRegistry#find(String)} сопоставил с этой командой
+     */
+    public String execute(long chatId, UserSession session, String message) {
+        int paramsFrom = CommandArgs.skipWhitespace(message, 0, message.length()) + name.length();
+        CommandArgs args = CommandArgs.parse(message, paramsFrom, spec.fieldCount());
+        if (dialog != null && args.isBlank()) {
+            return dialog.handle(chatId, session, args);
+        }
+        String error = spec.validate(args);
+        if (error != null) {
+            return error;
+        }
+        return handler.handle(chatId, session, args);
+    }
+}
@@ -0,0 +1,136 @@
+package ru.lostfly.business.handlers.command;
+
+/**
+ * Параметры команды - поля через '|' - без копирования текста сообщения.
+ * <p>
+ * Разбор один раз проходит по сообщению и запоминает только границы полей
+ * (пробелы по краям отброшены). Строка поля создается, когда обработчик
+ * ее запрашивает, а числа разбираются прямо из сообщения. Вместо
+ * {@code split("\\|", n)} и {@code trim()} на каждое поле - один объект
+ * и один маленький массив индексов на сообщение.
+ * <p>
+ * Последнее поле забирает остаток строки вместе с '|' (как split с лимитом).
+ */
+public final class CommandArgs {
+
+    static final char SEPARATOR = '|';
+
+    private static final int[] NO_FIELDS = new int[0];
+
+    private final String text;
+    // Все параметры без пробелов по краям: [start, end)
+    private final int start;
+    private final int end;
+    // Границы полей: начало и конец i-го поля - bounds[2i], bounds[2i + 1]
+    private final int[] bounds;
+    private final int count;
+
+    private CommandArgs(String text, int start, int end, int[] bounds, int count) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        this.bounds = bounds;
+        this.count = count;
+    }
+
+    /**
+     * Разобрать параметры, начинающиеся в text с позиции from
+     * @param maxFields сколько полей выделять; 0 - параметры не нужны
+     */
+    static CommandArgs parse(String text, int from, int maxFields) {
+        int start = skipWhitespace(text, from, text.length());
+        int end = trimEnd(text, start, text.length());
+        if (maxFields == 0 || start == end) {
+            return new CommandArgs(text, start, end, NO_FIELDS, 0);
+        }
+
+        int[] bounds = new int[maxFields * 2];
+        int count = 0;
+        int fieldStart = start;
+        while (count < maxFields - 1) {
+            int separator = text.indexOf(SEPARATOR, fieldStart);
+            if (separator < 0 || separator >= end) {
+                break;
+            }
+            setField(text, bounds, count++, fieldStart, separator);
+            fieldStart = separator + 1;
+        }
+        setField(text, bounds, count++, fieldStart, end);
+        return new CommandArgs(text, start, end, bounds, count);
+    }
+
+    /**
+     * Сколько полей найдено (не больше maxFields)
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Параметров нет или они из одних пробелов
+     */
+    public boolean isBlank() {
+        return start == end;
+    }
+
+    /**
+     * Поле без пробелов по краям
+     */
+    public String get(int index) {
+        checkIndex(index);
+        return text.substring(bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    public int length(int index) {
+        checkIndex(index);
+        return bounds[2 * index + 1] - bounds[2 * index];
+    }
+
+    public boolean isEmpty(int index) {
+        return length(index) == 0;
+    }
+
+    /**
+     * Число из поля, без создания строки
+     * @throws NumberFormatException если поле не число
+     */
+    public int getInt(int index) {
+        checkIndex(index);
+        return Integer.parseInt(text, bounds[2 * index], bounds[2 * index + 1], 10);
+    }
+
+    /**
+     * Все параметры одной строкой (для команд со свободным текстом)
+     */
+    public String text() {
+        return text.substring(start, end);
+    }
+
+    static int skipWhitespace(String text, int from, int to) {
+        int i = from;
+        while (i < to && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(String text, int from, int to) {
+        int i = to;
+        while (i > from && Character.isWhitespace(text.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static void setField(String text, int[] bounds, int index, int from, int to) {
+        int fieldStart = skipWhitespace(text, from, to);
+        bounds[2 * index] = fieldStart;
+        bounds[2 * index + 1] = trimEnd(text, fieldStart, to);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + count);
+        }
+    }
+}
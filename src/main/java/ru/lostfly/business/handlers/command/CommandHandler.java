@@ -0,0 +1,18 @@
+package ru.lostfly.business.handlers.command;
+
+import ru.lostfly.business.handlers.UserSession;
+
+/**
+ * Обработчик одной команды бота
+ */
+@FunctionalInterface
+public interface CommandHandler {
+
+    /**
+     * @param chatId чат, из которого пришла команда
+     * @param session сессия чата (обработчик может начать пошаговый диалог)
+     * @param args параметры, уже проверенные по {@link ArgSpec} команды
+     * @return ответ пользователю
+     */
+    String handle(long chatId, UserSession session, CommandArgs args);
+}
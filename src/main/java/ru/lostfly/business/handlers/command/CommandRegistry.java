@@ -0,0 +1,146 @@
+package ru.lostfly.business.handlers.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Реестр команд бота, собранный один раз при старте.
+ * <p>
+ * Поиск команды не копирует сообщение: хэш имени считается прямо по символам
+ * сообщения до первого пробела, и по нему выбирается ячейка в таблице с открытой
+ * адресацией; имя сверяется через regionMatches. Таблица заполнена не больше
+ * чем наполовину, так что цепочки короткие.
+ * <p>
+ * Хэш считается без учета регистра, поэтому команда, зарегистрированная через
+ * {@link Builder#registerIgnoreCase}, находится в той же ячейке при любом регистре сообщения.
+ */
+public final class CommandRegistry {
+
+    private final Command[] table;
+    private final int mask;
+    private final List<Command> commands;
+
+    private CommandRegistry(List<Command> commands) {
+        this.commands = Collections.unmodifiableList(commands);
+        int capacity = Integer.highestOneBit(Math.max(commands.size(), 1) * 4 - 1) << 1;
+        this.table = new Command[capacity];
+        this.mask = capacity - 1;
+        for (Command command : commands) {
+            String name = command.getName();
+            int slot = hash(name, 0, name.length()) & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = command;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Команда, с которой начинается сообщение
+     * @return null, если такой команды нет
+     */
+    public Command find(String message) {
+        int start = CommandArgs.skipWhitespace(message, 0, message.length());
+        int end = tokenEnd(message, start);
+        int length = end - start;
+        if (length == 0) {
+            return null;
+        }
+        int slot = hash(message, start, end) & mask;
+        Command command;
+        while ((command = table[slot]) != null) {
+            String name = command.getName();
+            if (name.length() == length
+                    && message.regionMatches(command.isIgnoreCase(), start, name, 0, length)) {
+                return command;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Первое слово сообщения - для ответа на неизвестную команду
+     */
+    public static String token(String message) {
+        int start = CommandArgs.skipWhitespace(message, 0, message.length());
+        return message.substring(start, tokenEnd(message, start));
+    }
+
+    public int size() {
+        return commands.size();
+    }
+
+    /**
+     * Команды в порядке регистрации: i-я имеет {@link Command#getIndex()} == i
+     */
+    public List<Command> commands() {
+        return commands;
+    }
+
+    private static int tokenEnd(String message, int from) {
+        int i = from;
+        while (i < message.length() && !Character.isWhitespace(message.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Тот же хэш, что у String.hashCode, но по части строки в нижнем регистре
+     * и с перемешиванием старших бит
+     */
+    private static int hash(String text, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + Character.toLowerCase(text.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    public static final class Builder {
+        private final List<Command> commands = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder register(String name, ArgSpec spec, CommandHandler handler) {
+            return register(name, spec, handler, null);
+        }
+
+        /**
+         * @param dialog вызывается, если команда пришла без параметров (пошаговый ввод)
+         */
+        public Builder register(String name, ArgSpec spec, CommandHandler handler, CommandHandler dialog) {
+            return add(name, spec, handler, dialog, false);
+        }
+
+        /**
+         * Команда, имя которой сверяется без учета регистра
+         */
+        public Builder registerIgnoreCase(String name, ArgSpec spec, CommandHandler handler) {
+            return add(name, spec, handler, null, true);
+        }
+
+        private Builder add(String name, ArgSpec spec, CommandHandler handler, CommandHandler dialog,
+                            boolean ignoreCase) {
+            for (Command command : commands) {
+                if (command.getName().equalsIgnoreCase(name) && (ignoreCase || command.isIgnoreCase()
+                        || command.getName().equals(name))) {
+                    throw new IllegalArgumentException("Command already registered: " + name);
+                }
+            }
+            commands.add(new Command(name, commands.size(), spec, handler, dialog, ignoreCase));
+            return this;
+        }
+
+        public CommandRegistry build() {
+            return new CommandRegistry(new ArrayList<>(commands));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ru.lostfly.business.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковый импорт каталога из CSV/TSV.
+ * <p>
+ * Формат строки: {@code ISBN,Название,Автор[,Жанр[,Экземпляров,Свободно,Прочтений]]} -
+ * тот же, что у выгрузки таблицы books ({@link ru.lostfly.business.exporter.ExportTable#BOOKS}).
+ * Для файлов *.tsv разделитель - табуляция. Первая строка пропускается, если
+ * это заголовок (начинается с "isbn"). Поля CSV можно брать в двойные кавычки.
+ * <p>
+ * Число экземпляров и счетчик прочтений из выгрузки сохраняются у новых книг.
+ * Все экземпляры импортируются свободными: выдачи в выгрузку книг не входят,
+ * и "Свободно" меньше "Экземпляров" означало бы экземпляры, выданные никому.
+ * В MySQL у книг, которые уже есть в базе, счетчики не меняются - импорт
+ * обновляет только описание (счетчики там меняют только выдачи и addCopies).
+ * <p>
+ * Файл читается построчно, в памяти держится только одна пачка книг -
+ * размер файла на расход памяти не влияет. Каждая пачка уходит
+ * в {@link BookRepository#saveAll}.
+ */
+@Slf4j
+public class BookCsvImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final BookRepository bookRepository;
+    private final int batchSize;
+
+    public BookCsvImporter(BookRepository bookRepository) {
+        this(bookRepository, DEFAULT_BATCH_SIZE);
+    }
+
+    public BookCsvImporter(BookRepository bookRepository, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.bookRepository = bookRepository;
+        this.batchSize = batchSize;
+    }
+
+    public ImportReport importFile(Path file, ImportProgressListener listener) throws IOException {
+        char delimiter = file.getFileName().toString().toLowerCase().endsWith(".tsv") ? '\t' : ',';
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, delimiter, listener);
+        }
+    }
+
+    public ImportReport importFrom(BufferedReader reader, char delimiter, ImportProgressListener listener) throws IOException {
+        long started = System.nanoTime();
+        long imported = 0;
+        long skipped = 0;
+        long lineNumber = 0;
+        List<Book> batch = new ArrayList<>(batchSize);
+        List<String> fields = new ArrayList<>(7);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && isHeader(line))) {
+                continue;
+            }
+
+            fields.clear();
+            Book book = parse(line, delimiter, fields);
+            if (book == null) {
+                skipped++;
+                log.warn("Skipping malformed line {}: {}", lineNumber, line);
+                continue;
+            }
+
+            batch.add(book);
+            if (batch.size() == batchSize) {
+                bookRepository.saveAll(batch);
+                imported += batch.size();
+                batch.clear();
+                listener.onProgress(report(imported, skipped, started));
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            bookRepository.saveAll(batch);
+            imported += batch.size();
+        }
+
+        ImportReport result = report(imported, skipped, started);
+        listener.onProgress(result);
+        log.info("Catalog import finished: {}", result);
+        return result;
+    }
+
+    private static ImportReport report(long imported, long skipped, long started) {
+        return new ImportReport(imported, skipped, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private static boolean isHeader(String line) {
+        return line.regionMatches(true, 0, "isbn", 0, 4)
+                || line.regionMatches(true, 0, "\"isbn", 0, 5);
+    }
+
+    /**
+     * Разобрать строку в книгу
+     * @return книга или null, если строка не соответствует формату
+     */
+    private static Book parse(String line, char delimiter, List<String> fields) {
+        if (!split(line, delimiter, fields) || fields.size() < 3) {
+            return null;
+        }
+        String isbn = fields.get(0).trim();
+        String title = fields.get(1).trim();
+        String author = fields.get(2).trim();
+        String genre = fields.size() > 3 ? fields.get(3).trim() : null;
+
+        if (isbn.isEmpty() || title.isEmpty() || author.isEmpty()) {
+            return null;
+        }
+        Book book = new Book(isbn, title, author, genre == null || genre.isEmpty() ? null : genre);
+
+        // Счетчики из выгрузки: экземпляры (поле 5) и прочтения (поле 7)
+        int copies = fields.size() > 4 ? parseCount(fields.get(4), 1) : 1;
+        int timesRead = fields.size() > 6 ? parseCount(fields.get(6), 0) : 0;
+        if (copies < 1 || timesRead < 0) {
+            return null;
+        }
+        book.setCopies(copies, copies);
+        book.setTimesRead(timesRead);
+        return book;
+    }
+
+    /**
+     * @return значение поля, defaultValue для пустого поля или -1, если это не число
+     */
+    private static int parseCount(String field, int defaultValue) {
+        String value = field.trim();
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Разбить строку на поля с учетом кавычек ("" внутри кавычек - это одна кавычка)
+     * @return false, если кавычка не закрыта
+     */
+    private static boolean split(String line, char delimiter, List<String> fields) {
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return !quoted;
+    }
+}
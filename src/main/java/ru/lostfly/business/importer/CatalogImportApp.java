@@ -0,0 +1,37 @@
+package ru.lostfly.business.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.components.repository.RepositoryComponent;
+
+import java.nio.file.Path;
+
+/**
+ * Запуск импорта каталога из командной строки.
+ * <pre>
+ * java -cp OOP-BP.jar ru.lostfly.business.importer.CatalogImportApp books.csv [DATABASE]
+ * </pre>
+ */
+@Slf4j
+public class CatalogImportApp {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Использование: CatalogImportApp <файл.csv|файл.tsv> [режим хранилища]");
+            System.exit(1);
+        }
+
+        Path file = Path.of(args[0]);
+        RepositoryComponent.RepositoryMode mode = args.length > 1
+                ? RepositoryComponent.RepositoryMode.valueOf(args[1])
+                : RepositoryComponent.RepositoryMode.DATABASE;
+
+        RepositoryComponent repositoryComponent = new RepositoryComponent(mode);
+        BookCsvImporter importer = new BookCsvImporter(repositoryComponent.getBookRepository());
+
+        ImportReport report = importer.importFile(file, progress ->
+                log.info("Imported {} books ({} rows/sec)", progress.getImported(),
+                        String.format("%.0f", progress.getRowsPerSecond())));
+
+        System.out.println("Готово: " + report);
+    }
+}
@@ -0,0 +1,9 @@
+package ru.lostfly.business.importer;
+
+/**
+ * Получает отчет о ходе импорта после каждой сохраненной пачки
+ */
+@FunctionalInterface
+public interface ImportProgressListener {
+    void onProgress(ImportReport progress);
+}
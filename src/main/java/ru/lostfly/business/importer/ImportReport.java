@@ -0,0 +1,55 @@
+package ru.lostfly.business.importer;
+
+import java.time.Duration;
+
+/**
+ * Итог (или промежуточное состояние) импорта каталога
+ */
+public class ImportReport {
+
+    private final long imported;
+    private final long skipped;
+    private final Duration elapsed;
+
+    public ImportReport(long imported, long skipped, Duration elapsed) {
+        this.imported = imported;
+        this.skipped = skipped;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Сколько записей сохранено
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Сколько строк пропущено из-за ошибок формата
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Пропускная способность: сохраненных записей в секунду
+     */
+    public double getRowsPerSecond() {
+        long millis = elapsed.toMillis();
+        return millis == 0 ? imported : imported * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{" +
+                "imported=" + imported +
+                ", skipped=" + skipped +
+                ", elapsed=" + elapsed.toMillis() + "ms" +
+                ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,189 @@
+package ru.lostfly.business.overdue;
+
+import ru.lostfly.business.domain.loan.Loan;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Невозвращенные выдачи, упорядоченные по сроку возврата.
+ * <p>
+ * Двоичная куча по сроку: добавление и извлечение просроченной выдачи - O(log n),
+ * поиск новых просрочек ({@link #pollExpired(int)}) смотрит только на вершину кучи
+ * и не перебирает выдачи, срок которых еще не наступил.
+ * <p>
+ * Возврат не ищет выдачу в куче (это O(n)), а только помечает ее:
+ * помеченные выдачи выбрасываются, когда доходят до вершины.
+ * Если помеченных становится больше половины, куча перестраивается без них.
+ * <p>
+ * Просроченная выдача извлекается из кучи один раз - напоминание о ней приходит однажды.
+ * Все методы синхронизированы: индекс меняют потоки обработки и задача проверки.
+ */
+public class DueDateIndex {
+
+    public static final Duration DEFAULT_LOAN_PERIOD = Duration.ofDays(14);
+
+    // Меньше этого перестраивать кучу незачем - помеченные выдачи дешевле дождаться
+    private static final int MIN_COMPACT_SIZE = 1024;
+
+    private final Duration loanPeriod;
+    private final Clock clock;
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Entry.BY_DUE_DATE);
+    // Невозвращенные выдачи по читателю и книге, старшая - первая
+    // (у читателя может быть несколько экземпляров одной книги)
+    private final Map<String, ArrayDeque<Entry>> active = new HashMap<>();
+    private int activeCount;
+    // Возвращенные выдачи, которые еще лежат в куче
+    private int stale;
+
+    public DueDateIndex(Duration loanPeriod) {
+        this(loanPeriod, Clock.systemUTC());
+    }
+
+    public DueDateIndex(Duration loanPeriod, Clock clock) {
+        if (loanPeriod.isNegative() || loanPeriod.isZero()) {
+            throw new IllegalArgumentException("loanPeriod must be positive: " + loanPeriod);
+        }
+        this.loanPeriod = loanPeriod;
+        this.clock = clock;
+    }
+
+    /**
+     * Срок возврата для выдачи, сделанной сейчас
+     */
+    public Instant dueDateFromNow() {
+        return clock.instant().plus(loanPeriod);
+    }
+
+    /**
+     * Заменить содержимое индекса выдачами из хранилища (при старте).
+     * Отсортированный список уже является кучей - вставка не перестраивает ее.
+     */
+    public synchronized void rebuild(Collection<Loan> loans) {
+        active.clear();
+        List<Entry> entries = new ArrayList<>(loans.size());
+        for (Loan loan : loans) {
+            Entry entry = new Entry(loan);
+            entries.add(entry);
+            active.computeIfAbsent(key(loan.getReaderId(), loan.getIsbn()), key -> new ArrayDeque<>())
+                    .addLast(entry);
+        }
+        activeCount = entries.size();
+        entries.sort(Entry.BY_DUE_DATE);
+        queue.clear();
+        queue.addAll(entries);
+        stale = 0;
+    }
+
+    public synchronized void add(Loan loan) {
+        Entry entry = new Entry(loan);
+        queue.add(entry);
+        active.computeIfAbsent(key(loan.getReaderId(), loan.getIsbn()), key -> new ArrayDeque<>())
+                .addLast(entry);
+        activeCount++;
+    }
+
+    /**
+     * Книгу вернули: снять с учета старшую выдачу этой книги читателю
+     * @return false, если такой выдачи в индексе нет
+     */
+    public synchronized boolean remove(String isbn, String readerId) {
+        String key = key(readerId, isbn);
+        ArrayDeque<Entry> entries = active.get(key);
+        if (entries == null) {
+            return false;
+        }
+        Entry entry = entries.pollFirst();
+        if (entries.isEmpty()) {
+            active.remove(key);
+        }
+        activeCount--;
+        if (entry.queued) {
+            entry.returned = true;
+            stale++;
+            compactIfNeeded();
+        }
+        return true;
+    }
+
+    /**
+     * Извлечь выдачи, срок которых уже прошел, - не больше limit за вызов.
+     * Стоимость - O((просроченные + возвращенные до вершины) * log n).
+     */
+    public synchronized List<Loan> pollExpired(int limit) {
+        Instant now = clock.instant();
+        List<Loan> expired = new ArrayList<>();
+        Entry head;
+        while (expired.size() < limit && (head = queue.peek()) != null && !head.loan.getDueAt().isAfter(now)) {
+            queue.poll();
+            head.queued = false;
+            if (head.returned) {
+                stale--;
+            } else {
+                expired.add(head.loan);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Сколько невозвращенных выдач учтено (включая уже просроченные)
+     */
+    public synchronized int size() {
+        return activeCount;
+    }
+
+    /**
+     * Сколько выдач ждет наступления срока
+     */
+    public synchronized int pendingCount() {
+        return queue.size() - stale;
+    }
+
+    private static String key(String readerId, String isbn) {
+        return readerId + '\u0000' + isbn;
+    }
+
+    private void compactIfNeeded() {
+        if (queue.size() < MIN_COMPACT_SIZE || stale * 2 < queue.size()) {
+            return;
+        }
+        List<Entry> live = new ArrayList<>(queue.size() - stale);
+        for (Entry entry : queue) {
+            if (!entry.returned) {
+                live.add(entry);
+            }
+        }
+        live.sort(Entry.BY_DUE_DATE);
+        queue.clear();
+        queue.addAll(live);
+        stale = 0;
+    }
+
+    /**
+     * Выдача в индексе. Поля меняются под блокировкой индекса.
+     */
+    private static final class Entry {
+        private static final Comparator<Entry> BY_DUE_DATE = Comparator.comparing(entry -> entry.loan.getDueAt());
+
+        private final Loan loan;
+        // Лежит в куче (еще не извлечена как просроченная)
+        private boolean queued = true;
+        // Книгу вернули, запись в куче ждет удаления
+        private boolean returned;
+
+        private Entry(Loan loan) {
+            this.loan = loan;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.lostfly.business.overdue;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.loan.Loan;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.LoanRepository;
+import ru.lostfly.business.service.ReaderNotifier;
+import ru.lostfly.metrics.Counter;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновая проверка просроченных выдач.
+ * <p>
+ * Раз в интервал забирает из {@link DueDateIndex} выдачи, срок которых прошел
+ * с прошлой проверки, - стоимость зависит от числа новых просрочек, а не от числа
+ * выдач и истории. Напоминания группируются по чатам: одно сообщение на чат
+ * за пачку, дальше их отправляет очередь бота с ее лимитами.
+ * <p>
+ * Выдачи, о которых напомнили, отмечаются в хранилище выдач: после перезапуска
+ * они не попадают в индекс, и напоминание не повторяется.
+ */
+@Slf4j
+public class OverdueScanner implements AutoCloseable {
+
+    // Сколько просрочек забирать из индекса за раз (блокировка индекса держится недолго)
+    private static final int BATCH_SIZE = 500;
+
+    private static final DateTimeFormatter DUE_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZoneId.systemDefault());
+
+    private final DueDateIndex index;
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final ReaderNotifier notifier;
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter overdueLoans;
+    private final Counter reminders;
+
+    /**
+     * @param loanRepository где отмечать отправленные напоминания; null - сроки не
+     *                       переживают перезапуск (хранилище в памяти)
+     */
+    public OverdueScanner(DueDateIndex index, BookRepository bookRepository, LoanRepository loanRepository,
+                          ReaderNotifier notifier, MetricsRegistry registry) {
+        this.index = index;
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+        this.notifier = notifier;
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "overdue-scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.overdueLoans = registry.counter("overdue_loans_total", "Loans found overdue");
+        this.reminders = registry.counter("overdue_reminders_total", "Overdue reminder messages queued");
+        registry.gauge("loans_tracked", "Unreturned loans in the due date index", index::size);
+    }
+
+    /**
+     * Запустить проверку раз в interval (первая - сразу: за время простоя могли накопиться просрочки)
+     */
+    public void start(Duration interval) {
+        scheduler.scheduleWithFixedDelay(this::runScan, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Overdue scanner started, interval {}, loans tracked: {}", interval, index.size());
+    }
+
+    /**
+     * Разослать напоминания обо всех выдачах, просроченных к текущему моменту
+     * @return сколько просроченных выдач найдено
+     */
+    public int scan() {
+        int found = 0;
+        List<Loan> batch;
+        while (!(batch = index.pollExpired(BATCH_SIZE)).isEmpty()) {
+            deliver(batch);
+            if (loanRepository != null) {
+                loanRepository.markReminded(batch);
+            }
+            found += batch.size();
+        }
+        if (found > 0) {
+            overdueLoans.add(found);
+            log.info("Overdue loans found: {}", found);
+        }
+        return found;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Исключение не должно отменить следующие запуски задачи
+     */
+    private void runScan() {
+        try {
+            scan();
+        } catch (RuntimeException e) {
+            log.error("Overdue scan failed", e);
+        }
+    }
+
+    /**
+     * Одно сообщение на чат со всеми его просрочками из пачки
+     */
+    private void deliver(List<Loan> batch) {
+        Map<Long, List<Loan>> byChat = new LinkedHashMap<>();
+        for (Loan loan : batch) {
+            if (loan.getChatId() == Loan.NO_CHAT) {
+                log.info("Loan of {} by reader {} is overdue, no chat to remind", loan.getIsbn(), loan.getReaderId());
+                continue;
+            }
+            byChat.computeIfAbsent(loan.getChatId(), chatId -> new ArrayList<>()).add(loan);
+        }
+
+        // Одна книга в пачке может встретиться у нескольких читателей
+        Map<String, String> titles = new HashMap<>();
+        for (Map.Entry<Long, List<Loan>> chat : byChat.entrySet()) {
+            StringBuilder text = new StringBuilder("⏰ Истек срок возврата книг:\n");
+            for (Loan loan : chat.getValue()) {
+                text.append("\n• ").append(titles.computeIfAbsent(loan.getIsbn(), this::titleOf))
+                        .append(" (ISBN: ").append(loan.getIsbn()).append(")")
+                        .append("\n  Читатель: ").append(loan.getReaderId())
+                        .append(", срок: ").append(DUE_DATE_FORMAT.format(loan.getDueAt()));
+            }
+            text.append("\n\nВерните книги командой /return_book");
+            notifier.notify(chat.getKey(), text.toString());
+            reminders.increment();
+        }
+    }
+
+    private String titleOf(String isbn) {
+        Book book = bookRepository.findByIsbn(isbn);
+        return book != null ? "'" + book.getTitle() + "'" : "Книга";
+    }
+}
@@ -2,6 +2,7 @@ package ru.lostfly.business.repository;
 
 import ru.lostfly.business.domain.book.Book;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface BookRepository {
@@ -11,6 +12,11 @@ public interface BookRepository {
      */
     void save(Book book);
     
+    /**
+     * Сохранить много книг за одну операцию (массовая загрузка каталога)
+     */
+    void saveAll(Collection<Book> books);
+
     /**
      * Найти книгу по ISBN
      * @return книга или null, если не найдена
@@ -23,10 +29,42 @@ public interface BookRepository {
     List<Book> findAvailableBooks();
     
     /**
-     * Найти книги по автору
+     * Получить страницу доступных книг, отсортированных по ISBN
+     */
+    Page<Book> findAvailableBooks(PageRequest page);
+
+    /**
+     * Найти книги по автору: каждое слово запроса должно совпасть
+     * с началом слова в имени автора (без учета регистра)
      */
     List<Book> findByAuthor(String author);
+
+    /**
+     * Получить страницу книг автора, отсортированных по ISBN
+     */
+    Page<Book> findByAuthor(String author, PageRequest page);
+
+    /**
+     * Полнотекстовый поиск по названию и автору с поиском по префиксу слов
+     * @param query слова запроса
+     * @param limit максимальное количество результатов
+     * @return книги, отсортированные по релевантности
+     */
+    List<Book> search(String query, int limit);
     
+    /**
+     * Добавить экземпляры издания: они сразу доступны для выдачи
+     * @param count сколько экземпляров поступило, больше 0
+     * @return false, если книги с таким ISBN нет
+     */
+    boolean addCopies(String isbn, int count);
+
+    /**
+     * Самые читаемые книги: по убыванию счетчика прочтений, при равенстве - по ISBN
+     * @param limit максимальное количество результатов
+     */
+    List<Book> findMostRead(int limit);
+
     /**
      * Получить общее количество книг
      */
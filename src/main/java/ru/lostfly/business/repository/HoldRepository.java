@@ -0,0 +1,42 @@
+package ru.lostfly.business.repository;
+
+import ru.lostfly.business.domain.hold.Hold;
+
+/**
+ * Очереди ожидания книг: для каждого ISBN - читатели в порядке постановки (FIFO).
+ * <p>
+ * Вместо того чтобы повторять /borrow_book, читатель встает в очередь,
+ * а при возврате книга сразу передается первому в очереди.
+ */
+public interface HoldRepository {
+
+    /**
+     * Поставить читателя в конец очереди на книгу
+     * @return позиция в очереди (1 - первый) или 0, если читатель уже в очереди
+     */
+    int enqueue(Hold hold);
+
+    /**
+     * Забрать первого в очереди на книгу
+     * @return место в очереди или null, если очередь пуста
+     */
+    Hold poll(String isbn);
+
+    /**
+     * Вернуть забранное место в начало очереди (книгу передать не удалось,
+     * место не должно пропасть). Если читатель уже снова встал в очередь,
+     * его место переносится в начало.
+     */
+    void putBack(Hold hold);
+
+    /**
+     * Убрать читателя из очереди на книгу
+     * @return false, если читателя в очереди не было
+     */
+    boolean cancel(String isbn, String readerId);
+
+    /**
+     * Сколько читателей ждут книгу
+     */
+    int queueLength(String isbn);
+}
@@ -0,0 +1,78 @@
+package ru.lostfly.business.repository;
+
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.domain.loan.Loan;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Результат {@link LoanRepository#transferToNextHolder}: кому из очереди передана книга
+ * или почему передачи не было
+ */
+public class HoldTransfer {
+
+    private final LoanResult result;
+    private final Hold hold;    // место в очереди, получившее книгу; null - передачи не было
+    private final Loan loan;    // новая выдача; null - передачи не было
+
+    private HoldTransfer(LoanResult result, Hold hold, Loan loan) {
+        this.result = result;
+        this.hold = hold;
+        this.loan = loan;
+    }
+
+    public static HoldTransfer transferred(Hold hold, Loan loan, LoanResult result) {
+        return new HoldTransfer(result, hold, loan);
+    }
+
+    /**
+     * У читателя нет книги (ее уже вернули параллельно); очередь не изменилась
+     */
+    public static HoldTransfer notBorrowed() {
+        return new HoldTransfer(LoanResult.of(LoanResult.Status.NOT_BORROWED), null, null);
+    }
+
+    /**
+     * Передача для хранилищ, где очередь живет отдельно от выдач: голова очереди
+     * забирается, и книга передается ей отдельной операцией. Если книги у читателя
+     * уже нет, место возвращается в начало очереди ({@link HoldRepository#putBack}).
+     */
+    public static HoldTransfer viaQueue(LoanRepository loans, String fromReaderId, String isbn,
+                                        HoldRepository holds, Function<Hold, Loan> loanFor, int maxBooks,
+                                        BiConsumer<Hold, LoanResult> rejected) {
+        Hold hold;
+        while ((hold = holds.poll(isbn)) != null) {
+            if (hold.getReaderId().equals(fromReaderId)) {
+                continue;
+            }
+            Loan loan = loanFor.apply(hold);
+            LoanResult result = loans.transfer(fromReaderId, loan, maxBooks);
+            if (result.isSuccess()) {
+                return transferred(hold, loan, result);
+            }
+            if (result.getStatus() == LoanResult.Status.NOT_BORROWED) {
+                holds.putBack(hold);
+                return notBorrowed();
+            }
+            rejected.accept(hold, result);
+        }
+        return null;
+    }
+
+    public LoanResult getResult() {
+        return result;
+    }
+
+    public Hold getHold() {
+        return hold;
+    }
+
+    public Loan getLoan() {
+        return loan;
+    }
+
+    public boolean isSuccess() {
+        return result.isSuccess();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.lostfly.business.repository;
+
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.domain.loan.Loan;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Единица работы для выдачи и возврата книг.
+ * <p>
+ * Реализация выполняет всю операцию атомарно (например, одной транзакцией
+ * на одном соединении), поэтому сервису не нужно отдельно сохранять
+ * книгу и список книг читателя.
+ */
+public interface LoanRepository {
+
+    /**
+     * Выдать книгу читателю
+     * @param loan книга, читатель, срок возврата и чат для напоминания
+     * @param maxBooks сколько книг читатель может держать одновременно
+     */
+    LoanResult borrow(Loan loan, int maxBooks);
+
+    /**
+     * Вернуть книгу, взятую читателем
+     * @param isbn идентификатор книги
+     * @param readerId идентификатор читателя
+     */
+    LoanResult returnBook(String isbn, String readerId);
+
+    /**
+     * Передать выданную книгу от одного читателя другому, не возвращая ее в каталог
+     * (выдача следующему в очереди ожидания). Книга остается недоступной,
+     * счетчик прочтений увеличивается как при обычной выдаче.
+     * <p>
+     * Если получатель не найден или уже держит maxBooks книг, ничего не меняется.
+     * @param fromReaderId читатель, который возвращает книгу
+     * @param loan новая выдача: книга, получатель, его срок и чат
+     * @param maxBooks сколько книг читатель может держать одновременно
+     */
+    LoanResult transfer(String fromReaderId, Loan loan, int maxBooks);
+
+    /**
+     * Передать возвращаемую книгу первому в очереди ожидания, кто может ее взять.
+     * Места тех, кто взять книгу не может (лимит, нет читателя), снимаются с очереди;
+     * место самого возвращающего снимается молча. Если книги у читателя уже нет,
+     * очередь не меняется.
+     * @param holds очереди ожидания
+     * @param loanFor новая выдача для места в очереди (срок и чат)
+     * @param rejected получает снятые места без выдачи и причину
+     * @return передача или {@link HoldTransfer#notBorrowed()};
+     *         null - никто из очереди не может взять книгу, ее нужно вернуть обычным способом
+     */
+    HoldTransfer transferToNextHolder(String fromReaderId, String isbn, HoldRepository holds,
+                                      Function<Hold, Loan> loanFor, int maxBooks,
+                                      BiConsumer<Hold, LoanResult> rejected);
+
+    /**
+     * Невозвращенные выдачи со сроками, о просрочке которых еще не напоминали, -
+     * для восстановления индекса сроков при старте.
+     * Хранилища, которые не сохраняют сроки между запусками, возвращают пустой список.
+     */
+    List<Loan> findActiveLoans();
+
+    /**
+     * Напоминание о просрочке отправлено: после перезапуска эти выдачи
+     * не возвращаются из {@link #findActiveLoans()}, и напоминание не повторяется
+     */
+    void markReminded(List<Loan> loans);
+}
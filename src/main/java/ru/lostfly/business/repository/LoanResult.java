@@ -0,0 +1,67 @@
+package ru.lostfly.business.repository;
+
+/**
+ * Результат операции {@link LoanRepository}
+ */
+public class LoanResult {
+
+    /**
+     * Итог операции выдачи или возврата
+     */
+    public enum Status {
+        SUCCESS,
+        READER_NOT_FOUND,
+        BOOK_NOT_FOUND,
+        BOOK_UNAVAILABLE,   // книга уже выдана
+        LIMIT_REACHED,      // читатель взял максимальное количество книг
+        NOT_BORROWED        // читатель не брал эту книгу
+    }
+
+    // Счетчик прочтений не известен (возврат, отказ)
+    public static final int UNKNOWN_TIMES_READ = -1;
+
+    private final Status status;
+    private final String title;     // название книги, если известно
+    private final int timesRead;    // счетчик прочтений книги после выдачи
+
+    private LoanResult(Status status, String title, int timesRead) {
+        this.status = status;
+        this.title = title;
+        this.timesRead = timesRead;
+    }
+
+    public static LoanResult success() {
+        return new LoanResult(Status.SUCCESS, null, UNKNOWN_TIMES_READ);
+    }
+
+    /**
+     * Книга выдана; название и новый счетчик прочтений идут в статистику популярности
+     */
+    public static LoanResult borrowed(String title, int timesRead) {
+        return new LoanResult(Status.SUCCESS, title, timesRead);
+    }
+
+    public static LoanResult of(Status status) {
+        return new LoanResult(status, null, UNKNOWN_TIMES_READ);
+    }
+
+    public static LoanResult unavailable(String title) {
+        return new LoanResult(Status.BOOK_UNAVAILABLE, title, UNKNOWN_TIMES_READ);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getTimesRead() {
+        return timesRead;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+}
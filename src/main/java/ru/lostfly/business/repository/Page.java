@@ -0,0 +1,68 @@
+package ru.lostfly.business.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Страница результатов: элементы по возрастанию ISBN и признаки соседних страниц
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final boolean hasNext;
+    private final boolean hasPrevious;
+
+    public Page(List<T> items, boolean hasNext, boolean hasPrevious) {
+        this.items = items;
+        this.hasNext = hasNext;
+        this.hasPrevious = hasPrevious;
+    }
+
+    /**
+     * Вырезать страницу из отсортированной по ISBN карты.
+     * Работает за O(log n + размер страницы) - остальные элементы не перебираются.
+     */
+    public static <T> Page<T> of(NavigableMap<String, T> sorted, PageRequest request) {
+        String cursor = request.getCursor();
+        int size = request.getSize();
+        List<T> items = new ArrayList<>(size);
+
+        if (request.getDirection() == PageRequest.Direction.AFTER) {
+            NavigableMap<String, T> tail = cursor == null ? sorted : sorted.tailMap(cursor, false);
+            Iterator<T> iterator = tail.values().iterator();
+            while (items.size() < size && iterator.hasNext()) {
+                items.add(iterator.next());
+            }
+            boolean hasPrevious = cursor != null && !sorted.headMap(cursor, true).isEmpty();
+            return new Page<>(items, iterator.hasNext(), hasPrevious);
+        }
+
+        NavigableMap<String, T> head = cursor == null ? sorted : sorted.headMap(cursor, false);
+        Iterator<T> iterator = head.descendingMap().values().iterator();
+        while (items.size() < size && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        Collections.reverse(items);
+        boolean hasNext = cursor != null && !sorted.tailMap(cursor, true).isEmpty();
+        return new Page<>(items, hasNext, iterator.hasNext());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public boolean hasPrevious() {
+        return hasPrevious;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.lostfly.business.repository;
+
+/**
+ * Запрос страницы при постраничной выборке по ключу (keyset pagination).
+ * <p>
+ * Вместо OFFSET страница задается курсором - ISBN крайней книги соседней страницы.
+ * Хранилищу не нужно пропускать предыдущие строки, поэтому любая страница
+ * читается так же быстро, как первая.
+ */
+public class PageRequest {
+
+    /**
+     * В какую сторону от курсора читать
+     */
+    public enum Direction {
+        AFTER,  // книги с ISBN больше курсора (следующая страница)
+        BEFORE  // книги с ISBN меньше курсора (предыдущая страница)
+    }
+
+    private final String cursor;
+    private final Direction direction;
+    private final int size;
+
+    private PageRequest(String cursor, Direction direction, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        this.cursor = cursor;
+        this.direction = direction;
+        this.size = size;
+    }
+
+    /**
+     * Первая страница
+     */
+    public static PageRequest first(int size) {
+        return new PageRequest(null, Direction.AFTER, size);
+    }
+
+    /**
+     * Страница после книги с этим ISBN
+     */
+    public static PageRequest after(String isbn, int size) {
+        return new PageRequest(isbn, Direction.AFTER, size);
+    }
+
+    /**
+     * Страница перед книгой с этим ISBN
+     */
+    public static PageRequest before(String isbn, int size) {
+        return new PageRequest(isbn, Direction.BEFORE, size);
+    }
+
+    /**
+     * @return ISBN-курсор или null, если читаем с начала
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
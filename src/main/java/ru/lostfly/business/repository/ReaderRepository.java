@@ -2,15 +2,23 @@ package ru.lostfly.business.repository;
 
 import ru.lostfly.business.domain.reader.Reader;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ReaderRepository {
 
     /**
-     * Сохранить читателя в хранилище
+     * Сохранить читателя в хранилище.
+     * Сроки, чаты и отметки о напоминаниях уже выданных книг при этом не теряются -
+     * их меняет только {@link LoanRepository}.
      */
     void save(Reader reader);
 
+    /**
+     * Сохранить много читателей за одну операцию (массовая загрузка)
+     */
+    void saveAll(Collection<Reader> readers);
+
     /**
      * Найти читателя по ID
      * @return читатель или null, если не найден
@@ -22,6 +30,13 @@ public interface ReaderRepository {
      */
     List<Reader> findAll();
 
+    /**
+     * Получить страницу читателей, отсортированных по ID
+     * @param afterId ID последнего читателя предыдущей страницы (null - с начала)
+     * @param limit максимальный размер страницы
+     */
+    List<Reader> findPage(String afterId, int limit);
+
     /**
      * Получить общее количество читателей
      */
@@ -0,0 +1,86 @@
+package ru.lostfly.business.repository.cache;
+
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.domain.loan.Loan;
+import ru.lostfly.business.repository.HoldRepository;
+import ru.lostfly.business.repository.HoldTransfer;
+import ru.lostfly.business.repository.LoanRepository;
+import ru.lostfly.business.repository.LoanResult;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Декоратор над {@link LoanRepository}: выдача и возврат меняют книгу и читателя
+ * в обход их репозиториев, поэтому после успешной операции записи сбрасываются из кэшей.
+ */
+public class CacheInvalidatingLoanRepository implements LoanRepository {
+
+    private final LoanRepository delegate;
+    private final CachingBookRepository bookCache;
+    private final CachingReaderRepository readerCache;
+
+    public CacheInvalidatingLoanRepository(LoanRepository delegate,
+                                           CachingBookRepository bookCache,
+                                           CachingReaderRepository readerCache) {
+        this.delegate = delegate;
+        this.bookCache = bookCache;
+        this.readerCache = readerCache;
+    }
+
+    @Override
+    public LoanResult borrow(Loan loan, int maxBooks) {
+        LoanResult result = delegate.borrow(loan, maxBooks);
+        if (result.isSuccess()) {
+            invalidate(loan.getIsbn(), loan.getReaderId());
+        }
+        return result;
+    }
+
+    @Override
+    public LoanResult returnBook(String isbn, String readerId) {
+        LoanResult result = delegate.returnBook(isbn, readerId);
+        if (result.isSuccess()) {
+            invalidate(isbn, readerId);
+        }
+        return result;
+    }
+
+    @Override
+    public LoanResult transfer(String fromReaderId, Loan loan, int maxBooks) {
+        LoanResult result = delegate.transfer(fromReaderId, loan, maxBooks);
+        if (result.isSuccess()) {
+            invalidate(loan.getIsbn(), fromReaderId);
+            readerCache.invalidate(loan.getReaderId());
+        }
+        return result;
+    }
+
+    @Override
+    public HoldTransfer transferToNextHolder(String fromReaderId, String isbn, HoldRepository holds,
+                                             Function<Hold, Loan> loanFor, int maxBooks,
+                                             BiConsumer<Hold, LoanResult> rejected) {
+        HoldTransfer transfer = delegate.transferToNextHolder(fromReaderId, isbn, holds, loanFor, maxBooks, rejected);
+        if (transfer != null && transfer.isSuccess()) {
+            invalidate(isbn, fromReaderId);
+            readerCache.invalidate(transfer.getHold().getReaderId());
+        }
+        return transfer;
+    }
+
+    @Override
+    public List<Loan> findActiveLoans() {
+        return delegate.findActiveLoans();
+    }
+
+    @Override
+    public void markReminded(List<Loan> loans) {
+        delegate.markReminded(loans);
+    }
+
+    private void invalidate(String isbn, String readerId) {
+        bookCache.invalidate(isbn);
+        readerCache.invalidate(readerId);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.lostfly.business.repository.cache;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор над {@link BookRepository}: кэширует поиск по ISBN (read-through)
+ * и сбрасывает запись при сохранении книги.
+ * <p>
+ * Списочные запросы (доступные книги, поиск по автору) не кэшируются -
+ * их результат зависит от всего каталога.
+ * <p>
+ * Книга изменяема (счетчики экземпляров и прочтений), поэтому кэш хранит свою копию
+ * и отдает копию на каждый запрос: изменения у вызывающего не попадают в кэш
+ * и не видны другим потокам.
+ */
+public class CachingBookRepository implements BookRepository {
+
+    private final BookRepository delegate;
+    private final LruTtlCache<String, Book> cache;
+
+    public CachingBookRepository(BookRepository delegate, int maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new LruTtlCache<>(maxSize, ttl);
+    }
+
+    @Override
+    public void save(Book book) {
+        delegate.save(book);
+        cache.invalidate(book.getIsbn());
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        delegate.saveAll(books);
+        for (Book book : books) {
+            cache.invalidate(book.getIsbn());
+        }
+    }
+
+    @Override
+    public Book findByIsbn(String isbn) {
+        Book cached = cache.getOrLoad(isbn, key -> copyOf(delegate.findByIsbn(key)));
+        return copyOf(cached);
+    }
+
+    @Override
+    public List<Book> findAvailableBooks() {
+        return delegate.findAvailableBooks();
+    }
+
+    @Override
+    public Page<Book> findAvailableBooks(PageRequest page) {
+        return delegate.findAvailableBooks(page);
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        return delegate.findByAuthor(author);
+    }
+
+    @Override
+    public Page<Book> findByAuthor(String author, PageRequest page) {
+        return delegate.findByAuthor(author, page);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+
+    @Override
+    public boolean addCopies(String isbn, int count) {
+        boolean added = delegate.addCopies(isbn, count);
+        cache.invalidate(isbn);
+        return added;
+    }
+
+    @Override
+    public List<Book> findMostRead(int limit) {
+        return delegate.findMostRead(limit);
+    }
+
+    @Override
+    public int getTotalBooks() {
+        return delegate.getTotalBooks();
+    }
+
+    /**
+     * Сбросить запись (например, если книгу изменили в обход репозитория)
+     */
+    public void invalidate(String isbn) {
+        cache.invalidate(isbn);
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Копия книги без слушателя доступности
+     */
+    static Book copyOf(Book book) {
+        if (book == null) {
+            return null;
+        }
+        Book copy = new Book(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getGenre());
+        copy.setCopies(book.getCopies(), book.getAvailableCopies());
+        copy.setTimesRead(book.getTimesRead());
+        return copy;
+    }
+}
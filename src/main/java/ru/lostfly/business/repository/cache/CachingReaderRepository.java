@@ -0,0 +1,84 @@
+package ru.lostfly.business.repository.cache;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.ReaderRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор над {@link ReaderRepository}: кэширует поиск по ID (read-through)
+ * и сбрасывает запись при сохранении читателя.
+ * <p>
+ * Как и {@link CachingBookRepository}, хранит свою копию читателя и его книг
+ * и отдает копию на каждый запрос.
+ */
+public class CachingReaderRepository implements ReaderRepository {
+
+    private final ReaderRepository delegate;
+    private final LruTtlCache<String, Reader> cache;
+
+    public CachingReaderRepository(ReaderRepository delegate, int maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new LruTtlCache<>(maxSize, ttl);
+    }
+
+    @Override
+    public void save(Reader reader) {
+        delegate.save(reader);
+        cache.invalidate(reader.getId());
+    }
+
+    @Override
+    public void saveAll(Collection<Reader> readers) {
+        delegate.saveAll(readers);
+        for (Reader reader : readers) {
+            cache.invalidate(reader.getId());
+        }
+    }
+
+    @Override
+    public Reader findById(String id) {
+        Reader cached = cache.getOrLoad(id, key -> copyOf(delegate.findById(key)));
+        return copyOf(cached);
+    }
+
+    @Override
+    public List<Reader> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Reader> findPage(String afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public int getTotalReaders() {
+        return delegate.getTotalReaders();
+    }
+
+    /**
+     * Сбросить запись (например, если читателя изменили в обход репозитория)
+     */
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    private static Reader copyOf(Reader reader) {
+        if (reader == null) {
+            return null;
+        }
+        Reader copy = new Reader(reader.getId(), reader.getName());
+        for (Book book : reader.getBorrowedBooks()) {
+            copy.addBook(CachingBookRepository.copyOf(book));
+        }
+        return copy;
+    }
+}
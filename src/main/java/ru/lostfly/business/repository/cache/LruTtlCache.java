@@ -0,0 +1,155 @@
+package ru.lostfly.business.repository.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру кэш с вытеснением LRU и временем жизни записей (TTL).
+ * <p>
+ * Построен на {@link LinkedHashMap} в режиме access-order: при каждом чтении
+ * запись переезжает в конец, поэтому самая "старая" всегда в начале.
+ * Методы синхронизированы - кэш можно использовать из нескольких потоков.
+ * <p>
+ * Сброс записи увеличивает версию ее полосы ключей: загрузка через
+ * {@link #getOrLoad}, начатая до сброса, не положит в кэш прочитанное
+ * до записи значение.
+ */
+public class LruTtlCache<K, V> {
+
+    private static final int VERSION_STRIPES = 64;  // степень двойки
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    // Версии полос ключей: меняются при каждом сбросе ключа из полосы
+    private final long[] versions = new long[VERSION_STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public LruTtlCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruTtlCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Получить значение из кэша
+     * @return значение или null, если записи нет или она устарела
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Получить значение из кэша или загрузить его (read-through).
+     * Загрузка идет без блокировки кэша; результат кладется, только если ключ
+     * не сбрасывали, пока шла загрузка, - иначе он мог быть прочитан до записи.
+     * @param loader загрузка из хранилища; null - значения нет, в кэш ничего не кладется
+     */
+    public V getOrLoad(K key, Function<K, V> loader) {
+        long version;
+        synchronized (this) {
+            V cached = get(key);
+            if (cached != null) {
+                return cached;
+            }
+            version = versions[stripe(key)];
+        }
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            synchronized (this) {
+                if (versions[stripe(key)] == version) {
+                    put(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        versions[stripe(key)]++;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        for (int i = 0; i < versions.length; i++) {
+            versions[i]++;
+        }
+    }
+
+    /**
+     * Удалить все устаревшие записи (можно вызывать периодически)
+     */
+    public synchronized void removeExpired() {
+        long now = System.nanoTime();
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), size());
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtNanos;
+
+        private Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.lostfly.business.repository.compact;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Книги режима IN_MEMORY_COMPACT: хранятся в массивах {@link CompactCatalog},
+ * наружу отдаются копиями
+ */
+public class CompactBookRepository implements BookRepository {
+
+    private final CompactCatalog catalog;
+
+    public CompactBookRepository(CompactCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void save(Book book) {
+        catalog.saveBook(book);
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        catalog.saveBooks(books);
+    }
+
+    @Override
+    public Book findByIsbn(String isbn) {
+        return catalog.findByIsbn(isbn);
+    }
+
+    @Override
+    public List<Book> findAvailableBooks() {
+        return catalog.findAvailableBooks();
+    }
+
+    @Override
+    public Page<Book> findAvailableBooks(PageRequest page) {
+        return catalog.findAvailableBooks(page);
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        return catalog.findByAuthor(author);
+    }
+
+    @Override
+    public Page<Book> findByAuthor(String author, PageRequest page) {
+        return catalog.findByAuthor(author, page);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        return catalog.search(query, limit);
+    }
+
+    @Override
+    public boolean addCopies(String isbn, int count) {
+        return catalog.addCopies(isbn, count);
+    }
+
+    @Override
+    public List<Book> findMostRead(int limit) {
+        return catalog.findMostRead(limit);
+    }
+
+    @Override
+    public int getTotalBooks() {
+        return catalog.getTotalBooks();
+    }
+}
@@ -0,0 +1,714 @@
+package ru.lostfly.business.repository.compact;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.loan.Loan;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.LoanResult;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+import ru.lostfly.business.search.SearchRanking;
+import ru.lostfly.business.search.SearchTokens;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Хранилище режима IN_MEMORY_COMPACT: каталог в примитивных массивах
+ * вместо графа объектов {@link Book}.
+ * <p>
+ * Книга - это номер (позиция в массивах), а ее поля разложены по столбцам:
+ * <ul>
+ *     <li>ISBN - {@code long} (см. {@link IsbnCodec}), индекс ISBN -> номер -
+ *     {@link LongIntHashMap} без объектов-оберток;</li>
+ *     <li>названия - UTF-8 в одном общем массиве байт (смещение + длина);</li>
+ *     <li>авторы и жанры - номера в {@link StringDictionary};</li>
+ *     <li>экземпляры - {@code int[]} всего и на полке, плюс {@link BitSet}
+ *     "есть свободный экземпляр" для быстрого пропуска выданных книг;</li>
+ *     <li>счетчик прочтений - {@code int[]}.</li>
+ * </ul>
+ * У читателя выданные книги - массив кодов ISBN, а не список объектов,
+ * рядом - массивы сроков возврата и чатов для напоминаний о просрочке.
+ * <p>
+ * Наружу отдаются копии ({@link Book}, {@link Reader}), собранные из массивов:
+ * изменение копии на хранилище не влияет, поэтому выдача и возврат идут
+ * через {@link CompactLoanRepository}. Все операции выполняются под монитором
+ * хранилища.
+ */
+public class CompactCatalog {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long NOT_TRACKED = 0;
+
+    // --- Книги: номер книги = индекс в массивах ---
+    private int bookCount;
+    private long[] isbnCodes = new long[INITIAL_CAPACITY];
+    private int[] titleOffsets = new int[INITIAL_CAPACITY];
+    private int[] titleLengths = new int[INITIAL_CAPACITY];
+    private int[] authorIds = new int[INITIAL_CAPACITY];
+    private int[] genreIds = new int[INITIAL_CAPACITY];
+    private int[] timesRead = new int[INITIAL_CAPACITY];
+    private int[] copies = new int[INITIAL_CAPACITY];
+    private int[] availableCopies = new int[INITIAL_CAPACITY];
+    // Бит установлен, пока availableCopies > 0
+    private final BitSet available = new BitSet();
+
+    // Названия всех книг подряд в UTF-8
+    private byte[] titleBytes = new byte[INITIAL_CAPACITY * 32];
+    private int titleBytesUsed;
+
+    private final LongIntHashMap bookByIsbn = new LongIntHashMap(INITIAL_CAPACITY);
+    private final StringDictionary authors = new StringDictionary();
+    private final StringDictionary genres = new StringDictionary();
+    // Номер автора -> номера его книг (первые authorBookCounts[id] элементов)
+    private int[][] booksByAuthor = new int[INITIAL_CAPACITY][];
+    private int[] authorBookCounts = new int[INITIAL_CAPACITY];
+
+    // ISBN, которые не упаковываются в long, живут здесь под кодами -2, -3, ...
+    private final List<String> unpackedIsbns = new ArrayList<>();
+    private final Map<String, Long> unpackedCodes = new HashMap<>();
+
+    // Номера книг по возрастанию ISBN (для постраничной выборки);
+    // пересобирается при первом чтении после добавления книг
+    private int[] isbnOrder = new int[0];
+    private boolean isbnOrderStale;
+
+    // --- Читатели ---
+    // ID -> номер читателя, по возрастанию ID
+    private final NavigableMap<String, Integer> readerIndex = new TreeMap<>();
+    private String[] readerNames = new String[INITIAL_CAPACITY];
+    // Коды ISBN выданных книг (первые loanCounts[r] элементов), null - книг нет
+    private long[][] loans = new long[INITIAL_CAPACITY][];
+    private int[] loanCounts = new int[INITIAL_CAPACITY];
+    // Срок возврата выдачи (мс от эпохи) и чат для напоминания - в тех же позициях,
+    // что коды в loans. Срок 0 - не отслеживается: книга сохранена вместе
+    // с читателем или о просрочке уже напомнили
+    private long[][] loanDue = new long[INITIAL_CAPACITY][];
+    private long[][] loanChats = new long[INITIAL_CAPACITY][];
+
+    // ==================== Книги ====================
+
+    public synchronized void saveBook(Book book) {
+        long code = codeOf(book.getIsbn(), true);
+        int index = bookByIsbn.get(code);
+        if (index == LongIntHashMap.MISSING) {
+            index = bookCount++;
+            ensureBookCapacity(bookCount);
+            isbnCodes[index] = code;
+            bookByIsbn.put(code, index);
+            authorIds[index] = StringDictionary.NULL_ID;
+            isbnOrderStale = true;
+        }
+
+        setTitle(index, book.getTitle());
+        int authorId = authors.intern(book.getAuthor());
+        if (authorIds[index] != authorId) {
+            removeFromAuthor(authorIds[index], index);
+            addToAuthor(authorId, index);
+            authorIds[index] = authorId;
+        }
+        genreIds[index] = genres.intern(book.getGenre());
+        timesRead[index] = book.getTimesRead();
+        copies[index] = book.getCopies();
+        availableCopies[index] = book.getAvailableCopies();
+        available.set(index, book.isAvailable());
+    }
+
+    public synchronized boolean addCopies(String isbn, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        int book = indexOf(isbn);
+        if (book < 0) {
+            return false;
+        }
+        copies[book] += count;
+        availableCopies[book] += count;
+        available.set(book);
+        return true;
+    }
+
+    public synchronized void saveBooks(Collection<Book> books) {
+        for (Book book : books) {
+            saveBook(book);
+        }
+    }
+
+    public synchronized Book findByIsbn(String isbn) {
+        int index = indexOf(isbn);
+        return index < 0 ? null : toBook(index);
+    }
+
+    public synchronized List<Book> findAvailableBooks() {
+        List<Book> result = new ArrayList<>(available.cardinality());
+        for (int i = available.nextSetBit(0); i >= 0 && i < bookCount; i = available.nextSetBit(i + 1)) {
+            result.add(toBook(i));
+        }
+        return result;
+    }
+
+    /**
+     * Страница доступных книг: бинарный поиск курсора в порядке ISBN
+     * и проход по нему с пропуском выданных книг
+     */
+    public synchronized Page<Book> findAvailableBooks(PageRequest request) {
+        int[] order = isbnOrder();
+        String cursor = request.getCursor();
+        int size = request.getSize();
+        List<Book> items = new ArrayList<>(size);
+
+        if (request.getDirection() == PageRequest.Direction.AFTER) {
+            int start = cursor == null ? 0 : searchOrder(order, cursor, false);
+            int pos = start;
+            for (; pos < order.length && items.size() < size; pos++) {
+                if (available.get(order[pos])) {
+                    items.add(toBook(order[pos]));
+                }
+            }
+            boolean hasNext = nextAvailable(order, pos, 1) >= 0;
+            boolean hasPrevious = cursor != null && nextAvailable(order, start - 1, -1) >= 0;
+            return new Page<>(items, hasNext, hasPrevious);
+        }
+
+        int end = cursor == null ? order.length : searchOrder(order, cursor, true);
+        int pos = end - 1;
+        for (; pos >= 0 && items.size() < size; pos--) {
+            if (available.get(order[pos])) {
+                items.add(toBook(order[pos]));
+            }
+        }
+        Collections.reverse(items);
+        boolean hasNext = cursor != null && nextAvailable(order, end, 1) >= 0;
+        return new Page<>(items, hasNext, nextAvailable(order, pos, -1) >= 0);
+    }
+
+    /**
+     * Поиск по автору перебирает словарь авторов (их на порядок меньше, чем книг),
+     * а книги подходящих авторов берет из списков по автору
+     */
+    public synchronized List<Book> findByAuthor(String author) {
+        List<String> queryTokens = SearchTokens.tokenize(author);
+        List<Book> result = new ArrayList<>();
+        if (queryTokens.isEmpty()) {
+            return result;
+        }
+        for (int authorId = 0; authorId < authors.size(); authorId++) {
+            if (authorBookCounts[authorId] > 0 && SearchRanking.matchesAuthor(queryTokens, authors.get(authorId))) {
+                int[] books = booksByAuthor[authorId];
+                for (int i = 0; i < authorBookCounts[authorId]; i++) {
+                    result.add(toBook(books[i]));
+                }
+            }
+        }
+        return result;
+    }
+
+    public synchronized Page<Book> findByAuthor(String author, PageRequest page) {
+        NavigableMap<String, Book> sorted = new TreeMap<>();
+        for (Book book : findByAuthor(author)) {
+            sorted.put(book.getIsbn(), book);
+        }
+        return Page.of(sorted, page);
+    }
+
+    /**
+     * Полный перебор без инвертированного индекса (память дороже времени в этом режиме).
+     * Лучшие {@code limit} книг держатся в двух маленьких массивах, объекты
+     * создаются только для них.
+     */
+    public synchronized List<Book> search(String query, int limit) {
+        List<String> queryTokens = SearchTokens.tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Топ по убыванию: topBooks[0] - лучший
+        int[] topBooks = new int[limit];
+        int[] topScores = new int[limit];
+        int found = 0;
+        for (int i = 0; i < bookCount; i++) {
+            int score = SearchRanking.score(queryTokens, title(i), authors.get(authorIds[i]));
+            if (score == 0 || (found == limit && !ranksHigher(score, i, topScores[limit - 1], topBooks[limit - 1]))) {
+                continue;
+            }
+            int pos = found < limit ? found++ : limit - 1;
+            while (pos > 0 && ranksHigher(score, i, topScores[pos - 1], topBooks[pos - 1])) {
+                topBooks[pos] = topBooks[pos - 1];
+                topScores[pos] = topScores[pos - 1];
+                pos--;
+            }
+            topBooks[pos] = i;
+            topScores[pos] = score;
+        }
+
+        List<Book> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(toBook(topBooks[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Проход по массиву счетчиков с вставкой в фиксированный топ (как в {@link #search})
+     */
+    public synchronized List<Book> findMostRead(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        int[] topBooks = new int[limit];
+        int found = 0;
+        for (int i = 0; i < bookCount; i++) {
+            if (found == limit && !ranksHigher(0, i, 0, topBooks[limit - 1])) {
+                continue;
+            }
+            int pos = found < limit ? found++ : limit - 1;
+            while (pos > 0 && ranksHigher(0, i, 0, topBooks[pos - 1])) {
+                topBooks[pos] = topBooks[pos - 1];
+                pos--;
+            }
+            topBooks[pos] = i;
+        }
+
+        List<Book> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(toBook(topBooks[i]));
+        }
+        return result;
+    }
+
+    public synchronized int getTotalBooks() {
+        return bookCount;
+    }
+
+    // ==================== Читатели ====================
+
+    public synchronized void saveReader(Reader reader) {
+        Integer index = readerIndex.get(reader.getId());
+        if (index == null) {
+            index = readerIndex.size();
+            ensureReaderCapacity(index + 1);
+            readerIndex.put(reader.getId(), index);
+        }
+        readerNames[index] = reader.getName();
+
+        // Сроки и чаты уже выданных книг переносятся: повторное сохранение читателя
+        // (например, /add_user с тем же ID) не должно терять напоминания
+        int previousCount = loanCounts[index];
+        long[] previousCodes = previousCount == 0 ? null : Arrays.copyOf(loans[index], previousCount);
+        long[] previousDue = previousCount == 0 ? null : Arrays.copyOf(loanDue[index], previousCount);
+        long[] previousChats = previousCount == 0 ? null : Arrays.copyOf(loanChats[index], previousCount);
+        boolean[] carried = new boolean[previousCount];
+
+        // Сохраняются только книги, которые есть в каталоге
+        loanCounts[index] = 0;
+        for (Book book : reader.getBorrowedBooks()) {
+            if (indexOf(book.getIsbn()) < 0) {
+                continue;
+            }
+            long code = codeOf(book.getIsbn(), false);
+            long due = NOT_TRACKED;
+            long chatId = Loan.NO_CHAT;
+            for (int i = 0; i < previousCount; i++) {
+                if (!carried[i] && previousCodes[i] == code) {
+                    carried[i] = true;
+                    due = previousDue[i];
+                    chatId = previousChats[i];
+                    break;
+                }
+            }
+            addLoan(index, code, due, chatId);
+        }
+    }
+
+    public synchronized void saveReaders(Collection<Reader> readers) {
+        for (Reader reader : readers) {
+            saveReader(reader);
+        }
+    }
+
+    public synchronized Reader findReader(String id) {
+        Integer index = readerIndex.get(id);
+        return index == null ? null : toReader(id, index);
+    }
+
+    public synchronized List<Reader> findAllReaders() {
+        List<Reader> result = new ArrayList<>(readerIndex.size());
+        for (Map.Entry<String, Integer> entry : readerIndex.entrySet()) {
+            result.add(toReader(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    public synchronized List<Reader> findReaderPage(String afterId, int limit) {
+        NavigableMap<String, Integer> tail = afterId == null ? readerIndex : readerIndex.tailMap(afterId, false);
+        List<Reader> page = new ArrayList<>(Math.min(limit, tail.size()));
+        for (Map.Entry<String, Integer> entry : tail.entrySet()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(toReader(entry.getKey(), entry.getValue()));
+        }
+        return page;
+    }
+
+    public synchronized int getTotalReaders() {
+        return readerIndex.size();
+    }
+
+    // ==================== Выдача ====================
+
+    public synchronized LoanResult borrow(Loan loan, int maxBooks) {
+        Integer reader = readerIndex.get(loan.getReaderId());
+        if (reader == null) {
+            return LoanResult.of(LoanResult.Status.READER_NOT_FOUND);
+        }
+        if (loanCounts[reader] >= maxBooks) {
+            return LoanResult.of(LoanResult.Status.LIMIT_REACHED);
+        }
+        int book = indexOf(loan.getIsbn());
+        if (book < 0) {
+            return LoanResult.of(LoanResult.Status.BOOK_NOT_FOUND);
+        }
+        if (!available.get(book)) {
+            return LoanResult.unavailable(title(book));
+        }
+        if (--availableCopies[book] == 0) {
+            available.clear(book);
+        }
+        timesRead[book]++;
+        addLoan(reader, isbnCodes[book], loan.getDueAt().toEpochMilli(), loan.getChatId());
+        return LoanResult.borrowed(title(book), timesRead[book]);
+    }
+
+    public synchronized LoanResult returnBook(String isbn, String readerId) {
+        Integer reader = readerIndex.get(readerId);
+        int book = indexOf(isbn);
+        if (reader == null || book < 0 || !removeLoan(reader, isbnCodes[book])) {
+            return LoanResult.of(LoanResult.Status.NOT_BORROWED);
+        }
+        if (availableCopies[book] < copies[book]) {
+            availableCopies[book]++;
+            available.set(book);
+        }
+        return LoanResult.success();
+    }
+
+    public synchronized LoanResult transfer(String fromReaderId, Loan loan, int maxBooks) {
+        Integer from = readerIndex.get(fromReaderId);
+        int book = indexOf(loan.getIsbn());
+        if (from == null || book < 0 || !hasLoan(from, isbnCodes[book])) {
+            return LoanResult.of(LoanResult.Status.NOT_BORROWED);
+        }
+        Integer to = readerIndex.get(loan.getReaderId());
+        if (to == null) {
+            return LoanResult.of(LoanResult.Status.READER_NOT_FOUND);
+        }
+        if (loanCounts[to] >= maxBooks) {
+            return LoanResult.of(LoanResult.Status.LIMIT_REACHED);
+        }
+        removeLoan(from, isbnCodes[book]);
+        timesRead[book]++;
+        addLoan(to, isbnCodes[book], loan.getDueAt().toEpochMilli(), loan.getChatId());
+        return LoanResult.borrowed(title(book), timesRead[book]);
+    }
+
+    /**
+     * Невозвращенные выдачи со сроком, о просрочке которых еще не напоминали
+     */
+    public synchronized List<Loan> findActiveLoans() {
+        List<Loan> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : readerIndex.entrySet()) {
+            int reader = entry.getValue();
+            for (int i = 0; i < loanCounts[reader]; i++) {
+                if (loanDue[reader][i] != NOT_TRACKED) {
+                    result.add(new Loan(isbnOf(loans[reader][i]), entry.getKey(), loanChats[reader][i],
+                            Instant.ofEpochMilli(loanDue[reader][i])));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Напоминание отправлено: выдача остается, но срок больше не отслеживается
+     */
+    public synchronized void markReminded(List<Loan> reminded) {
+        for (Loan loan : reminded) {
+            Integer reader = readerIndex.get(loan.getReaderId());
+            long code = codeOf(loan.getIsbn(), false);
+            if (reader == null || code == IsbnCodec.NOT_PACKED) {
+                continue;
+            }
+            long due = loan.getDueAt().toEpochMilli();
+            for (int i = 0; i < loanCounts[reader]; i++) {
+                if (loans[reader][i] == code && loanDue[reader][i] == due) {
+                    loanDue[reader][i] = NOT_TRACKED;
+                    break;
+                }
+            }
+        }
+    }
+
+    // ==================== Внутреннее ====================
+
+    /**
+     * Код ISBN; для неупаковываемых строк - отрицательный номер во внешней таблице
+     * @param create выдать новый код неизвестной неупаковываемой строке
+     * @return код или {@link IsbnCodec#NOT_PACKED}, если строка неизвестна и create = false
+     */
+    private long codeOf(String isbn, boolean create) {
+        long code = IsbnCodec.encode(isbn);
+        if (code != IsbnCodec.NOT_PACKED) {
+            return code;
+        }
+        Long known = unpackedCodes.get(isbn);
+        if (known != null) {
+            return known;
+        }
+        if (!create) {
+            return IsbnCodec.NOT_PACKED;
+        }
+        unpackedIsbns.add(isbn);
+        long newCode = -unpackedIsbns.size() - 1L; // -1 занят признаком NOT_PACKED
+        unpackedCodes.put(isbn, newCode);
+        return newCode;
+    }
+
+    private String isbnOf(long code) {
+        return IsbnCodec.isPacked(code) ? IsbnCodec.decode(code) : unpackedIsbns.get((int) (-code - 2));
+    }
+
+    /**
+     * @return номер книги или -1
+     */
+    private int indexOf(String isbn) {
+        if (isbn == null) {
+            return -1;
+        }
+        long code = codeOf(isbn, false);
+        return code == IsbnCodec.NOT_PACKED ? -1 : bookByIsbn.get(code);
+    }
+
+    private String title(int index) {
+        return new String(titleBytes, titleOffsets[index], titleLengths[index], StandardCharsets.UTF_8);
+    }
+
+    private void setTitle(int index, String title) {
+        byte[] bytes = (title == null ? "" : title).getBytes(StandardCharsets.UTF_8);
+        int offset = titleOffsets[index];
+        int length = titleLengths[index];
+        // Название не изменилось (повторное сохранение) - место не расходуется
+        if (length == bytes.length && Arrays.equals(titleBytes, offset, offset + length, bytes, 0, length)) {
+            return;
+        }
+        if (titleBytesUsed + bytes.length > titleBytes.length) {
+            titleBytes = Arrays.copyOf(titleBytes, Math.max(titleBytes.length * 2, titleBytesUsed + bytes.length));
+        }
+        System.arraycopy(bytes, 0, titleBytes, titleBytesUsed, bytes.length);
+        titleOffsets[index] = titleBytesUsed;
+        titleLengths[index] = bytes.length;
+        titleBytesUsed += bytes.length;
+    }
+
+    private Book toBook(int index) {
+        Book book = new Book(isbnOf(isbnCodes[index]), title(index),
+                authors.get(authorIds[index]), genres.get(genreIds[index]));
+        book.setCopies(copies[index], availableCopies[index]);
+        book.setTimesRead(timesRead[index]);
+        return book;
+    }
+
+    private Reader toReader(String id, int index) {
+        Reader reader = new Reader(id, readerNames[index]);
+        for (int i = 0; i < loanCounts[index]; i++) {
+            int book = bookByIsbn.get(loans[index][i]);
+            if (book >= 0) {
+                reader.addBook(toBook(book));
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Кто выше в выдаче поиска: релевантность, затем популярность, затем ISBN
+     * (тот же порядок, что {@link SearchRanking#ORDER})
+     */
+    private boolean ranksHigher(int score, int book, int otherScore, int otherBook) {
+        if (score != otherScore) {
+            return score > otherScore;
+        }
+        if (timesRead[book] != timesRead[otherBook]) {
+            return timesRead[book] > timesRead[otherBook];
+        }
+        return isbnOf(isbnCodes[book]).compareTo(isbnOf(isbnCodes[otherBook])) < 0;
+    }
+
+    private void addToAuthor(int authorId, int book) {
+        if (authorId == StringDictionary.NULL_ID) {
+            return;
+        }
+        if (authorId >= booksByAuthor.length) {
+            int capacity = Math.max(booksByAuthor.length * 2, authorId + 1);
+            booksByAuthor = Arrays.copyOf(booksByAuthor, capacity);
+            authorBookCounts = Arrays.copyOf(authorBookCounts, capacity);
+        }
+        int[] books = booksByAuthor[authorId];
+        int count = authorBookCounts[authorId];
+        if (books == null) {
+            books = new int[4];
+        } else if (count == books.length) {
+            books = Arrays.copyOf(books, count * 2);
+        }
+        books[count] = book;
+        booksByAuthor[authorId] = books;
+        authorBookCounts[authorId] = count + 1;
+    }
+
+    private void removeFromAuthor(int authorId, int book) {
+        if (authorId == StringDictionary.NULL_ID) {
+            return;
+        }
+        int[] books = booksByAuthor[authorId];
+        int count = authorBookCounts[authorId];
+        for (int i = 0; i < count; i++) {
+            if (books[i] == book) {
+                System.arraycopy(books, i + 1, books, i, count - i - 1);
+                authorBookCounts[authorId] = count - 1;
+                return;
+            }
+        }
+    }
+
+    private void addLoan(int reader, long isbnCode, long dueMillis, long chatId) {
+        long[] codes = loans[reader];
+        int count = loanCounts[reader];
+        if (codes == null) {
+            codes = new long[Reader.MAX_BOOKS];
+            loanDue[reader] = new long[Reader.MAX_BOOKS];
+            loanChats[reader] = new long[Reader.MAX_BOOKS];
+        } else if (count == codes.length) {
+            codes = Arrays.copyOf(codes, count * 2);
+            loanDue[reader] = Arrays.copyOf(loanDue[reader], count * 2);
+            loanChats[reader] = Arrays.copyOf(loanChats[reader], count * 2);
+        }
+        codes[count] = isbnCode;
+        loanDue[reader][count] = dueMillis;
+        loanChats[reader][count] = chatId;
+        loans[reader] = codes;
+        loanCounts[reader] = count + 1;
+    }
+
+    private boolean hasLoan(int reader, long isbnCode) {
+        long[] codes = loans[reader];
+        for (int i = 0; i < loanCounts[reader]; i++) {
+            if (codes[i] == isbnCode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Убрать самую раннюю выдачу книги (со сроком и чатом)
+     */
+    private boolean removeLoan(int reader, long isbnCode) {
+        long[] codes = loans[reader];
+        int count = loanCounts[reader];
+        for (int i = 0; i < count; i++) {
+            if (codes[i] == isbnCode) {
+                System.arraycopy(codes, i + 1, codes, i, count - i - 1);
+                System.arraycopy(loanDue[reader], i + 1, loanDue[reader], i, count - i - 1);
+                System.arraycopy(loanChats[reader], i + 1, loanChats[reader], i, count - i - 1);
+                loanCounts[reader] = count - 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] isbnOrder() {
+        if (isbnOrderStale) {
+            String[] isbns = new String[bookCount];
+            Integer[] order = new Integer[bookCount];
+            for (int i = 0; i < bookCount; i++) {
+                isbns[i] = isbnOf(isbnCodes[i]);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> isbns[a].compareTo(isbns[b]));
+            isbnOrder = new int[bookCount];
+            for (int i = 0; i < bookCount; i++) {
+                isbnOrder[i] = order[i];
+            }
+            isbnOrderStale = false;
+        }
+        return isbnOrder;
+    }
+
+    /**
+     * Первая позиция в порядке ISBN, где ISBN больше курсора
+     * (или больше либо равен, если inclusive)
+     */
+    private int searchOrder(int[] order, String cursor, boolean inclusive) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = isbnOf(isbnCodes[order[mid]]).compareTo(cursor);
+            if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Ближайшая доступная книга от позиции {@code from} в направлении {@code step}
+     * @return позиция в порядке ISBN или -1
+     */
+    private int nextAvailable(int[] order, int from, int step) {
+        for (int pos = from; pos >= 0 && pos < order.length; pos += step) {
+            if (available.get(order[pos])) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureBookCapacity(int required) {
+        if (required <= isbnCodes.length) {
+            return;
+        }
+        int capacity = Math.max(isbnCodes.length * 2, required);
+        isbnCodes = Arrays.copyOf(isbnCodes, capacity);
+        titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+        titleLengths = Arrays.copyOf(titleLengths, capacity);
+        authorIds = Arrays.copyOf(authorIds, capacity);
+        genreIds = Arrays.copyOf(genreIds, capacity);
+        timesRead = Arrays.copyOf(timesRead, capacity);
+        copies = Arrays.copyOf(copies, capacity);
+        availableCopies = Arrays.copyOf(availableCopies, capacity);
+    }
+
+    private void ensureReaderCapacity(int required) {
+        if (required <= readerNames.length) {
+            return;
+        }
+        int capacity = Math.max(readerNames.length * 2, required);
+        readerNames = Arrays.copyOf(readerNames, capacity);
+        loans = Arrays.copyOf(loans, capacity);
+        loanCounts = Arrays.copyOf(loanCounts, capacity);
+        loanDue = Arrays.copyOf(loanDue, capacity);
+        loanChats = Arrays.copyOf(loanChats, capacity);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.lostfly.business.repository.compact;
+
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.domain.loan.Loan;
+import ru.lostfly.business.repository.HoldRepository;
+import ru.lostfly.business.repository.HoldTransfer;
+import ru.lostfly.business.repository.LoanRepository;
+import ru.lostfly.business.repository.LoanResult;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Выдача и возврат в режиме IN_MEMORY_COMPACT: свободные экземпляры, счетчик прочтений
+ * и коды книг читателя меняются одной операцией {@link CompactCatalog}
+ */
+public class CompactLoanRepository implements LoanRepository {
+
+    private final CompactCatalog catalog;
+
+    public CompactLoanRepository(CompactCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public LoanResult borrow(Loan loan, int maxBooks) {
+        return catalog.borrow(loan, maxBooks);
+    }
+
+    @Override
+    public LoanResult returnBook(String isbn, String readerId) {
+        return catalog.returnBook(isbn, readerId);
+    }
+
+    @Override
+    public LoanResult transfer(String fromReaderId, Loan loan, int maxBooks) {
+        return catalog.transfer(fromReaderId, loan, maxBooks);
+    }
+
+    @Override
+    public HoldTransfer transferToNextHolder(String fromReaderId, String isbn, HoldRepository holds,
+                                             Function<Hold, Loan> loanFor, int maxBooks,
+                                             BiConsumer<Hold, LoanResult> rejected) {
+        return HoldTransfer.viaQueue(this, fromReaderId, isbn, holds, loanFor, maxBooks, rejected);
+    }
+
+    @Override
+    public List<Loan> findActiveLoans() {
+        return catalog.findActiveLoans();
+    }
+
+    @Override
+    public void markReminded(List<Loan> loans) {
+        catalog.markReminded(loans);
+    }
+}
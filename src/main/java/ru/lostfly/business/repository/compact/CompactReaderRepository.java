@@ -0,0 +1,50 @@
+package ru.lostfly.business.repository.compact;
+
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.ReaderRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Читатели режима IN_MEMORY_COMPACT: выданные книги хранятся кодами ISBN
+ * в {@link CompactCatalog}, читатель собирается при чтении
+ */
+public class CompactReaderRepository implements ReaderRepository {
+
+    private final CompactCatalog catalog;
+
+    public CompactReaderRepository(CompactCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void save(Reader reader) {
+        catalog.saveReader(reader);
+    }
+
+    @Override
+    public void saveAll(Collection<Reader> readers) {
+        catalog.saveReaders(readers);
+    }
+
+    @Override
+    public Reader findById(String id) {
+        return catalog.findReader(id);
+    }
+
+    @Override
+    public List<Reader> findAll() {
+        return catalog.findAllReaders();
+    }
+
+    @Override
+    public List<Reader> findPage(String afterId, int limit) {
+        return catalog.findReaderPage(afterId, limit);
+    }
+
+    @Override
+    public int getTotalReaders() {
+        return catalog.getTotalReaders();
+    }
+}
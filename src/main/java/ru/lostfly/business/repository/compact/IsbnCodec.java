@@ -0,0 +1,99 @@
+package ru.lostfly.business.repository.compact;
+
+/**
+ * Упаковка ISBN в {@code long} без потери исходной записи.
+ * <p>
+ * ISBN-13 (и ISBN-10) - это до 13 цифр с дефисами между группами.
+ * Код хранит:
+ * <ul>
+ *     <li>биты 0-43 - цифры как число (10^13 < 2^44);</li>
+ *     <li>биты 44-55 - после каких цифр (1..12) стоит дефис;</li>
+ *     <li>биты 56-59 - количество цифр (ведущие нули не теряются);</li>
+ *     <li>бит 60 - последний символ 'X' (контрольная цифра ISBN-10).</li>
+ * </ul>
+ * Такой код всегда неотрицателен. Строки, которые так не упаковываются
+ * (буквы, пробелы, двойные дефисы), хранилище держит отдельно
+ * под отрицательными кодами - см. {@link #isPacked(long)}.
+ */
+final class IsbnCodec {
+
+    /**
+     * Признак "строку упаковать нельзя"
+     */
+    static final long NOT_PACKED = -1;
+
+    private static final int MAX_DIGITS = 13;
+    private static final int HYPHENS_SHIFT = 44;
+    private static final int COUNT_SHIFT = 56;
+    private static final long CHECK_X_BIT = 1L << 60;
+    private static final long VALUE_MASK = (1L << HYPHENS_SHIFT) - 1;
+
+    private IsbnCodec() {
+    }
+
+    /**
+     * @return код или {@link #NOT_PACKED}
+     */
+    static long encode(String isbn) {
+        int length = isbn.length();
+        if (length == 0 || !isDigit(isbn.charAt(0))) {
+            return NOT_PACKED;
+        }
+        long value = 0;
+        long hyphens = 0;
+        long checkX = 0;
+        int digits = 0;
+        boolean afterHyphen = false;
+        for (int i = 0; i < length; i++) {
+            char c = isbn.charAt(i);
+            if (isDigit(c) || (c == 'X' && i == length - 1)) {
+                if (++digits > MAX_DIGITS) {
+                    return NOT_PACKED;
+                }
+                if (c == 'X') {
+                    value *= 10;
+                    checkX = CHECK_X_BIT;
+                } else {
+                    value = value * 10 + (c - '0');
+                }
+                afterHyphen = false;
+            } else if (c == '-' && !afterHyphen && digits < MAX_DIGITS) {
+                hyphens |= 1L << (digits - 1);
+                afterHyphen = true;
+            } else {
+                return NOT_PACKED;
+            }
+        }
+        if (afterHyphen) {
+            return NOT_PACKED; // дефис в конце
+        }
+        return value | (hyphens << HYPHENS_SHIFT) | ((long) digits << COUNT_SHIFT) | checkX;
+    }
+
+    static String decode(long code) {
+        int digits = (int) (code >>> COUNT_SHIFT) & 0xF;
+        long hyphens = (code >>> HYPHENS_SHIFT) & 0xFFF;
+        char[] text = new char[digits + Long.bitCount(hyphens)];
+
+        // Цифры пишутся с конца: остаток от деления - последняя цифра
+        long value = code & VALUE_MASK;
+        int pos = text.length;
+        for (int digit = digits; digit >= 1; digit--) {
+            if (digit < digits && (hyphens & (1L << (digit - 1))) != 0) {
+                text[--pos] = '-';
+            }
+            boolean checkX = digit == digits && (code & CHECK_X_BIT) != 0;
+            text[--pos] = checkX ? 'X' : (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(text);
+    }
+
+    static boolean isPacked(long code) {
+        return code >= 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,76 @@
+package ru.lostfly.business.repository.durable;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Книги режима IN_MEMORY_DURABLE: чтение - из памяти под блокировкой чтения, запись - через журнал {@link DurableStore}
+ */
+public class DurableBookRepository implements BookRepository {
+
+    private final DurableStore store;
+
+    public DurableBookRepository(DurableStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void save(Book book) {
+        store.saveBook(book);
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        store.saveBooks(books);
+    }
+
+    @Override
+    public Book findByIsbn(String isbn) {
+        return store.readBooks(books -> books.findByIsbn(isbn));
+    }
+
+    @Override
+    public List<Book> findAvailableBooks() {
+        return store.readBooks(books -> books.findAvailableBooks());
+    }
+
+    @Override
+    public Page<Book> findAvailableBooks(PageRequest page) {
+        return store.readBooks(books -> books.findAvailableBooks(page));
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        return store.readBooks(books -> books.findByAuthor(author));
+    }
+
+    @Override
+    public Page<Book> findByAuthor(String author, PageRequest page) {
+        return store.readBooks(books -> books.findByAuthor(author, page));
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        return store.readBooks(books -> books.search(query, limit));
+    }
+
+    @Override
+    public boolean addCopies(String isbn, int count) {
+        return store.addCopies(isbn, count);
+    }
+
+    @Override
+    public List<Book> findMostRead(int limit) {
+        return store.readBooks(books -> books.findMostRead(limit));
+    }
+
+    @Override
+    public int getTotalBooks() {
+        return store.readBooks(books -> books.getTotalBooks());
+    }
+}
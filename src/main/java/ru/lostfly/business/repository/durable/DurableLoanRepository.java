@@ -0,0 +1,61 @@
+package ru.lostfly.business.repository.durable;
+
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.domain.loan.Loan;
+import ru.lostfly.business.repository.HoldRepository;
+import ru.lostfly.business.repository.HoldTransfer;
+import ru.lostfly.business.repository.LoanRepository;
+import ru.lostfly.business.repository.LoanResult;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Выдача и возврат в режиме IN_MEMORY_DURABLE: проверка, запись в журнал
+ * и изменение книги и читателя - одна операция под блокировкой {@link DurableStore}
+ */
+public class DurableLoanRepository implements LoanRepository {
+
+    private final DurableStore store;
+
+    public DurableLoanRepository(DurableStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public LoanResult borrow(Loan loan, int maxBooks) {
+        return store.borrow(loan, maxBooks);
+    }
+
+    @Override
+    public LoanResult returnBook(String isbn, String readerId) {
+        return store.returnBook(isbn, readerId);
+    }
+
+    @Override
+    public LoanResult transfer(String fromReaderId, Loan loan, int maxBooks) {
+        return store.transfer(fromReaderId, loan, maxBooks);
+    }
+
+    @Override
+    public HoldTransfer transferToNextHolder(String fromReaderId, String isbn, HoldRepository holds,
+                                             Function<Hold, Loan> loanFor, int maxBooks,
+                                             BiConsumer<Hold, LoanResult> rejected) {
+        return HoldTransfer.viaQueue(this, fromReaderId, isbn, holds, loanFor, maxBooks, rejected);
+    }
+
+    /**
+     * Сроки восстанавливаются из журнала; выдачи из журналов, записанных
+     * до сроков выдачи, срока не имеют и сюда не попадают
+     */
+    @Override
+    public List<Loan> findActiveLoans() {
+        return store.findActiveLoans();
+    }
+
+    @Override
+    public void markReminded(List<Loan> loans) {
+        store.markReminded(loans);
+    }
+}
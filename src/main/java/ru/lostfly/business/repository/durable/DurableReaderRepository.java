@@ -0,0 +1,49 @@
+package ru.lostfly.business.repository.durable;
+
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.ReaderRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Читатели режима IN_MEMORY_DURABLE: чтение - из памяти под блокировкой чтения, запись - через журнал {@link DurableStore}
+ */
+public class DurableReaderRepository implements ReaderRepository {
+
+    private final DurableStore store;
+
+    public DurableReaderRepository(DurableStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void save(Reader reader) {
+        store.saveReader(reader);
+    }
+
+    @Override
+    public void saveAll(Collection<Reader> readers) {
+        store.saveReaders(readers);
+    }
+
+    @Override
+    public Reader findById(String id) {
+        return store.readReaders(readers -> readers.findById(id));
+    }
+
+    @Override
+    public List<Reader> findAll() {
+        return store.readReaders(readers -> readers.findAll());
+    }
+
+    @Override
+    public List<Reader> findPage(String afterId, int limit) {
+        return store.readReaders(readers -> readers.findPage(afterId, limit));
+    }
+
+    @Override
+    public int getTotalReaders() {
+        return store.readReaders(readers -> readers.getTotalReaders());
+    }
+}
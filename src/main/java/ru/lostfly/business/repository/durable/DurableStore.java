@@ -0,0 +1,597 @@
+package ru.lostfly.business.repository.durable;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.loan.Loan;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.LoanResult;
+import ru.lostfly.business.repository.impl.BookRepositoryIndexedImpl;
+import ru.lostfly.business.repository.impl.ReaderRepositoryImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Хранилище режима IN_MEMORY_DURABLE: данные живут в in-memory репозиториях,
+ * а каждое изменение сначала пишется в {@link WriteAheadLog}.
+ * <p>
+ * Запись: под общей блокировкой операция кодируется, добавляется в журнал
+ * и применяется к объектам в памяти - порядок в журнале совпадает с порядком
+ * применения. Ожидание сброса на диск (групповой коммит) - уже без блокировки,
+ * поэтому параллельные операции попадают в один fsync. Чтение идет под
+ * блокировкой чтения: параллельно с другими чтениями, но не во время изменения.
+ * <p>
+ * Когда журнал вырастает на {@link #SNAPSHOT_LOG_BYTES} (или раз в
+ * {@link #SNAPSHOT_INTERVAL_MINUTES} минут), в фоне пишется снимок, и покрытые
+ * им сегменты журнала удаляются. При запуске читается последний снимок
+ * и журнал после него.
+ * <p>
+ * Выдача пишется в журнал со сроком возврата и чатом для напоминания, отправленное
+ * напоминание - отдельной записью: после перезапуска невозвращенные выдачи
+ * восстанавливаются вместе со сроками, а напоминания не повторяются.
+ */
+@Slf4j
+public class DurableStore implements AutoCloseable {
+
+    // Типы записей журнала и снимка
+    static final byte BOOK_SAVE_V1 = 1;     // книга в один экземпляр (журналы до учета экземпляров)
+    static final byte READER_SAVE = 2;
+    static final byte BORROW_V1 = 3;        // выдача без срока (журналы до сроков выдачи)
+    static final byte RETURN = 4;
+    static final byte TRANSFER_V1 = 5;      // передача без срока (журналы до сроков выдачи)
+    static final byte BOOK_SAVE = 6;
+    static final byte ADD_COPIES = 7;
+    static final byte BORROW = 8;
+    static final byte TRANSFER = 9;
+    static final byte REMINDED = 10;
+    static final byte LOAN = 11;            // срок невозвращенной выдачи (только в снимке)
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    // Как часто сбрасывать журнал, если никто не ждет сброса (режим без синхронного коммита)
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+    private static final long SNAPSHOT_LOG_BYTES = 32L * 1024 * 1024;
+    private static final long SNAPSHOT_INTERVAL_MINUTES = 10;
+
+    private final BookRepositoryIndexedImpl books = new BookRepositoryIndexedImpl();
+    private final ReaderRepositoryImpl readers = new ReaderRepositoryImpl();
+    // Сроки невозвращенных выдач: читатель + ISBN -> выдачи по порядку
+    // (возврат закрывает самую раннюю, как и у книг читателя)
+    private final Map<String, ArrayDeque<TrackedLoan>> dueDates = new HashMap<>();
+
+    // Запись: порядок записей в журнале = порядок изменений в памяти.
+    // Чтение: индексы in-memory репозиториев не потокобезопасны, поэтому
+    // читатели не должны застать их посреди изменения
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RecordBuffer record = new RecordBuffer(512);
+
+    private final SnapshotFiles snapshots;
+    private final WriteAheadLog wal;
+    // true - операция возвращается только после fsync; false - потеря до 10 мс при сбое
+    private final boolean syncCommit;
+
+    private final ScheduledExecutorService snapshotter;
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private volatile long snapshotLsn;
+
+    public DurableStore(Path dir, boolean syncCommit) throws IOException {
+        this.syncCommit = syncCommit;
+        long start = System.nanoTime();
+
+        this.snapshots = new SnapshotFiles(dir);
+        this.snapshotLsn = snapshots.loadLatest(this::replay);
+        this.wal = new WriteAheadLog(dir, SEGMENT_SIZE, FLUSH_INTERVAL_MILLIS, snapshotLsn, this::replay);
+        log.info("Durable store opened in {} ms: {} books, {} readers",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                books.getTotalBooks(), readers.getTotalReaders());
+
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "durable-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotIfChanged,
+                SNAPSHOT_INTERVAL_MINUTES, SNAPSHOT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Запрос к книгам под блокировкой чтения
+     */
+    <T> T readBooks(Function<BookRepositoryIndexedImpl, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(books);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Запрос к читателям под блокировкой чтения
+     */
+    <T> T readReaders(Function<ReaderRepositoryImpl, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(readers);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void saveBook(Book book) {
+        long lsn;
+        lock.writeLock().lock();
+        try {
+            lsn = wal.append(BOOK_SAVE, encodeBook(book));
+            books.save(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+    }
+
+    void saveBooks(Collection<Book> batch) {
+        long lsn = wal.position();
+        lock.writeLock().lock();
+        try {
+            for (Book book : batch) {
+                lsn = wal.append(BOOK_SAVE, encodeBook(book));
+                books.save(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+    }
+
+    void saveReader(Reader reader) {
+        long lsn;
+        lock.writeLock().lock();
+        try {
+            lsn = wal.append(READER_SAVE, encodeReader(reader));
+            readers.save(reader);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+    }
+
+    void saveReaders(Collection<Reader> batch) {
+        long lsn = wal.position();
+        lock.writeLock().lock();
+        try {
+            for (Reader reader : batch) {
+                lsn = wal.append(READER_SAVE, encodeReader(reader));
+                readers.save(reader);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+    }
+
+    LoanResult borrow(Loan loan, int maxBooks) {
+        long lsn;
+        LoanResult result;
+        lock.writeLock().lock();
+        try {
+            Reader reader = readers.findById(loan.getReaderId());
+            if (reader == null) {
+                return LoanResult.of(LoanResult.Status.READER_NOT_FOUND);
+            }
+            if (reader.getBorrowedBooksCount() >= maxBooks) {
+                return LoanResult.of(LoanResult.Status.LIMIT_REACHED);
+            }
+            Book book = books.findByIsbn(loan.getIsbn());
+            if (book == null) {
+                return LoanResult.of(LoanResult.Status.BOOK_NOT_FOUND);
+            }
+            if (!book.isAvailable()) {
+                return LoanResult.unavailable(book.getTitle());
+            }
+            lsn = wal.append(BORROW, encodeLoan(loan));
+            applyBorrow(book, reader);
+            track(loan, false);
+            result = LoanResult.borrowed(book.getTitle(), book.getTimesRead());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+        return result;
+    }
+
+    LoanResult returnBook(String isbn, String readerId) {
+        long lsn;
+        lock.writeLock().lock();
+        try {
+            Reader reader = readers.findById(readerId);
+            Book book = books.findByIsbn(isbn);
+            if (reader == null || book == null || !reader.hasBook(book)) {
+                return LoanResult.of(LoanResult.Status.NOT_BORROWED);
+            }
+            lsn = wal.append(RETURN, record.clear().putString(isbn).putString(readerId).contents());
+            applyReturn(book, reader);
+            untrack(isbn, readerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+        return LoanResult.success();
+    }
+
+    LoanResult transfer(String fromReaderId, Loan loan, int maxBooks) {
+        long lsn;
+        LoanResult result;
+        lock.writeLock().lock();
+        try {
+            String isbn = loan.getIsbn();
+            Reader from = readers.findById(fromReaderId);
+            Book book = books.findByIsbn(isbn);
+            if (from == null || book == null || !from.hasBook(book)) {
+                return LoanResult.of(LoanResult.Status.NOT_BORROWED);
+            }
+            Reader to = readers.findById(loan.getReaderId());
+            if (to == null) {
+                return LoanResult.of(LoanResult.Status.READER_NOT_FOUND);
+            }
+            if (to.getBorrowedBooksCount() >= maxBooks) {
+                return LoanResult.of(LoanResult.Status.LIMIT_REACHED);
+            }
+            lsn = wal.append(TRANSFER, record.clear()
+                    .putString(isbn).putString(fromReaderId).putString(loan.getReaderId())
+                    .putLong(loan.getChatId()).putLong(loan.getDueAt().toEpochMilli()).contents());
+            applyTransfer(book, from, to);
+            untrack(isbn, fromReaderId);
+            track(loan, false);
+            result = LoanResult.borrowed(book.getTitle(), book.getTimesRead());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+        return result;
+    }
+
+    /**
+     * Невозвращенные выдачи со сроками, о которых еще не напоминали
+     */
+    List<Loan> findActiveLoans() {
+        lock.readLock().lock();
+        try {
+            List<Loan> result = new ArrayList<>();
+            for (ArrayDeque<TrackedLoan> loans : dueDates.values()) {
+                for (TrackedLoan tracked : loans) {
+                    if (!tracked.reminded) {
+                        result.add(tracked.loan);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void markReminded(List<Loan> loans) {
+        long lsn = wal.position();
+        lock.writeLock().lock();
+        try {
+            for (Loan loan : loans) {
+                TrackedLoan tracked = findTracked(loan.getIsbn(), loan.getReaderId(), loan.getDueAt());
+                if (tracked != null) {
+                    lsn = wal.append(REMINDED, record.clear().putString(loan.getIsbn()).putString(loan.getReaderId())
+                            .putLong(loan.getDueAt().toEpochMilli()).contents());
+                    tracked.reminded = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+    }
+
+    boolean addCopies(String isbn, int count) {
+        long lsn;
+        lock.writeLock().lock();
+        try {
+            Book book = books.findByIsbn(isbn);
+            if (book == null) {
+                return false;
+            }
+            lsn = wal.append(ADD_COPIES, record.clear().putString(isbn).putInt(count).contents());
+            book.addCopies(count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        commit(lsn);
+        return true;
+    }
+
+    /**
+     * Записать снимок текущего состояния и удалить покрытые им сегменты журнала
+     */
+    public void snapshot() throws IOException {
+        RecordBuffer snapshot;
+        long lsn;
+        // Под блокировкой только сериализация в память; запись файла - без нее
+        lock.writeLock().lock();
+        try {
+            lsn = wal.position();
+            List<Book> allBooks = books.findAll();
+            snapshot = new RecordBuffer(Math.max(1024, allBooks.size() * 96));
+            SnapshotFiles.writeHeader(snapshot, lsn);
+            for (Book book : allBooks) {
+                SnapshotFiles.appendRecord(snapshot, BOOK_SAVE, encodeBook(book));
+            }
+            for (Reader reader : readers.findAll()) {
+                SnapshotFiles.appendRecord(snapshot, READER_SAVE, encodeReader(reader));
+            }
+            for (ArrayDeque<TrackedLoan> loans : dueDates.values()) {
+                for (TrackedLoan tracked : loans) {
+                    SnapshotFiles.appendRecord(snapshot, LOAN, loanRecord(tracked.loan)
+                            .putBoolean(tracked.reminded).contents());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        snapshots.write(lsn, snapshot);
+        snapshotLsn = lsn;
+        wal.deleteSegmentsBefore(lsn);
+    }
+
+    /**
+     * Снимок и закрытие журнала
+     */
+    @Override
+    public void close() {
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(30, TimeUnit.SECONDS);
+            snapshot();
+        } catch (IOException e) {
+            log.error("Failed to write snapshot on close", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        wal.close();
+    }
+
+    private void commit(long lsn) {
+        if (syncCommit) {
+            wal.awaitDurable(lsn);
+        }
+        if (lsn - snapshotLsn >= SNAPSHOT_LOG_BYTES && snapshotRunning.compareAndSet(false, true)) {
+            snapshotter.execute(this::snapshotIfChanged);
+        }
+    }
+
+    private void snapshotIfChanged() {
+        try {
+            if (wal.position() > snapshotLsn) {
+                snapshot();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write snapshot", e);
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    // --- Кодирование записей (буфер переиспользуется, вызывается под блокировкой) ---
+
+    private ByteBuffer encodeBook(Book book) {
+        return record.clear()
+                .putString(book.getIsbn())
+                .putString(book.getTitle())
+                .putString(book.getAuthor())
+                .putString(book.getGenre())
+                .putInt(book.getCopies())
+                .putInt(book.getAvailableCopies())
+                .putInt(book.getTimesRead())
+                .contents();
+    }
+
+    private ByteBuffer encodeReader(Reader reader) {
+        List<Book> borrowed = reader.getBorrowedBooks();
+        record.clear()
+                .putString(reader.getId())
+                .putString(reader.getName())
+                .putInt(borrowed.size());
+        for (Book book : borrowed) {
+            record.putString(book.getIsbn());
+        }
+        return record.contents();
+    }
+
+    private ByteBuffer encodeLoan(Loan loan) {
+        return loanRecord(loan).contents();
+    }
+
+    private RecordBuffer loanRecord(Loan loan) {
+        return record.clear()
+                .putString(loan.getIsbn())
+                .putString(loan.getReaderId())
+                .putLong(loan.getChatId())
+                .putLong(loan.getDueAt().toEpochMilli());
+    }
+
+    private static Loan decodeLoan(ByteBuffer in) {
+        return new Loan(RecordBuffer.getString(in), RecordBuffer.getString(in), in.getLong(),
+                Instant.ofEpochMilli(in.getLong()));
+    }
+
+    // --- Сроки выдач (под блокировкой записи или при восстановлении) ---
+
+    private static String loanKey(String isbn, String readerId) {
+        return readerId + '\0' + isbn;
+    }
+
+    private void track(Loan loan, boolean reminded) {
+        dueDates.computeIfAbsent(loanKey(loan.getIsbn(), loan.getReaderId()), key -> new ArrayDeque<>(1))
+                .addLast(new TrackedLoan(loan, reminded));
+    }
+
+    private void untrack(String isbn, String readerId) {
+        String key = loanKey(isbn, readerId);
+        ArrayDeque<TrackedLoan> loans = dueDates.get(key);
+        if (loans != null) {
+            loans.pollFirst();
+            if (loans.isEmpty()) {
+                dueDates.remove(key);
+            }
+        }
+    }
+
+    private TrackedLoan findTracked(String isbn, String readerId, Instant dueAt) {
+        ArrayDeque<TrackedLoan> loans = dueDates.get(loanKey(isbn, readerId));
+        if (loans != null) {
+            for (TrackedLoan tracked : loans) {
+                if (!tracked.reminded && tracked.loan.getDueAt().equals(dueAt)) {
+                    return tracked;
+                }
+            }
+        }
+        return null;
+    }
+
+    // --- Применение записей (общее для живых операций и восстановления) ---
+
+    private static void applyBorrow(Book book, Reader reader) {
+        book.borrow();
+        reader.addBook(book);
+    }
+
+    private static void applyReturn(Book book, Reader reader) {
+        book.release();
+        reader.removeBook(book);
+    }
+
+    private static void applyTransfer(Book book, Reader from, Reader to) {
+        from.removeBook(book);
+        book.incrementTimesRead();
+        to.addBook(book);
+    }
+
+    /**
+     * Применить запись снимка или журнала при запуске
+     */
+    private void replay(byte type, ByteBuffer in) {
+        switch (type) {
+            case BOOK_SAVE, BOOK_SAVE_V1 -> {
+                Book book = new Book(RecordBuffer.getString(in), RecordBuffer.getString(in),
+                        RecordBuffer.getString(in), RecordBuffer.getString(in));
+                if (type == BOOK_SAVE) {
+                    int copies = in.getInt();
+                    book.setCopies(copies, in.getInt());
+                } else {
+                    book.setAvailable(RecordBuffer.getBoolean(in));
+                }
+                book.setTimesRead(in.getInt());
+                books.save(book);
+            }
+            case ADD_COPIES -> {
+                String isbn = RecordBuffer.getString(in);
+                Book book = books.findByIsbn(isbn);
+                if (book == null) {
+                    log.warn("Skipping copies record for unknown book {}", isbn);
+                    return;
+                }
+                book.addCopies(in.getInt());
+            }
+            case READER_SAVE -> {
+                Reader reader = new Reader(RecordBuffer.getString(in), RecordBuffer.getString(in));
+                int borrowed = in.getInt();
+                for (int i = 0; i < borrowed; i++) {
+                    Book book = books.findByIsbn(RecordBuffer.getString(in));
+                    if (book != null) {
+                        reader.addBook(book);
+                    }
+                }
+                readers.save(reader);
+            }
+            case BORROW_V1, RETURN -> {
+                String isbn = RecordBuffer.getString(in);
+                String readerId = RecordBuffer.getString(in);
+                Book book = books.findByIsbn(isbn);
+                Reader reader = readers.findById(readerId);
+                if (book == null || reader == null) {
+                    log.warn("Skipping log record {} for unknown book {} or reader {}", type, isbn, readerId);
+                    return;
+                }
+                if (type == BORROW_V1) {
+                    applyBorrow(book, reader);
+                } else {
+                    applyReturn(book, reader);
+                    untrack(isbn, readerId);
+                }
+            }
+            case BORROW -> {
+                Loan loan = decodeLoan(in);
+                Book book = books.findByIsbn(loan.getIsbn());
+                Reader reader = readers.findById(loan.getReaderId());
+                if (book == null || reader == null) {
+                    log.warn("Skipping borrow record for unknown book {} or reader {}",
+                            loan.getIsbn(), loan.getReaderId());
+                    return;
+                }
+                applyBorrow(book, reader);
+                track(loan, false);
+            }
+            case TRANSFER, TRANSFER_V1 -> {
+                String isbn = RecordBuffer.getString(in);
+                String fromId = RecordBuffer.getString(in);
+                String toId = RecordBuffer.getString(in);
+                Book book = books.findByIsbn(isbn);
+                Reader from = readers.findById(fromId);
+                Reader to = readers.findById(toId);
+                if (book == null || from == null || to == null) {
+                    log.warn("Skipping transfer record for unknown book {} or reader", isbn);
+                    return;
+                }
+                applyTransfer(book, from, to);
+                untrack(isbn, fromId);
+                if (type == TRANSFER) {
+                    track(new Loan(isbn, toId, in.getLong(), Instant.ofEpochMilli(in.getLong())), false);
+                }
+            }
+            case REMINDED -> {
+                TrackedLoan tracked = findTracked(RecordBuffer.getString(in), RecordBuffer.getString(in),
+                        Instant.ofEpochMilli(in.getLong()));
+                if (tracked != null) {
+                    tracked.reminded = true;
+                }
+            }
+            case LOAN -> {
+                Loan loan = decodeLoan(in);
+                track(loan, RecordBuffer.getBoolean(in));
+            }
+            default -> throw new IllegalStateException("Unknown log record type: " + type);
+        }
+    }
+
+    /**
+     * Срок невозвращенной выдачи и было ли напоминание о просрочке
+     */
+    private static final class TrackedLoan {
+        private final Loan loan;
+        private boolean reminded;
+
+        private TrackedLoan(Loan loan, boolean reminded) {
+            this.loan = loan;
+            this.reminded = reminded;
+        }
+    }
+}
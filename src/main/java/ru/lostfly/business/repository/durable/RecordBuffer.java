@@ -0,0 +1,111 @@
+package ru.lostfly.business.repository.durable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Растущий буфер для сериализации записей журнала и снимков,
+ * плюс чтение тех же полей из ByteBuffer.
+ * Строки - {@code [int длина][UTF-8]}, null - длина -1.
+ */
+final class RecordBuffer {
+
+    private ByteBuffer buffer;
+
+    RecordBuffer(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    RecordBuffer clear() {
+        buffer.clear();
+        return this;
+    }
+
+    /**
+     * Записанные байты (от начала до текущей позиции)
+     */
+    ByteBuffer contents() {
+        return buffer.duplicate().flip();
+    }
+
+    int size() {
+        return buffer.position();
+    }
+
+    RecordBuffer putByte(byte value) {
+        ensure(1);
+        buffer.put(value);
+        return this;
+    }
+
+    RecordBuffer putInt(int value) {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+        return this;
+    }
+
+    RecordBuffer putLong(long value) {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+        return this;
+    }
+
+    RecordBuffer putBoolean(boolean value) {
+        return putByte(value ? (byte) 1 : (byte) 0);
+    }
+
+    RecordBuffer putString(String value) {
+        if (value == null) {
+            return putInt(-1);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(Integer.BYTES + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    RecordBuffer putBytes(ByteBuffer bytes) {
+        ensure(bytes.remaining());
+        buffer.put(bytes);
+        return this;
+    }
+
+    /**
+     * Записать целое на уже занятой позиции (например, длину после записи данных)
+     */
+    void putIntAt(int index, int value) {
+        buffer.putInt(index, value);
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        // Записи журнала читаются прямо из отображенного файла
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static boolean getBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.lostfly.business.repository.durable;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Снимки состояния {@code snapshot-<LSN>.bin}.
+ * <p>
+ * Формат: {@code [int магия][int версия][long LSN]}, затем записи
+ * {@code [int длина][byte тип][данные]} в том же формате, что и в журнале,
+ * и в конце {@code [int crc32]} всего предыдущего содержимого.
+ * Снимок пишется во временный файл и переименовывается атомарно,
+ * поэтому частично записанный снимок никогда не читается как готовый.
+ */
+@Slf4j
+final class SnapshotFiles {
+
+    private static final int MAGIC = 0x4C42534E; // "LBSN"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    // Сколько последних снимков хранить (предыдущий - на случай повреждения последнего)
+    private static final int KEEP = 2;
+
+    private final Path dir;
+
+    SnapshotFiles(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Начать снимок: заголовок пишется в буфер, записи добавляются через {@link #appendRecord}
+     */
+    static void writeHeader(RecordBuffer out, long lsn) {
+        out.putInt(MAGIC).putInt(VERSION).putLong(lsn);
+    }
+
+    static void appendRecord(RecordBuffer out, byte type, ByteBuffer payload) {
+        out.putInt(1 + payload.remaining()).putByte(type).putBytes(payload);
+    }
+
+    /**
+     * Записать готовый снимок на диск и удалить устаревшие
+     */
+    void write(long lsn, RecordBuffer snapshot) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(snapshot.contents());
+        snapshot.putInt((int) crc.getValue());
+
+        Path target = path(lsn);
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer data = snapshot.contents();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<Long> all = list();
+        for (int i = 0; i < all.size() - KEEP; i++) {
+            Files.deleteIfExists(path(all.get(i)));
+        }
+        log.info("Snapshot written: LSN {}, {} bytes", lsn, snapshot.size());
+    }
+
+    /**
+     * Загрузить самый свежий целый снимок
+     * @return LSN снимка или 0, если снимков нет
+     */
+    long loadLatest(WriteAheadLog.RecordHandler handler) throws IOException {
+        List<Long> all = list();
+        for (int i = all.size() - 1; i >= 0; i--) {
+            Path file = path(all.get(i));
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (!isValid(data)) {
+                log.warn("Snapshot {} is corrupted, trying an older one", file);
+                continue;
+            }
+
+            data.position(Integer.BYTES * 2);
+            long lsn = data.getLong();
+            int end = data.limit() - Integer.BYTES;
+            long records = 0;
+            while (data.position() < end) {
+                int length = data.getInt();
+                ByteBuffer record = data.slice(data.position(), length);
+                data.position(data.position() + length);
+                handler.apply(record.get(), record);
+                records++;
+            }
+            log.info("Snapshot loaded: {} ({} records, LSN {})", file.getFileName(), records, lsn);
+            return lsn;
+        }
+        return 0;
+    }
+
+    private static boolean isValid(ByteBuffer data) {
+        if (data.limit() < Integer.BYTES * 3 + Long.BYTES
+                || data.getInt(0) != MAGIC || data.getInt(Integer.BYTES) != VERSION) {
+            return false;
+        }
+        int bodyLength = data.limit() - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(data.slice(0, bodyLength));
+        return (int) crc.getValue() == data.getInt(bodyLength);
+    }
+
+    private List<Long> list() throws IOException {
+        List<Long> lsns = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> lsns.add(Long.parseLong(
+                            name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        lsns.sort(Comparator.naturalOrder());
+        return lsns;
+    }
+
+    private Path path(long lsn) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+    }
+}
@@ -0,0 +1,310 @@
+package ru.lostfly.business.repository.durable;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал операций (write-ahead log) в отображенных в память файлах.
+ * <p>
+ * Журнал - последовательность сегментов {@code wal-<смещение>.log} фиксированного
+ * размера. Позиция записи (LSN) - сквозное смещение в байтах от начала журнала.
+ * Формат записи: {@code [int длина][int crc32][byte тип][данные]}, где длина и crc
+ * считаются по типу и данным. Нулевая длина - конец данных сегмента.
+ * <p>
+ * Запись - копирование в MappedByteBuffer (без системных вызовов).
+ * Сброс на диск - групповой: отдельный поток вызывает force() для всех записей,
+ * накопившихся с прошлого сброса, и будит ожидающих в {@link #awaitDurable(long)}.
+ */
+@Slf4j
+public class WriteAheadLog implements AutoCloseable {
+
+    /**
+     * Обработчик записей при чтении журнала
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void apply(byte type, ByteBuffer payload);
+    }
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    // Заголовок записи: длина + crc
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long flushIntervalMillis;
+
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    // Позиция следующей записи; читается потоком сброса
+    private volatile long writePosition;
+    private volatile MappedByteBuffer currentSegment;
+
+    // Групповой сброс на диск
+    private final Object flushLock = new Object();
+    private long durablePosition;
+    private boolean flushRequested;
+    private volatile boolean running = true;
+    private final Thread flusher;
+
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Открыть журнал: прочитать записи начиная с {@code fromLsn} и подготовить запись в конец.
+     * @param fromLsn позиция, с которой нужны записи (LSN последнего снимка)
+     * @param handler получает каждую прочитанную запись по порядку
+     */
+    public WriteAheadLog(Path dir, int segmentSize, long flushIntervalMillis,
+                         long fromLsn, RecordHandler handler) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        Files.createDirectories(dir);
+
+        recover(fromLsn, handler);
+        this.durablePosition = writePosition;
+
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Добавить запись. Вызывающий код упорядочивает записи сам (вызовы не должны пересекаться).
+     * @return LSN конца записи - его передают в {@link #awaitDurable(long)}
+     */
+    public synchronized long append(byte type, ByteBuffer payload) {
+        int length = 1 + payload.remaining();
+        if (HEADER + length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit into a WAL segment");
+        }
+        if (segment.remaining() < HEADER + length + HEADER) {
+            // Место под запись и под нулевой маркер конца сегмента
+            roll();
+        }
+
+        crc.reset();
+        crc.update(type);
+        crc.update(payload.duplicate());
+
+        segment.putInt(length);
+        segment.putInt((int) crc.getValue());
+        segment.put(type);
+        segment.put(payload);
+
+        writePosition = segmentStart + segment.position();
+        return writePosition;
+    }
+
+    /**
+     * Дождаться, пока запись до позиции {@code lsn} окажется на диске
+     */
+    public void awaitDurable(long lsn) {
+        synchronized (flushLock) {
+            while (durablePosition < lsn && running) {
+                flushRequested = true;
+                flushLock.notifyAll();
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Текущая позиция конца журнала
+     */
+    public long position() {
+        return writePosition;
+    }
+
+    /**
+     * Удалить сегменты, все записи которых до позиции {@code lsn} (их покрывает снимок)
+     */
+    public void deleteSegmentsBefore(long lsn) throws IOException {
+        long current;
+        synchronized (this) {
+            current = segmentStart;
+        }
+        for (long start : listSegments()) {
+            if (start + segmentSize <= lsn && start < current) {
+                Files.deleteIfExists(segmentPath(start));
+                log.debug("WAL segment {} deleted", start);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (flushLock) {
+            running = false;
+            flushLock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            segment.force();
+        }
+        log.info("WAL closed at position {}", writePosition);
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (flushLock) {
+                if (!running) {
+                    return;
+                }
+                if (!flushRequested) {
+                    try {
+                        flushLock.wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+            }
+
+            // Позиция читается до force: все записи до нее уже в буфере текущего
+            // (или уже сброшенного при переключении) сегмента
+            long target = writePosition;
+            currentSegment.force();
+
+            synchronized (flushLock) {
+                if (target > durablePosition) {
+                    durablePosition = target;
+                }
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Перейти на новый сегмент. Старый сбрасывается на диск сразу.
+     */
+    private void roll() {
+        try {
+            segment.force();
+            openSegment(segmentStart + segmentSize, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll WAL segment", e);
+        }
+    }
+
+    private void openSegment(long start, int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(start),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            mapped.position(position);
+            this.segment = mapped;
+            this.segmentStart = start;
+            this.currentSegment = mapped;
+            this.writePosition = start + position;
+        }
+    }
+
+    private void recover(long fromLsn, RecordHandler handler) throws IOException {
+        List<Long> segments = listSegments();
+        long records = 0;
+
+        for (int i = 0; i < segments.size(); i++) {
+            long start = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            if (start + segmentSize <= fromLsn && !last) {
+                continue; // сегмент целиком покрыт снимком
+            }
+
+            openSegment(start, 0);
+            int position = (int) Math.max(0, Math.min(fromLsn - start, segmentSize));
+            segment.position(position);
+
+            boolean torn = false;
+            while (segment.remaining() >= HEADER) {
+                int recordStart = segment.position();
+                int length = segment.getInt();
+                if (length == 0) {
+                    segment.position(recordStart);
+                    break;
+                }
+                int expectedCrc = segment.getInt();
+                if (length < 0 || length > segment.remaining()) {
+                    segment.position(recordStart);
+                    torn = true;
+                    break;
+                }
+                ByteBuffer record = segment.slice(segment.position(), length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != expectedCrc) {
+                    segment.position(recordStart);
+                    torn = true;
+                    break;
+                }
+                segment.position(segment.position() + length);
+                if (start + recordStart >= fromLsn) {
+                    handler.apply(record.get(), record);
+                    records++;
+                }
+            }
+
+            if (torn) {
+                // Недописанная запись (сбой во время записи) - конец журнала.
+                // Хвост обнуляется, более поздние сегменты отбрасываются.
+                int tail = segment.position();
+                byte[] zeros = new byte[8192];
+                while (segment.hasRemaining()) {
+                    segment.put(zeros, 0, Math.min(zeros.length, segment.remaining()));
+                }
+                segment.position(tail);
+                for (int j = i + 1; j < segments.size(); j++) {
+                    Files.deleteIfExists(segmentPath(segments.get(j)));
+                }
+                log.warn("WAL truncated at position {} (incomplete record)", start + tail);
+                this.writePosition = start + tail;
+                log.info("WAL recovered: {} records replayed", records);
+                return;
+            }
+            this.writePosition = start + segment.position();
+        }
+
+        if (segment == null) {
+            // Журнал пуст: первый сегмент начинается с позиции снимка
+            openSegment(fromLsn, 0);
+        }
+        log.info("WAL recovered: {} records replayed, position {}", records, writePosition);
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> starts.add(Long.parseLong(
+                            name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        starts.sort(null);
+        return starts;
+    }
+
+    private Path segmentPath(long start) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, start, SUFFIX));
+    }
+}
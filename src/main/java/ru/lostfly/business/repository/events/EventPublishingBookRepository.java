@@ -0,0 +1,85 @@
+package ru.lostfly.business.repository.events;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.events.DomainEventBus;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор над {@link BookRepository}: после успешного сохранения книги
+ * публикует {@link ru.lostfly.business.events.EventType#BOOK_SAVED}.
+ * Остальные методы передаются без изменений (addCopies события не публикует).
+ */
+public class EventPublishingBookRepository implements BookRepository {
+
+    private final BookRepository delegate;
+    private final DomainEventBus events;
+
+    public EventPublishingBookRepository(BookRepository delegate, DomainEventBus events) {
+        this.delegate = delegate;
+        this.events = events;
+    }
+
+    @Override
+    public void save(Book book) {
+        delegate.save(book);
+        events.publishBookSaved(book);
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        delegate.saveAll(books);
+        for (Book book : books) {
+            events.publishBookSaved(book);
+        }
+    }
+
+    @Override
+    public Book findByIsbn(String isbn) {
+        return delegate.findByIsbn(isbn);
+    }
+
+    @Override
+    public List<Book> findAvailableBooks() {
+        return delegate.findAvailableBooks();
+    }
+
+    @Override
+    public Page<Book> findAvailableBooks(PageRequest page) {
+        return delegate.findAvailableBooks(page);
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        return delegate.findByAuthor(author);
+    }
+
+    @Override
+    public Page<Book> findByAuthor(String author, PageRequest page) {
+        return delegate.findByAuthor(author, page);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+
+    @Override
+    public boolean addCopies(String isbn, int count) {
+        return delegate.addCopies(isbn, count);
+    }
+
+    @Override
+    public List<Book> findMostRead(int limit) {
+        return delegate.findMostRead(limit);
+    }
+
+    @Override
+    public int getTotalBooks() {
+        return delegate.getTotalBooks();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.lostfly.business.repository.events;
+
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.events.DomainEventBus;
+import ru.lostfly.business.repository.ReaderRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор над {@link ReaderRepository}: после успешного сохранения читателя
+ * публикует {@link ru.lostfly.business.events.EventType#READER_SAVED}.
+ */
+public class EventPublishingReaderRepository implements ReaderRepository {
+
+    private final ReaderRepository delegate;
+    private final DomainEventBus events;
+
+    public EventPublishingReaderRepository(ReaderRepository delegate, DomainEventBus events) {
+        this.delegate = delegate;
+        this.events = events;
+    }
+
+    @Override
+    public void save(Reader reader) {
+        delegate.save(reader);
+        events.publishReaderSaved(reader);
+    }
+
+    @Override
+    public void saveAll(Collection<Reader> readers) {
+        delegate.saveAll(readers);
+        for (Reader reader : readers) {
+            events.publishReaderSaved(reader);
+        }
+    }
+
+    @Override
+    public Reader findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Reader> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Reader> findPage(String afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public int getTotalReaders() {
+        return delegate.getTotalReaders();
+    }
+}
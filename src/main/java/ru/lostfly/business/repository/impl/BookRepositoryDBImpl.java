@@ -4,36 +4,83 @@ import lombok.extern.slf4j.Slf4j;
 import ru.lostfly.config.DatabaseConnection;
 import ru.lostfly.business.domain.book.Book;
 import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+import ru.lostfly.business.search.SearchRanking;
+import ru.lostfly.business.search.SearchTokens;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @Slf4j
 public class BookRepositoryDBImpl implements BookRepository {
 
-    @Override
-    public void save(Book book) {
-        String sql = "INSERT INTO books (isbn, title, author, genre, is_available, times_read) " +
-                "VALUES (?, ?, ?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE " +
-                "title = VALUES(title), " +
-                "author = VALUES(author), " +
-                "genre = VALUES(genre), " +
-                "is_available = VALUES(is_available), " +
-                "times_read = VALUES(times_read)";
+    // Для существующего ISBN обновляются только описательные колонки: счетчики
+    // экземпляров, доступности и прочтений меняют только addCopies и выдачи
+    // (LoanRepositoryDBImpl), иначе повторный /add_book или импорт сбросил бы
+    // их и разошелся с book_copies/borrowed_books
+    private static final String UPSERT_SQL = "INSERT INTO books " +
+            "(isbn, title, author, genre, is_available, times_read, copies, available_copies) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "title = VALUES(title), " +
+            "author = VALUES(author), " +
+            "genre = VALUES(genre)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    // Строки экземпляров: уже заведенные (и, возможно, выданные) не трогаются,
+    // номера больше books.copies не заводятся - для существующей книги сохранение
+    // с другим числом экземпляров строк не добавит
+    private static final String INSERT_COPY_SQL =
+            "INSERT IGNORE INTO book_copies (book_isbn, copy_no, is_available) " +
+            "SELECT isbn, ?, ? FROM books WHERE isbn = ? AND copies >= ?";
+
+    private static final String ADD_COPIES_SQL =
+            "UPDATE books SET copies = copies + ?, available_copies = available_copies + ?, is_available = TRUE " +
+            "WHERE isbn = ?";
+
+    private static final String COPIES_SQL = "SELECT copies FROM books WHERE isbn = ?";
 
-            stmt.setString(1, book.getIsbn());
-            stmt.setString(2, book.getTitle());
-            stmt.setString(3, book.getAuthor());
-            stmt.setString(4, null); // genre - пока null, так как в Book нет геттера для genre
-            stmt.setBoolean(5, book.isAvailable());
-            stmt.setInt(6, book.getTimesRead());
+    private static final String BOOK_COLUMNS = "isbn, title, author, genre, is_available, times_read, " +
+            "copies, available_copies";
 
-            int rowsAffected = stmt.executeUpdate();
+    // Сколько строк отправлять одним executeBatch (и коммитить одной транзакцией)
+    private static final int BATCH_SIZE = 1000;
+
+    // innodb_ft_min_token_size по умолчанию: более короткие слова FULLTEXT не индексирует
+    private static final int FULLTEXT_MIN_TOKEN = 3;
+
+    // ON DUPLICATE KEY UPDATE: 1 - строка вставлена, 2 - обновлена, 0 - не изменилась
+    private static final int ROW_INSERTED = 1;
+
+    private final CachedCount totalBooks = new CachedCount();
+
+    @Override
+    public void save(Book book) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL);
+             PreparedStatement copyStmt = conn.prepareStatement(INSERT_COPY_SQL)) {
+
+            conn.setAutoCommit(false);
+            int rowsAffected;
+            try {
+                bindBook(stmt, book);
+                rowsAffected = stmt.executeUpdate();
+                addCopyRows(copyStmt, book.getIsbn(), 1, book.getCopies(), book.getAvailableCopies());
+                copyStmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            DatabaseConnection.recordWrite();
+            if (rowsAffected == ROW_INSERTED) {
+                totalBooks.added(1);
+            }
             log.info("Book saved/updated: {}, rows affected: {}", book.getIsbn(), rowsAffected);
 
         } catch (SQLException e) {
@@ -42,10 +89,63 @@ public class BookRepositoryDBImpl implements BookRepository {
         }
     }
 
+    /**
+     * Пакетное сохранение: строки отправляются пачками по BATCH_SIZE через
+     * addBatch/executeBatch. С rewriteBatchedStatements=true драйвер склеивает
+     * пачку в один многострочный INSERT - один round trip на 1000 книг.
+     * Строки экземпляров идут второй пачкой в той же транзакции.
+     */
+    @Override
+    public void saveAll(Collection<Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL);
+             PreparedStatement copyStmt = conn.prepareStatement(INSERT_COPY_SQL)) {
+
+            conn.setAutoCommit(false);
+            try {
+                int pending = 0;
+                for (Book book : books) {
+                    bindBook(stmt, book);
+                    stmt.addBatch();
+                    addCopyRows(copyStmt, book.getIsbn(), 1, book.getCopies(), book.getAvailableCopies());
+                    if (++pending == BATCH_SIZE) {
+                        countInserted(stmt.executeBatch());
+                        copyStmt.executeBatch();
+                        conn.commit();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    countInserted(stmt.executeBatch());
+                    copyStmt.executeBatch();
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                // Часть пачек могла быть закоммичена - пересчитать
+                totalBooks.invalidate();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            DatabaseConnection.recordWrite();
+            log.info("Books saved in batch: {}", books.size());
+
+        } catch (SQLException e) {
+            log.error("Error saving {} books in batch", books.size(), e);
+            throw new RuntimeException("Failed to save books", e);
+        }
+    }
+
     @Override
     public Book findByIsbn(String isbn) {
-        String sql = "SELECT isbn, title, author, genre, is_available, times_read FROM books WHERE isbn = ?";
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books WHERE isbn = ?";
 
+        // Основной пул: по найденной книге принимаются решения о выдаче и возврате
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
@@ -67,10 +167,10 @@ public class BookRepositoryDBImpl implements BookRepository {
 
     @Override
     public List<Book> findAvailableBooks() {
-        String sql = "SELECT isbn, title, author, genre, is_available, times_read FROM books WHERE is_available = TRUE";
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books WHERE is_available = TRUE";
         List<Book> books = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -87,20 +187,64 @@ public class BookRepositoryDBImpl implements BookRepository {
         }
     }
 
+    /**
+     * Страница доступных книг по ключу: WHERE isbn > курсор ORDER BY isbn LIMIT n+1.
+     * Индекс idx_books_available_isbn позволяет читать только строки страницы.
+     */
+    @Override
+    public Page<Book> findAvailableBooks(PageRequest page) {
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books " +
+                "WHERE is_available = TRUE AND " + keysetCondition(page);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            bindKeyset(stmt, 1, page);
+            List<Book> rows = new ArrayList<>(page.getSize() + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapResultSetToBook(rs));
+                }
+            }
+            return toPage(rows, page);
+
+        } catch (SQLException e) {
+            log.error("Error finding available books page", e);
+            throw new RuntimeException("Failed to find available books", e);
+        }
+    }
+
+    /**
+     * Поиск по автору через FULLTEXT-индекс ft_books_author вместо
+     * LIKE '%...%' (который всегда читает всю таблицу).
+     * Слова короче FULLTEXT_MIN_TOKEN индекс не хранит - они ищутся через LIKE.
+     * Индекс может вернуть лишнее (стоп-слова MySQL не индексирует, LIKE находит и середину слова),
+     * поэтому строки дополнительно проверяются теми же правилами, что и в in-memory режиме.
+     */
     @Override
     public List<Book> findByAuthor(String author) {
-        String sql = "SELECT isbn, title, author, genre, is_available, times_read FROM books " +
-                "WHERE LOWER(author) LIKE LOWER(?)";
+        List<String> queryTokens = SearchTokens.tokenize(author);
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String booleanQuery = toBooleanQuery(queryTokens);
+        List<String> shortTokens = shortTokens(queryTokens);
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books " +
+                "WHERE " + textCondition("author", "author", booleanQuery, shortTokens);
         List<Book> books = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, "%" + author + "%");
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                books.add(mapResultSetToBook(rs));
+            bindText(stmt, 1, booleanQuery, shortTokens);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Book book = mapResultSetToBook(rs);
+                    if (SearchRanking.matchesAuthor(queryTokens, book)) {
+                        books.add(book);
+                    }
+                }
             }
 
             log.debug("Found {} books by author: {}", books.size(), author);
@@ -112,10 +256,215 @@ public class BookRepositoryDBImpl implements BookRepository {
         }
     }
 
+    /**
+     * Страница книг автора: FULLTEXT-поиск (и LIKE для коротких слов) + курсор по ISBN.
+     * Строки, которые запрос вернул лишними, отсеиваются после LIMIT, поэтому
+     * запрос повторяется с курсором после последней прочитанной строки, пока
+     * не наберется страница с одной строкой сверху (или строки не кончатся).
+     */
+    @Override
+    public Page<Book> findByAuthor(String author, PageRequest page) {
+        List<String> queryTokens = SearchTokens.tokenize(author);
+        if (queryTokens.isEmpty()) {
+            return new Page<>(new ArrayList<>(), false, false);
+        }
+        String booleanQuery = toBooleanQuery(queryTokens);
+        List<String> shortTokens = shortTokens(queryTokens);
+
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books " +
+                "WHERE " + textCondition("author", "author", booleanQuery, shortTokens) +
+                " AND " + keysetCondition(page);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            List<Book> matched = new ArrayList<>(page.getSize() + 1);
+            PageRequest batch = page;
+            boolean exhausted = false;
+            while (matched.size() <= page.getSize() && !exhausted) {
+                int index = bindText(stmt, 1, booleanQuery, shortTokens);
+                bindKeyset(stmt, index, batch);
+                int rows = 0;
+                String last = null;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (matched.size() <= page.getSize() && rs.next()) {
+                        rows++;
+                        Book book = mapResultSetToBook(rs);
+                        last = book.getIsbn();
+                        if (SearchRanking.matchesAuthor(queryTokens, book)) {
+                            matched.add(book);
+                        }
+                    }
+                }
+                exhausted = rows < batch.getSize() + 1;
+                if (last != null) {
+                    batch = page.getDirection() == PageRequest.Direction.BEFORE
+                            ? PageRequest.before(last, page.getSize())
+                            : PageRequest.after(last, page.getSize());
+                }
+            }
+            return toPage(matched, page);
+
+        } catch (SQLException e) {
+            log.error("Error finding books page by author: {}", author, e);
+            throw new RuntimeException("Failed to find books by author", e);
+        }
+    }
+
+    /**
+     * Поиск по названию и автору через FULLTEXT-индекс ft_books_title_author,
+     * результаты отсортированы по релевантности MySQL.
+     * Короткие слова ищутся через LIKE; лишние строки отсеиваются правилами in-memory режима,
+     * и если после этого результатов меньше limit, запрос повторяется с большим LIMIT.
+     */
+    @Override
+    public List<Book> search(String query, int limit) {
+        List<String> queryTokens = SearchTokens.tokenize(query);
+        String booleanQuery = toBooleanQuery(queryTokens);
+        List<String> shortTokens = shortTokens(queryTokens);
+        List<Book> books = new ArrayList<>();
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return books;
+        }
+
+        String relevance = booleanQuery.isEmpty() ? "0" : "MATCH(title, author) AGAINST (? IN BOOLEAN MODE)";
+        String sql = "SELECT " + BOOK_COLUMNS + ", " + relevance + " AS relevance " +
+                "FROM books WHERE " + textCondition("title, author", "CONCAT_WS(' ', title, author)",
+                booleanQuery, shortTokens) +
+                " ORDER BY relevance DESC, times_read DESC LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int fetch = limit;
+            while (true) {
+                int index = 1;
+                if (!booleanQuery.isEmpty()) {
+                    stmt.setString(index++, booleanQuery);
+                }
+                index = bindText(stmt, index, booleanQuery, shortTokens);
+                stmt.setInt(index, fetch);
+
+                books.clear();
+                int rows = 0;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (books.size() < limit && rs.next()) {
+                        rows++;
+                        Book book = mapResultSetToBook(rs);
+                        if (shortTokens.isEmpty() || SearchRanking.score(queryTokens, book) > 0) {
+                            books.add(book);
+                        }
+                    }
+                }
+                if (books.size() >= limit || rows < fetch) {
+                    break;
+                }
+                fetch = fetch > Integer.MAX_VALUE / 4 ? Integer.MAX_VALUE : fetch * 4;
+            }
+
+            log.debug("Found {} books for query: {}", books.size(), query);
+            return books;
+
+        } catch (SQLException e) {
+            log.error("Error searching books: {}", query, e);
+            throw new RuntimeException("Failed to search books", e);
+        }
+    }
+
+    /**
+     * Самые читаемые книги по индексу idx_books_times_read (обратный проход, без сортировки)
+     */
+    @Override
+    public List<Book> findMostRead(int limit) {
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books " +
+                "ORDER BY times_read DESC LIMIT ?";
+        List<Book> books = new ArrayList<>();
+        if (limit <= 0) {
+            return books;
+        }
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    books.add(mapResultSetToBook(rs));
+                }
+            }
+            return books;
+
+        } catch (SQLException e) {
+            log.error("Error finding most read books", e);
+            throw new RuntimeException("Failed to find most read books", e);
+        }
+    }
+
+    /**
+     * Счетчики и новые строки экземпляров - одной транзакцией; номера новых
+     * экземпляров продолжают уже заведенные
+     */
+    @Override
+    public boolean addCopies(String isbn, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(ADD_COPIES_SQL)) {
+                    stmt.setInt(1, count);
+                    stmt.setInt(2, count);
+                    stmt.setString(3, isbn);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+
+                int copies;
+                try (PreparedStatement stmt = conn.prepareStatement(COPIES_SQL)) {
+                    stmt.setString(1, isbn);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        copies = rs.getInt("copies");
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_COPY_SQL)) {
+                    int first = copies - count + 1;
+                    addCopyRows(stmt, isbn, first, copies, copies);
+                    stmt.executeBatch();
+                }
+                conn.commit();
+                DatabaseConnection.recordWrite();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            log.info("Added {} copies of book {}", count, isbn);
+            return true;
+
+        } catch (SQLException e) {
+            log.error("Error adding copies of book: {}", isbn, e);
+            throw new RuntimeException("Failed to add book copies", e);
+        }
+    }
+
+    /**
+     * COUNT(*) выполняется один раз, дальше счетчик поправляется при вставках
+     */
     @Override
     public int getTotalBooks() {
+        return totalBooks.get(this::countBooks);
+    }
+
+    private int countBooks() {
         String sql = "SELECT COUNT(*) as total FROM books";
 
+        // Основной пул: дальше счетчик только поправляется, отставание реплики осталось бы в нем навсегда
         try (Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
@@ -131,6 +480,152 @@ public class BookRepositoryDBImpl implements BookRepository {
         }
     }
 
+    /**
+     * Учесть результат executeBatch в счетчике книг
+     */
+    private void countInserted(int[] results) {
+        int inserted = 0;
+        for (int rows : results) {
+            if (rows < 0) {
+                // Драйвер склеил пачку и не знает, какие строки новые
+                totalBooks.invalidate();
+                return;
+            }
+            if (rows == ROW_INSERTED) {
+                inserted++;
+            }
+        }
+        totalBooks.added(inserted);
+    }
+
+    private void bindBook(PreparedStatement stmt, Book book) throws SQLException {
+        stmt.setString(1, book.getIsbn());
+        stmt.setString(2, book.getTitle());
+        stmt.setString(3, book.getAuthor());
+        stmt.setString(4, book.getGenre());
+        stmt.setBoolean(5, book.isAvailable());
+        stmt.setInt(6, book.getTimesRead());
+        stmt.setInt(7, book.getCopies());
+        stmt.setInt(8, book.getAvailableCopies());
+    }
+
+    /**
+     * Добавить в пачку строки экземпляров с номерами from..to;
+     * свободными помечаются номера не больше available
+     */
+    private static void addCopyRows(PreparedStatement stmt, String isbn, int from, int to, int available)
+            throws SQLException {
+        for (int copyNo = from; copyNo <= to; copyNo++) {
+            stmt.setInt(1, copyNo);
+            stmt.setBoolean(2, copyNo <= available);
+            stmt.setString(3, isbn);
+            stmt.setInt(4, copyNo);
+            stmt.addBatch();
+        }
+    }
+
+    /**
+     * Условие курсора с сортировкой и лимитом (на одну строку больше страницы -
+     * по ней видно, есть ли что-то дальше)
+     */
+    private static String keysetCondition(PageRequest page) {
+        boolean before = page.getDirection() == PageRequest.Direction.BEFORE;
+        String condition = page.getCursor() == null ? "TRUE" : (before ? "isbn < ?" : "isbn > ?");
+        return condition + (before ? " ORDER BY isbn DESC LIMIT ?" : " ORDER BY isbn LIMIT ?");
+    }
+
+    private static void bindKeyset(PreparedStatement stmt, int index, PageRequest page) throws SQLException {
+        if (page.getCursor() != null) {
+            stmt.setString(index++, page.getCursor());
+        }
+        stmt.setInt(index, page.getSize() + 1);
+    }
+
+    /**
+     * Собрать страницу из строк keyset-запроса (до size + 1 строк в порядке запроса).
+     * Соседняя страница со стороны курсора считается существующей, если курсор задан.
+     */
+    private static Page<Book> toPage(List<Book> rows, PageRequest page) {
+        boolean more = rows.size() > page.getSize();
+        List<Book> items = more ? new ArrayList<>(rows.subList(0, page.getSize())) : rows;
+
+        boolean cursorSet = page.getCursor() != null;
+        if (page.getDirection() == PageRequest.Direction.BEFORE) {
+            Collections.reverse(items);
+            return new Page<>(items, cursorSet, more);
+        }
+        return new Page<>(items, more, cursorSet);
+    }
+
+    /**
+     * Запрос FULLTEXT в BOOLEAN MODE: каждое слово обязательно (+) и ищется по префиксу (*).
+     * Токены содержат только буквы и цифры, поэтому спецсимволы синтаксиса в запрос не попадут.
+     * Слова короче FULLTEXT_MIN_TOKEN сюда не входят - см. {@link #shortTokens}.
+     * @return пустая строка, если все слова короче FULLTEXT_MIN_TOKEN
+     */
+    private static String toBooleanQuery(List<String> tokens) {
+        StringBuilder query = new StringBuilder();
+        for (String token : tokens) {
+            if (token.length() >= FULLTEXT_MIN_TOKEN) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append('+').append(token).append('*');
+            }
+        }
+        return query.toString();
+    }
+
+    /**
+     * Слова короче FULLTEXT_MIN_TOKEN: индекс их не хранит, и MATCH по ним ничего не найдет
+     */
+    private static List<String> shortTokens(List<String> tokens) {
+        List<String> result = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (token.length() < FULLTEXT_MIN_TOKEN) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Условие WHERE для слов запроса: длинные - через MATCH, каждое короткое - через LIKE по подстроке.
+     * LIKE находит и середину слова, поэтому вызывающий перепроверяет строки по SearchRanking.
+     * @param matchColumns столбцы FULLTEXT-индекса
+     * @param likeExpression выражение SQL с текстом тех же столбцов
+     */
+    private static String textCondition(String matchColumns, String likeExpression,
+                                        String booleanQuery, List<String> shortTokens) {
+        StringBuilder condition = new StringBuilder();
+        if (!booleanQuery.isEmpty()) {
+            condition.append("MATCH(").append(matchColumns).append(") AGAINST (? IN BOOLEAN MODE)");
+        }
+        for (int i = 0; i < shortTokens.size(); i++) {
+            if (condition.length() > 0) {
+                condition.append(" AND ");
+            }
+            condition.append("LOWER(").append(likeExpression).append(") LIKE ?");
+        }
+        return condition.toString();
+    }
+
+    /**
+     * Параметры условия {@link #textCondition}; токены содержат только буквы и цифры,
+     * поэтому % и _ в шаблон LIKE не попадут
+     * @return индекс следующего параметра
+     */
+    private static int bindText(PreparedStatement stmt, int index, String booleanQuery,
+                                List<String> shortTokens) throws SQLException {
+        if (!booleanQuery.isEmpty()) {
+            stmt.setString(index++, booleanQuery);
+        }
+        for (String token : shortTokens) {
+            stmt.setString(index++, "%" + token + "%");
+        }
+        return index;
+    }
+
     /**
      * Вспомогательный метод для маппинга ResultSet в объект Book
      */
@@ -141,7 +636,7 @@ public class BookRepositoryDBImpl implements BookRepository {
         String genre = rs.getString("genre");
 
         Book book = new Book(isbn, title, author, genre);
-        book.setAvailable(rs.getBoolean("is_available"));
+        book.setCopies(rs.getInt("copies"), rs.getInt("available_copies"));
         book.setTimesRead(rs.getInt("times_read"));
 
         return book;
@@ -2,9 +2,15 @@ package ru.lostfly.business.repository.impl;
 
 import ru.lostfly.business.domain.book.Book;
 import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+import ru.lostfly.business.search.SearchRanking;
+import ru.lostfly.business.search.SearchTokens;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.TreeMap;
 
 public class BookRepositoryImpl implements BookRepository {
     private final List<Book> books = new ArrayList<>();
@@ -13,6 +19,10 @@ public class BookRepositoryImpl implements BookRepository {
         books.add(book);
     }
 
+    public void saveAll(Collection<Book> books) {
+        this.books.addAll(books);
+    }
+
     public Book findByIsbn(String isbn) {
         for (Book book : books) {  // for-each
             if (book.getIsbn().equals(isbn)) {  // equals для String!
@@ -33,18 +43,69 @@ public class BookRepositoryImpl implements BookRepository {
         return available;
     }
 
+    public Page<Book> findAvailableBooks(PageRequest page) {
+        return Page.of(sortedByIsbn(findAvailableBooks()), page);
+    }
+
     public List<Book> findByAuthor(String author) {
+        List<String> queryTokens = SearchTokens.tokenize(author);
         List<Book> result = new ArrayList<>();
         for (Book book : books) {
-            if (book.getAuthor().equalsIgnoreCase(author)) {  // игнорируем регистр
+            if (SearchRanking.matchesAuthor(queryTokens, book)) {  // по началу слов, без учета регистра
                 result.add(book);
             }
         }
         return result;
     }
 
+    public Page<Book> findByAuthor(String author, PageRequest page) {
+        return Page.of(sortedByIsbn(findByAuthor(author)), page);
+    }
+
+    public List<Book> search(String query, int limit) {
+        List<String> queryTokens = SearchTokens.tokenize(query);
+        List<SearchRanking.Scored> found = new ArrayList<>();
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        for (Book book : books) {
+            int score = SearchRanking.score(queryTokens, book);
+            if (score > 0) {
+                found.add(new SearchRanking.Scored(book, score));
+            }
+        }
+        found.sort(SearchRanking.ORDER);
+
+        List<Book> result = new ArrayList<>(Math.min(limit, found.size()));
+        for (int i = 0; i < found.size() && i < limit; i++) {
+            result.add(found.get(i).getBook());
+        }
+        return result;
+    }
+
+
+    public boolean addCopies(String isbn, int count) {
+        Book book = findByIsbn(isbn);
+        if (book == null) {
+            return false;
+        }
+        book.addCopies(count);
+        return true;
+    }
+
+    public List<Book> findMostRead(int limit) {
+        return MostRead.select(books, limit);
+    }
 
     public int getTotalBooks() {
         return books.size();
     }
+
+    private static TreeMap<String, Book> sortedByIsbn(List<Book> found) {
+        TreeMap<String, Book> sorted = new TreeMap<>();
+        for (Book book : found) {
+            sorted.put(book.getIsbn(), book);
+        }
+        return sorted;
+    }
 }
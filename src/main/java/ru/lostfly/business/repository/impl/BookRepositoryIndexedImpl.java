@@ -0,0 +1,242 @@
+package ru.lostfly.business.repository.impl;
+
+import ru.lostfly.business.domain.book.AvailabilityListener;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.book.LibItem;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+import ru.lostfly.business.search.SearchRanking;
+import ru.lostfly.business.search.SearchTokens;
+import ru.lostfly.business.search.TokenIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory хранилище книг с индексами.
+ * <p>
+ * В отличие от {@link BookRepositoryImpl}, который перебирает весь список,
+ * здесь каждая операция работает за O(1) или O(размер результата):
+ * <ul>
+ *     <li>первичный хеш-индекс ISBN -> книга;</li>
+ *     <li>инвертированные индексы слов автора и названия (поиск по префиксу);</li>
+ *     <li>отсортированное по ISBN множество доступных книг, которое обновляется
+ *     при изменении доступности (страница читается за O(log n + размер страницы)).</li>
+ * </ul>
+ * Выдача и возврат могут идти из нескольких потоков одновременно: множество
+ * доступных книг - конкурентная skip-list карта, которую меняют уведомления книг.
+ */
+public class BookRepositoryIndexedImpl implements BookRepository, AvailabilityListener {
+
+    // Первичный индекс: ISBN -> книга (порядок вставки сохраняется)
+    private final Map<String, Book> booksByIsbn = new LinkedHashMap<>();
+    // Инвертированные индексы: слово -> ISBN
+    private final TokenIndex authorIndex = new TokenIndex();
+    private final TokenIndex titleIndex = new TokenIndex();
+    // Текст, под которым книга проиндексирована: ISBN -> {название, автор}
+    // (нужен для переиндексации, если книгу изменили и сохранили заново)
+    private final Map<String, String[]> indexedText = new HashMap<>();
+    // Доступные книги: ISBN -> книга, по возрастанию ISBN
+    private final NavigableMap<String, Book> availableBooks = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void save(Book book) {
+        String isbn = book.getIsbn();
+        Book previous = booksByIsbn.put(isbn, book);
+        if (previous != null) {
+            unindex(previous);
+        }
+
+        authorIndex.add(isbn, SearchTokens.tokenize(book.getAuthor()));
+        titleIndex.add(isbn, SearchTokens.tokenize(book.getTitle()));
+        indexedText.put(isbn, new String[]{book.getTitle(), book.getAuthor()});
+
+        if (book.isAvailable()) {
+            availableBooks.put(isbn, book);
+        }
+        book.setAvailabilityListener(this);
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        for (Book book : books) {
+            save(book);
+        }
+    }
+
+    @Override
+    public Book findByIsbn(String isbn) {
+        return booksByIsbn.get(isbn);
+    }
+
+    /**
+     * Все книги в порядке добавления
+     */
+    public List<Book> findAll() {
+        return new ArrayList<>(booksByIsbn.values());
+    }
+
+    @Override
+    public List<Book> findAvailableBooks() {
+        return new ArrayList<>(availableBooks.values());
+    }
+
+    @Override
+    public Page<Book> findAvailableBooks(PageRequest page) {
+        return Page.of(availableBooks, page);
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        List<String> queryTokens = SearchTokens.tokenize(author);
+        List<Book> result = new ArrayList<>();
+        if (queryTokens.isEmpty()) {
+            return result;
+        }
+
+        // Кандидаты - по самому редкому слову запроса, остальные слова проверяются на кандидатах
+        String rarest = queryTokens.get(0);
+        long rarestCount = Long.MAX_VALUE;
+        for (String token : queryTokens) {
+            long count = authorIndex.countPrefix(token);
+            if (count < rarestCount) {
+                rarest = token;
+                rarestCount = count;
+            }
+        }
+
+        Set<String> candidates = new HashSet<>();
+        authorIndex.collectPrefix(rarest, candidates);
+        for (String isbn : candidates) {
+            Book book = booksByIsbn.get(isbn);
+            if (SearchRanking.matchesAuthor(queryTokens, book)) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Page<Book> findByAuthor(String author, PageRequest page) {
+        NavigableMap<String, Book> sorted = new TreeMap<>();
+        for (Book book : findByAuthor(author)) {
+            sorted.put(book.getIsbn(), book);
+        }
+        return Page.of(sorted, page);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        List<String> queryTokens = SearchTokens.tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String rarest = queryTokens.get(0);
+        long rarestCount = Long.MAX_VALUE;
+        for (String token : queryTokens) {
+            long count = titleIndex.countPrefix(token) + authorIndex.countPrefix(token);
+            if (count < rarestCount) {
+                rarest = token;
+                rarestCount = count;
+            }
+        }
+
+        Set<String> candidates = new HashSet<>();
+        titleIndex.collectPrefix(rarest, candidates);
+        authorIndex.collectPrefix(rarest, candidates);
+
+        // Top-N через кучу размера limit: худший из лучших - в вершине
+        PriorityQueue<SearchRanking.Scored> top = new PriorityQueue<>(limit + 1, SearchRanking.ORDER.reversed());
+        for (String isbn : candidates) {
+            Book book = booksByIsbn.get(isbn);
+            int score = SearchRanking.score(queryTokens, book);
+            if (score > 0) {
+                top.add(new SearchRanking.Scored(book, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+
+        List<SearchRanking.Scored> ranked = new ArrayList<>(top);
+        ranked.sort(SearchRanking.ORDER);
+        List<Book> result = new ArrayList<>(ranked.size());
+        for (SearchRanking.Scored scored : ranked) {
+            result.add(scored.getBook());
+        }
+        return result;
+    }
+
+    /**
+     * Множество доступных книг обновится уведомлением книги, если у нее не было свободных экземпляров
+     */
+    @Override
+    public boolean addCopies(String isbn, int count) {
+        Book book = booksByIsbn.get(isbn);
+        if (book == null) {
+            return false;
+        }
+        book.addCopies(count);
+        return true;
+    }
+
+    @Override
+    public List<Book> findMostRead(int limit) {
+        return MostRead.select(booksByIsbn.values(), limit);
+    }
+
+    @Override
+    public int getTotalBooks() {
+        return booksByIsbn.size();
+    }
+
+    /**
+     * Книга сообщила о смене доступности - обновляем множество доступных.
+     */
+    @Override
+    public void onAvailabilityChanged(LibItem item, boolean available) {
+        Book book = booksByIsbn.get(item.getIsbn());
+        if (book != item) {
+            return; // книгу уже заменили другой записью с тем же ISBN
+        }
+        // Уведомления одновременных выдачи и возврата могут прийти не в порядке CAS,
+        // поэтому записывается текущее состояние книги, а не значение из уведомления.
+        // Без блокировки: если состояние сменилось, пока шла запись, она повторяется -
+        // последняя запись в множество всегда сделана по актуальному состоянию
+        boolean current;
+        do {
+            current = book.isAvailable();
+            if (current) {
+                availableBooks.put(book.getIsbn(), book);
+            } else {
+                availableBooks.remove(book.getIsbn());
+            }
+        } while (book.isAvailable() != current);
+    }
+
+    /**
+     * Удалить старую запись из вторичных индексов при перезаписи книги
+     */
+    private void unindex(Book previous) {
+        String isbn = previous.getIsbn();
+        String[] text = indexedText.remove(isbn);
+        if (text != null) {
+            titleIndex.remove(isbn, SearchTokens.tokenize(text[0]));
+            authorIndex.remove(isbn, SearchTokens.tokenize(text[1]));
+        }
+        availableBooks.remove(isbn);
+        previous.setAvailabilityListener(null);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.lostfly.business.repository.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Закэшированный COUNT(*) таблицы: считается запросом один раз,
+ * дальше поправляется при вставках вместо пересчета.
+ * <p>
+ * Если число вставленных строк неизвестно (пакет с rewriteBatchedStatements
+ * возвращает SUCCESS_NO_INFO), значение сбрасывается и пересчитывается
+ * при следующем чтении. Строки приложение не удаляет; изменения таблицы
+ * в обход приложения становятся видны после перезапуска.
+ */
+final class CachedCount {
+
+    private static final int UNKNOWN = -1;
+
+    private final AtomicInteger value = new AtomicInteger(UNKNOWN);
+    // Номер изменения: пересчет, во время которого была вставка, не кэшируется
+    private final AtomicInteger version = new AtomicInteger();
+
+    /**
+     * @param count запрос COUNT(*), если значения нет
+     */
+    int get(IntSupplier count) {
+        int cached = value.get();
+        if (cached != UNKNOWN) {
+            return cached;
+        }
+        int before = version.get();
+        int counted = count.getAsInt();
+        if (version.get() == before) {
+            value.compareAndSet(UNKNOWN, counted);
+        }
+        return counted;
+    }
+
+    /**
+     * Вставлено rows новых строк
+     */
+    void added(int rows) {
+        version.incrementAndGet();
+        value.updateAndGet(current -> current == UNKNOWN ? UNKNOWN : current + rows);
+    }
+
+    /**
+     * Сколько строк вставлено - неизвестно
+     */
+    void invalidate() {
+        version.incrementAndGet();
+        value.set(UNKNOWN);
+    }
+}
@@ -0,0 +1,190 @@
+package ru.lostfly.business.repository.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.repository.HoldRepository;
+import ru.lostfly.config.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Очереди ожидания в MySQL (таблица holds).
+ * <p>
+ * Порядок в очереди - порядок id; голова очереди и позиция читаются
+ * по индексу (book_isbn, id) без сортировки. Голова забирается в одной
+ * транзакции с FOR UPDATE, поэтому два одновременных возврата
+ * не получат одного и того же читателя. {@link LoanRepositoryDBImpl} забирает
+ * голову в транзакции передачи книги ({@link #poll(Connection, String)}).
+ */
+@Slf4j
+public class HoldRepositoryDBImpl implements HoldRepository {
+
+    // Уникальный ключ (book_isbn, reader_id): повторная постановка ничего не вставит
+    private static final String INSERT_HOLD_SQL =
+            "INSERT IGNORE INTO holds (book_isbn, reader_id, chat_id) VALUES (?, ?, ?)";
+
+    private static final String POSITION_SQL =
+            "SELECT COUNT(*) FROM holds WHERE book_isbn = ? AND id <= ?";
+
+    private static final String HEAD_SQL =
+            "SELECT id, reader_id, chat_id FROM holds WHERE book_isbn = ? ORDER BY id LIMIT 1 FOR UPDATE";
+
+    private static final String DELETE_BY_ID_SQL = "DELETE FROM holds WHERE id = ?";
+
+    // Id меньше всех существующих (отрицательный, 0 AUTO_INCREMENT заменил бы новым):
+    // место встает первым в очереди своей книги
+    private static final String PUT_BACK_SQL =
+            "INSERT INTO holds (id, book_isbn, reader_id, chat_id) " +
+            "SELECT LEAST(COALESCE(MIN(id), 0), 0) - 1, ?, ?, ? FROM holds";
+
+    private static final String CANCEL_SQL = "DELETE FROM holds WHERE book_isbn = ? AND reader_id = ?";
+
+    private static final String LENGTH_SQL = "SELECT COUNT(*) FROM holds WHERE book_isbn = ?";
+
+    @Override
+    public int enqueue(Hold hold) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement insert = conn.prepareStatement(INSERT_HOLD_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, hold.getIsbn());
+            insert.setString(2, hold.getReaderId());
+            insert.setLong(3, hold.getChatId());
+            if (insert.executeUpdate() == 0) {
+                return 0;
+            }
+            DatabaseConnection.recordWrite();
+            long id;
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                keys.next();
+                id = keys.getLong(1);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(POSITION_SQL)) {
+                stmt.setString(1, hold.getIsbn());
+                stmt.setLong(2, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    log.info("Reader {} queued for book {}", hold.getReaderId(), hold.getIsbn());
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error queueing reader {} for book {}", hold.getReaderId(), hold.getIsbn(), e);
+            throw new RuntimeException("Failed to place hold", e);
+        }
+    }
+
+    @Override
+    public Hold poll(String isbn) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Hold head = poll(conn, isbn);
+                conn.commit();
+                if (head != null) {
+                    DatabaseConnection.recordWrite();
+                }
+                return head;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error taking next hold for book {}", isbn, e);
+            throw new RuntimeException("Failed to poll hold", e);
+        }
+    }
+
+    @Override
+    public void putBack(Hold hold) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                cancel(conn, hold.getIsbn(), hold.getReaderId());
+                try (PreparedStatement stmt = conn.prepareStatement(PUT_BACK_SQL)) {
+                    stmt.setString(1, hold.getIsbn());
+                    stmt.setString(2, hold.getReaderId());
+                    stmt.setLong(3, hold.getChatId());
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                DatabaseConnection.recordWrite();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error putting back hold of reader {} for book {}", hold.getReaderId(), hold.getIsbn(), e);
+            throw new RuntimeException("Failed to put back hold", e);
+        }
+    }
+
+    @Override
+    public boolean cancel(String isbn, String readerId) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean removed = cancel(conn, isbn, readerId);
+            if (removed) {
+                DatabaseConnection.recordWrite();
+            }
+            return removed;
+        } catch (SQLException e) {
+            log.error("Error cancelling hold of reader {} for book {}", readerId, isbn, e);
+            throw new RuntimeException("Failed to cancel hold", e);
+        }
+    }
+
+    @Override
+    public int queueLength(String isbn) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LENGTH_SQL)) {
+            stmt.setString(1, isbn);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            log.error("Error counting holds for book {}", isbn, e);
+            throw new RuntimeException("Failed to count holds", e);
+        }
+    }
+
+    /**
+     * Забрать голову очереди в транзакции соединения: строка блокируется
+     * до конца транзакции и удаляется (откат вернет место)
+     * @return место в очереди или null, если очередь пуста
+     */
+    static Hold poll(Connection conn, String isbn) throws SQLException {
+        Hold head = null;
+        long id = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(HEAD_SQL)) {
+            stmt.setString(1, isbn);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    id = rs.getLong("id");
+                    head = new Hold(isbn, rs.getString("reader_id"), rs.getLong("chat_id"));
+                }
+            }
+        }
+        if (head != null) {
+            try (PreparedStatement stmt = conn.prepareStatement(DELETE_BY_ID_SQL)) {
+                stmt.setLong(1, id);
+                stmt.executeUpdate();
+            }
+        }
+        return head;
+    }
+
+    private static boolean cancel(Connection conn, String isbn, String readerId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CANCEL_SQL)) {
+            stmt.setString(1, isbn);
+            stmt.setString(2, readerId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.lostfly.business.repository.impl;
+
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.repository.HoldRepository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Очереди ожидания в памяти.
+ * <p>
+ * Для каждой книги - LinkedHashMap по id читателя: порядок вставки дает FIFO,
+ * голова берется за O(1), повторная постановка и отмена - тоже O(1).
+ * Возврат места в начало пересобирает очередь книги (бывает редко).
+ * Каждая операция меняет очередь внутри compute, то есть под блокировкой
+ * только одной книги; пустые очереди удаляются, чтобы карта не росла.
+ */
+public class HoldRepositoryImpl implements HoldRepository {
+
+    private final Map<String, LinkedHashMap<String, Hold>> queues = new ConcurrentHashMap<>();
+
+    @Override
+    public int enqueue(Hold hold) {
+        int[] position = new int[1];
+        queues.compute(hold.getIsbn(), (isbn, queue) -> {
+            if (queue == null) {
+                queue = new LinkedHashMap<>();
+            }
+            if (queue.putIfAbsent(hold.getReaderId(), hold) == null) {
+                position[0] = queue.size();
+            }
+            return queue;
+        });
+        return position[0];
+    }
+
+    @Override
+    public Hold poll(String isbn) {
+        Hold[] head = new Hold[1];
+        queues.computeIfPresent(isbn, (key, queue) -> {
+            Iterator<Hold> iterator = queue.values().iterator();
+            head[0] = iterator.next();
+            iterator.remove();
+            return queue.isEmpty() ? null : queue;
+        });
+        return head[0];
+    }
+
+    @Override
+    public void putBack(Hold hold) {
+        queues.compute(hold.getIsbn(), (isbn, queue) -> {
+            LinkedHashMap<String, Hold> restored = new LinkedHashMap<>();
+            restored.put(hold.getReaderId(), hold);
+            if (queue != null) {
+                for (Hold queued : queue.values()) {
+                    restored.putIfAbsent(queued.getReaderId(), queued);
+                }
+            }
+            return restored;
+        });
+    }
+
+    @Override
+    public boolean cancel(String isbn, String readerId) {
+        boolean[] removed = new boolean[1];
+        queues.computeIfPresent(isbn, (key, queue) -> {
+            removed[0] = queue.remove(readerId) != null;
+            return queue.isEmpty() ? null : queue;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public int queueLength(String isbn) {
+        int[] length = new int[1];
+        queues.computeIfPresent(isbn, (key, queue) -> {
+            length[0] = queue.size();
+            return queue;
+        });
+        return length[0];
+    }
+}
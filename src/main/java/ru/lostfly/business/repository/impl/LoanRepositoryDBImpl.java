@@ -0,0 +1,468 @@
+package ru.lostfly.business.repository.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.domain.loan.Loan;
+import ru.lostfly.business.repository.HoldRepository;
+import ru.lostfly.business.repository.HoldTransfer;
+import ru.lostfly.business.repository.LoanRepository;
+import ru.lostfly.business.repository.LoanResult;
+import ru.lostfly.config.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Выдача и возврат книг в MySQL: одна транзакция на одном соединении.
+ * <p>
+ * Доступность издания - счетчик свободных экземпляров в строке books:
+ * выдача уменьшает его условным UPDATE (только пока он больше нуля), возврат
+ * увеличивает. Какой именно экземпляр выдан, записывается в borrowed_books.copy_id:
+ * свободный экземпляр берется по индексу (book_isbn, is_available) в той же
+ * транзакции. Все запросы - по ключу, без перебора экземпляров и истории выдач.
+ * <p>
+ * Выдача - 6 запросов: блокировка строки читателя с подсчетом его книг,
+ * условный UPDATE счетчика, выбор и пометка экземпляра, вставка в borrowed_books
+ * и чтение нового счетчика прочтений для статистики (по первичному ключу, строка
+ * уже заблокирована). Возврат - 4 запроса.
+ * Передача следующему в очереди - 6 запросов, экземпляр при этом не возвращается на полку;
+ * голова очереди (holds) забирается в той же транзакции.
+ * Два параллельных запроса на последний экземпляр не могут оба его получить:
+ * условный UPDATE пройдет только у одного, второй ждет блокировку строки книги.
+ * <p>
+ * Срок возврата и чат для напоминания пишутся в строку выдачи; невозвращенные
+ * выдачи со сроками читаются при старте по индексу (returned_at, due_at).
+ * Отправленное напоминание отмечается в reminded_at, такие выдачи при старте не читаются.
+ */
+@Slf4j
+public class LoanRepositoryDBImpl implements LoanRepository {
+
+    // FOR UPDATE блокирует читателя до конца транзакции - лимит книг нельзя обойти параллельными запросами
+    private static final String LOCK_READER_SQL =
+            "SELECT r.id, " +
+            "(SELECT COUNT(*) FROM borrowed_books bb WHERE bb.reader_id = r.id AND bb.returned_at IS NULL) AS active " +
+            "FROM readers r WHERE r.id = ? FOR UPDATE";
+
+    // MySQL выполняет присваивания слева направо: is_available видит уже уменьшенный счетчик
+    private static final String CLAIM_BOOK_SQL =
+            "UPDATE books SET available_copies = available_copies - 1, " +
+            "is_available = available_copies > 0, times_read = times_read + 1 " +
+            "WHERE isbn = ? AND available_copies > 0";
+
+    private static final String BOOK_TITLE_SQL = "SELECT title, times_read FROM books WHERE isbn = ?";
+
+    private static final String FREE_COPY_SQL =
+            "SELECT id FROM book_copies WHERE book_isbn = ? AND is_available = TRUE LIMIT 1 FOR UPDATE";
+
+    private static final String TAKE_COPY_SQL = "UPDATE book_copies SET is_available = FALSE WHERE id = ?";
+
+    private static final String INSERT_LOAN_SQL =
+            "INSERT INTO borrowed_books (reader_id, book_isbn, copy_id, chat_id, due_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String ACTIVE_LOAN_SQL =
+            "SELECT id, copy_id FROM borrowed_books " +
+            "WHERE reader_id = ? AND book_isbn = ? AND returned_at IS NULL LIMIT 1 FOR UPDATE";
+
+    private static final String CLOSE_LOAN_SQL =
+            "UPDATE borrowed_books SET returned_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private static final String RETURN_COPY_SQL = "UPDATE book_copies SET is_available = TRUE WHERE id = ?";
+
+    private static final String RELEASE_BOOK_SQL =
+            "UPDATE books SET available_copies = LEAST(available_copies + 1, copies), is_available = TRUE " +
+            "WHERE isbn = ?";
+
+    private static final String COUNT_READ_SQL = "UPDATE books SET times_read = times_read + 1 WHERE isbn = ?";
+
+    private static final String ACTIVE_LOANS_SQL =
+            "SELECT book_isbn, reader_id, chat_id, due_at FROM borrowed_books " +
+            "WHERE returned_at IS NULL AND due_at IS NOT NULL AND reminded_at IS NULL";
+
+    // Выдачу определяют читатель, книга и срок (у читателя может быть несколько
+    // экземпляров книги с разными сроками). Срок сравнивается с запасом в секунду:
+    // TIMESTAMP хранит целые секунды, а в памяти срок с миллисекундами
+    private static final String MARK_REMINDED_SQL =
+            "UPDATE borrowed_books SET reminded_at = CURRENT_TIMESTAMP " +
+            "WHERE reader_id = ? AND book_isbn = ? AND returned_at IS NULL " +
+            "AND due_at <= ? AND reminded_at IS NULL";
+
+    @Override
+    public LoanResult borrow(Loan loan, int maxBooks) {
+        String isbn = loan.getIsbn();
+        String readerId = loan.getReaderId();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                LoanResult result = borrow(conn, loan, maxBooks);
+                if (result.isSuccess()) {
+                    conn.commit();
+                    DatabaseConnection.recordWrite();
+                    log.info("Book {} borrowed by reader {}", isbn, readerId);
+                } else {
+                    conn.rollback();
+                    log.debug("Borrow of {} by reader {} rejected: {}", isbn, readerId, result.getStatus());
+                }
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error borrowing book {} for reader {}", isbn, readerId, e);
+            throw new RuntimeException("Failed to borrow book", e);
+        }
+    }
+
+    @Override
+    public LoanResult returnBook(String isbn, String readerId) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                LoanResult result = returnBook(conn, isbn, readerId);
+                if (result.isSuccess()) {
+                    conn.commit();
+                    DatabaseConnection.recordWrite();
+                    log.info("Book {} returned by reader {}", isbn, readerId);
+                } else {
+                    conn.rollback();
+                }
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error returning book {} for reader {}", isbn, readerId, e);
+            throw new RuntimeException("Failed to return book", e);
+        }
+    }
+
+    @Override
+    public LoanResult transfer(String fromReaderId, Loan loan, int maxBooks) {
+        String isbn = loan.getIsbn();
+        String toReaderId = loan.getReaderId();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                LoanResult result = transfer(conn, fromReaderId, loan, maxBooks);
+                if (result.isSuccess()) {
+                    conn.commit();
+                    DatabaseConnection.recordWrite();
+                    log.info("Book {} passed from reader {} to reader {}", isbn, fromReaderId, toReaderId);
+                } else {
+                    conn.rollback();
+                    log.debug("Transfer of {} to reader {} rejected: {}", isbn, toReaderId, result.getStatus());
+                }
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error passing book {} to reader {}", isbn, toReaderId, e);
+            throw new RuntimeException("Failed to transfer book", e);
+        }
+    }
+
+    /**
+     * Голова очереди и передача - одна транзакция: если книги у читателя уже нет,
+     * откат возвращает очередь как была. Отказ очередному читателю откатывается
+     * до точки сохранения, снятие его места остается.
+     */
+    @Override
+    public HoldTransfer transferToNextHolder(String fromReaderId, String isbn, HoldRepository holds,
+                                             Function<Hold, Loan> loanFor, int maxBooks,
+                                             BiConsumer<Hold, LoanResult> rejected) {
+        // Отказы сообщаются только после коммита снятия мест
+        Map<Hold, LoanResult> skipped = new LinkedHashMap<>();
+        HoldTransfer transfer = null;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Hold hold;
+                while ((hold = HoldRepositoryDBImpl.poll(conn, isbn)) != null) {
+                    if (hold.getReaderId().equals(fromReaderId)) {
+                        continue;
+                    }
+                    Loan loan = loanFor.apply(hold);
+                    Savepoint beforeTransfer = conn.setSavepoint();
+                    LoanResult result = transfer(conn, fromReaderId, loan, maxBooks);
+                    if (result.isSuccess()) {
+                        transfer = HoldTransfer.transferred(hold, loan, result);
+                        break;
+                    }
+                    if (result.getStatus() == LoanResult.Status.NOT_BORROWED) {
+                        conn.rollback();
+                        return HoldTransfer.notBorrowed();
+                    }
+                    conn.rollback(beforeTransfer);
+                    skipped.put(hold, result);
+                }
+                conn.commit();
+                DatabaseConnection.recordWrite();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error passing book {} from reader {} to the next hold", isbn, fromReaderId, e);
+            throw new RuntimeException("Failed to transfer book", e);
+        }
+
+        skipped.forEach(rejected);
+        if (transfer != null) {
+            log.info("Book {} passed from reader {} to reader {}", isbn, fromReaderId,
+                    transfer.getHold().getReaderId());
+        }
+        return transfer;
+    }
+
+    @Override
+    public List<Loan> findActiveLoans() {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(ACTIVE_LOANS_SQL)) {
+
+            List<Loan> loans = new ArrayList<>();
+            while (rs.next()) {
+                long chatId = rs.getLong("chat_id");
+                loans.add(new Loan(rs.getString("book_isbn"), rs.getString("reader_id"),
+                        rs.wasNull() ? Loan.NO_CHAT : chatId, rs.getTimestamp("due_at").toInstant()));
+            }
+            return loans;
+
+        } catch (SQLException e) {
+            log.error("Error loading active loans", e);
+            throw new RuntimeException("Failed to load active loans", e);
+        }
+    }
+
+    @Override
+    public void markReminded(List<Loan> loans) {
+        if (loans.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(MARK_REMINDED_SQL)) {
+
+            for (Loan loan : loans) {
+                stmt.setString(1, loan.getReaderId());
+                stmt.setString(2, loan.getIsbn());
+                stmt.setTimestamp(3, Timestamp.from(loan.getDueAt().plusSeconds(1)));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            DatabaseConnection.recordWrite();
+
+        } catch (SQLException e) {
+            log.error("Error marking {} loans as reminded", loans.size(), e);
+            throw new RuntimeException("Failed to mark loans as reminded", e);
+        }
+    }
+
+    private LoanResult borrow(Connection conn, Loan loan, int maxBooks) throws SQLException {
+        String isbn = loan.getIsbn();
+        try (PreparedStatement stmt = conn.prepareStatement(LOCK_READER_SQL)) {
+            stmt.setString(1, loan.getReaderId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return LoanResult.of(LoanResult.Status.READER_NOT_FOUND);
+                }
+                if (rs.getInt("active") >= maxBooks) {
+                    return LoanResult.of(LoanResult.Status.LIMIT_REACHED);
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(CLAIM_BOOK_SQL)) {
+            stmt.setString(1, isbn);
+            if (stmt.executeUpdate() == 0) {
+                // Книгу не удалось захватить - выясняем почему (только в этом редком случае)
+                return rejectedClaim(conn, isbn);
+            }
+        }
+
+        insertLoan(conn, loan, takeFreeCopy(conn, isbn));
+        return borrowedBook(conn, isbn);
+    }
+
+    private LoanResult returnBook(Connection conn, String isbn, String readerId) throws SQLException {
+        ActiveLoan loan = findActiveLoan(conn, readerId, isbn);
+        if (loan == null) {
+            return LoanResult.of(LoanResult.Status.NOT_BORROWED);
+        }
+        closeLoan(conn, loan.id);
+
+        if (loan.copyId != null) {
+            try (PreparedStatement stmt = conn.prepareStatement(RETURN_COPY_SQL)) {
+                stmt.setLong(1, loan.copyId);
+                stmt.executeUpdate();
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(RELEASE_BOOK_SQL)) {
+            stmt.setString(1, isbn);
+            stmt.executeUpdate();
+        }
+        return LoanResult.success();
+    }
+
+    /**
+     * Экземпляр переходит к новому читателю вместе с выдачей
+     */
+    private LoanResult transfer(Connection conn, String fromReaderId, Loan loan, int maxBooks) throws SQLException {
+        String isbn = loan.getIsbn();
+        ActiveLoan current = findActiveLoan(conn, fromReaderId, isbn);
+        if (current == null) {
+            return LoanResult.of(LoanResult.Status.NOT_BORROWED);
+        }
+        closeLoan(conn, current.id);
+
+        try (PreparedStatement stmt = conn.prepareStatement(LOCK_READER_SQL)) {
+            stmt.setString(1, loan.getReaderId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return LoanResult.of(LoanResult.Status.READER_NOT_FOUND);
+                }
+                if (rs.getInt("active") >= maxBooks) {
+                    return LoanResult.of(LoanResult.Status.LIMIT_REACHED);
+                }
+            }
+        }
+
+        insertLoan(conn, loan, current.copyId);
+
+        try (PreparedStatement stmt = conn.prepareStatement(COUNT_READ_SQL)) {
+            stmt.setString(1, isbn);
+            stmt.executeUpdate();
+        }
+        return borrowedBook(conn, isbn);
+    }
+
+    /**
+     * Занять свободный экземпляр издания (счетчик в books уже уменьшен)
+     * @return id экземпляра или null, если строки экземпляров не заведены
+     *         (книги, сохраненные до учета экземпляров)
+     */
+    private Long takeFreeCopy(Connection conn, String isbn) throws SQLException {
+        long copyId;
+        try (PreparedStatement stmt = conn.prepareStatement(FREE_COPY_SQL)) {
+            stmt.setString(1, isbn);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    log.warn("No free copy row for book {}, loan recorded without copy", isbn);
+                    return null;
+                }
+                copyId = rs.getLong("id");
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(TAKE_COPY_SQL)) {
+            stmt.setLong(1, copyId);
+            stmt.executeUpdate();
+        }
+        return copyId;
+    }
+
+    private void insertLoan(Connection conn, Loan loan, Long copyId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_LOAN_SQL)) {
+            stmt.setString(1, loan.getReaderId());
+            stmt.setString(2, loan.getIsbn());
+            if (copyId != null) {
+                stmt.setLong(3, copyId);
+            } else {
+                stmt.setNull(3, Types.BIGINT);
+            }
+            if (loan.getChatId() != Loan.NO_CHAT) {
+                stmt.setLong(4, loan.getChatId());
+            } else {
+                stmt.setNull(4, Types.BIGINT);
+            }
+            stmt.setTimestamp(5, Timestamp.from(loan.getDueAt()));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Невозвращенная выдача книги читателем, заблокированная до конца транзакции
+     * @return null, если читатель эту книгу не брал
+     */
+    private ActiveLoan findActiveLoan(Connection conn, String readerId, String isbn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(ACTIVE_LOAN_SQL)) {
+            stmt.setString(1, readerId);
+            stmt.setString(2, isbn);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                long copyId = rs.getLong("copy_id");
+                return new ActiveLoan(rs.getLong("id"), rs.wasNull() ? null : copyId);
+            }
+        }
+    }
+
+    private void closeLoan(Connection conn, long loanId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CLOSE_LOAN_SQL)) {
+            stmt.setLong(1, loanId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Успешная выдача с названием и счетчиком прочтений, который увидела эта транзакция
+     */
+    private LoanResult borrowedBook(Connection conn, String isbn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(BOOK_TITLE_SQL)) {
+            stmt.setString(1, isbn);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return LoanResult.borrowed(rs.getString("title"), rs.getInt("times_read"));
+                }
+                return LoanResult.success();
+            }
+        }
+    }
+
+    private LoanResult rejectedClaim(Connection conn, String isbn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(BOOK_TITLE_SQL)) {
+            stmt.setString(1, isbn);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return LoanResult.unavailable(rs.getString("title"));
+                }
+                return LoanResult.of(LoanResult.Status.BOOK_NOT_FOUND);
+            }
+        }
+    }
+
+    /**
+     * Строка borrowed_books: id выдачи и выданный экземпляр (null - не записан)
+     */
+    private static final class ActiveLoan {
+        private final long id;
+        private final Long copyId;
+
+        private ActiveLoan(long id, Long copyId) {
+            this.id = id;
+            this.copyId = copyId;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.lostfly.business.repository.impl;
+
+import ru.lostfly.business.domain.book.Book;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Выбор самых читаемых книг проходом по каталогу в памяти:
+ * куча на limit элементов, O(n log limit) без сортировки всего каталога
+ */
+final class MostRead {
+
+    static final Comparator<Book> ORDER = Comparator
+            .comparingInt(Book::getTimesRead).reversed()
+            .thenComparing(Book::getIsbn);
+
+    private MostRead() {
+    }
+
+    static List<Book> select(Iterable<Book> books, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        // В вершине кучи - худшая из отобранных книг
+        PriorityQueue<Book> heap = new PriorityQueue<>(limit + 1, ORDER.reversed());
+        for (Book book : books) {
+            if (heap.size() < limit) {
+                heap.add(book);
+            } else if (ORDER.compare(book, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(book);
+            }
+        }
+        List<Book> result = new ArrayList<>(heap);
+        result.sort(ORDER);
+        return result;
+    }
+}
@@ -8,55 +8,123 @@ import ru.lostfly.business.repository.ReaderRepository;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 public class ReaderRepositoryDBImpl implements ReaderRepository {
 
+    // Читатель и его невозвращенные книги одним запросом
+    private static final String READER_WITH_LOANS_SQL =
+            "SELECT r.id AS reader_id, r.name AS reader_name, " +
+            "b.isbn, b.title, b.author, b.genre, b.is_available, b.times_read, b.copies, b.available_copies " +
+            "FROM readers r " +
+            "LEFT JOIN borrowed_books bb ON bb.reader_id = r.id AND bb.returned_at IS NULL " +
+            "LEFT JOIN books b ON b.isbn = bb.book_isbn ";
+
+    // Сохраняется только строка читателя: невозвращенные книги (borrowed_books с экземпляром,
+    // сроком и чатом) меняет только LoanRepositoryDBImpl, иначе повторный /add_user
+    // стер бы выдачи, а занятые экземпляры так и остались бы недоступны
+    private static final String UPSERT_SQL = "INSERT INTO readers (id, name) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE name = VALUES(name)";
+
+    // Сколько читателей сохранять одной пачкой (и одной транзакцией)
+    private static final int BATCH_SIZE = 1000;
+
+    // ON DUPLICATE KEY UPDATE: 1 - строка вставлена, 2 - обновлена, 0 - не изменилась
+    private static final int ROW_INSERTED = 1;
+
+    private final CachedCount totalReaders = new CachedCount();
+
     @Override
     public void save(Reader reader) {
-        String sql = "INSERT INTO readers (id, name) VALUES (?, ?) " +
-                "ON DUPLICATE KEY UPDATE name = VALUES(name)";
-
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
 
             stmt.setString(1, reader.getId());
             stmt.setString(2, reader.getName());
 
             int rowsAffected = stmt.executeUpdate();
+            DatabaseConnection.recordWrite();
+            if (rowsAffected == ROW_INSERTED) {
+                totalReaders.added(1);
+            }
             log.info("Reader saved/updated: {}, rows affected: {}", reader.getId(), rowsAffected);
 
-            // Сохраняем взятые книги
-            saveBorrowedBooks(reader);
-
         } catch (SQLException e) {
             log.error("Error saving reader: {}", reader.getId(), e);
             throw new RuntimeException("Failed to save reader", e);
         }
     }
 
+    /**
+     * Пакетное сохранение читателей: по BATCH_SIZE читателей за транзакцию,
+     * одним executeBatch.
+     */
     @Override
-    public Reader findById(String id) {
-        String sql = "SELECT id, name FROM readers WHERE id = ?";
+    public void saveAll(Collection<Reader> readers) {
+        if (readers.isEmpty()) {
+            return;
+        }
 
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+
+            conn.setAutoCommit(false);
+            try {
+                int pending = 0;
+                for (Reader reader : readers) {
+                    stmt.setString(1, reader.getId());
+                    stmt.setString(2, reader.getName());
+                    stmt.addBatch();
+
+                    if (++pending == BATCH_SIZE) {
+                        stmt.executeBatch();
+                        conn.commit();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+                // Склеенный пакет не сообщает, какие читатели новые - пересчитать при чтении
+                totalReaders.invalidate();
+            }
+            DatabaseConnection.recordWrite();
+            log.info("Readers saved in batch: {}", readers.size());
 
-            stmt.setString(1, id);
-            ResultSet rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            log.error("Error saving {} readers in batch", readers.size(), e);
+            throw new RuntimeException("Failed to save readers", e);
+        }
+    }
 
-            if (rs.next()) {
-                Reader reader = new Reader(rs.getString("id"), rs.getString("name"));
+    @Override
+    public Reader findById(String id) {
+        String sql = READER_WITH_LOANS_SQL + "WHERE r.id = ?";
 
-                // Загружаем взятые книги
-                loadBorrowedBooks(reader);
+        // Основной пул: по найденному читателю принимаются решения о выдаче и возврате
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-                return reader;
+            stmt.setString(1, id);
+            List<Reader> readers = new ArrayList<>(1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                mapReaders(rs, readers::add);
             }
 
-            log.debug("Reader not found with ID: {}", id);
-            return null;
+            if (readers.isEmpty()) {
+                log.debug("Reader not found with ID: {}", id);
+                return null;
+            }
+            return readers.get(0);
 
         } catch (SQLException e) {
             log.error("Error finding reader by ID: {}", id, e);
@@ -64,20 +132,20 @@ public class ReaderRepositoryDBImpl implements ReaderRepository {
         }
     }
 
+    /**
+     * Все читатели вместе с выданными книгами загружаются одним запросом
+     * (LEFT JOIN + группировка в памяти) вместо отдельного запроса на каждого читателя.
+     */
     @Override
     public List<Reader> findAll() {
-        String sql = "SELECT id, name FROM readers";
+        String sql = READER_WITH_LOANS_SQL + "ORDER BY r.id";
         List<Reader> readers = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
-            while (rs.next()) {
-                Reader reader = new Reader(rs.getString("id"), rs.getString("name"));
-                loadBorrowedBooks(reader);
-                readers.add(reader);
-            }
+            mapReaders(rs, readers::add);
 
             log.debug("Found {} readers", readers.size());
             return readers;
@@ -88,94 +156,119 @@ public class ReaderRepositoryDBImpl implements ReaderRepository {
         }
     }
 
+    /**
+     * Страница читателей по ключу (keyset pagination): LIMIT применяется к читателям
+     * в подзапросе, а выданные книги подтягиваются тем же запросом.
+     */
     @Override
-    public int getTotalReaders() {
-        String sql = "SELECT COUNT(*) as total FROM readers";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    public List<Reader> findPage(String afterId, int limit) {
+        String sql = "SELECT r.id AS reader_id, r.name AS reader_name, " +
+                "b.isbn, b.title, b.author, b.genre, b.is_available, b.times_read, b.copies, b.available_copies " +
+                "FROM (SELECT id, name FROM readers WHERE id > ? ORDER BY id LIMIT ?) r " +
+                "LEFT JOIN borrowed_books bb ON bb.reader_id = r.id AND bb.returned_at IS NULL " +
+                "LEFT JOIN books b ON b.isbn = bb.book_isbn " +
+                "ORDER BY r.id";
+        List<Reader> readers = new ArrayList<>(limit);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            if (rs.next()) {
-                return rs.getInt("total");
+            stmt.setString(1, afterId == null ? "" : afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                mapReaders(rs, readers::add);
             }
-            return 0;
+
+            log.debug("Found {} readers after ID: {}", readers.size(), afterId);
+            return readers;
 
         } catch (SQLException e) {
-            log.error("Error getting total readers count", e);
-            throw new RuntimeException("Failed to get total readers count", e);
+            log.error("Error finding readers page after ID: {}", afterId, e);
+            throw new RuntimeException("Failed to find readers page", e);
         }
     }
 
     /**
-     * Сохранить взятые книги читателя
+     * Потоковый обход всех читателей для отчетов по большим таблицам.
+     * Строки читаются из MySQL по мере обработки (streaming result set),
+     * поэтому в памяти одновременно находится только один читатель.
+     * <p>
+     * Пока идет обход, соединение занято - consumer не должен ждать других запросов
+     * на этом же соединении.
      */
-    private void saveBorrowedBooks(Reader reader) {
-        // Сначала удаляем старые записи о взятых книгах (которые не были возвращены)
-        String deleteSql = "DELETE FROM borrowed_books WHERE reader_id = ? AND returned_at IS NULL";
+    public void forEachReader(Consumer<Reader> consumer) {
+        String sql = READER_WITH_LOANS_SQL + "ORDER BY r.id";
 
-        // Затем добавляем актуальные
-        String insertSql = "INSERT INTO borrowed_books (reader_id, book_isbn) VALUES (?, ?)";
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement deleteStmt = conn.prepareStatement(deleteSql);
-             PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-
-            // Удаляем старые записи
-            deleteStmt.setString(1, reader.getId());
-            deleteStmt.executeUpdate();
-
-            // Добавляем новые
-            for (Book book : reader.getBorrowedBooks()) {
-                insertStmt.setString(1, reader.getId());
-                insertStmt.setString(2, book.getIsbn());
-                insertStmt.addBatch();
-            }
-
-            if (!reader.getBorrowedBooks().isEmpty()) {
-                insertStmt.executeBatch();
-                log.debug("Saved {} borrowed books for reader {}", reader.getBorrowedBooks().size(), reader.getId());
+            // Integer.MIN_VALUE - сигнал драйверу MySQL отдавать строки по одной
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                mapReaders(rs, consumer);
             }
 
         } catch (SQLException e) {
-            log.error("Error saving borrowed books for reader: {}", reader.getId(), e);
-            throw new RuntimeException("Failed to save borrowed books", e);
+            log.error("Error streaming readers", e);
+            throw new RuntimeException("Failed to stream readers", e);
         }
     }
 
     /**
-     * Загрузить взятые книги для читателя
+     * COUNT(*) выполняется один раз, дальше счетчик поправляется при вставках
      */
-    private void loadBorrowedBooks(Reader reader) {
-        String sql = "SELECT b.isbn, b.title, b.author, b.genre, b.is_available, b.times_read " +
-                "FROM borrowed_books bb " +
-                "JOIN books b ON bb.book_isbn = b.isbn " +
-                "WHERE bb.reader_id = ? AND bb.returned_at IS NULL";
+    @Override
+    public int getTotalReaders() {
+        return totalReaders.get(this::countReaders);
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    private int countReaders() {
+        String sql = "SELECT COUNT(*) as total FROM readers";
 
-            stmt.setString(1, reader.getId());
-            ResultSet rs = stmt.executeQuery();
+        // Основной пул: дальше счетчик только поправляется, отставание реплики осталось бы в нем навсегда
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
 
-            while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("title");
-                String author = rs.getString("author");
-                String genre = rs.getString("genre");
+            if (rs.next()) {
+                return rs.getInt("total");
+            }
+            return 0;
 
-                Book book = new Book(isbn, title, author, genre);
-                book.setAvailable(rs.getBoolean("is_available"));
-                book.setTimesRead(rs.getInt("times_read"));
+        } catch (SQLException e) {
+            log.error("Error getting total readers count", e);
+            throw new RuntimeException("Failed to get total readers count", e);
+        }
+    }
 
-                reader.addBook(book);
+    /**
+     * Собрать читателей из строк LEFT JOIN, отсортированных по ID читателя.
+     * Строки одного читателя идут подряд, поэтому готовый читатель
+     * передается в consumer, как только начинается следующий.
+     */
+    private void mapReaders(ResultSet rs, Consumer<Reader> consumer) throws SQLException {
+        Reader current = null;
+
+        while (rs.next()) {
+            String readerId = rs.getString("reader_id");
+            if (current == null || !current.getId().equals(readerId)) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                current = new Reader(readerId, rs.getString("reader_name"));
             }
 
-            log.debug("Loaded {} borrowed books for reader {}", reader.getBorrowedBooks().size(), reader.getId());
+            String isbn = rs.getString("isbn");
+            if (isbn != null) {
+                Book book = new Book(isbn, rs.getString("title"), rs.getString("author"), rs.getString("genre"));
+                book.setCopies(rs.getInt("copies"), rs.getInt("available_copies"));
+                book.setTimesRead(rs.getInt("times_read"));
+                current.addBook(book);
+            }
+        }
 
-        } catch (SQLException e) {
-            log.error("Error loading borrowed books for reader: {}", reader.getId(), e);
-            throw new RuntimeException("Failed to load borrowed books", e);
+        if (current != null) {
+            consumer.accept(current);
         }
     }
 }
\ No newline at end of file
@@ -4,17 +4,25 @@ import ru.lostfly.business.domain.reader.Reader;
 import ru.lostfly.business.repository.ReaderRepository;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 public class ReaderRepositoryImpl implements ReaderRepository {
-    private final Map<String, Reader> readers = new HashMap<>();
+    // TreeMap хранит читателей отсортированными по ID - это нужно для постраничной выборки
+    private final NavigableMap<String, Reader> readers = new TreeMap<>();
 
     public void save(Reader reader) {
         readers.put(reader.getId(), reader);
     }
 
+    public void saveAll(Collection<Reader> readers) {
+        for (Reader reader : readers) {
+            save(reader);
+        }
+    }
+
     public Reader findById(String id) {
         return readers.get(id);
     }
@@ -23,6 +31,18 @@ public class ReaderRepositoryImpl implements ReaderRepository {
         return new ArrayList<>(readers.values());
     }
 
+    public List<Reader> findPage(String afterId, int limit) {
+        NavigableMap<String, Reader> tail = afterId == null ? readers : readers.tailMap(afterId, false);
+        List<Reader> page = new ArrayList<>(Math.min(limit, tail.size()));
+        for (Reader reader : tail.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(reader);
+        }
+        return page;
+    }
+
     public int getTotalReaders() {
         return readers.size();
     }
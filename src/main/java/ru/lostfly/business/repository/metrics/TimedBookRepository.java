@@ -0,0 +1,163 @@
+package ru.lostfly.business.repository.metrics;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.Page;
+import ru.lostfly.business.repository.PageRequest;
+import ru.lostfly.metrics.LatencyHistogram;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор над {@link BookRepository}: время каждого метода пишется
+ * в гистограмму {@code repository_call_seconds{repository="book",method="..."}}.
+ * Гистограммы получаются один раз в конструкторе, вызов стоит два System.nanoTime().
+ */
+public class TimedBookRepository implements BookRepository {
+
+    private final BookRepository delegate;
+
+    private final LatencyHistogram save;
+    private final LatencyHistogram saveAll;
+    private final LatencyHistogram findByIsbn;
+    private final LatencyHistogram findAvailableBooks;
+    private final LatencyHistogram findAvailableBooksPage;
+    private final LatencyHistogram findByAuthor;
+    private final LatencyHistogram findByAuthorPage;
+    private final LatencyHistogram search;
+    private final LatencyHistogram addCopies;
+    private final LatencyHistogram findMostRead;
+    private final LatencyHistogram getTotalBooks;
+
+    public TimedBookRepository(BookRepository delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.save = histogram(registry, "save");
+        this.saveAll = histogram(registry, "saveAll");
+        this.findByIsbn = histogram(registry, "findByIsbn");
+        this.findAvailableBooks = histogram(registry, "findAvailableBooks");
+        this.findAvailableBooksPage = histogram(registry, "findAvailableBooksPage");
+        this.findByAuthor = histogram(registry, "findByAuthor");
+        this.findByAuthorPage = histogram(registry, "findByAuthorPage");
+        this.search = histogram(registry, "search");
+        this.addCopies = histogram(registry, "addCopies");
+        this.findMostRead = histogram(registry, "findMostRead");
+        this.getTotalBooks = histogram(registry, "getTotalBooks");
+    }
+
+    @Override
+    public void save(Book book) {
+        long start = System.nanoTime();
+        try {
+            delegate.save(book);
+        } finally {
+            save.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveAll(books);
+        } finally {
+            saveAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public Book findByIsbn(String isbn) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByIsbn(isbn);
+        } finally {
+            findByIsbn.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Book> findAvailableBooks() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAvailableBooks();
+        } finally {
+            findAvailableBooks.recordSince(start);
+        }
+    }
+
+    @Override
+    public Page<Book> findAvailableBooks(PageRequest page) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAvailableBooks(page);
+        } finally {
+            findAvailableBooksPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByAuthor(author);
+        } finally {
+            findByAuthor.recordSince(start);
+        }
+    }
+
+    @Override
+    public Page<Book> findByAuthor(String author, PageRequest page) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByAuthor(author, page);
+        } finally {
+            findByAuthorPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.search(query, limit);
+        } finally {
+            search.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean addCopies(String isbn, int count) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addCopies(isbn, count);
+        } finally {
+            addCopies.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Book> findMostRead(int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findMostRead(limit);
+        } finally {
+            findMostRead.recordSince(start);
+        }
+    }
+
+    @Override
+    public int getTotalBooks() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTotalBooks();
+        } finally {
+            getTotalBooks.recordSince(start);
+        }
+    }
+
+    private static LatencyHistogram histogram(MetricsRegistry registry, String method) {
+        return registry.histogram("repository_call_seconds", "Repository method latency",
+                "repository", "book", "method", method);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.lostfly.business.repository.metrics;
+
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.ReaderRepository;
+import ru.lostfly.metrics.LatencyHistogram;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Декоратор над {@link ReaderRepository}: время каждого метода пишется
+ * в гистограмму {@code repository_call_seconds{repository="reader",method="..."}}.
+ */
+public class TimedReaderRepository implements ReaderRepository {
+
+    private final ReaderRepository delegate;
+
+    private final LatencyHistogram save;
+    private final LatencyHistogram saveAll;
+    private final LatencyHistogram findById;
+    private final LatencyHistogram findAll;
+    private final LatencyHistogram findPage;
+    private final LatencyHistogram getTotalReaders;
+
+    public TimedReaderRepository(ReaderRepository delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.save = histogram(registry, "save");
+        this.saveAll = histogram(registry, "saveAll");
+        this.findById = histogram(registry, "findById");
+        this.findAll = histogram(registry, "findAll");
+        this.findPage = histogram(registry, "findPage");
+        this.getTotalReaders = histogram(registry, "getTotalReaders");
+    }
+
+    @Override
+    public void save(Reader reader) {
+        long start = System.nanoTime();
+        try {
+            delegate.save(reader);
+        } finally {
+            save.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Reader> readers) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveAll(readers);
+        } finally {
+            saveAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public Reader findById(String id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            findById.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Reader> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            findAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Reader> findPage(String afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findPage(afterId, limit);
+        } finally {
+            findPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public int getTotalReaders() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTotalReaders();
+        } finally {
+            getTotalReaders.recordSince(start);
+        }
+    }
+
+    private static LatencyHistogram histogram(MetricsRegistry registry, String method) {
+        return registry.histogram("repository_call_seconds", "Repository method latency",
+                "repository", "reader", "method", method);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.lostfly.business.search;
+
+import ru.lostfly.business.domain.book.Book;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Правила совпадения и ранжирования результатов поиска.
+ * <p>
+ * Каждый токен запроса должен совпасть с началом какого-нибудь слова книги
+ * (поиск по префиксу). Точное совпадение слова ценится выше префикса,
+ * совпадение в названии - выше совпадения в авторе.
+ */
+public final class SearchRanking {
+
+    private static final int TITLE_EXACT = 4;
+    private static final int AUTHOR_EXACT = 3;
+    private static final int TITLE_PREFIX = 2;
+    private static final int AUTHOR_PREFIX = 1;
+
+    /**
+     * Сначала более релевантные, при равенстве - более популярные
+     */
+    public static final Comparator<Scored> ORDER = Comparator
+            .comparingInt(Scored::getScore).reversed()
+            .thenComparing(Comparator.comparingInt((Scored s) -> s.getBook().getTimesRead()).reversed())
+            .thenComparing(s -> s.getBook().getIsbn());
+
+    private SearchRanking() {
+    }
+
+    /**
+     * Оценка книги по запросу (название + автор)
+     * @return 0, если хотя бы один токен запроса не нашелся
+     */
+    public static int score(List<String> queryTokens, Book book) {
+        return score(queryTokens, book.getTitle(), book.getAuthor());
+    }
+
+    /**
+     * Оценка по названию и автору без объекта книги (для компактных хранилищ)
+     * @return 0, если хотя бы один токен запроса не нашелся
+     */
+    public static int score(List<String> queryTokens, String title, String author) {
+        List<String> titleTokens = SearchTokens.tokenize(title);
+        List<String> authorTokens = SearchTokens.tokenize(author);
+        int total = 0;
+        for (String query : queryTokens) {
+            int best = Math.max(
+                    match(query, titleTokens, TITLE_EXACT, TITLE_PREFIX),
+                    match(query, authorTokens, AUTHOR_EXACT, AUTHOR_PREFIX));
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * Совпадают ли все токены запроса с началами слов в имени автора
+     */
+    public static boolean matchesAuthor(List<String> queryTokens, Book book) {
+        return matchesAuthor(queryTokens, book.getAuthor());
+    }
+
+    /**
+     * Совпадают ли все токены запроса с началами слов в строке автора
+     */
+    public static boolean matchesAuthor(List<String> queryTokens, String author) {
+        if (queryTokens.isEmpty()) {
+            return false;
+        }
+        List<String> authorTokens = SearchTokens.tokenize(author);
+        for (String query : queryTokens) {
+            if (match(query, authorTokens, 1, 1) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int match(String query, List<String> tokens, int exactScore, int prefixScore) {
+        int best = 0;
+        for (String token : tokens) {
+            if (token.equals(query)) {
+                return exactScore;
+            }
+            if (token.startsWith(query)) {
+                best = prefixScore;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Книга с оценкой релевантности
+     */
+    public static final class Scored {
+        private final Book book;
+        private final int score;
+
+        public Scored(Book book, int score) {
+            this.book = book;
+            this.score = score;
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+}
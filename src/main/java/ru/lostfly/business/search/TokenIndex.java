@@ -0,0 +1,61 @@
+package ru.lostfly.business.search;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Инвертированный индекс: токен -> ISBN книг, где этот токен встречается.
+ * Токены хранятся в отсортированном виде, поэтому все токены с заданным
+ * префиксом лежат одним непрерывным диапазоном.
+ */
+public class TokenIndex {
+
+    private final NavigableMap<String, Set<String>> postings = new TreeMap<>();
+
+    public void add(String isbn, List<String> tokens) {
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, k -> new HashSet<>(4)).add(isbn);
+        }
+    }
+
+    public void remove(String isbn, List<String> tokens) {
+        for (String token : tokens) {
+            Set<String> isbns = postings.get(token);
+            if (isbns != null) {
+                isbns.remove(isbn);
+                if (isbns.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Сколько раз встречаются токены с этим префиксом (оценка размера выборки, с повторами)
+     */
+    public long countPrefix(String prefix) {
+        long count = 0;
+        for (Set<String> isbns : range(prefix).values()) {
+            count += isbns.size();
+        }
+        return count;
+    }
+
+    /**
+     * Добавить в out ISBN всех книг, содержащих токен с этим префиксом
+     */
+    public void collectPrefix(String prefix, Collection<String> out) {
+        for (Set<String> isbns : range(prefix).values()) {
+            out.addAll(isbns);
+        }
+    }
+
+    private Map<String, Set<String>> range(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+}
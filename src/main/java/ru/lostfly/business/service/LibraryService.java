@@ -12,6 +12,15 @@ public interface LibraryService {
      * @return сообщение о результате операции
      */
     String borrowBook(String isbn, Reader reader);
+
+    /**
+     * Выдать книгу читателю со сроком возврата
+     * @param isbn идентификатор книги
+     * @param reader читатель
+     * @param chatId чат, куда прислать напоминание, если срок пройдет
+     * @return сообщение о результате операции
+     */
+    String borrowBook(String isbn, Reader reader, long chatId);
     
     /**
      * Вернуть книгу в библиотеку
@@ -20,4 +29,14 @@ public interface LibraryService {
      * @return сообщение о результате операции
      */
     String returnBook(Book book, Reader reader);
-}
\ No newline at end of file
+
+    /**
+     * Поставить читателя в очередь на выданную книгу.
+     * Когда книгу вернут, она сразу выдается первому в очереди, и он получает уведомление.
+     * @param isbn идентификатор книги
+     * @param reader читатель
+     * @param chatId чат, куда прислать уведомление о выдаче
+     * @return сообщение о результате операции
+     */
+    String placeHold(String isbn, Reader reader, long chatId);
+}
@@ -0,0 +1,18 @@
+package ru.lostfly.business.service;
+
+/**
+ * Отправка сообщения читателю по инициативе библиотеки, а не в ответ на его команду
+ * (например, книга из очереди ожидания выдана ему).
+ * <p>
+ * Реализация не должна блокировать вызывающий поток: он держит операцию возврата.
+ */
+@FunctionalInterface
+public interface ReaderNotifier {
+
+    /**
+     * Уведомления никуда не отправляются (режим без бота, замеры)
+     */
+    ReaderNotifier NONE = (chatId, text) -> { };
+
+    void notify(long chatId, String text);
+}
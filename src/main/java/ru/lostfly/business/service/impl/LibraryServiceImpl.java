@@ -1,51 +1,314 @@
 package ru.lostfly.business.service.impl;
 
+import lombok.extern.slf4j.Slf4j;
 import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.hold.Hold;
+import ru.lostfly.business.domain.loan.Loan;
 import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.events.DomainEventBus;
 import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.overdue.DueDateIndex;
+import ru.lostfly.business.repository.HoldRepository;
+import ru.lostfly.business.repository.HoldTransfer;
+import ru.lostfly.business.repository.LoanRepository;
+import ru.lostfly.business.repository.LoanResult;
+import ru.lostfly.business.repository.ReaderRepository;
 import ru.lostfly.business.service.LibraryService;
+import ru.lostfly.business.service.ReaderNotifier;
+import ru.lostfly.business.stats.LibraryStatistics;
 
+@Slf4j
 public class LibraryServiceImpl implements LibraryService {
     private final BookRepository bookRepository;
+    private final ReaderRepository readerRepository;
+    // Транзакционная выдача/возврат; null - состояние меняется прямо в объектах (in-memory)
+    private final LoanRepository loanRepository;
+    // Очереди ожидания; null - книги при возврате всегда возвращаются в каталог
+    private final HoldRepository holdRepository;
+    private final ReaderNotifier notifier;
+    // Агрегаты для /stats и /top_books; null - статистика не собирается
+    private final LibraryStatistics statistics;
+    // Сроки невозвращенных выдач для поиска просрочек
+    private final DueDateIndex dueDates;
+    // Выдачи и возвраты для подписчиков шины; null - события не публикуются
+    private final DomainEventBus events;
 
     public LibraryServiceImpl(BookRepository bookRepository) {
+        this(bookRepository, null);
+    }
+
+    public LibraryServiceImpl(BookRepository bookRepository, LoanRepository loanRepository) {
+        this(bookRepository, null, loanRepository, null, ReaderNotifier.NONE, null,
+                new DueDateIndex(DueDateIndex.DEFAULT_LOAN_PERIOD));
+    }
+
+    public LibraryServiceImpl(BookRepository bookRepository, ReaderRepository readerRepository,
+                              LoanRepository loanRepository, HoldRepository holdRepository,
+                              ReaderNotifier notifier, LibraryStatistics statistics, DueDateIndex dueDates) {
+        this(bookRepository, readerRepository, loanRepository, holdRepository, notifier, statistics, dueDates, null);
+    }
+
+    /**
+     * @param statistics агрегаты, обновляемые прямо в потоке выдачи; null, если статистика
+     *                   подписана на events и обновляется в потоке шины
+     */
+    public LibraryServiceImpl(BookRepository bookRepository, ReaderRepository readerRepository,
+                              LoanRepository loanRepository, HoldRepository holdRepository,
+                              ReaderNotifier notifier, LibraryStatistics statistics, DueDateIndex dueDates,
+                              DomainEventBus events) {
         this.bookRepository = bookRepository;
+        this.readerRepository = readerRepository;
+        this.loanRepository = loanRepository;
+        this.holdRepository = holdRepository;
+        this.notifier = notifier;
+        this.statistics = statistics;
+        this.dueDates = dueDates;
+        this.events = events;
     }
 
     public String borrowBook(String isbn, Reader reader) {
+        return borrowBook(isbn, reader, Loan.NO_CHAT);
+    }
 
-        if (!reader.canBorrowMore()) {
+    /**
+     * В in-memory режиме выдача не берет блокировок: место у читателя
+     * резервируется CAS-ом ({@link Reader#reserveSlot()}), книга захватывается
+     * CAS-ом ({@link Book#tryBorrow()}). Если книгу захватить не удалось,
+     * резерв освобождается.
+     */
+    public String borrowBook(String isbn, Reader reader, long chatId) {
+        if (loanRepository != null) {
+            return borrowInTransaction(isbn, reader, chatId);
+        }
+
+        if (!reader.reserveSlot()) {
             return "Читатель уже взял максимальное количество книг";
         }
 
+        boolean borrowed = false;
+        try {
+            Book book = bookRepository.findByIsbn(isbn);
+            if (book == null) {
+                return "Книга не найдена";
+            }
+            if (!book.tryBorrow()) {
+                return "Книга '" + book.getTitle() + "' недоступна";
+            }
+            reader.addReservedBook(book);
+            borrowed = true;
+            dueDates.add(newLoan(book.getIsbn(), reader.getId(), chatId));
+            recordBorrow(book.getIsbn(), book.getTitle(), reader.getId(), book.getTimesRead());
+            return "Книга успешно взята";
+        } finally {
+            if (!borrowed) {
+                reader.releaseSlot();
+            }
+        }
+    }
+
+    /**
+     * Возврат при непустой очереди не делает книгу доступной: она сразу
+     * выдается первому в очереди ({@link #handOver(Book, Reader)}). Голова очереди
+     * берется за O(1), читатели и книги не перебираются.
+     */
+    public String returnBook(Book bookArg, Reader reader) {
+        if (loanRepository != null) {
+            return returnInTransaction(bookArg, reader);
+        }
+
+        Book book = bookRepository.findByIsbn(bookArg.getIsbn());
+        if (book == null) {
+            bookRepository.save(bookArg);
+        }
+
+        // Удаление из списка читателя атомарно: при двух одновременных
+        // возвратах одной книги успех получит только один
+        if (book == null || !reader.removeBook(book)) {
+            return "Читатель не взял эту книгу";
+        }
+        dueDates.remove(book.getIsbn(), reader.getId());
+        recordReturn(book.getIsbn(), reader.getId());
+
+        if (handOver(book, reader)) {
+            return "Книга успешно возвращена и выдана следующему в очереди";
+        }
+        book.release();
+        return "Книга успешно возвращена";
+    }
+
+    public String placeHold(String isbn, Reader reader, long chatId) {
+        if (holdRepository == null) {
+            return "Очередь ожидания недоступна";
+        }
         Book book = bookRepository.findByIsbn(isbn);
         if (book == null) {
             return "Книга не найдена";
         }
+        if (book.isAvailable()) {
+            return "Книга '" + book.getTitle() + "' доступна, возьмите ее командой /borrow_book";
+        }
 
+        int position = holdRepository.enqueue(new Hold(isbn, reader.getId(), chatId));
+        if (position == 0) {
+            return "Вы уже в очереди на книгу '" + book.getTitle() + "'";
+        }
+        // Книгу могли вернуть между проверкой и постановкой - тогда очередь ее уже не дождется
+        Book current = bookRepository.findByIsbn(isbn);
+        if (current != null && current.isAvailable() && holdRepository.cancel(isbn, reader.getId())) {
+            return "Книга '" + book.getTitle() + "' доступна, возьмите ее командой /borrow_book";
+        }
+        return "Вы в очереди на книгу '" + book.getTitle() + "', место: " + position;
+    }
 
-        String result = book.borrow();
-        if (result.equals("Книга успешно взята")) {
-            reader.addBook(book);
-        } else {
-            return result;
+    /**
+     * Выдача через LoanRepository: проверка лимита, захват книги и запись
+     * о выдаче выполняются одной операцией хранилища.
+     */
+    private String borrowInTransaction(String isbn, Reader reader, long chatId) {
+        if (!reader.canBorrowMore()) {
+            return "Читатель уже взял максимальное количество книг";
         }
 
-        return "Книга успешно взята";
+        Loan loan = newLoan(isbn, reader.getId(), chatId);
+        LoanResult result = loanRepository.borrow(loan, Reader.MAX_BOOKS);
+        if (result.isSuccess()) {
+            dueDates.add(loan);
+            recordBorrow(isbn, result.getTitle(), reader.getId(), result.getTimesRead());
+        }
+        return switch (result.getStatus()) {
+            case SUCCESS -> "Книга успешно взята";
+            case LIMIT_REACHED -> "Читатель уже взял максимальное количество книг";
+            case BOOK_NOT_FOUND -> "Книга не найдена";
+            case BOOK_UNAVAILABLE -> "Книга '" + result.getTitle() + "' недоступна";
+            case READER_NOT_FOUND -> "Читатель не найден";
+            default -> "Не удалось выдать книгу";
+        };
     }
 
-    public String returnBook(Book bookArg, Reader reader) {
-        Book book = bookRepository.findByIsbn(bookArg.getIsbn());
-        if (book == null) {
-            bookRepository.save(bookArg);
+    private String returnInTransaction(Book book, Reader reader) {
+        if (holdRepository != null && hasIsbn(reader, book.getIsbn())) {
+            HoldTransfer passed = transferToNextHolder(book, reader);
+            if (passed != null) {
+                if (!passed.isSuccess()) {
+                    return "Читатель не взял эту книгу";
+                }
+                dueDates.remove(book.getIsbn(), reader.getId());
+                return "Книга успешно возвращена и выдана следующему в очереди";
+            }
         }
 
-        if (!reader.getBorrowedBooks().contains(book)) {
+        LoanResult result = loanRepository.returnBook(book.getIsbn(), reader.getId());
+        if (result.getStatus() == LoanResult.Status.NOT_BORROWED) {
             return "Читатель не взял эту книгу";
         }
-
-        book.setAvailable(true);
-        reader.removeBook(book);
+        dueDates.remove(book.getIsbn(), reader.getId());
+        recordReturn(book.getIsbn(), reader.getId());
         return "Книга успешно возвращена";
     }
+
+    /**
+     * In-memory: выдать возвращенную (еще недоступную) книгу первому в очереди,
+     * кто может ее взять. Книга не освобождается, поэтому ее не перехватит
+     * параллельный /borrow_book.
+     * @return false, если очередь пуста или никто из нее не может взять книгу
+     */
+    private boolean handOver(Book book, Reader returning) {
+        if (holdRepository == null || readerRepository == null) {
+            return false;
+        }
+        Hold hold;
+        while ((hold = holdRepository.poll(book.getIsbn())) != null) {
+            if (hold.getReaderId().equals(returning.getId())) {
+                continue;
+            }
+            Reader holder = readerRepository.findById(hold.getReaderId());
+            if (holder == null) {
+                continue;
+            }
+            if (!holder.reserveSlot()) {
+                notifyLimitReached(hold, book.getTitle());
+                continue;
+            }
+            holder.addReservedBook(book);
+            dueDates.add(newLoan(book.getIsbn(), holder.getId(), hold.getChatId()));
+            recordBorrow(book.getIsbn(), book.getTitle(), holder.getId(), book.incrementTimesRead());
+            notifyHandedOver(hold, book.getTitle());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Через LoanRepository: передать книгу первому в очереди, кто может ее взять,
+     * одной операцией хранилища (выдача закрывается и открывается у другого читателя).
+     * Если книгу уже вернули параллельно, очередь остается как была.
+     * @return SUCCESS - книга передана; NOT_BORROWED - у читателя нет книги;
+     *         null - никто из очереди не может взять книгу, ее нужно вернуть обычным способом
+     */
+    private HoldTransfer transferToNextHolder(Book book, Reader reader) {
+        String isbn = book.getIsbn();
+        HoldTransfer transfer = loanRepository.transferToNextHolder(reader.getId(), isbn, holdRepository,
+                hold -> newLoan(isbn, hold.getReaderId(), hold.getChatId()), Reader.MAX_BOOKS,
+                (hold, result) -> {
+                    if (result.getStatus() == LoanResult.Status.LIMIT_REACHED) {
+                        notifyLimitReached(hold, book.getTitle());
+                    } else {
+                        log.debug("Skipping hold of reader {} for book {}: {}",
+                                hold.getReaderId(), isbn, result.getStatus());
+                    }
+                });
+        if (transfer != null && transfer.isSuccess()) {
+            Hold hold = transfer.getHold();
+            dueDates.add(transfer.getLoan());
+            recordReturn(isbn, reader.getId());
+            recordBorrow(isbn, book.getTitle(), hold.getReaderId(), transfer.getResult().getTimesRead());
+            notifyHandedOver(hold, book.getTitle());
+        }
+        return transfer;
+    }
+
+    /**
+     * Выдача, сделанная сейчас: срок считается от текущего момента
+     */
+    private Loan newLoan(String isbn, String readerId, long chatId) {
+        return new Loan(isbn, readerId, chatId, dueDates.dueDateFromNow());
+    }
+
+    private void recordBorrow(String isbn, String title, String readerId, int timesRead) {
+        if (statistics != null && timesRead != LoanResult.UNKNOWN_TIMES_READ) {
+            statistics.recordBorrow(isbn, title, timesRead);
+        }
+        if (events != null) {
+            events.publishBookBorrowed(isbn, title, readerId, timesRead);
+        }
+    }
+
+    private void recordReturn(String isbn, String readerId) {
+        if (events != null) {
+            events.publishBookReturned(isbn, readerId);
+        }
+    }
+
+    private void notifyHandedOver(Hold hold, String title) {
+        notifier.notify(hold.getChatId(), "Книга '" + title + "' из вашей очереди вернулась и выдана читателю "
+                + hold.getReaderId());
+    }
+
+    private void notifyLimitReached(Hold hold, String title) {
+        notifier.notify(hold.getChatId(), "Книга '" + title + "' вернулась, но читатель " + hold.getReaderId()
+                + " уже взял максимальное количество книг. Место в очереди снято");
+    }
+
+    /**
+     * Есть ли у читателя книга с таким ISBN (читатель может быть загружен
+     * из хранилища, и объекты книг у него свои)
+     */
+    private static boolean hasIsbn(Reader reader, String isbn) {
+        for (Book borrowed : reader.getBorrowedBooks()) {
+            if (borrowed.getIsbn().equals(isbn)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
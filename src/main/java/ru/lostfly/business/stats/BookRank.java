@@ -0,0 +1,28 @@
+package ru.lostfly.business.stats;
+
+/**
+ * Строка рейтинга популярности: книга и сколько раз ее брали
+ */
+public final class BookRank {
+    private final String isbn;
+    private final String title;
+    private final int timesRead;
+
+    public BookRank(String isbn, String title, int timesRead) {
+        this.isbn = isbn;
+        this.title = title;
+        this.timesRead = timesRead;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getTimesRead() {
+        return timesRead;
+    }
+}
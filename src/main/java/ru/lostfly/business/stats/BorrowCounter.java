@@ -0,0 +1,77 @@
+package ru.lostfly.business.stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Число выдач по часам за последнюю неделю: кольцо из 168 часовых корзин.
+ * <p>
+ * Запись - инкремент счетчика корзины текущего часа; корзина, оставшаяся
+ * с прошлого круга, обнуляется при первой записи в новом часу. Чтение суммирует
+ * не больше 168 корзин, сколько бы выдач ни было.
+ */
+public class BorrowCounter {
+
+    private static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final int MAX_HOURS = 7 * 24;
+
+    private final LongSupplier clock;
+    private final AtomicLongArray counts = new AtomicLongArray(MAX_HOURS);
+    // Номер часа (от эпохи), которому сейчас принадлежит корзина
+    private final AtomicLongArray bucketHours = new AtomicLongArray(MAX_HOURS);
+    private final LongAdder total = new LongAdder();
+
+    public BorrowCounter() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock источник времени в миллисекундах
+     */
+    public BorrowCounter(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public void record() {
+        long hour = clock.getAsLong() / BUCKET_MILLIS;
+        int slot = (int) (hour % MAX_HOURS);
+        if (bucketHours.get(slot) != hour) {
+            // Смена часа - редкое событие, блокировка только здесь
+            synchronized (this) {
+                if (bucketHours.get(slot) != hour) {
+                    counts.set(slot, 0);
+                    bucketHours.set(slot, hour);
+                }
+            }
+        }
+        counts.incrementAndGet(slot);
+        total.increment();
+    }
+
+    /**
+     * Выдачи за последние hours часов, включая текущий (неполный) час
+     */
+    public long countLastHours(int hours) {
+        if (hours <= 0 || hours > MAX_HOURS) {
+            throw new IllegalArgumentException("hours must be in 1.." + MAX_HOURS + ": " + hours);
+        }
+        long now = clock.getAsLong() / BUCKET_MILLIS;
+        long sum = 0;
+        for (long hour = now - hours + 1; hour <= now; hour++) {
+            int slot = (int) (hour % MAX_HOURS);
+            if (bucketHours.get(slot) == hour) {
+                sum += counts.get(slot);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Выдачи с момента создания счетчика
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+}
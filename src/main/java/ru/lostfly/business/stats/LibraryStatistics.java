@@ -0,0 +1,114 @@
+package ru.lostfly.business.stats;
+
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.events.DomainEvent;
+import ru.lostfly.business.events.DomainEventHandler;
+import ru.lostfly.business.events.EventType;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.LoanResult;
+import ru.lostfly.business.repository.ReaderRepository;
+
+import java.util.List;
+
+/**
+ * Статистика библиотеки из агрегатов, которые обновляются при каждой выдаче,
+ * а не пересчитываются по каталогу и истории выдач:
+ * <ul>
+ *     <li>рейтинг самых читаемых книг ({@link TopBooks});</li>
+ *     <li>число выдач по часам за неделю ({@link BorrowCounter});</li>
+ *     <li>число книг и читателей - из репозиториев, которые держат их готовыми.</li>
+ * </ul>
+ * Рейтинг один раз заполняется из хранилища при первом чтении
+ * ({@link BookRepository#findMostRead(int)}), дальше живет только на выдачах.
+ * Счетчик выдач по времени считает с момента запуска.
+ * <p>
+ * Выдачи приходят вызовом {@link #recordBorrow} или событиями
+ * {@link EventType#BOOK_BORROWED} из {@link ru.lostfly.business.events.DomainEventBus} -
+ * тогда агрегаты обновляются в потоке шины, а не в потоке выдачи.
+ */
+public class LibraryStatistics implements DomainEventHandler {
+
+    // Сколько мест рейтинга хранится (и сколько можно запросить)
+    public static final int TOP_CAPACITY = 50;
+
+    private final BookRepository bookRepository;
+    private final ReaderRepository readerRepository;
+    private final TopBooks topBooks = new TopBooks(TOP_CAPACITY);
+    private final BorrowCounter borrows;
+    private volatile boolean seeded;
+
+    public LibraryStatistics(BookRepository bookRepository, ReaderRepository readerRepository) {
+        this(bookRepository, readerRepository, new BorrowCounter());
+    }
+
+    public LibraryStatistics(BookRepository bookRepository, ReaderRepository readerRepository,
+                             BorrowCounter borrows) {
+        this.bookRepository = bookRepository;
+        this.readerRepository = readerRepository;
+        this.borrows = borrows;
+    }
+
+    /**
+     * Книгу выдали читателю
+     * @param timesRead счетчик прочтений книги после выдачи
+     */
+    public void recordBorrow(String isbn, String title, int timesRead) {
+        borrows.record();
+        topBooks.update(isbn, title, timesRead);
+    }
+
+    @Override
+    public void onEvent(DomainEvent event, boolean endOfBatch) {
+        if (event.getType() == EventType.BOOK_BORROWED && event.getTimesRead() != LoanResult.UNKNOWN_TIMES_READ) {
+            recordBorrow(event.getIsbn(), event.getTitle(), event.getTimesRead());
+        }
+    }
+
+    /**
+     * Самые читаемые книги, не больше {@link #TOP_CAPACITY}
+     */
+    public List<BookRank> getTopBooks(int limit) {
+        seedIfNeeded();
+        return topBooks.top(Math.min(limit, TOP_CAPACITY));
+    }
+
+    public int getTotalBooks() {
+        return bookRepository.getTotalBooks();
+    }
+
+    public int getTotalReaders() {
+        return readerRepository.getTotalReaders();
+    }
+
+    /**
+     * Выдачи за последние hours часов (не больше недели)
+     */
+    public long getBorrowsLastHours(int hours) {
+        return borrows.countLastHours(hours);
+    }
+
+    /**
+     * Выдачи с момента запуска
+     */
+    public long getTotalBorrows() {
+        return borrows.getTotal();
+    }
+
+    /**
+     * Рейтинг берет максимум из известных значений, поэтому выдачи,
+     * записанные до заполнения, не теряются и не откатываются
+     */
+    private void seedIfNeeded() {
+        if (seeded) {
+            return;
+        }
+        synchronized (this) {
+            if (!seeded) {
+                for (Book book : bookRepository.findMostRead(TOP_CAPACITY)) {
+                    topBooks.update(book.getIsbn(), book.getTitle(), book.getTimesRead());
+                }
+                seeded = true;
+            }
+        }
+    }
+}
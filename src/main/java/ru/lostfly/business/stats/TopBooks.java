@@ -0,0 +1,91 @@
+package ru.lostfly.business.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * K самых читаемых книг, поддерживаемые по одной выдаче за раз.
+ * <p>
+ * Счетчик прочтений только растет, поэтому книга вне рейтинга может попасть
+ * в него лишь обогнав последнее место - тогда последнее место вытесняется.
+ * Рейтинг - упорядоченное дерево на K элементов (а не куча: книгу из рейтинга
+ * нужно передвигать при каждой ее выдаче), обновление - O(log K), чтение - O(K).
+ * <p>
+ * Выдачи книг, которые заведомо не попадут в рейтинг (меньше последнего места),
+ * отсекаются без блокировки по volatile-порогу.
+ */
+public class TopBooks {
+
+    // Больше прочтений - выше; при равенстве - по ISBN
+    private static final Comparator<BookRank> ORDER = Comparator
+            .comparingInt(BookRank::getTimesRead).reversed()
+            .thenComparing(BookRank::getIsbn);
+
+    private final int capacity;
+    private final TreeSet<BookRank> ranking = new TreeSet<>(ORDER);
+    private final Map<String, BookRank> members = new HashMap<>();
+    // Прочтений у последнего места заполненного рейтинга; 0 - рейтинг не заполнен
+    private volatile int threshold;
+
+    public TopBooks(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Учесть новое значение счетчика прочтений книги.
+     * Устаревшие значения (меньше уже известного) игнорируются,
+     * поэтому порядок вызовов из разных потоков не важен.
+     */
+    public void update(String isbn, String title, int timesRead) {
+        if (timesRead < threshold) {
+            return;
+        }
+        synchronized (this) {
+            BookRank candidate = new BookRank(isbn, title, timesRead);
+            BookRank current = members.get(isbn);
+            if (current != null) {
+                if (current.getTimesRead() >= timesRead) {
+                    return;
+                }
+                ranking.remove(current);
+            } else if (ranking.size() == capacity) {
+                BookRank last = ranking.last();
+                if (ORDER.compare(candidate, last) >= 0) {
+                    return;
+                }
+                ranking.pollLast();
+                members.remove(last.getIsbn());
+            }
+            ranking.add(candidate);
+            members.put(isbn, candidate);
+            if (ranking.size() == capacity) {
+                threshold = ranking.last().getTimesRead();
+            }
+        }
+    }
+
+    /**
+     * Первые limit мест рейтинга
+     */
+    public synchronized List<BookRank> top(int limit) {
+        List<BookRank> result = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (BookRank rank : ranking) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(rank);
+        }
+        return result;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.lostfly.components.api;
+
+/**
+ * Снимок метрик {@link UpdateDispatcher}
+ */
+public class DispatcherMetrics {
+
+    private final int queueDepth;
+    private final long processed;
+    private final long failed;
+    private final long totalLatencyNanos;
+    private final long maxLatencyNanos;
+
+    public DispatcherMetrics(int queueDepth, long processed, long failed,
+                             long totalLatencyNanos, long maxLatencyNanos) {
+        this.queueDepth = queueDepth;
+        this.processed = processed;
+        this.failed = failed;
+        this.totalLatencyNanos = totalLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    /**
+     * Сколько обновлений ждет в очередях
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Средняя задержка (ожидание в очереди + обработка) в микросекундах
+     */
+    public double getAverageLatencyMicros() {
+        return processed == 0 ? 0.0 : totalLatencyNanos / 1_000.0 / processed;
+    }
+
+    public double getMaxLatencyMicros() {
+        return maxLatencyNanos / 1_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "DispatcherMetrics{" +
+                "queueDepth=" + queueDepth +
+                ", processed=" + processed +
+                ", failed=" + failed +
+                ", avgLatencyMicros=" + String.format("%.1f", getAverageLatencyMicros()) +
+                ", maxLatencyMicros=" + String.format("%.1f", getMaxLatencyMicros()) +
+                '}';
+    }
+}
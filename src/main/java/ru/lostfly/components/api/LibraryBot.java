@@ -1,29 +1,86 @@
 package ru.lostfly.components.api;
 
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import ru.lostfly.business.handlers.TgApiHandler;
 import ru.lostfly.components.repository.RepositoryComponent;
 import ru.lostfly.config.BotConfig;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 public class LibraryBot extends TelegramLongPollingBot {
 
     private TgApiHandler tgApiHandler;
+    private final UpdateDispatcher dispatcher;
+    private final MessageSender messageSender;
 
     public LibraryBot() {
-        this.tgApiHandler = new TgApiHandler(RepositoryComponent.RepositoryMode.DATABASE);
+        super(botOptions(), BotConfig.getBotToken());
+        this.messageSender = new MessageSender(this::executeAsync, BotConfig.getSenderThreads(),
+                MetricsRegistry.getDefault());
+        // Уведомления о выдаче из очереди уходят через ту же очередь отправки, что и ответы
+        this.tgApiHandler = new TgApiHandler(repositoryMode(), messageSender::send);
+        // Первые запросы после деплоя не должны ждать открытия соединений
+        tgApiHandler.warmUp();
+        // Напоминания о просрочке уходят через ту же очередь отправки
+        tgApiHandler.startOverdueScanner(Duration.ofSeconds(BotConfig.getOverdueScanIntervalSeconds()));
+        this.dispatcher = new UpdateDispatcher(BotConfig.getWorkerThreads(), BotConfig.getUpdateQueueCapacity());
+
+        MetricsRegistry.getDefault().gauge("dispatcher_queue_depth", "Updates waiting in dispatcher queues",
+                () -> dispatcher.getMetrics().getQueueDepth());
     }
 
-    @Override
-    public String getBotUsername() {
-        return BotConfig.getBotUsername();
+    /**
+     * Режим хранилища из REPOSITORY_MODE.
+     * Обновления разных чатов обрабатываются параллельно, поэтому режимы
+     * с непотокобезопасным каталогом ({@link RepositoryComponent.RepositoryMode#isThreadSafe()}) не подходят.
+     * @throws IllegalArgumentException если режим не известен или не потокобезопасен
+     */
+    private static RepositoryComponent.RepositoryMode repositoryMode() {
+        String name = BotConfig.getRepositoryMode().toUpperCase(Locale.ROOT);
+        RepositoryComponent.RepositoryMode mode;
+        try {
+            mode = RepositoryComponent.RepositoryMode.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown REPOSITORY_MODE: " + name + ", expected one of "
+                    + botModes(), e);
+        }
+        if (!mode.isThreadSafe()) {
+            throw new IllegalArgumentException("REPOSITORY_MODE " + name + " is not thread-safe, "
+                    + "but the bot handles chats in parallel; expected one of " + botModes());
+        }
+        return mode;
+    }
+
+    private static List<RepositoryComponent.RepositoryMode> botModes() {
+        List<RepositoryComponent.RepositoryMode> modes = new ArrayList<>();
+        for (RepositoryComponent.RepositoryMode mode : RepositoryComponent.RepositoryMode.values()) {
+            if (mode.isThreadSafe()) {
+                modes.add(mode);
+            }
+        }
+        return modes;
+    }
+
+    /**
+     * Потоки библиотеки для executeAsync - столько же, сколько потоков отправки
+     */
+    private static DefaultBotOptions botOptions() {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setMaxThreads(BotConfig.getSenderThreads());
+        return options;
     }
 
     @Override
-    public String getBotToken() {
-        return BotConfig.getBotToken();
+    public String getBotUsername() {
+        return BotConfig.getBotUsername();
     }
 
     @Override
@@ -36,21 +93,50 @@ public class LibraryBot extends TelegramLongPollingBot {
         String messageText = update.getMessage().getText();
         Long chatId = update.getMessage().getChatId();
 
-        // Передаем chatId в обработчик для поддержки сессий
-        String result = tgApiHandler.handleUpdateReceived(chatId, messageText);
+        // Обработка уходит в пул потоков, поток long polling сразу свободен.
+        // Сообщения одного чата обрабатываются по порядку.
+        dispatcher.dispatch(chatId, () -> {
+            // Передаем chatId в обработчик для поддержки сессий
+            String result = tgApiHandler.handleUpdateReceived(chatId, messageText);
 
-        sendMessage(chatId, result);
+            sendMessage(chatId, result);
+        });
     }
 
-    private void sendMessage(Long chatId, String text) {
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(text);
-
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
+    /**
+     * Включить доставку обновлений на вебхук (для режима WEBHOOK вместо регистрации long polling).
+     * Обновления с сервера вебхука передаются в {@link #onUpdateReceived(Update)}.
+     * @param secret значение заголовка X-Telegram-Bot-Api-Secret-Token; пусто - без секрета
+     */
+    public void setWebhook(String url, String secret) throws TelegramApiException {
+        SetWebhook.SetWebhookBuilder webhook = SetWebhook.builder()
+                .url(url)
+                .allowedUpdate("message");
+        if (!secret.isEmpty()) {
+            webhook.secretToken(secret);
         }
+        execute(webhook.build());
+    }
+
+    /**
+     * Метрики очереди обработки обновлений
+     */
+    public DispatcherMetrics getDispatcherMetrics() {
+        return dispatcher.getMetrics();
+    }
+
+    @Override
+    public void onClosing() {
+        dispatcher.close();
+        messageSender.close();
+        tgApiHandler.close();
+        super.onClosing();
+    }
+
+    /**
+     * Ответ уходит в очередь отправки: поток обработки не ждет Telegram API
+     */
+    private void sendMessage(Long chatId, String text) {
+        messageSender.send(chatId, text);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,352 @@
+package ru.lostfly.components.api;
+
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.lostfly.metrics.Counter;
+import ru.lostfly.metrics.LatencyHistogram;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Очередь исходящих сообщений бота.
+ * <p>
+ * {@link #send(long, String)} только кладет ответ в очередь чата и сразу возвращает
+ * управление - обработка входящих обновлений не ждет сети. Дальше небольшой пул
+ * потоков отправляет сообщения асинхронно (executeAsync):
+ * <ul>
+ *     <li>в каждый чат - по одному сообщению за раз, порядок ответов сохраняется;</li>
+ *     <li>частота ограничена "ведрами с токенами": общим на бота и отдельным на чат
+ *     (лимиты Telegram - около 30 сообщений в секунду и 1 в секунду в один чат);</li>
+ *     <li>ответы, накопившиеся в очереди чата, склеиваются в одно сообщение;</li>
+ *     <li>текст длиннее 4096 символов режется на части по строкам;</li>
+ *     <li>при ошибке - повтор с экспоненциальной задержкой,
+ *     при 429 - через retry_after из ответа Telegram.</li>
+ * </ul>
+ */
+@Slf4j
+public class MessageSender implements AutoCloseable {
+
+    /**
+     * Отправка одного сообщения в Telegram (в боте - executeAsync)
+     */
+    @FunctionalInterface
+    public interface Transport {
+        CompletableFuture<?> send(SendMessage message) throws TelegramApiException;
+    }
+
+    // Ограничение Telegram на длину текста сообщения
+    static final int MAX_MESSAGE_LENGTH = 4096;
+    // Разделитель склеенных ответов
+    private static final String SEPARATOR = "\n\n";
+
+    private static final int GLOBAL_BURST = 30;
+    private static final double GLOBAL_PER_SECOND = 30.0;
+    private static final int CHAT_BURST = 3;
+    private static final double CHAT_PER_SECOND = 1.0;
+
+    // Сколько неотправленных ответов держать на чат; лишние (самые старые) отбрасываются
+    private static final int MAX_PENDING_PER_CHAT = 50;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private final Transport transport;
+    private final ScheduledExecutorService scheduler;
+    // Очереди чатов, в которых есть что отправить (или не восстановился лимит)
+    private final ConcurrentHashMap<Long, Outbox> outboxes = new ConcurrentHashMap<>();
+    private final TokenBucket globalBucket = new TokenBucket(GLOBAL_BURST, GLOBAL_PER_SECOND, System.nanoTime());
+
+    private final LatencyHistogram executeLatency;
+    private final Counter executeFailures;
+    private final Counter retries;
+    private final Counter dropped;
+    private final Counter coalesced;
+
+    private volatile boolean closed;
+
+    public MessageSender(Transport transport, int workers, MetricsRegistry registry) {
+        this.transport = transport;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(workers, runnable -> {
+            Thread thread = new Thread(runnable, "message-sender-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+
+        this.executeLatency = registry.histogram("telegram_execute_seconds",
+                "Telegram API call latency", "method", "sendMessage");
+        this.executeFailures = registry.counter("telegram_execute_failures_total",
+                "Messages dropped after all retries", "method", "sendMessage");
+        this.retries = registry.counter("outbound_retries_total", "Retried outbound messages");
+        this.dropped = registry.counter("outbound_dropped_total", "Replies dropped because a chat queue was full");
+        this.coalesced = registry.counter("outbound_coalesced_total", "Replies merged into a previous message");
+        registry.gauge("outbound_chats_pending", "Chats with queued outbound messages", outboxes::size);
+    }
+
+    /**
+     * Поставить ответ в очередь чата. Не блокируется и не ходит в сеть.
+     */
+    public void send(long chatId, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            log.warn("Message sender is closed, reply to chat {} dropped", chatId);
+            dropped.increment();
+            return;
+        }
+        while (true) {
+            Outbox outbox = outboxes.computeIfAbsent(chatId, Outbox::new);
+            synchronized (outbox) {
+                if (outbox.removed) {
+                    continue; // очередь только что удалили - берем новую
+                }
+                if (outbox.pending.size() >= MAX_PENDING_PER_CHAT) {
+                    outbox.pending.poll();
+                    dropped.increment();
+                    log.warn("Outbound queue of chat {} is full, oldest reply dropped", chatId);
+                }
+                outbox.pending.add(text);
+                if (!outbox.active) {
+                    outbox.active = true;
+                    schedule(outbox, 0);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Дождаться отправки очереди (не дольше 10 секунд) и остановить потоки
+     */
+    @Override
+    public void close() {
+        closed = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        while (hasUnsent() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        scheduler.shutdownNow();
+        log.info("Message sender stopped");
+    }
+
+    private boolean hasUnsent() {
+        for (Outbox outbox : outboxes.values()) {
+            synchronized (outbox) {
+                if (!outbox.pending.isEmpty() || !outbox.chunks.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void schedule(Outbox outbox, long delayNanos) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        scheduler.schedule(() -> drain(outbox), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Отправить следующее сообщение чата, если позволяют лимиты
+     */
+    private void drain(Outbox outbox) {
+        long now = System.nanoTime();
+        String chunk;
+        synchronized (outbox) {
+            if (outbox.chunks.isEmpty()) {
+                if (outbox.pending.isEmpty()) {
+                    // Очередь удаляется только с полным ведром, иначе новый ответ
+                    // получил бы свежий лимит и чат превысил бы 1 сообщение в секунду
+                    long untilFull = outbox.bucket.nanosUntilFull(now);
+                    if (untilFull > 0) {
+                        schedule(outbox, untilFull);
+                    } else {
+                        outbox.active = false;
+                        outbox.removed = true;
+                        outboxes.remove(outbox.chatId, outbox);
+                    }
+                    return;
+                }
+                coalesce(outbox);
+            }
+            chunk = outbox.chunks.peek();
+        }
+
+        // В очередь чата пишет только этот поток (active), поэтому проверка и захват не разделены гонкой
+        long wait = outbox.bucket.nanosUntilAvailable(now);
+        if (wait == 0) {
+            wait = globalBucket.tryAcquire(now);
+        }
+        if (wait > 0) {
+            schedule(outbox, wait);
+            return;
+        }
+        outbox.bucket.tryAcquire(now);
+        execute(outbox, chunk);
+    }
+
+    private void execute(Outbox outbox, String chunk) {
+        SendMessage message = new SendMessage();
+        message.setChatId(outbox.chatId);
+        message.setText(chunk);
+
+        long start = System.nanoTime();
+        CompletableFuture<?> future;
+        try {
+            future = transport.send(message);
+        } catch (TelegramApiException | RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, error) -> {
+            executeLatency.recordSince(start);
+            if (error == null) {
+                onSent(outbox);
+            } else {
+                onFailed(outbox, error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        });
+    }
+
+    private void onSent(Outbox outbox) {
+        synchronized (outbox) {
+            outbox.chunks.poll();
+            outbox.attempts = 0;
+        }
+        schedule(outbox, 0);
+    }
+
+    private void onFailed(Outbox outbox, Throwable error) {
+        long delayMillis;
+        synchronized (outbox) {
+            outbox.attempts++;
+            Integer retryAfter = null;
+            boolean permanent = false;
+            if (error instanceof TelegramApiRequestException request) {
+                if (request.getParameters() != null) {
+                    retryAfter = request.getParameters().getRetryAfter();
+                }
+                Integer code = request.getErrorCode();
+                // 400 (неверный запрос), 403 (бот заблокирован) и т.п. повтор не исправит
+                permanent = code != null && code >= 400 && code < 500 && code != 429;
+            }
+
+            if (permanent || outbox.attempts >= MAX_ATTEMPTS) {
+                outbox.chunks.poll();
+                outbox.attempts = 0;
+                executeFailures.increment();
+                log.error("Failed to send message to chat {}, message dropped", outbox.chatId, error);
+                delayMillis = 0;
+            } else {
+                retries.increment();
+                delayMillis = retryAfter != null
+                        ? TimeUnit.SECONDS.toMillis(retryAfter)
+                        : Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (outbox.attempts - 1));
+                log.warn("Failed to send message to chat {} (attempt {}), retry in {} ms: {}",
+                        outbox.chatId, outbox.attempts, delayMillis, error.getMessage());
+            }
+        }
+        schedule(outbox, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    }
+
+    /**
+     * Склеить накопившиеся ответы в сообщения не длиннее лимита Telegram
+     */
+    private void coalesce(Outbox outbox) {
+        StringBuilder current = new StringBuilder();
+        int replies = 0;
+        String reply;
+        while ((reply = outbox.pending.poll()) != null) {
+            for (String part : split(reply)) {
+                if (current.length() > 0
+                        && current.length() + SEPARATOR.length() + part.length() > MAX_MESSAGE_LENGTH) {
+                    outbox.chunks.add(current.toString());
+                    current.setLength(0);
+                }
+                if (current.length() > 0) {
+                    current.append(SEPARATOR);
+                }
+                current.append(part);
+            }
+            replies++;
+        }
+        if (current.length() > 0) {
+            outbox.chunks.add(current.toString());
+        }
+        if (replies > 1) {
+            coalesced.add(replies - 1);
+        }
+    }
+
+    /**
+     * Разрезать текст на части не длиннее {@link #MAX_MESSAGE_LENGTH}:
+     * по переводу строки, иначе по пробелу, иначе - по длине
+     * (не разрывая суррогатную пару)
+     */
+    static List<String> split(String text) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (text.length() - start > MAX_MESSAGE_LENGTH) {
+            int end = start + MAX_MESSAGE_LENGTH;
+            int minCut = start + MAX_MESSAGE_LENGTH / 2;
+            int cut = text.lastIndexOf('\n', end - 1);
+            if (cut <= minCut) {
+                cut = text.lastIndexOf(' ', end - 1);
+            }
+            boolean separator = cut > minCut;
+            if (!separator) {
+                cut = Character.isHighSurrogate(text.charAt(end - 1)) ? end - 1 : end;
+            }
+            parts.add(text.substring(start, cut));
+            start = separator ? cut + 1 : cut;
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    /**
+     * Очередь одного чата. Поля меняются под блокировкой самого объекта.
+     */
+    private static final class Outbox {
+        private final long chatId;
+        private final TokenBucket bucket;
+        // Ответы обработчика, еще не разложенные на сообщения
+        private final Deque<String> pending = new ArrayDeque<>();
+        // Готовые к отправке сообщения; первое - отправляется сейчас
+        private final Deque<String> chunks = new ArrayDeque<>();
+        // Для чата запланирована отправка (не более одной задачи на чат)
+        private boolean active;
+        // Очередь удалена из map - новые ответы идут в новую
+        private boolean removed;
+        private int attempts;
+
+        private Outbox(long chatId) {
+            this.chatId = chatId;
+            this.bucket = new TokenBucket(CHAT_BURST, CHAT_PER_SECOND, System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.lostfly.components.api;
+
+/**
+ * Ограничитель частоты "ведро с токенами": до {@code capacity} событий подряд,
+ * дальше - {@code permitsPerSecond} событий в секунду.
+ * Время передается снаружи (System.nanoTime()), чтобы не вызывать часы дважды.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double nanosPerPermit;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(int capacity, double permitsPerSecond, long nowNanos) {
+        if (capacity <= 0 || permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and permitsPerSecond must be positive");
+        }
+        this.capacity = capacity;
+        this.nanosPerPermit = 1_000_000_000.0 / permitsPerSecond;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Через сколько наносекунд будет доступен токен (0 - уже доступен). Токен не расходуется.
+     */
+    public synchronized long nanosUntilAvailable(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1.0) {
+            return 0;
+        }
+        return (long) Math.ceil((1.0 - tokens) * nanosPerPermit);
+    }
+
+    /**
+     * Взять токен, если он есть
+     * @return 0 - токен взят, иначе через сколько наносекунд повторить попытку
+     */
+    public synchronized long tryAcquire(long nowNanos) {
+        long wait = nanosUntilAvailable(nowNanos);
+        if (wait == 0) {
+            tokens -= 1.0;
+        }
+        return wait;
+    }
+
+    /**
+     * Через сколько наносекунд ведро наполнится целиком (0 - уже полное)
+     */
+    public synchronized long nanosUntilFull(long nowNanos) {
+        refill(nowNanos);
+        return (long) Math.ceil((capacity - tokens) * nanosPerPermit);
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed / nanosPerPermit);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
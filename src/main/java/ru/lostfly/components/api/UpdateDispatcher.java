@@ -0,0 +1,153 @@
+package ru.lostfly.components.api;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Параллельная обработка входящих обновлений с сохранением порядка внутри чата.
+ * <p>
+ * Обновления раскладываются по "дорожкам" (lane) по хешу chatId.
+ * У каждой дорожки свой поток и своя ограниченная очередь, поэтому:
+ * <ul>
+ *     <li>сообщения одного чата обрабатываются строго по очереди
+ *     (важно для пошаговых диалогов UserSession);</li>
+ *     <li>медленный запрос одного пользователя не блокирует остальные дорожки;</li>
+ *     <li>если очередь дорожки заполнена, поток long polling ждет
+ *     (backpressure) вместо бесконечного роста памяти.</li>
+ * </ul>
+ */
+@Slf4j
+public class UpdateDispatcher implements AutoCloseable {
+
+    private final Lane[] lanes;
+
+    // Метрики
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public UpdateDispatcher(int workers, int queueCapacity) {
+        if (workers <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("workers and queueCapacity must be positive");
+        }
+        this.lanes = new Lane[workers];
+        for (int i = 0; i < workers; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+            lanes[i].start();
+        }
+        log.info("Update dispatcher started: {} workers, queue capacity {}", workers, queueCapacity);
+    }
+
+    /**
+     * Поставить обработку обновления в очередь дорожки этого чата.
+     * Блокирует вызывающий поток, если очередь дорожки заполнена.
+     */
+    public void dispatch(long chatId, Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("Dispatcher is closed");
+        }
+        Lane lane = lanes[Math.floorMod(Long.hashCode(chatId), lanes.length)];
+        try {
+            lane.queue.put(new Task(task, System.nanoTime()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while dispatching update for chat {}", chatId);
+        }
+    }
+
+    /**
+     * Текущее состояние: глубина очередей и задержка обработки
+     */
+    public DispatcherMetrics getMetrics() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return new DispatcherMetrics(depth, processed.sum(), failed.sum(),
+                totalLatencyNanos.sum(), maxLatencyNanos.get());
+    }
+
+    /**
+     * Дождаться обработки уже принятых обновлений и остановить потоки
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Lane lane : lanes) {
+            lane.interrupt();
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("Update dispatcher stopped");
+    }
+
+    private void record(long enqueuedAt) {
+        long latency = System.nanoTime() - enqueuedAt;
+        processed.increment();
+        totalLatencyNanos.add(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    private static final class Task {
+        private final Runnable runnable;
+        private final long enqueuedAt;
+
+        private Task(Runnable runnable, long enqueuedAt) {
+            this.runnable = runnable;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * Дорожка: один поток + ограниченная очередь
+     */
+    private final class Lane extends Thread {
+        private final BlockingQueue<Task> queue;
+
+        private Lane(int index, int capacity) {
+            super("update-worker-" + index);
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!closed || !queue.isEmpty()) {
+                Task task;
+                try {
+                    task = closed ? queue.poll() : queue.take();
+                } catch (InterruptedException e) {
+                    // close() будит поток - дорабатываем остаток очереди
+                    continue;
+                }
+                if (task == null) {
+                    break;
+                }
+                try {
+                    task.runnable.run();
+                } catch (Throwable e) {
+                    // Error обработчика (StackOverflowError, OutOfMemoryError на огромном ответе)
+                    // не должен убивать дорожку: иначе обновления ее чатов так и останутся в очереди
+                    failed.increment();
+                    log.error("Error while processing update", e);
+                } finally {
+                    record(task.enqueuedAt);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ru.lostfly.components.api;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.lostfly.metrics.Counter;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Прием обновлений Telegram через вебхук ({@code POST} на path) вместо long polling.
+ * <p>
+ * Соединения обслуживает неблокирующий (NIO) цикл встроенного HttpServer, keep-alive
+ * соединения переиспользуются для следующих запросов. Потоки пула только разбирают
+ * тело запроса потоковым парсером Jackson (без чтения в строку) и отдают каждое
+ * обновление обработчику - обычно {@link UpdateDispatcher}, который держит порядок
+ * внутри чата. Ответ 200 уходит сразу после постановки в очередь.
+ * <p>
+ * Кроме одного обновления тело может содержать JSON-массив обновлений - так удобно
+ * проверять бота локально на записанных обновлениях:
+ * <pre>
+ *   curl -H 'Content-Type: application/json' --data-binary @updates.json \
+ *        http://127.0.0.1:8080/telegram/webhook
+ * </pre>
+ * Обновления массива передаются обработчику по мере разбора; при ошибке разбора
+ * уже прочитанные обновления остаются принятыми, а ответ - 400.
+ */
+@Slf4j
+public class WebhookServer implements AutoCloseable {
+
+    static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    // Telegram добавляет новые поля в обновления раньше, чем их узнает библиотека
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Consumer<Update> handler;
+    // null - секрет не проверяется
+    private final byte[] secret;
+
+    private final Counter updates;
+    private final Counter rejected;
+
+    /**
+     * @param handler получатель обновлений; должен быстро вернуть управление
+     * @param secret ожидаемое значение заголовка {@value #SECRET_HEADER}; пусто - не проверять
+     * @param threads потоки разбора запросов
+     */
+    public WebhookServer(Consumer<Update> handler, String host, int port, String path, String secret,
+                         int threads, MetricsRegistry registry) throws IOException {
+        this.handler = handler;
+        this.secret = secret == null || secret.isEmpty() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.updates = registry.counter("webhook_updates_total", "Updates received via webhook");
+        this.rejected = registry.counter("webhook_rejected_total", "Webhook requests rejected");
+
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(path, this::handle);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "webhook-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        log.info("Webhook endpoint started: http://{}:{}{}, {} threads, secret {}",
+                host, getPort(), path, threads, this.secret != null ? "required" : "not checked");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        log.info("Webhook endpoint stopped");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                reject(exchange, 405);
+                return;
+            }
+            if (secret != null && !secretMatches(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                reject(exchange, 401);
+                return;
+            }
+
+            int status;
+            try (InputStream body = exchange.getRequestBody()) {
+                readUpdates(body);
+                status = 200;
+            } catch (JsonProcessingException e) {
+                log.warn("Malformed webhook update: {}", e.getOriginalMessage());
+                rejected.increment();
+                status = 400;
+            } catch (IllegalStateException e) {
+                // Обработка остановлена - Telegram повторит доставку позже
+                rejected.increment();
+                status = 503;
+            }
+            exchange.sendResponseHeaders(status, -1);
+        }
+    }
+
+    /**
+     * Одно обновление или массив обновлений; каждое отдается обработчику сразу после разбора
+     */
+    private void readUpdates(InputStream body) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                    accept(MAPPER.readValue(parser, Update.class));
+                }
+                if (token != JsonToken.END_ARRAY) {
+                    throw new JsonParseException(parser, "Expected update object, got " + token);
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                accept(MAPPER.readValue(parser, Update.class));
+            } else {
+                throw new JsonParseException(parser, "Expected update object or array, got " + token);
+            }
+        }
+    }
+
+    private void accept(Update update) {
+        updates.increment();
+        handler.accept(update);
+    }
+
+    private boolean secretMatches(String header) {
+        // Сравнение за постоянное время: по времени ответа секрет не подобрать
+        return header != null && MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void reject(HttpExchange exchange, int status) throws IOException {
+        rejected.increment();
+        // Непрочитанное тело не дает переиспользовать соединение для следующего запроса
+        try (InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        exchange.sendResponseHeaders(status, -1);
+    }
+}
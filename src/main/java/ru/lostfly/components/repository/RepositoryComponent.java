@@ -1,23 +1,83 @@
 package ru.lostfly.components.repository;
 
+import ru.lostfly.business.events.DomainEventBus;
 import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.repository.HoldRepository;
+import ru.lostfly.business.repository.LoanRepository;
+import ru.lostfly.business.repository.PageRequest;
 import ru.lostfly.business.repository.ReaderRepository;
+import ru.lostfly.business.repository.cache.CacheInvalidatingLoanRepository;
+import ru.lostfly.business.repository.cache.CachingBookRepository;
+import ru.lostfly.business.repository.cache.CachingReaderRepository;
+import ru.lostfly.business.repository.compact.CompactBookRepository;
+import ru.lostfly.business.repository.compact.CompactCatalog;
+import ru.lostfly.business.repository.compact.CompactLoanRepository;
+import ru.lostfly.business.repository.compact.CompactReaderRepository;
+import ru.lostfly.business.repository.durable.DurableBookRepository;
+import ru.lostfly.business.repository.durable.DurableLoanRepository;
+import ru.lostfly.business.repository.durable.DurableReaderRepository;
+import ru.lostfly.business.repository.durable.DurableStore;
+import ru.lostfly.business.repository.events.EventPublishingBookRepository;
+import ru.lostfly.business.repository.events.EventPublishingReaderRepository;
 import ru.lostfly.business.repository.impl.BookRepositoryDBImpl;
 import ru.lostfly.business.repository.impl.BookRepositoryImpl;
+import ru.lostfly.business.repository.impl.BookRepositoryIndexedImpl;
+import ru.lostfly.business.repository.impl.HoldRepositoryDBImpl;
+import ru.lostfly.business.repository.impl.HoldRepositoryImpl;
+import ru.lostfly.business.repository.impl.LoanRepositoryDBImpl;
 import ru.lostfly.business.repository.impl.ReaderRepositoryDBImpl;
 import ru.lostfly.business.repository.impl.ReaderRepositoryImpl;
+import ru.lostfly.business.repository.metrics.TimedBookRepository;
+import ru.lostfly.business.repository.metrics.TimedReaderRepository;
+import ru.lostfly.config.BotConfig;
+import ru.lostfly.config.DatabaseConnection;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 
 public class RepositoryComponent {
 
+    // Параметры кэша для режима DATABASE_CACHED
+    private static final int CACHE_MAX_SIZE = 10_000;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(5);
+
     private final BookRepository bookRepository;
     private final ReaderRepository readerRepository;
+    private final LoanRepository loanRepository;
+    private final HoldRepository holdRepository;
+    private final RepositoryMode mode;
+    // Журнал и снимки режима IN_MEMORY_DURABLE; null в остальных режимах
+    private final DurableStore durableStore;
+    // Доменные события; потребители подписываются и запускают шину в ServiceComponent
+    private final DomainEventBus eventBus;
 
     /**
      * Режим работы репозитория
      */
     public enum RepositoryMode {
-        IN_MEMORY,  // В памяти (ArrayList)
-        DATABASE    // MySQL база данных
+        IN_MEMORY(false),          // В памяти (ArrayList)
+        IN_MEMORY_INDEXED(false),  // В памяти с хеш-индексами (ISBN, автор, доступность)
+        IN_MEMORY_DURABLE(true),   // В памяти + журнал операций и снимки на диске
+        IN_MEMORY_COMPACT(true),   // В памяти, каталог в примитивных массивах (большие каталоги)
+        DATABASE(true),            // MySQL база данных
+        DATABASE_CACHED(true);     // MySQL + LRU/TTL кэш поиска по ключу
+
+        private final boolean threadSafe;
+
+        RepositoryMode(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+        }
+
+        /**
+         * Можно ли одновременно менять каталог и читать его из нескольких потоков.
+         * IN_MEMORY и IN_MEMORY_INDEXED хранят книги и читателей в обычных коллекциях:
+         * одновременно безопасны только выдача и возврат (счетчики книг и читателей).
+         */
+        public boolean isThreadSafe() {
+            return threadSafe;
+        }
     }
 
     /**
@@ -31,17 +91,63 @@ public class RepositoryComponent {
      * Конструктор с выбором режима работы
      */
     public RepositoryComponent(RepositoryMode mode) {
+        this.mode = mode;
+        BookRepository books;
+        ReaderRepository readers;
+        DurableStore store = null;
         switch (mode) {
             case DATABASE:
-                this.bookRepository = new BookRepositoryDBImpl();
-                this.readerRepository = new ReaderRepositoryDBImpl();
+                books = new BookRepositoryDBImpl();
+                readers = new ReaderRepositoryDBImpl();
+                this.loanRepository = new LoanRepositoryDBImpl();
+                break;
+            case DATABASE_CACHED:
+                CachingBookRepository cachedBooks = new CachingBookRepository(
+                        new BookRepositoryDBImpl(), CACHE_MAX_SIZE, CACHE_TTL);
+                CachingReaderRepository cachedReaders = new CachingReaderRepository(
+                        new ReaderRepositoryDBImpl(), CACHE_MAX_SIZE, CACHE_TTL);
+                registerCacheMetrics(cachedBooks, cachedReaders);
+                books = cachedBooks;
+                readers = cachedReaders;
+                this.loanRepository = new CacheInvalidatingLoanRepository(
+                        new LoanRepositoryDBImpl(), cachedBooks, cachedReaders);
+                break;
+            case IN_MEMORY_DURABLE:
+                store = openDurableStore();
+                books = new DurableBookRepository(store);
+                readers = new DurableReaderRepository(store);
+                this.loanRepository = new DurableLoanRepository(store);
+                break;
+            case IN_MEMORY_COMPACT:
+                CompactCatalog catalog = new CompactCatalog();
+                books = new CompactBookRepository(catalog);
+                readers = new CompactReaderRepository(catalog);
+                this.loanRepository = new CompactLoanRepository(catalog);
+                break;
+            case IN_MEMORY_INDEXED:
+                books = new BookRepositoryIndexedImpl();
+                readers = new ReaderRepositoryImpl();
+                this.loanRepository = null;
                 break;
             case IN_MEMORY:
             default:
-                this.bookRepository = new BookRepositoryImpl();
-                this.readerRepository = new ReaderRepositoryImpl();
+                books = new BookRepositoryImpl();
+                readers = new ReaderRepositoryImpl();
+                this.loanRepository = null;
                 break;
         }
+
+        this.durableStore = store;
+        // Очереди ожидания: в MySQL для режимов с базой, иначе в памяти
+        this.holdRepository = mode == RepositoryMode.DATABASE || mode == RepositoryMode.DATABASE_CACHED
+                ? new HoldRepositoryDBImpl()
+                : new HoldRepositoryImpl();
+
+        // Время каждого вызова репозитория (внешний слой - с учетом кэша и публикации событий)
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        this.eventBus = new DomainEventBus(BotConfig.getEventBufferSize(), registry);
+        this.bookRepository = new TimedBookRepository(new EventPublishingBookRepository(books, eventBus), registry);
+        this.readerRepository = new TimedReaderRepository(new EventPublishingReaderRepository(readers, eventBus), registry);
     }
 
     /**
@@ -59,4 +165,73 @@ public class RepositoryComponent {
     public ReaderRepository getReaderRepository() {
         return readerRepository;
     }
-}
\ No newline at end of file
+
+    /**
+     * Получить транзакционное хранилище выдач.
+     * @return null, если режим хранит состояние выдачи прямо в объектах (in-memory)
+     */
+    public LoanRepository getLoanRepository() {
+        return loanRepository;
+    }
+
+    /**
+     * Получить очереди ожидания книг.
+     */
+    public HoldRepository getHoldRepository() {
+        return holdRepository;
+    }
+
+    /**
+     * Получить шину доменных событий (сохранение книг и читателей публикуют репозитории).
+     */
+    public DomainEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Прогреть пул соединений и подготовленные запросы чтения до приема трафика.
+     * В in-memory режимах ничего не делает.
+     */
+    public void warmUp() {
+        if (mode != RepositoryMode.DATABASE && mode != RepositoryMode.DATABASE_CACHED) {
+            return;
+        }
+        // Запросы с заведомо пустым результатом: в кэш ничего не попадает
+        PageRequest firstPage = PageRequest.first(10);
+        DatabaseConnection.warmUp(() -> {
+            bookRepository.findByIsbn("");
+            bookRepository.findAvailableBooks(firstPage);
+            bookRepository.findByAuthor("warmup");
+            bookRepository.search("warmup", 10);
+            readerRepository.findById("");
+        });
+    }
+
+    /**
+     * Освободить ресурсы хранилища (доменные события; в режиме IN_MEMORY_DURABLE - снимок и закрытие журнала)
+     */
+    public void close() {
+        eventBus.close();
+        if (durableStore != null) {
+            durableStore.close();
+        }
+    }
+
+    private static DurableStore openDurableStore() {
+        try {
+            return new DurableStore(Path.of(BotConfig.getDataDir()), BotConfig.isWalSyncCommit());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open durable storage", e);
+        }
+    }
+
+    private static void registerCacheMetrics(CachingBookRepository books, CachingReaderRepository readers) {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        registry.counterFunction("cache_hits_total", "Cache hits", () -> books.getStats().getHits(), "cache", "book");
+        registry.counterFunction("cache_misses_total", "Cache misses", () -> books.getStats().getMisses(), "cache", "book");
+        registry.gauge("cache_size", "Cached entries", () -> books.getStats().getSize(), "cache", "book");
+        registry.counterFunction("cache_hits_total", "Cache hits", () -> readers.getStats().getHits(), "cache", "reader");
+        registry.counterFunction("cache_misses_total", "Cache misses", () -> readers.getStats().getMisses(), "cache", "reader");
+        registry.gauge("cache_size", "Cached entries", () -> readers.getStats().getSize(), "cache", "reader");
+    }
+}
@@ -1,21 +1,66 @@
 package ru.lostfly.components.service;
 
 import ru.lostfly.components.repository.RepositoryComponent;
+import ru.lostfly.business.events.DomainEventBus;
+import ru.lostfly.business.overdue.DueDateIndex;
+import ru.lostfly.business.overdue.OverdueScanner;
+import ru.lostfly.business.repository.LoanRepository;
 import ru.lostfly.business.service.LibraryService;
+import ru.lostfly.business.service.ReaderNotifier;
 import ru.lostfly.business.service.impl.LibraryServiceImpl;
+import ru.lostfly.business.stats.LibraryStatistics;
+import ru.lostfly.config.BotConfig;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import java.time.Duration;
 
 public class ServiceComponent {
     
     private final LibraryService libraryService;
+    private final LibraryStatistics libraryStatistics;
+    private final DueDateIndex dueDateIndex;
+    private final OverdueScanner overdueScanner;
     
     /**
      * Создает сервисы с правильными зависимостями.
      * Принимает RepositoryComponent для получения репозиториев.
      */
     public ServiceComponent(RepositoryComponent repositoryComponent) {
+        this(repositoryComponent, ReaderNotifier.NONE);
+    }
+
+    /**
+     * @param notifier куда отправлять уведомления читателям (выдача книги из очереди,
+     *                 напоминания о просрочке)
+     */
+    public ServiceComponent(RepositoryComponent repositoryComponent, ReaderNotifier notifier) {
+        this.libraryStatistics = new LibraryStatistics(
+            repositoryComponent.getBookRepository(),
+            repositoryComponent.getReaderRepository()
+        );
+        // Сроки невозвращенных выдач восстанавливаются из хранилища один раз при старте
+        // (кроме тех, о которых уже напомнили)
+        this.dueDateIndex = new DueDateIndex(Duration.ofDays(BotConfig.getLoanPeriodDays()));
+        LoanRepository loanRepository = repositoryComponent.getLoanRepository();
+        if (loanRepository != null) {
+            dueDateIndex.rebuild(loanRepository.findActiveLoans());
+        }
+        this.overdueScanner = new OverdueScanner(dueDateIndex, repositoryComponent.getBookRepository(),
+                loanRepository, notifier, MetricsRegistry.getDefault());
+        // Статистика обновляется событиями выдачи в потоке шины, а не в потоке выдачи
+        DomainEventBus eventBus = repositoryComponent.getEventBus();
+        eventBus.subscribe("statistics", libraryStatistics);
+        eventBus.start();
         // Создаем сервис с зависимостью от репозитория
         this.libraryService = new LibraryServiceImpl(
-            repositoryComponent.getBookRepository()
+            repositoryComponent.getBookRepository(),
+            repositoryComponent.getReaderRepository(),
+            loanRepository,
+            repositoryComponent.getHoldRepository(),
+            notifier,
+            null,
+            dueDateIndex,
+            eventBus
         );
     }
     
@@ -25,4 +70,25 @@ public class ServiceComponent {
     public LibraryService getLibraryService() {
         return libraryService;
     }
-}
\ No newline at end of file
+
+    /**
+     * Получить статистику библиотеки.
+     */
+    public LibraryStatistics getLibraryStatistics() {
+        return libraryStatistics;
+    }
+
+    /**
+     * Получить фоновую проверку просроченных выдач (запускается отдельно, {@link OverdueScanner#start}).
+     */
+    public OverdueScanner getOverdueScanner() {
+        return overdueScanner;
+    }
+
+    /**
+     * Остановить фоновые задачи сервисов.
+     */
+    public void close() {
+        overdueScanner.close();
+    }
+}
@@ -14,4 +14,136 @@ public class BotConfig {
     public static String getBotUsername() {
         return dotenv.get("TELEGRAM_BOT_USERNAME");
     }
+
+    /**
+     * Количество потоков обработки входящих обновлений
+     */
+    public static int getWorkerThreads() {
+        return getInt("BOT_WORKER_THREADS", Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Размер очереди обновлений на один поток обработки
+     */
+    public static int getUpdateQueueCapacity() {
+        return getInt("BOT_UPDATE_QUEUE_CAPACITY", 1000);
+    }
+
+    /**
+     * Количество потоков отправки исходящих сообщений
+     */
+    public static int getSenderThreads() {
+        return getInt("BOT_SENDER_THREADS", 2);
+    }
+
+    /**
+     * Порт локального эндпоинта метрик /metrics; 0 - не запускать
+     */
+    public static int getMetricsPort() {
+        return getInt("METRICS_PORT", 9404);
+    }
+
+    /**
+     * Режим хранилища бота: IN_MEMORY_DURABLE, IN_MEMORY_COMPACT, DATABASE (по умолчанию)
+     * или DATABASE_CACHED. IN_MEMORY и IN_MEMORY_INDEXED не потокобезопасны - бот с ними не стартует
+     */
+    public static String getRepositoryMode() {
+        return get("REPOSITORY_MODE", "DATABASE");
+    }
+
+    /**
+     * Каталог журнала и снимков режима IN_MEMORY_DURABLE
+     */
+    public static String getDataDir() {
+        return get("DATA_DIR", "data");
+    }
+
+    /**
+     * Ждать ли сброса журнала на диск перед ответом (false - до 10 мс данных
+     * могут потеряться при сбое питания, зато запись не ждет fsync)
+     */
+    public static boolean isWalSyncCommit() {
+        return Boolean.parseBoolean(get("WAL_SYNC_COMMIT", "true"));
+    }
+
+    /**
+     * Срок выдачи книги в днях
+     */
+    public static int getLoanPeriodDays() {
+        return getInt("LOAN_PERIOD_DAYS", 14);
+    }
+
+    /**
+     * Как часто искать просроченные выдачи, в секундах
+     */
+    public static int getOverdueScanIntervalSeconds() {
+        return getInt("OVERDUE_SCAN_INTERVAL_SECONDS", 60);
+    }
+
+    /**
+     * Как получать обновления: LONG_POLLING (по умолчанию) или WEBHOOK
+     */
+    public static String getBotMode() {
+        return get("BOT_MODE", "LONG_POLLING");
+    }
+
+    /**
+     * Публичный HTTPS-адрес вебхука для setWebhook; пусто - вебхук уже настроен
+     * (или обновления присылаются вручную для проверки)
+     */
+    public static String getWebhookUrl() {
+        return get("BOT_WEBHOOK_URL", "");
+    }
+
+    /**
+     * Адрес и порт, на которых слушает сервер вебхука (TLS снимает прокси перед ним)
+     */
+    public static String getWebhookHost() {
+        return get("BOT_WEBHOOK_HOST", "0.0.0.0");
+    }
+
+    public static int getWebhookPort() {
+        return getInt("BOT_WEBHOOK_PORT", 8080);
+    }
+
+    public static String getWebhookPath() {
+        return get("BOT_WEBHOOK_PATH", "/telegram/webhook");
+    }
+
+    /**
+     * Секрет из заголовка X-Telegram-Bot-Api-Secret-Token; пусто - не проверять
+     */
+    public static String getWebhookSecret() {
+        return get("BOT_WEBHOOK_SECRET", "");
+    }
+
+    /**
+     * Потоки приема запросов вебхука: только разбор JSON и постановка в очередь обработки
+     */
+    public static int getWebhookThreads() {
+        return getInt("BOT_WEBHOOK_THREADS", 4);
+    }
+
+    /**
+     * Емкость кольцевого буфера доменных событий (округляется до степени двойки)
+     */
+    public static int getEventBufferSize() {
+        return getInt("EVENT_BUFFER_SIZE", 8192);
+    }
+
+    static String get(String key, String defaultValue) {
+        String value = dotenv.get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    static int getInt(String key, int defaultValue) {
+        String value = dotenv.get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
 }
@@ -0,0 +1,184 @@
+package ru.lostfly.config;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Настройки пула соединений и драйвера MySQL.
+ * Читаются из .env / переменных окружения тем же механизмом, что и {@link BotConfig}:
+ * <pre>
+ *   DB_URL, DB_USER, DB_PASSWORD
+ *   DB_POOL_SIZE                  максимум соединений (по умолчанию 10)
+ *   DB_POOL_MIN_IDLE              минимум простаивающих (по умолчанию = DB_POOL_SIZE)
+ *   DB_CONNECTION_TIMEOUT_MS      ожидание свободного соединения (3000)
+ *   DB_IDLE_TIMEOUT_MS            закрытие лишних простаивающих (600000)
+ *   DB_MAX_LIFETIME_MS            пересоздание соединения (1800000, меньше wait_timeout MySQL)
+ *   DB_LEAK_DETECTION_MS          предупреждение о неотданном соединении (10000, 0 - выкл.)
+ *   DB_PREP_STMT_CACHE_SIZE       подготовленных запросов на соединение (250)
+ *   DB_PREP_STMT_CACHE_SQL_LIMIT  максимальная длина кэшируемого SQL (2048)
+ *
+ *   DB_REPLICA_URLS               JDBC URL реплик для чтения через запятую (пусто - все на основной)
+ *   DB_REPLICA_POOL_SIZE          соединений в пуле каждой реплики (= DB_POOL_SIZE)
+ *   DB_REPLICA_MAX_LAG_SECONDS    допустимое отставание реплики (5), больше - чтение с основной
+ *   DB_REPLICA_CHECK_INTERVAL_MS  как часто проверять отставание (1000)
+ *   DB_READ_YOUR_WRITES_MS        сколько после записи чат читает с основной
+ *                                 (допустимое отставание + интервал проверки + 1 с)
+ * </pre>
+ */
+public class DatabaseConfig {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int poolSize;
+    private final int minIdle;
+    private final int connectionTimeoutMs;
+    private final int idleTimeoutMs;
+    private final int maxLifetimeMs;
+    private final int leakDetectionMs;
+    private final int prepStmtCacheSize;
+    private final int prepStmtCacheSqlLimit;
+    private final List<String> replicaUrls;
+    private final int replicaPoolSize;
+    private final int replicaMaxLagSeconds;
+    private final int replicaCheckIntervalMs;
+    private final int readYourWritesMs;
+
+    private DatabaseConfig() {
+        this.url = BotConfig.get("DB_URL", "jdbc:mysql://localhost:3306/library_db");
+        this.user = BotConfig.get("DB_USER", "library_user");
+        this.password = BotConfig.get("DB_PASSWORD", "library_pass");
+        this.poolSize = BotConfig.getInt("DB_POOL_SIZE", 10);
+        // Фиксированный размер пула (minIdle = max) - нет задержек на открытие соединений под нагрузкой
+        this.minIdle = BotConfig.getInt("DB_POOL_MIN_IDLE", poolSize);
+        this.connectionTimeoutMs = BotConfig.getInt("DB_CONNECTION_TIMEOUT_MS", 3_000);
+        this.idleTimeoutMs = BotConfig.getInt("DB_IDLE_TIMEOUT_MS", 600_000);
+        this.maxLifetimeMs = BotConfig.getInt("DB_MAX_LIFETIME_MS", 1_800_000);
+        this.leakDetectionMs = BotConfig.getInt("DB_LEAK_DETECTION_MS", 10_000);
+        this.prepStmtCacheSize = BotConfig.getInt("DB_PREP_STMT_CACHE_SIZE", 250);
+        this.prepStmtCacheSqlLimit = BotConfig.getInt("DB_PREP_STMT_CACHE_SQL_LIMIT", 2048);
+        this.replicaUrls = parseList(BotConfig.get("DB_REPLICA_URLS", ""));
+        this.replicaPoolSize = BotConfig.getInt("DB_REPLICA_POOL_SIZE", poolSize);
+        this.replicaMaxLagSeconds = BotConfig.getInt("DB_REPLICA_MAX_LAG_SECONDS", 5);
+        this.replicaCheckIntervalMs = BotConfig.getInt("DB_REPLICA_CHECK_INTERVAL_MS", 1_000);
+        // Пока реплика может не видеть запись, читать ее с реплики нельзя. Отставание
+        // известно с точностью до секунды и на момент последней проверки - к нему
+        // добавляются интервал проверки и секунда округления
+        this.readYourWritesMs = BotConfig.getInt("DB_READ_YOUR_WRITES_MS",
+                replicaMaxLagSeconds * 1_000 + replicaCheckIntervalMs + 1_000);
+    }
+
+    /**
+     * Загрузить настройки из окружения
+     */
+    public static DatabaseConfig fromEnv() {
+        return new DatabaseConfig();
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public List<String> getReplicaUrls() {
+        return replicaUrls;
+    }
+
+    public int getReplicaMaxLagSeconds() {
+        return replicaMaxLagSeconds;
+    }
+
+    public int getReplicaCheckIntervalMs() {
+        return replicaCheckIntervalMs;
+    }
+
+    public int getReadYourWritesMs() {
+        return readYourWritesMs;
+    }
+
+    /**
+     * Конфигурация HikariCP с настройками драйвера MySQL Connector/J
+     */
+    public HikariConfig toHikariConfig() {
+        return hikariConfig("library-pool", url, poolSize, Math.min(minIdle, poolSize));
+    }
+
+    /**
+     * Пул реплики: те же настройки драйвера, соединения только для чтения
+     * @param index номер реплики в DB_REPLICA_URLS, с нуля
+     */
+    public HikariConfig toReplicaHikariConfig(int index) {
+        HikariConfig config = hikariConfig("library-replica-" + (index + 1), replicaUrls.get(index),
+                replicaPoolSize, replicaPoolSize);
+        config.setReadOnly(true);
+        // Недоступная при старте реплика не мешает запуску: чтение пойдет на основной пул
+        config.setInitializationFailTimeout(-1);
+        return config;
+    }
+
+    private HikariConfig hikariConfig(String poolName, String jdbcUrl, int maxSize, int minIdleSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(user);
+        config.setPassword(password);
+
+        config.setMaximumPoolSize(maxSize);
+        config.setMinimumIdle(minIdleSize);
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setIdleTimeout(idleTimeoutMs);
+        config.setMaxLifetime(maxLifetimeMs);
+        if (leakDetectionMs > 0) {
+            config.setLeakDetectionThreshold(leakDetectionMs);
+        }
+
+        // Кэш подготовленных запросов на стороне драйвера + серверная подготовка:
+        // повторный запрос не разбирается заново ни клиентом, ни сервером
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(prepStmtCacheSize));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(prepStmtCacheSqlLimit));
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        // addBatch склеивается в многострочные INSERT
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        // Меньше служебных запросов к серверу на каждую операцию
+        config.addDataSourceProperty("cacheResultSetMetadata", "true");
+        config.addDataSourceProperty("cacheServerConfiguration", "true");
+        config.addDataSourceProperty("useLocalSessionState", "true");
+        config.addDataSourceProperty("elideSetAutoCommits", "true");
+        config.addDataSourceProperty("maintainTimeStats", "false");
+        config.addDataSourceProperty("tcpKeepAlive", "true");
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        // Без пароля - строка попадает в лог
+        return "DatabaseConfig{" +
+                "url='" + url + '\'' +
+                ", user='" + user + '\'' +
+                ", poolSize=" + poolSize +
+                ", minIdle=" + minIdle +
+                ", connectionTimeoutMs=" + connectionTimeoutMs +
+                ", leakDetectionMs=" + leakDetectionMs +
+                ", prepStmtCacheSize=" + prepStmtCacheSize +
+                ", replicaUrls=" + replicaUrls +
+                ", replicaMaxLagSeconds=" + replicaMaxLagSeconds +
+                '}';
+    }
+
+    private static List<String> parseList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) {
+                items.add(item.trim());
+            }
+        }
+        return Collections.unmodifiableList(items);
+    }
+}
@@ -3,48 +3,176 @@ package ru.lostfly.config;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.metrics.HikariMetricsTrackerFactory;
+import ru.lostfly.metrics.MetricsRegistry;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Точка доступа к пулу соединений.
+ * <p>
+ * Пул создается лениво - при первом запросе соединения, а не при загрузке класса,
+ * поэтому in-memory режимы и код, не обращающийся к БД, не ждут MySQL.
+ * Настройки берутся из {@link DatabaseConfig}. Источник соединений можно
+ * подменить через {@link #setDataSource(DataSource)} (например, в тестах).
+ * <p>
+ * Если заданы реплики (DB_REPLICA_URLS), запросы только на чтение берут соединение
+ * через {@link #getReadConnection()}: с реплики, отставание которой допустимо, или
+ * с основного пула - см. {@link ReplicaSet}. Запись всегда идет через
+ * {@link #getConnection()}.
+ */
 @Slf4j
 public class DatabaseConnection {
-    private static HikariDataSource dataSource;
 
-    // Параметры подключения к БД
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/library_db";
-    private static final String DB_USER = "library_user";
-    private static final String DB_PASSWORD = "library_pass";
+    // Сколько раз прогнать прогревочные запросы на каждом потоке
+    private static final int WARM_UP_ROUNDS = 20;
 
-    static {
-        try {
-            HikariConfig config = new HikariConfig();
-            config.setJdbcUrl(DB_URL);
-            config.setUsername(DB_USER);
-            config.setPassword(DB_PASSWORD);
+    private static final Object LOCK = new Object();
+    private static volatile DataSource dataSource;
+    // Пул создан здесь (а не передан снаружи) - значит, и закрывать его нам
+    private static boolean ownsDataSource;
+    // null - реплик нет, все читается с основного пула
+    private static volatile ReplicaSet replicaSet;
 
-            dataSource = new HikariDataSource(config);
-            log.info("Database connection pool initialized successfully");
-        } catch (Exception e) {
-            log.error("Failed to initialize database connection pool", e);
-            throw new RuntimeException("Unable to initialize database connection pool", e);
+    /**
+     * Получить соединение с базой данных из пула
+     */
+    public static Connection getConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
+
+    /**
+     * Запись закоммичена: если поток обрабатывает сообщение чата, следующие
+     * DB_READ_YOUR_WRITES_MS чтения этого чата идут с основного пула.
+     * Вызывается после коммита на путях записи (чтение с основного пула записью не считается).
+     */
+    public static void recordWrite() {
+        ReplicaSet replicas = replicaSet;
+        if (replicas != null) {
+            replicas.recordWrite();
         }
     }
 
     /**
-     * Получить соединение с базой данных из пула
+     * Соединение для запросов только на чтение: с реплики, если она не отстает
+     * больше допустимого и чат недавно ничего не записывал; иначе с основного пула.
+     * Данные могут отставать от основного сервера на DB_REPLICA_MAX_LAG_SECONDS.
      */
-    public static Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+    public static Connection getReadConnection() throws SQLException {
+        DataSource primary = getDataSource();
+        ReplicaSet replicas = replicaSet;
+        return replicas != null ? replicas.getReadConnection(primary) : primary.getConnection();
+    }
+
+    /**
+     * Текущий поток обрабатывает сообщение чата: после записей этого чата
+     * его чтение идет с основного пула (чат видит свои изменения сразу).
+     * Снимается {@link #unbindChat()} в finally.
+     */
+    public static void bindChat(long chatId) {
+        ReplicaSet.bindChat(chatId);
+    }
+
+    public static void unbindChat() {
+        ReplicaSet.unbindChat();
+    }
+
+    /**
+     * Текущий источник соединений; при первом обращении создает пул
+     */
+    public static DataSource getDataSource() {
+        DataSource current = dataSource;
+        if (current != null) {
+            return current;
+        }
+        synchronized (LOCK) {
+            if (dataSource == null) {
+                DatabaseConfig config = DatabaseConfig.fromEnv();
+                HikariDataSource primary = createPool(config.toHikariConfig(), config);
+                // Реплики видны до основного пула: первый же запрос уже может читать с них
+                replicaSet = createReplicas(config);
+                dataSource = primary;
+                ownsDataSource = true;
+            }
+            return dataSource;
+        }
+    }
+
+    /**
+     * Подменить источник соединений. Пул, созданный этим классом, закрывается;
+     * переданный снаружи источник закрывает тот, кто его создал.
+     * @param replacement новый источник или null - при следующем запросе пул создастся заново
+     */
+    public static void setDataSource(DataSource replacement) {
+        synchronized (LOCK) {
+            closeOwnedPool();
+            dataSource = replacement;
+            ownsDataSource = false;
+        }
+    }
+
+    /**
+     * Прогрев перед приемом трафика: открывает соединения пула и выполняет
+     * {@code probe} параллельно на стольких потоках, сколько соединений в пуле.
+     * Hikari отдает потоку последнее использованное им соединение, поэтому
+     * подготовленные запросы попадают в кэш каждого соединения,
+     * а код маппинга успевает скомпилироваться JIT.
+     * Ошибки прогрева только логируются.
+     */
+    public static void warmUp(Runnable probe) {
+        long start = System.nanoTime();
+        DataSource current;
+        try {
+            current = getDataSource();
+        } catch (RuntimeException e) {
+            log.warn("Database warm-up skipped: pool is not available", e);
+            return;
+        }
+
+        int threads = current instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 1;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "db-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> tasks = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                tasks.add(executor.submit(() -> {
+                    for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+                        probe.run();
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            log.info("Database warm-up finished: {} connections in {} ms",
+                    threads, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Database warm-up failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
      * Закрыть пул соединений (вызывать при завершении приложения)
      */
     public static void close() {
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
-            log.info("Database connection pool closed");
+        synchronized (LOCK) {
+            closeOwnedPool();
+            dataSource = null;
         }
     }
 
@@ -54,9 +182,46 @@ public class DatabaseConnection {
     public static boolean testConnection() {
         try (Connection connection = getConnection()) {
             return connection != null && !connection.isClosed();
-        } catch (SQLException e) {
+        } catch (SQLException | RuntimeException e) {
             log.error("Database connection test failed", e);
             return false;
         }
     }
-}
\ No newline at end of file
+
+    private static HikariDataSource createPool(HikariConfig hikariConfig, DatabaseConfig config) {
+        try {
+            // Метрики пула: /metrics (Prometheus) и JMX (com.zaxxer.hikari:type=Pool)
+            hikariConfig.setMetricsTrackerFactory(new HikariMetricsTrackerFactory(MetricsRegistry.getDefault()));
+            hikariConfig.setRegisterMbeans(true);
+
+            HikariDataSource pool = new HikariDataSource(hikariConfig);
+            log.info("Database connection pool {} initialized successfully: {}", hikariConfig.getPoolName(), config);
+            return pool;
+        } catch (Exception e) {
+            log.error("Failed to initialize database connection pool", e);
+            throw new RuntimeException("Unable to initialize database connection pool", e);
+        }
+    }
+
+    private static ReplicaSet createReplicas(DatabaseConfig config) {
+        if (config.getReplicaUrls().isEmpty()) {
+            return null;
+        }
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (int i = 0; i < config.getReplicaUrls().size(); i++) {
+            pools.add(createPool(config.toReplicaHikariConfig(i), config));
+        }
+        return new ReplicaSet(pools, config, MetricsRegistry.getDefault());
+    }
+
+    private static void closeOwnedPool() {
+        if (replicaSet != null) {
+            replicaSet.close();
+            replicaSet = null;
+        }
+        if (ownsDataSource && dataSource instanceof HikariDataSource pool && !pool.isClosed()) {
+            pool.close();
+            log.info("Database connection pool closed");
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package ru.lostfly.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import ru.lostfly.metrics.Counter;
+import ru.lostfly.metrics.MetricsRegistry;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Реплики для чтения и выбор источника для читающего запроса.
+ * <p>
+ * Фоновый поток раз в интервал спрашивает у каждой реплики отставание
+ * ({@code SHOW REPLICA STATUS}). Чтение уходит на реплики по кругу, если их
+ * отставание не больше допустимого; иначе, а также пока отставание не известно
+ * или реплика недоступна, - на основной пул.
+ * <p>
+ * Чтение своих записей: пока обрабатывается сообщение чата ({@link #bindChat}),
+ * каждая закоммиченная запись ({@link DatabaseConnection#recordWrite()}) отмечается
+ * за этим чатом, и следующие DB_READ_YOUR_WRITES_MS его чтения идут на основной пул. Время последней записи
+ * хранится в массиве по хешу chatId без выделения памяти; совпадение хешей лишь
+ * отправит чужой чат на основной пул - читать устаревшие данные это не заставит.
+ */
+@Slf4j
+final class ReplicaSet implements AutoCloseable {
+
+    // Ячеек для времени последней записи чатов
+    private static final int WRITE_SLOTS = 4096;
+    // Отставание неизвестно: реплика недоступна или репликация остановлена
+    private static final long UNKNOWN_LAG = -1;
+
+    // Чат, сообщение которого обрабатывает текущий поток
+    private static final ThreadLocal<ChatScope> CURRENT_CHAT = ThreadLocal.withInitial(ChatScope::new);
+
+    private final Replica[] replicas;
+    private final long maxLagSeconds;
+    private final long readYourWritesNanos;
+    private final AtomicLongArray lastWriteNanos = new AtomicLongArray(WRITE_SLOTS);
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService monitor;
+
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    ReplicaSet(List<HikariDataSource> pools, DatabaseConfig config, MetricsRegistry registry) {
+        this.replicas = new Replica[pools.size()];
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica = new Replica(pools.get(i));
+            replicas[i] = replica;
+            registry.gauge("db_replica_lag_seconds", "Replication lag of a read replica, -1 if unknown",
+                    () -> replica.lagSeconds, "replica", replica.pool.getPoolName());
+        }
+        this.maxLagSeconds = config.getReplicaMaxLagSeconds();
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(config.getReadYourWritesMs());
+        this.replicaReads = registry.counter("db_reads_total", "Read-only queries by target", "target", "replica");
+        this.primaryReads = registry.counter("db_reads_total", "Read-only queries by target", "target", "primary");
+
+        this.monitor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Первая проверка сразу; до нее чтение идет на основной пул
+        monitor.scheduleWithFixedDelay(this::checkReplicas, 0, config.getReplicaCheckIntervalMs(),
+                TimeUnit.MILLISECONDS);
+        log.info("Read replicas: {}, max lag {} s, read-your-writes {} ms",
+                replicas.length, maxLagSeconds, config.getReadYourWritesMs());
+        long minReadYourWritesMs = maxLagSeconds * 1_000 + config.getReplicaCheckIntervalMs();
+        if (config.getReadYourWritesMs() <= minReadYourWritesMs) {
+            log.warn("DB_READ_YOUR_WRITES_MS {} is not above max lag + check interval ({} ms): "
+                    + "a chat may read from a replica that has not applied its write yet",
+                    config.getReadYourWritesMs(), minReadYourWritesMs);
+        }
+    }
+
+    static void bindChat(long chatId) {
+        ChatScope scope = CURRENT_CHAT.get();
+        scope.chatId = chatId;
+        scope.bound = true;
+    }
+
+    static void unbindChat() {
+        CURRENT_CHAT.get().bound = false;
+    }
+
+    /**
+     * Соединение для чтения: с подходящей реплики или, если такой нет, с основного пула
+     */
+    Connection getReadConnection(DataSource primary) throws SQLException {
+        if (!readsOwnWrite()) {
+            int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.length; i++) {
+                Replica replica = replicas[Math.floorMod(start + i, replicas.length)];
+                if (!replica.usable) {
+                    continue;
+                }
+                try {
+                    Connection connection = replica.pool.getConnection();
+                    replicaReads.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    // До следующей проверки реплика не используется
+                    replica.markUnavailable();
+                    log.warn("Replica {} is unavailable, reading from primary", replica.pool.getPoolName(), e);
+                }
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Закоммичена запись: если идет обработка сообщения чата - это его запись
+     */
+    void recordWrite() {
+        ChatScope scope = CURRENT_CHAT.get();
+        if (scope.bound) {
+            lastWriteNanos.set(slot(scope.chatId), System.nanoTime());
+        }
+    }
+
+    @Override
+    public void close() {
+        monitor.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+        log.info("Read replica pools closed");
+    }
+
+    private boolean readsOwnWrite() {
+        ChatScope scope = CURRENT_CHAT.get();
+        if (!scope.bound) {
+            return false;
+        }
+        long written = lastWriteNanos.get(slot(scope.chatId));
+        return written != 0 && System.nanoTime() - written < readYourWritesNanos;
+    }
+
+    private static int slot(long chatId) {
+        int hash = Long.hashCode(chatId);
+        return (hash ^ (hash >>> 16)) & (WRITE_SLOTS - 1);
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            long lag = replica.queryLag();
+            boolean usable = lag != UNKNOWN_LAG && lag <= maxLagSeconds;
+            if (usable != replica.usable) {
+                log.info("Replica {} {} (lag {} s)", replica.pool.getPoolName(),
+                        usable ? "is used for reads" : "is excluded from reads", lag);
+            }
+            replica.lagSeconds = lag;
+            replica.usable = usable;
+        }
+    }
+
+    private static final class Replica {
+        private final HikariDataSource pool;
+        private volatile long lagSeconds = UNKNOWN_LAG;
+        private volatile boolean usable;
+        // До MySQL 8.0.22 команда называется SHOW SLAVE STATUS
+        private boolean legacyStatus;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        private void markUnavailable() {
+            usable = false;
+            lagSeconds = UNKNOWN_LAG;
+        }
+
+        /**
+         * Отставание в секундах. Пустой статус - сервер не реплика (или репликация
+         * сброшена): отставание неизвестно, с такого сервера не читаем.
+         */
+        private long queryLag() {
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery(legacyStatus ? "SHOW SLAVE STATUS" : "SHOW REPLICA STATUS")) {
+                    if (!rs.next()) {
+                        return UNKNOWN_LAG;
+                    }
+                    long lag = rs.getLong(legacyStatus ? "Seconds_Behind_Master" : "Seconds_Behind_Source");
+                    return rs.wasNull() ? UNKNOWN_LAG : lag;
+                }
+            } catch (SQLSyntaxErrorException e) {
+                if (!legacyStatus) {
+                    legacyStatus = true;
+                    return queryLag();
+                }
+                log.warn("Replica {} status is not available", pool.getPoolName(), e);
+                return UNKNOWN_LAG;
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Replica {} lag check failed: {}", pool.getPoolName(), e.getMessage());
+                return UNKNOWN_LAG;
+            }
+        }
+    }
+
+    private static final class ChatScope {
+        private long chatId;
+        private boolean bound;
+    }
+}
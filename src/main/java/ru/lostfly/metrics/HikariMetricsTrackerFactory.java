@@ -0,0 +1,71 @@
+package ru.lostfly.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Метрики пула HikariCP в {@link MetricsRegistry}: активные, простаивающие
+ * и всего соединений, потоки в ожидании соединения, время ожидания и таймауты.
+ * <p>
+ * Подключается через {@code HikariConfig.setMetricsTrackerFactory}.
+ * PoolStats сам кэширует значения (обновляет не чаще раза в секунду),
+ * поэтому чтение gauge при выгрузке дешевое.
+ */
+public class HikariMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private final MetricsRegistry registry;
+
+    public HikariMetricsTrackerFactory(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        registry.gauge("hikari_connections_active", "Connections in use",
+                poolStats::getActiveConnections, "pool", poolName);
+        registry.gauge("hikari_connections_idle", "Idle connections",
+                poolStats::getIdleConnections, "pool", poolName);
+        registry.gauge("hikari_connections_total", "All connections in the pool",
+                poolStats::getTotalConnections, "pool", poolName);
+        registry.gauge("hikari_connections_pending", "Threads waiting for a connection",
+                poolStats::getPendingThreads, "pool", poolName);
+        registry.gauge("hikari_connections_max", "Maximum pool size",
+                poolStats::getMaxConnections, "pool", poolName);
+
+        return new Tracker(
+                registry.histogram("hikari_connection_acquire_seconds",
+                        "Time spent waiting for a connection", "pool", poolName),
+                registry.histogram("hikari_connection_usage_seconds",
+                        "Time a connection was held before being returned", "pool", poolName),
+                registry.counter("hikari_connection_timeouts_total",
+                        "Connection requests that timed out", "pool", poolName));
+    }
+
+    private static final class Tracker implements IMetricsTracker {
+        private final LatencyHistogram acquire;
+        private final LatencyHistogram usage;
+        private final Counter timeouts;
+
+        private Tracker(LatencyHistogram acquire, LatencyHistogram usage, Counter timeouts) {
+            this.acquire = acquire;
+            this.usage = usage;
+            this.timeouts = timeouts;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquire.record(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usage.record(elapsedBorrowedMillis * 1_000_000L);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.lostfly.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек с фиксированными бакетами по степеням двойки.
+ * <p>
+ * Бакет i содержит значения до 2^(i + 10) нс: от ~1 мкс до ~34 с, дальше - +Inf.
+ * Индекс бакета считается через numberOfLeadingZeros, счетчики - {@link LongAdder},
+ * поэтому {@link #record(long)} не выделяет память и не блокирует потоки
+ * даже при записи из многих потоков одновременно.
+ */
+public final class LatencyHistogram {
+
+    // Первый бакет: до 2^10 нс (~1 мкс)
+    private static final int FIRST_BUCKET_SHIFT = 10;
+    static final int BUCKETS = 26;
+
+    // Верхние границы бакетов в секундах, в формате Prometheus (le="...")
+    private static final String[] UPPER_BOUNDS = new String[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS[i] = Double.toString((1L << (i + FIRST_BUCKET_SHIFT)) / 1e9);
+        }
+    }
+
+    // Последний элемент - переполнение (+Inf)
+    private final LongAdder[] buckets = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Записать одно измерение
+     * @param nanos длительность в наносекундах
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[bucketIndex(nanos)].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Записать время, прошедшее с момента {@code startNanos} (значение System.nanoTime())
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos <= (1L << FIRST_BUCKET_SHIFT)) {
+            return 0;
+        }
+        // Число значащих битов в nanos - 1 = степень двойки верхней границы бакета
+        int bits = 64 - Long.numberOfLeadingZeros(nanos - 1);
+        return Math.min(bits - FIRST_BUCKET_SHIFT, BUCKETS);
+    }
+
+    /**
+     * Вывести гистограмму в текстовом формате Prometheus (бакеты накопительные)
+     */
+    void writeTo(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += buckets[i].sum();
+            writeBucket(out, name, labels, UPPER_BOUNDS[i], cumulative);
+        }
+        cumulative += buckets[BUCKETS].sum();
+        writeBucket(out, name, labels, "+Inf", cumulative);
+
+        out.append(name).append("_sum").append(braces(labels)).append(' ')
+                .append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count").append(braces(labels)).append(' ')
+                .append(cumulative).append('\n');
+    }
+
+    private static void writeBucket(StringBuilder out, String name, String labels, String le, long value) {
+        out.append(name).append("_bucket{");
+        if (!labels.isEmpty()) {
+            out.append(labels).append(',');
+        }
+        out.append("le=\"").append(le).append("\"} ").append(value).append('\n');
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+}
@@ -0,0 +1,149 @@
+package ru.lostfly.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Реестр метрик приложения и их вывод в текстовом формате Prometheus.
+ * <p>
+ * Регистрация (поиск по имени и меткам) выполняется один раз - при создании
+ * компонента; горячий путь работает с уже полученными {@link LatencyHistogram}
+ * и {@link Counter} напрямую. Повторная регистрация с теми же именем и метками
+ * возвращает существующую метрику.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    // Имя -> семейство метрик; сортировка дает стабильный порядок вывода
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Общий реестр приложения (его отдает {@link MetricsHttpServer})
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Гистограмма задержек
+     * @param labels пары "имя метки", "значение", ...
+     */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.HISTOGRAM)
+                .metrics.computeIfAbsent(formatLabels(labels), key -> new LatencyHistogram());
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER)
+                .metrics.computeIfAbsent(formatLabels(labels), key -> new Counter());
+    }
+
+    /**
+     * Счетчик, который уже ведет другой компонент (например, попадания кэша):
+     * значение читается в момент выгрузки, но выводится как counter, а не gauge.
+     * Источник должен только расти. Повторная регистрация заменяет источник значения.
+     */
+    public void counterFunction(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Значение, которое читается в момент выгрузки (размер пула, очереди и т.п.).
+     * Повторная регистрация заменяет источник значения.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Все метрики в текстовом формате Prometheus (text/plain; version=0.0.4)
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.text).append('\n');
+            for (Map.Entry<String, Object> entry : family.metrics.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                switch (family.type) {
+                    case HISTOGRAM -> ((LatencyHistogram) metric).writeTo(out, family.name, labels);
+                    case COUNTER -> writeSample(out, family.name, labels, metric instanceof Counter counter
+                            ? counter.get() : ((LongSupplier) metric).getAsLong());
+                    case GAUGE -> writeSample(out, family.name, labels, ((DoubleSupplier) metric).getAsDouble());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+        }
+        return family;
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, Object value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> out.append("\\\\");
+                    case '"' -> out.append("\\\"");
+                    case '\n' -> out.append("\\n");
+                    default -> out.append(c);
+                }
+            }
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    private enum Type {
+        HISTOGRAM("histogram"),
+        COUNTER("counter"),
+        GAUGE("gauge");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        // Метки -> метрика
+        private final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ru.lostfly.business.service.impl;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import ru.lostfly.business.domain.book.Book;
+import ru.lostfly.business.domain.reader.Reader;
+import ru.lostfly.business.repository.BookRepository;
+import ru.lostfly.business.service.LibraryService;
+import ru.lostfly.components.repository.RepositoryComponent;
+import ru.lostfly.components.service.ServiceComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Выдача и возврат "горячих" книг из многих потоков, по несколько потоков на читателя
+ * (то же, что benchmarks/LoanStressCheck, но с меньшим числом операций - для mvn test).
+ * Проверяется, что книга не выдана двум потокам сразу, лимит читателя не превышен,
+ * счетчик прочтений равен числу выдач и после возврата всех книг каталог снова доступен.
+ */
+class LoanConcurrencyTest {
+
+    private static final String BORROWED = "Книга успешно взята";
+    private static final String RETURNED = "Книга успешно возвращена";
+
+    private static final int BOOKS = 8;
+    private static final int THREADS_PER_READER = 3;
+    private static final int OPERATIONS = 20_000;
+
+    @ParameterizedTest
+    @EnumSource(value = RepositoryComponent.RepositoryMode.class,
+            names = {"IN_MEMORY", "IN_MEMORY_INDEXED", "IN_MEMORY_COMPACT"})
+    void concurrentBorrowAndReturnKeepInvariants(RepositoryComponent.RepositoryMode mode) throws Exception {
+        RepositoryComponent repositories = new RepositoryComponent(mode);
+        ServiceComponent services = new ServiceComponent(repositories);
+        try {
+            run(repositories, services.getLibraryService(), mode);
+        } finally {
+            services.close();
+            repositories.close();
+        }
+    }
+
+    private static void run(RepositoryComponent repositories, LibraryService service,
+                            RepositoryComponent.RepositoryMode mode) throws Exception {
+        BookRepository bookRepository = repositories.getBookRepository();
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+        String[] isbns = new String[BOOKS];
+        for (int i = 0; i < BOOKS; i++) {
+            isbns[i] = String.format("978-5-%07d", i);
+            bookRepository.save(new Book(isbns[i], "Книга " + i, "Автор " + i));
+        }
+        int readerCount = Math.max(1, threads / THREADS_PER_READER);
+        Reader[] readers = new Reader[readerCount];
+        for (int i = 0; i < readerCount; i++) {
+            readers[i] = new Reader("STRESS-" + i, "Stress reader " + i);
+            repositories.getReaderRepository().save(readers[i]);
+        }
+
+        // Счетчик уменьшается до возврата, поэтому значение больше лимита - гарантированное нарушение
+        AtomicIntegerArray holders = new AtomicIntegerArray(BOOKS);
+        AtomicIntegerArray readerLoans = new AtomicIntegerArray(readerCount);
+        AtomicIntegerArray borrowCounts = new AtomicIntegerArray(BOOKS);
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int readerIndex = t % readerCount;
+            SplittableRandom random = new SplittableRandom(t);
+            tasks.add(executor.submit(() -> {
+                Reader reader = readers[readerIndex];
+                List<Integer> held = new ArrayList<>();
+                start.await();
+                for (int op = 0; op < OPERATIONS; op++) {
+                    if (!held.isEmpty() && random.nextBoolean()) {
+                        int book = held.remove(random.nextInt(held.size()));
+                        holders.decrementAndGet(book);
+                        readerLoans.decrementAndGet(readerIndex);
+                        String result = service.returnBook(bookRepository.findByIsbn(isbns[book]), reader);
+                        if (!RETURNED.equals(result)) {
+                            violations.add("Return of a held book failed: " + result);
+                        }
+                        continue;
+                    }
+                    int book = random.nextInt(BOOKS);
+                    if (!BORROWED.equals(service.borrowBook(isbns[book], reader))) {
+                        continue;
+                    }
+                    borrowCounts.incrementAndGet(book);
+                    held.add(book);
+                    if (holders.incrementAndGet(book) > 1) {
+                        violations.add("Book borrowed twice: " + isbns[book]);
+                    }
+                    if (readerLoans.incrementAndGet(readerIndex) > Reader.MAX_BOOKS) {
+                        violations.add("Reader limit exceeded: " + reader.getId());
+                    }
+                }
+                for (int book : held) {
+                    holders.decrementAndGet(book);
+                    readerLoans.decrementAndGet(readerIndex);
+                    service.returnBook(bookRepository.findByIsbn(isbns[book]), reader);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> task : tasks) {
+                task.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = bookRepository.findByIsbn(isbns[i]);
+            if (book.getTimesRead() != borrowCounts.get(i)) {
+                violations.add("timesRead of " + isbns[i] + " is " + book.getTimesRead()
+                        + ", expected " + borrowCounts.get(i));
+            }
+        }
+        if (bookRepository.findAvailableBooks().size() != BOOKS) {
+            violations.add("Not all books are available after returning everything");
+        }
+
+        assertEquals(List.of(), new ArrayList<>(violations), mode + ": invariant violations");
+        assertTrue(sum(borrowCounts) > 0, mode + ": no borrow succeeded");
+    }
+
+    private static long sum(AtomicIntegerArray values) {
+        long total = 0;
+        for (int i = 0; i < values.length(); i++) {
+            total += values.get(i);
+        }
+        return total;
+    }
+}